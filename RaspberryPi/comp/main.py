@@ -37,6 +37,17 @@ MODE = 0 # 0 = running, 1 = pause, 2 = stop, 3 = shutdown, 4 = reboot
 START = time.time()
 LOOPS = 0
 
+## PROTOCOL (see docs)
+PROTOCOL_VERSION = 2 # 1 = single refresh packet (old), 2 = two frames with sequence number and capture time
+SEQ = 0
+SYNC = (0, 0.0) # (sequence number, time received), sequence number 0 = not synced yet
+MAX_TARGETS = 4 # target frames sent with each update (must match ArmPITargets.kCAPACITY)
+
+## TARGET DISTANCE (pinhole camera, 0 = unknown)
+FOCAL_LENGTH = 0 # px, measure with a piece at a known distance (0 = not measured, so distances aren't sent)
+CONE_WIDTH = 213 # mm, at the base
+CUBE_WIDTH = 241 # mm
+
 ## CONTROL (restart, shutdown, stop, etc)
 @device.receive(2)
 def control(index, data):
@@ -62,8 +73,15 @@ def control(index, data):
 			return
 		server.run()
 		CAMERA_SERVER_RUNNING = True
+	elif index == 6: # time sync
+		sync(data)
 	else:
-		log.warn("Unknown control message: " + index)
+		log.warn("Unknown control message: " + str(index))
+
+## TIME SYNC
+def sync(data):
+	global SYNC
+	SYNC = (data[0], time.monotonic()) # the rest is the roboRIO's time, which isn't needed here
 
 ## CREATE PACKET (see docs)
 def toBinary(value, size):
@@ -101,6 +119,87 @@ def buildPacket(hasTarget, x, y, dist, t, ls, vi, temp, cpu, mem, fps):
 	# it is assumed, at this point, the length of packet is exactly 64 bits
 	return packet
 
+## CREATE FRAMES (version 2, see docs)
+CRC8_TABLE = []
+
+for i in range(256):
+	crc = i
+	for b in range(8):
+		crc = ((crc << 1) ^ 0x07) if crc & 0x80 else (crc << 1)
+	CRC8_TABLE.append(crc & 0xFF)
+
+def crc8(data):
+	crc = 0
+	for byte in data:
+		crc = CRC8_TABLE[crc ^ byte]
+	return crc
+
+def clamp(value, size):
+	return max(0, min(int(value), (1 << size) - 1))
+
+def buildFrames(seq, sync, captureTime, targetCount, hasTarget, x, y, dist, t, ls, vi, temp, cpu, mem, fps):
+	syncSeq, syncTime = sync
+
+	# Frame A: version, sequence, capture time, target angles
+	a = (2 << 60) | (seq << 48)
+
+	if syncSeq != 0:
+		a |= (syncSeq << 40) | (clamp((captureTime - syncTime) * 1e6, 24) << 16)
+
+	if hasTarget:
+		a |= ((x > 0) << 15) | (clamp(abs(x), 7) << 8) | ((y > 0) << 7) | clamp(abs(y), 7)
+
+	# Frame B: sequence, flags, everything else, CRC of both frames
+	b = (seq << 52) | (bool(hasTarget) << 51) | (bool(t) << 50) | (bool(ls) << 49) | (bool(vi) << 48)
+	b |= (clamp(dist, 10) << 38) | (clamp(temp, 7) << 31) | (clamp(cpu, 7) << 24) | (clamp(mem, 7) << 17) | (clamp(fps, 6) << 11)
+	b |= clamp(targetCount, 3) << 8
+
+	aBytes = a.to_bytes(8, "big")
+	b |= crc8(aBytes + b.to_bytes(8, "big")[:7])
+
+	return aBytes, b.to_bytes(8, "big")
+
+def buildTargetFrame(seq, count, t, x, y, area, dist):
+	frame = (seq << 52) | (clamp(count, 3) << 49) | (bool(t) << 48)
+	frame |= ((x > 0) << 47) | (clamp(abs(x), 7) << 40) | ((y > 0) << 39) | (clamp(abs(y), 7) << 32)
+	frame |= (clamp(round(area * 1000), 10) << 22) | (clamp(dist, 10) << 12)
+	frame |= crc8(frame.to_bytes(8, "big")[:7])
+
+	return frame.to_bytes(8, "big")
+
+## TARGETS
+def getTargetType(contour, rect, default):
+	# much more accurate than different pipelines
+	avg = VisionUtils.getColor(cubeDetector.cv_resize_output, contour, rect)
+	if avg == -1:
+		return default
+
+	avg = VisionUtils.getHSV(avg[0], avg[1], avg[2])
+	return VisionUtils.distHSV(avg, [55, 0.93, 0.84]) > VisionUtils.distHSV(avg, [272, 0.53, 0.62])
+
+def getTargets(cones, cubes):
+	# largest first, as (is cone, x, y, area, distance)
+	contours = [(c, False) for c in cones] + [(c, True) for c in cubes]
+	contours = sorted(contours, key=lambda c: cv2.contourArea(c[0]), reverse=True)[:MAX_TARGETS]
+
+	height, width = cubeDetector.cv_resize_output.shape[:2]
+	targets = []
+
+	for contour, default in contours:
+		rect = cv2.boundingRect(contour)
+		isCone = not getTargetType(contour, rect, default)
+		dist = 0 if FOCAL_LENGTH == 0 else FOCAL_LENGTH * (CONE_WIDTH if isCone else CUBE_WIDTH) / rect[2]
+
+		targets.append((
+			isCone,
+			rect[0] + (rect[2]/2),
+			rect[1] + (rect[3]/2),
+			cv2.contourArea(contour) / (width * height),
+			dist
+		))
+
+	return targets
+
 ## RUN
 device.startListening()
 
@@ -114,6 +213,7 @@ while True:
 
 	# Get frame
 	success, frame = camera1.read()
+	captureTime = time.monotonic()
 
 	if not success:
 		log.warn("Could not fetch frame")
@@ -150,15 +250,12 @@ while True:
 		target = cv2.boundingRect(cones[0])
 		contour = cones[0]
 
-	# Get target type (much more accurate than different pipelines)
+	# Get target type
 	if target != None:
-		avg = VisionUtils.getColor(cubeDetector.cv_resize_output, contour, target)
-		if avg != -1:
-			avg = VisionUtils.getHSV(avg[0], avg[1], avg[2])
-			targetType = VisionUtils.distHSV(avg, [55, 0.93, 0.84]) > VisionUtils.distHSV(avg, [272, 0.53, 0.62])
+		targetType = getTargetType(contour, target, targetType)
 
 	# Send CAN packet
-	device.send(1, 0, buildPacket(
+	values = (
 		(target != None),
 		0 if target == None else target[0] + (target[2]/2),
 		0 if target == None else target[1] + (target[3]/2),
@@ -170,7 +267,21 @@ while True:
 		stat.cpu,
 		stat.mem,
 		int(LOOPS / (time.time() - START))
-	))
+	)
+
+	if PROTOCOL_VERSION == 1:
+		device.send(1, 0, buildPacket(*values))
+	else:
+		targets = getTargets(cones, cubes)
+		frameA, frameB = buildFrames(SEQ, SYNC, captureTime, len(targets), *values)
+		device.send(1, 1, frameA)
+		device.send(1, 2, frameB)
+
+		# One frame for each target, each on its own index so the robot doesn't miss any
+		for i, info in enumerate(targets):
+			device.send(1, 3 + i, buildTargetFrame(SEQ, len(targets), *info))
+
+		SEQ = (SEQ + 1) % 4096
 
 	LOOPS+=1
 
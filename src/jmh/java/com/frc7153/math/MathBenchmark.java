@@ -0,0 +1,49 @@
+package com.frc7153.math;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import com.frc7153.math.Encoder.Range;
+import com.frc7153.swervedrive.SwerveMathUtils;
+
+/**
+ * Benchmarks for the math utilities that run every loop
+ */
+@State(Scope.Thread)
+public class MathBenchmark {
+    // Inputs (changed every call, so results can't be constant folded)
+    private double angle = 0.0;
+    private double position = 0.0;
+    private double raw = 0.0;
+
+    // Encoder, with a mocked sensor
+    private Encoder encoder;
+
+    @Setup
+    public void setup() {
+        encoder = new Encoder(() -> raw);
+        encoder.setConversionFactor(360.0);
+        encoder.setZeroOffset(0.1);
+        encoder.setRange(Range.FROM_NEGATIVE_180_TO_180);
+    }
+
+    @Benchmark
+    public double normalizeAngle180() {
+        angle += 7.3;
+        return MathUtils.normalizeAngle180(angle);
+    }
+
+    @Benchmark
+    public double calculateContinuousMovement() {
+        position += 0.37;
+        return SwerveMathUtils.calculateContinuousMovement(position, 5.0, 150.0 / 7.0);
+    }
+
+    @Benchmark
+    public double encoderGetPosition() {
+        raw = (raw + 0.013) % 1.0;
+        return encoder.getPosition();
+    }
+}
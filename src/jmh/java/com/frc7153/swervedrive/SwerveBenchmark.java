@@ -0,0 +1,83 @@
+package com.frc7153.swervedrive;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import edu.wpi.first.hal.HAL;
+import edu.wpi.first.math.geometry.Rotation2d;
+import edu.wpi.first.math.kinematics.SwerveModuleState;
+
+/**
+ * Benchmarks for the swerve drive's hot paths, through a real {@link SwerveBase} on mock wheels.<br><br>
+ * SwerveBase is a subsystem, so the desktop HAL is started first (see the jmh block in build.gradle).
+ */
+@State(Scope.Thread)
+public class SwerveBenchmark {
+    // Drive
+    private SwerveBase base;
+    private final double[] odometryPose = new double[4];
+
+    // Pose History
+    private PoseHistory history;
+    private final double[] pose = new double[3];
+
+    // Inputs (changed every call, so results can't be constant folded)
+    private double heading = 0.0;
+    private double time = 0.0;
+
+    @Setup
+    public void setup() {
+        if (!HAL.initialize(500, 0)) { throw new IllegalStateException("Could not initialize the HAL"); }
+
+        base = new SwerveBase(
+            new MockSwerveWheel(0.24, 0.37),
+            new MockSwerveWheel(0.24, -0.37),
+            new MockSwerveWheel(-0.24, 0.37),
+            new MockSwerveWheel(-0.24, -0.37)
+        );
+        base.startOdometry(0.0, 0.0, 0.0, 0.0);
+        base.driveAbsolute(2.0, 1.0, 30.0); // So odometry has movement to integrate
+
+        // Full pose history (2 seconds at 250 hz)
+        history = new PoseHistory(2.0, 250.0);
+        for (int i = 0; i < 501; i++) { history.add(i * 0.004, i * 0.01, i * 0.02, i * 0.1); }
+    }
+
+    @Benchmark
+    public void driveFieldOriented() {
+        heading += 1.3;
+        base.driveFieldOrientedAbsolute(2.0, 1.0, 90.0, heading);
+    }
+
+    @Benchmark
+    public boolean optimizePrimitive() {
+        heading += 1.3;
+        return SwerveMathUtils.shouldReverse(heading, 45.0);
+    }
+
+    @Benchmark
+    public SwerveModuleState optimizeWPILib() {
+        heading += 1.3;
+        return SwerveModuleState.optimize(new SwerveModuleState(2.0, Rotation2d.fromDegrees(heading)), Rotation2d.fromDegrees(45.0));
+    }
+
+    @Benchmark
+    public double odometryUpdate() {
+        heading += 0.1;
+
+        base.updateSimulation(0.005);
+        base.updateOdometry(heading);
+        base.getOdometryPose(odometryPose);
+        return odometryPose[1];
+    }
+
+    @Benchmark
+    public double poseHistoryLookup() {
+        time = (time + 0.0037) % 2.0;
+
+        history.getPoseAt(time, pose);
+        return pose[0];
+    }
+}
@@ -0,0 +1,53 @@
+package frc.robot;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+
+import edu.wpi.first.math.geometry.Translation2d;
+import frc.robot.peripherals.ArmPIPacket;
+import frc.robot.subsystems.Arm;
+import frc.robot.subsystems.Arm.ArmState;
+
+/**
+ * Benchmarks for the arm's kinematics and decoding the ArmPI's packets
+ */
+@State(Scope.Thread)
+public class ArmBenchmark {
+    // Inputs (changed every call, so results can't be constant folded)
+    private double angle = 0.0;
+
+    // ArmPI packet (target at 12, -5 degrees, 850 mm, cone, 45 c, 30% cpu, 20% mem, 28 fps)
+    private final byte[] packet = {(byte) 0x8C, (byte) 0x05, (byte) 0xD4, (byte) 0xAA, (byte) 0xD3, (byte) 0xC5, (byte) 0x1C, (byte) 0xF1};
+    private final ArmPIPacket decoded = new ArmPIPacket();
+    private final LegacyArmPIDecoder legacyDecoded = new LegacyArmPIDecoder();
+
+    @Benchmark
+    public Translation2d kinematics() {
+        angle = (angle + 1.7) % 120.0;
+        return Arm.kinematics(40.0, angle);
+    }
+
+    @Benchmark
+    public ArmState inverseKinematics() {
+        angle = (angle + 1.7) % 120.0;
+        return Arm.inverseKinematics(angle * 0.3, 40.0);
+    }
+
+    @Benchmark
+    public ArmPIPacket armPIDecode() {
+        decoded.decode(packet);
+        return decoded;
+    }
+
+    @Benchmark
+    public LegacyArmPIDecoder armPIDecodeLegacy() {
+        legacyDecoded.decode(packet);
+        return legacyDecoded;
+    }
+
+    @Benchmark
+    public long armPIEncode() {
+        return decoded.encode();
+    }
+}
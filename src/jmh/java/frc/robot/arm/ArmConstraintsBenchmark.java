@@ -0,0 +1,77 @@
+package frc.robot.arm;
+
+import java.util.Random;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import edu.wpi.first.math.geometry.Translation2d;
+import frc.robot.Constants.ArmConstants;
+import frc.robot.subsystems.Arm;
+import frc.robot.subsystems.Arm.ArmState;
+
+/**
+ * Benchmarks the {@link ArmConstraints} grid against the exact check, and against the box clamp it replaced
+ */
+@State(Scope.Thread)
+public class ArmConstraintsBenchmark {
+    // Config
+    private static final int kSAMPLES = 1024; // Power of two
+    private static final long kSEED = 7153;
+
+    // Random setpoints across the whole range (cycled through, so results can't be constant folded)
+    private final double[] angles = new double[kSAMPLES];
+    private final double[] exts = new double[kSAMPLES];
+    private int sample = 0;
+
+    private ArmConstraints constraints;
+
+    @Setup
+    public void setup() {
+        Random random = new Random(kSEED);
+
+        for (int i = 0; i < kSAMPLES; i++) {
+            angles[i] = ArmConstraints.kMIN_ANGLE + random.nextDouble() * (ArmConstraints.kMAX_ANGLE - ArmConstraints.kMIN_ANGLE);
+            exts[i] = ArmConstraints.kMIN_EXT + random.nextDouble() * (ArmConstraints.kMAX_EXT - ArmConstraints.kMIN_EXT);
+        }
+
+        constraints = ArmConstraints.getInstance();
+    }
+
+    @Benchmark
+    public boolean legalityExact() {
+        sample = (sample + 1) & (kSAMPLES - 1);
+        return ArmConstraints.isLegal(angles[sample], exts[sample], 0.0);
+    }
+
+    @Benchmark
+    public boolean legalityGrid() {
+        sample = (sample + 1) & (kSAMPLES - 1);
+        return constraints.isLegal(angles[sample], exts[sample]);
+    }
+
+    @Benchmark
+    public ArmState setpointBoxClamp() {
+        sample = (sample + 1) & (kSAMPLES - 1);
+        return boxClamp(exts[sample], angles[sample]);
+    }
+
+    @Benchmark
+    public ArmState setpointProjection() {
+        sample = (sample + 1) & (kSAMPLES - 1);
+        return constraints.project(angles[sample], exts[sample]);
+    }
+
+    // The box clamp Arm used before the grid (forward kinematics, clamp the claw, inverse kinematics)
+    private static ArmState boxClamp(double ext, double angle) {
+        Translation2d pose = Arm.kinematics(ext, angle);
+        double x = Math.min(Math.max(pose.getX(), -ArmConstants.kMAX_X), ArmConstants.kMAX_X);
+        double y = Math.min(Math.max(pose.getY(), ArmConstants.kMIN_Y), ArmConstants.kMAX_Y);
+
+        ArmState state = Arm.inverseKinematics(x, y);
+        state.extension -= ArmConstants.kHAND_LENGTH;
+        return state;
+    }
+}
@@ -0,0 +1,127 @@
+package com.frc7153.controllers.config;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import com.ctre.phoenix.ErrorCode;
+import com.revrobotics.REVLibError;
+
+/**
+ * What happened while configuring one motor controller: which settings were different on the device (and were
+ * written), which calls failed, and how long it took.
+ */
+public class ConfigReport {
+    // Settings stored on the device are rounded (float for Spark Max, fixed point for TalonFX)
+    private static final double kTOLERANCE = 1e-3; // Relative
+
+    // Report
+    private final String name;
+    private final List<String> changes = new ArrayList<>();
+    private final List<String> failures = new ArrayList<>();
+    private double time = Double.NaN; // Seconds, NaN if not finished
+
+    /**
+     * Creates a new, empty report
+     * @param name Name of the device
+     */
+    public ConfigReport(String name) { this.name = name; }
+
+    // Compare
+    /**
+     * Checks if a setting on the device is different from what it should be (and records it if it is)
+     * @param setting Name of the setting
+     * @param actual Value on the device
+     * @param desired Value it should be
+     * @return Whether the setting should be written
+     */
+    public synchronized boolean differs(String setting, double actual, double desired) {
+        if (Math.abs(actual - desired) <= Math.max(Math.abs(desired) * kTOLERANCE, 1e-9)) { return false; }
+
+        changes.add(String.format("%s %s -> %s", setting, actual, desired));
+        return true;
+    }
+
+    /**
+     * Checks if a (non-numeric) setting on the device is different from what it should be (and records it if it is)
+     * @param setting Name of the setting
+     * @param actual Value on the device
+     * @param desired Value it should be
+     * @return Whether the setting should be written
+     */
+    public synchronized boolean differsExactly(String setting, Object actual, Object desired) {
+        if (desired.equals(actual)) { return false; }
+
+        changes.add(String.format("%s %s -> %s", setting, actual, desired));
+        return true;
+    }
+
+    // Errors
+    /**
+     * Records a failed call to a Spark Max
+     * @param call What was being done
+     * @param error The result of the call
+     * @return Whether the call worked
+     */
+    public boolean check(String call, REVLibError error) {
+        if (error == null || error == REVLibError.kOk) { return true; }
+
+        fail(String.format("%s (%s)", call, error));
+        return false;
+    }
+
+    /**
+     * Records a failed call to a CTRE device
+     * @param call What was being done
+     * @param error The result of the call
+     * @return Whether the call worked
+     */
+    public boolean check(String call, ErrorCode error) {
+        if (error == null || error == ErrorCode.OK) { return true; }
+
+        fail(String.format("%s (%s)", call, error));
+        return false;
+    }
+
+    /**
+     * Records a failure
+     * @param reason What went wrong
+     */
+    public synchronized void fail(String reason) { failures.add(reason); }
+
+    /**
+     * Marks the report as done
+     * @param time How long configuring took (seconds)
+     */
+    public synchronized void finish(double time) { this.time = time; }
+
+    // Getters
+    /**
+     * @return Name of the device
+     */
+    public String getName() { return name; }
+
+    /**
+     * @return Whether any settings were different
+     */
+    public synchronized boolean hasChanges() { return !changes.isEmpty(); }
+
+    /**
+     * @return Whether any calls failed (or it didn't finish)
+     */
+    public synchronized boolean hasFailed() { return !failures.isEmpty() || Double.isNaN(time); }
+
+    /**
+     * @return How long configuring took (seconds), NaN if it didn't finish
+     */
+    public synchronized double getTime() { return time; }
+
+    @Override
+    public synchronized String toString() {
+        String msg = Double.isNaN(time) ?
+            String.format("%s: did not finish", name) :
+            String.format("%s: %.0f ms, %s", name, time * 1000.0, changes.isEmpty() ? "up to date" : String.format("changed %s", String.join(", ", changes)));
+
+        if (!failures.isEmpty()) { msg += String.format(", failed %s", String.join(", ", failures)); }
+        return msg;
+    }
+}
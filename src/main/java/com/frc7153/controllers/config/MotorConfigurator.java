@@ -0,0 +1,141 @@
+package com.frc7153.controllers.config;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Consumer;
+
+import com.ctre.phoenix.motorcontrol.can.TalonFX;
+import com.revrobotics.CANSparkMax;
+
+import edu.wpi.first.wpilibj.DriverStation;
+
+/**
+ * Configures motor controllers at startup, several at a time.<br><br>
+ * Configuring a controller blocks while it talks over CAN, so doing every controller one after another makes the robot
+ * slow to start. Instead, subsystems call {@code configure()} in their constructors, which starts configuring that
+ * controller in the background right away. {@code finish()} (called once the robot is built) waits for all of them,
+ * and prints how long each took and what was changed.
+ */
+public class MotorConfigurator {
+    // Config
+    private static final int kTHREADS = 4;
+    private static final int kCAN_TIMEOUT = 100; // Milliseconds, per call
+    private static final double kTIMEOUT = 5.0; // Seconds, for all controllers to finish
+
+    // Instance
+    private static MotorConfigurator instance;
+
+    /**
+     * @return The configurator
+     */
+    public static MotorConfigurator getInstance() {
+        if (instance == null) { instance = new MotorConfigurator(); }
+        return instance;
+    }
+
+    // Pending
+    private ExecutorService executor;
+    private final List<ConfigReport> reports = new ArrayList<>();
+    private final List<Future<?>> tasks = new ArrayList<>();
+    private long startTime = 0;
+
+    // Constructor
+    private MotorConfigurator() {}
+
+    /**
+     * Starts configuring a Spark Max in the background
+     * @param name Name of the controller (for the report)
+     * @param motor The Spark Max
+     * @param config Settings to apply
+     */
+    public void configure(String name, CANSparkMax motor, SparkMaxConfig config) {
+        submit(String.format("Spark Max %s (%s)", motor.getDeviceId(), name), report -> config.apply(motor, report));
+    }
+
+    /**
+     * Starts configuring a TalonFX in the background
+     * @param name Name of the controller (for the report)
+     * @param motor The TalonFX
+     * @param config Settings to apply
+     */
+    public void configure(String name, TalonFX motor, TalonFXConfig config) {
+        submit(String.format("TalonFX %s (%s)", motor.getDeviceID(), name), report -> config.apply(motor, report, kCAN_TIMEOUT));
+    }
+
+    // Start a task
+    private synchronized void submit(String name, Consumer<ConfigReport> task) {
+        if (executor == null) {
+            executor = Executors.newFixedThreadPool(kTHREADS, runnable -> {
+                Thread thread = new Thread(runnable, "Motor Configurator");
+                thread.setDaemon(true);
+                return thread;
+            });
+
+            startTime = System.nanoTime();
+        }
+
+        ConfigReport report = new ConfigReport(name);
+        reports.add(report);
+
+        tasks.add(executor.submit(() -> {
+            long start = System.nanoTime();
+            task.accept(report);
+            report.finish((System.nanoTime() - start) / 1e9);
+        }));
+    }
+
+    /**
+     * Waits for every controller to finish being configured (up to a timeout), then reports what happened.
+     * Controllers that changed are reported as warnings, and controllers that failed or timed out as errors.
+     * @return The reports for each controller
+     */
+    public synchronized List<ConfigReport> finish() {
+        List<ConfigReport> finished = new ArrayList<>(reports);
+        if (executor == null) { return finished; }
+
+        // Wait
+        long deadline = System.nanoTime() + (long) (kTIMEOUT * 1e9);
+
+        for (int i = 0; i < tasks.size(); i++) {
+            try {
+                tasks.get(i).get(Math.max(deadline - System.nanoTime(), 0), TimeUnit.NANOSECONDS);
+            } catch (TimeoutException e) {
+                tasks.get(i).cancel(true);
+            } catch (ExecutionException e) {
+                reports.get(i).fail(e.getCause().toString());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+        }
+
+        executor.shutdownNow();
+        executor = null;
+
+        // Report
+        int changed = 0;
+
+        for (ConfigReport report : finished) {
+            if (report.hasFailed()) {
+                DriverStation.reportError(String.format("Motor config failed: %s", report), false);
+            } else if (report.hasChanges()) {
+                DriverStation.reportWarning(String.format("Motor config changed: %s", report), false);
+                changed++;
+            } else {
+                System.out.println(String.format("Motor config: %s", report));
+            }
+        }
+
+        System.out.println(String.format("Configured %s motor controllers in %.0f ms (%s changed)", finished.size(), (System.nanoTime() - startTime) / 1e6, changed));
+
+        reports.clear();
+        tasks.clear();
+        return finished;
+    }
+}
@@ -0,0 +1,247 @@
+package com.frc7153.controllers.config;
+
+import com.frc7153.math.PIDConstant;
+import com.revrobotics.AbsoluteEncoder;
+import com.revrobotics.CANSparkMax;
+import com.revrobotics.RelativeEncoder;
+import com.revrobotics.SparkMaxPIDController;
+import com.revrobotics.CANSparkMax.IdleMode;
+import com.revrobotics.SparkMaxAbsoluteEncoder.Type;
+
+/**
+ * Settings for a CAN Spark Max, applied with {@link MotorConfigurator}. Only settings that are given are applied.<br><br>
+ * Settings that can be read back are compared with the Spark Max first, and only written if they are different. The flash
+ * is only burned if something was written. The current limit and feedback device can't be read back, so they are always
+ * written (this is fast, and they don't cause the flash to be burned on their own).
+ */
+public class SparkMaxConfig {
+    // Settings (null or NaN if not given)
+    private Boolean inverted = null;
+    private IdleMode idleMode = null;
+    private int currentLimit = 0;
+    private PIDConstant pid = null;
+    private Boolean pidWrapping = null;
+
+    private double positionConversion = Double.NaN;
+    private double velocityConversion = Double.NaN;
+    private int measurementPeriod = 0;
+    private int averageDepth = 0;
+
+    private double encoderPosition = Double.NaN;
+
+    private double smartMotionMaxVelocity = Double.NaN;
+    private double smartMotionMaxAccel = Double.NaN;
+
+    private boolean absEncoder = false;
+    private boolean absEncoderInverted = false;
+    private double absEncoderOffset = 0.0;
+
+    // Modifiers
+    /**
+     * @param inverted Whether the motor is inverted
+     * @return This object (modifications are done in place)
+     */
+    public SparkMaxConfig withInverted(boolean inverted) { this.inverted = inverted; return this; }
+
+    /**
+     * @param mode Idle mode at startup
+     * @return This object (modifications are done in place)
+     */
+    public SparkMaxConfig withIdleMode(IdleMode mode) { idleMode = mode; return this; }
+
+    /**
+     * @param limit Smart current limit (amps)
+     * @return This object (modifications are done in place)
+     */
+    public SparkMaxConfig withCurrentLimit(int limit) { currentLimit = limit; return this; }
+
+    /**
+     * @param pid PID constants (applied to their slot)
+     * @return This object (modifications are done in place)
+     */
+    public SparkMaxConfig withPID(PIDConstant pid) { this.pid = pid; return this; }
+
+    /**
+     * @param enabled Whether position PID wrapping is enabled
+     * @return This object (modifications are done in place)
+     */
+    public SparkMaxConfig withPositionWrapping(boolean enabled) { pidWrapping = enabled; return this; }
+
+    /**
+     * @param position Conversion factor of the built-in encoder's position (units per motor rotation)
+     * @param velocity Conversion factor of the built-in encoder's velocity (units per RPM)
+     * @return This object (modifications are done in place)
+     */
+    public SparkMaxConfig withEncoderConversion(double position, double velocity) {
+        positionConversion = position;
+        velocityConversion = velocity;
+        return this;
+    }
+
+    /**
+     * Sets the built-in encoder's position once everything else is applied (so nothing else talks to the Spark Max at
+     * the same time). This is not saved to flash.
+     * @param position Position (position units, after conversion)
+     * @return This object (modifications are done in place)
+     */
+    public SparkMaxConfig withEncoderPosition(double position) { encoderPosition = position; return this; }
+
+    /**
+     * Sets how the built-in encoder's velocity is measured (shorter is less delayed, but noisier)
+     * @param periodMs Time the velocity is measured over (milliseconds, at least 8)
+     * @param depth Number of measurements averaged (1, 2, 4 or 8)
+     * @return This object (modifications are done in place)
+     */
+    public SparkMaxConfig withVelocityFilter(int periodMs, int depth) {
+        measurementPeriod = periodMs;
+        averageDepth = depth;
+        return this;
+    }
+
+    /**
+     * Sets the Smart Motion profile (applied to the PID slot, or slot 0 if there is no PID)
+     * @param maxVelocity Max velocity (velocity units, after conversion)
+     * @param maxAccel Max acceleration (velocity units per second)
+     * @return This object (modifications are done in place)
+     */
+    public SparkMaxConfig withSmartMotion(double maxVelocity, double maxAccel) {
+        smartMotionMaxVelocity = maxVelocity;
+        smartMotionMaxAccel = maxAccel;
+        return this;
+    }
+
+    /**
+     * Uses the duty cycle absolute encoder (connected to the Spark Max) for PID
+     * @param inverted Whether the encoder is inverted
+     * @param zeroOffset Zero offset of the encoder (rotations)
+     * @return This object (modifications are done in place)
+     */
+    public SparkMaxConfig withAbsoluteEncoder(boolean inverted, double zeroOffset) {
+        absEncoder = true;
+        absEncoderInverted = inverted;
+        absEncoderOffset = zeroOffset;
+        return this;
+    }
+
+    // Apply
+    /**
+     * Applies these settings to a Spark Max (blocks while it talks to the Spark Max)
+     * @param motor The Spark Max
+     * @param report Report to record changes and failures in
+     */
+    public void apply(CANSparkMax motor, ConfigReport report) {
+        SparkMaxPIDController controller = motor.getPIDController();
+        boolean changed = false;
+
+        // Motor
+        if (inverted != null && report.differsExactly("inverted", motor.getInverted(), inverted)) {
+            motor.setInverted(inverted);
+            changed = true;
+        }
+
+        if (idleMode != null && report.differsExactly("idle mode", motor.getIdleMode(), idleMode)) {
+            changed |= report.check("idle mode", motor.setIdleMode(idleMode));
+        }
+
+        if (currentLimit > 0) { report.check("current limit", motor.setSmartCurrentLimit(currentLimit)); }
+
+        // Encoder
+        if (!Double.isNaN(positionConversion)) {
+            RelativeEncoder encoder = motor.getEncoder();
+
+            if (report.differs("position conversion", encoder.getPositionConversionFactor(), positionConversion)) {
+                changed |= report.check("position conversion", encoder.setPositionConversionFactor(positionConversion));
+            }
+
+            if (report.differs("velocity conversion", encoder.getVelocityConversionFactor(), velocityConversion)) {
+                changed |= report.check("velocity conversion", encoder.setVelocityConversionFactor(velocityConversion));
+            }
+        }
+
+        if (measurementPeriod > 0) {
+            RelativeEncoder encoder = motor.getEncoder();
+
+            if (report.differsExactly("measurement period", encoder.getMeasurementPeriod(), measurementPeriod)) {
+                changed |= report.check("measurement period", encoder.setMeasurementPeriod(measurementPeriod));
+            }
+
+            if (report.differsExactly("average depth", encoder.getAverageDepth(), averageDepth)) {
+                changed |= report.check("average depth", encoder.setAverageDepth(averageDepth));
+            }
+        }
+
+        if (absEncoder) {
+            AbsoluteEncoder encoder = motor.getAbsoluteEncoder(Type.kDutyCycle);
+
+            if (report.differsExactly("encoder inverted", encoder.getInverted(), absEncoderInverted)) {
+                changed |= report.check("encoder inverted", encoder.setInverted(absEncoderInverted));
+            }
+
+            if (report.differs("encoder offset", encoder.getZeroOffset(), absEncoderOffset)) {
+                changed |= report.check("encoder offset", encoder.setZeroOffset(absEncoderOffset));
+            }
+
+            report.check("feedback device", controller.setFeedbackDevice(encoder));
+        }
+
+        // PID
+        if (pid != null) { changed |= applyPID(controller, report); }
+
+        if (!Double.isNaN(smartMotionMaxVelocity)) { changed |= applySmartMotion(controller, report); }
+
+        if (pidWrapping != null && report.differsExactly("PID wrapping", controller.getPositionPIDWrappingEnabled(), pidWrapping)) {
+            changed |= report.check("PID wrapping", controller.setPositionPIDWrappingEnabled(pidWrapping));
+        }
+
+        // Only burn if something was different (the flash wears out)
+        if (changed) { report.check("burn flash", motor.burnFlash()); }
+
+        // State (after the conversion factor is set, not burned)
+        if (!Double.isNaN(encoderPosition)) { report.check("encoder position", motor.getEncoder().setPosition(encoderPosition)); }
+    }
+
+    // Apply PID constants, returns whether any were written
+    private boolean applyPID(SparkMaxPIDController controller, ConfigReport report) {
+        int slot = pid.kSLOT;
+        boolean changed = false;
+
+        if (report.differs("kP", controller.getP(slot), pid.kP)) { changed |= report.check("kP", controller.setP(pid.kP, slot)); }
+        if (report.differs("kI", controller.getI(slot), pid.kI)) { changed |= report.check("kI", controller.setI(pid.kI, slot)); }
+        if (report.differs("kD", controller.getD(slot), pid.kD)) { changed |= report.check("kD", controller.setD(pid.kD, slot)); }
+
+        if (!pid.kFF.isNaN() && report.differs("kFF", controller.getFF(slot), pid.kFF)) {
+            changed |= report.check("kFF", controller.setFF(pid.kFF, slot));
+        }
+
+        if (!pid.kERR.isNaN() && report.differs("allowed error", controller.getSmartMotionAllowedClosedLoopError(slot), pid.kERR)) {
+            changed |= report.check("allowed error", controller.setSmartMotionAllowedClosedLoopError(pid.kERR, slot));
+        }
+
+        if (!pid.kOUTPUT_MIN.isNaN() && !pid.kOUTPUT_MAX.isNaN()) {
+            boolean minDiffers = report.differs("output min", controller.getOutputMin(slot), pid.kOUTPUT_MIN);
+            boolean maxDiffers = report.differs("output max", controller.getOutputMax(slot), pid.kOUTPUT_MAX);
+
+            if (minDiffers || maxDiffers) {
+                changed |= report.check("output range", controller.setOutputRange(pid.kOUTPUT_MIN, pid.kOUTPUT_MAX, slot));
+            }
+        }
+
+        return changed;
+    }
+
+    // Apply the Smart Motion profile, returns whether anything was written
+    private boolean applySmartMotion(SparkMaxPIDController controller, ConfigReport report) {
+        int slot = (pid == null) ? 0 : pid.kSLOT;
+        boolean changed = false;
+
+        if (report.differs("smart motion max velocity", controller.getSmartMotionMaxVelocity(slot), smartMotionMaxVelocity)) {
+            changed |= report.check("smart motion max velocity", controller.setSmartMotionMaxVelocity(smartMotionMaxVelocity, slot));
+        }
+
+        if (report.differs("smart motion max accel", controller.getSmartMotionMaxAccel(slot), smartMotionMaxAccel)) {
+            changed |= report.check("smart motion max accel", controller.setSmartMotionMaxAccel(smartMotionMaxAccel, slot));
+        }
+
+        return changed;
+    }
+}
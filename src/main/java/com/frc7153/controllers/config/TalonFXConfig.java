@@ -0,0 +1,124 @@
+package com.frc7153.controllers.config;
+
+import com.ctre.phoenix.motorcontrol.FeedbackDevice;
+import com.ctre.phoenix.motorcontrol.StatorCurrentLimitConfiguration;
+import com.ctre.phoenix.motorcontrol.SupplyCurrentLimitConfiguration;
+import com.ctre.phoenix.motorcontrol.can.SlotConfiguration;
+import com.ctre.phoenix.motorcontrol.can.TalonFX;
+import com.ctre.phoenix.motorcontrol.can.TalonFXConfiguration;
+import com.frc7153.math.PIDConstant;
+
+/**
+ * Settings for a TalonFX (Falcon500), applied with {@link MotorConfigurator}. Only settings that are given are applied.<br><br>
+ * All of the TalonFX's settings are read in one call, then only the ones that are different are written.
+ */
+public class TalonFXConfig {
+    // Settings (null or NaN if not given)
+    private PIDConstant pid = null;
+    private FeedbackDevice feedback = null;
+
+    private double supplyLimit = Double.NaN;
+    private double supplyPeak, supplyPeakDuration;
+    private double statorLimit = Double.NaN;
+    private double statorPeak, statorPeakDuration;
+
+    // Modifiers
+    /**
+     * @param pid PID constants (applied to their slot)
+     * @return This object (modifications are done in place)
+     */
+    public TalonFXConfig withPID(PIDConstant pid) { this.pid = pid; return this; }
+
+    /**
+     * @param device Sensor for the primary PID loop
+     * @return This object (modifications are done in place)
+     */
+    public TalonFXConfig withFeedbackDevice(FeedbackDevice device) { feedback = device; return this; }
+
+    /**
+     * @param limit Current to limit to (amps)
+     * @param peak Current that triggers the limit (amps)
+     * @param peakDuration How long the peak current is allowed (seconds)
+     * @return This object (modifications are done in place)
+     */
+    public TalonFXConfig withSupplyCurrentLimit(double limit, double peak, double peakDuration) {
+        supplyLimit = limit; supplyPeak = peak; supplyPeakDuration = peakDuration;
+        return this;
+    }
+
+    /**
+     * @param limit Current to limit to (amps)
+     * @param peak Current that triggers the limit (amps)
+     * @param peakDuration How long the peak current is allowed (seconds)
+     * @return This object (modifications are done in place)
+     */
+    public TalonFXConfig withStatorCurrentLimit(double limit, double peak, double peakDuration) {
+        statorLimit = limit; statorPeak = peak; statorPeakDuration = peakDuration;
+        return this;
+    }
+
+    // Apply
+    /**
+     * Applies these settings to a TalonFX (blocks while it talks to the TalonFX)
+     * @param motor The TalonFX
+     * @param report Report to record changes and failures in
+     * @param timeoutMs How long to wait for each call to be confirmed (milliseconds)
+     */
+    public void apply(TalonFX motor, ConfigReport report, int timeoutMs) {
+        TalonFXConfiguration current = new TalonFXConfiguration();
+        if (!report.check("read configs", motor.getAllConfigs(current, timeoutMs))) { return; }
+
+        // Sensor
+        if (feedback != null && report.differsExactly("feedback device", current.primaryPID.selectedFeedbackSensor, feedback)) {
+            report.check("feedback device", motor.configSelectedFeedbackSensor(feedback, 0, timeoutMs));
+        }
+
+        // Current Limits
+        SupplyCurrentLimitConfiguration supply = current.supplyCurrLimit;
+        if (!Double.isNaN(supplyLimit) && limitDiffers(report, "supply limit", supply.enable, supply.currentLimit, supply.triggerThresholdCurrent, supply.triggerThresholdTime, supplyLimit, supplyPeak, supplyPeakDuration)) {
+            report.check("supply limit", motor.configSupplyCurrentLimit(new SupplyCurrentLimitConfiguration(true, supplyLimit, supplyPeak, supplyPeakDuration), timeoutMs));
+        }
+
+        StatorCurrentLimitConfiguration stator = current.statorCurrLimit;
+        if (!Double.isNaN(statorLimit) && limitDiffers(report, "stator limit", stator.enable, stator.currentLimit, stator.triggerThresholdCurrent, stator.triggerThresholdTime, statorLimit, statorPeak, statorPeakDuration)) {
+            report.check("stator limit", motor.configStatorCurrentLimit(new StatorCurrentLimitConfiguration(true, statorLimit, statorPeak, statorPeakDuration), timeoutMs));
+        }
+
+        // PID
+        if (pid != null) {
+            SlotConfiguration slot = getSlot(current, pid.kSLOT);
+
+            if (report.differs("kP", slot.kP, pid.kP)) { report.check("kP", motor.config_kP(pid.kSLOT, pid.kP, timeoutMs)); }
+            if (report.differs("kI", slot.kI, pid.kI)) { report.check("kI", motor.config_kI(pid.kSLOT, pid.kI, timeoutMs)); }
+            if (report.differs("kD", slot.kD, pid.kD)) { report.check("kD", motor.config_kD(pid.kSLOT, pid.kD, timeoutMs)); }
+
+            if (!pid.kFF.isNaN() && report.differs("kF", slot.kF, pid.kFF)) {
+                report.check("kF", motor.config_kF(pid.kSLOT, pid.kFF, timeoutMs));
+            }
+
+            if (!pid.kERR.isNaN() && report.differs("allowed error", slot.allowableClosedloopError, pid.kERR)) {
+                report.check("allowed error", motor.configAllowableClosedloopError(pid.kSLOT, pid.kERR, timeoutMs));
+            }
+        }
+    }
+
+    // Compare a current limit (all parts are checked, so they are all reported)
+    private static boolean limitDiffers(ConfigReport report, String name, boolean enabled, double limit, double peak, double peakDuration, double newLimit, double newPeak, double newPeakDuration) {
+        boolean differs = report.differsExactly(String.format("%s enabled", name), enabled, true);
+        differs |= report.differs(name, limit, newLimit);
+        differs |= report.differs(String.format("%s peak", name), peak, newPeak);
+        differs |= report.differs(String.format("%s peak duration", name), peakDuration, newPeakDuration);
+
+        return differs;
+    }
+
+    // Get a slot's configuration
+    private static SlotConfiguration getSlot(TalonFXConfiguration config, int slot) {
+        switch (slot) {
+            case 1: return config.slot1;
+            case 2: return config.slot2;
+            case 3: return config.slot3;
+            default: return config.slot0;
+        }
+    }
+}
@@ -0,0 +1,122 @@
+package com.frc7153.hardware;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.IntFunction;
+
+import com.ctre.phoenix.motorcontrol.can.TalonFX;
+import com.ctre.phoenix.sensors.CANCoder;
+import com.revrobotics.CANSparkMax;
+import com.revrobotics.CANSparkMaxLowLevel.MotorType;
+
+import edu.wpi.first.wpilibj.DriverStation;
+
+/**
+ * Keeps track of every hardware device the robot creates, so each device only has one handle.<br><br>
+ * Devices are claimed by an owner when they are created. Claiming a device that is already claimed (for example, two
+ * subsystems both creating the swerve modules) is a mistake, so it is reported and throws at boot, instead of two
+ * objects fighting over the same motor. Other code can still get the existing handle with {@code get()}.
+ */
+public class HardwareRegistry {
+    // Instance
+    private static HardwareRegistry instance;
+
+    /**
+     * @return The registry
+     */
+    public static synchronized HardwareRegistry getInstance() {
+        if (instance == null) { instance = new HardwareRegistry(); }
+        return instance;
+    }
+
+    // Devices
+    private static class Entry {
+        final String owner;
+        final Object device;
+
+        Entry(String owner, Object device) { this.owner = owner; this.device = device; }
+    }
+
+    private final Map<String, Entry> devices = new HashMap<>();
+
+    // Constructor
+    private HardwareRegistry() {}
+
+    // Key of a device (IDs are only unique for each type of device)
+    private static String key(Class<?> type, int id) { return String.format("%s %s", type.getSimpleName(), id); }
+
+    /**
+     * Creates a device and claims it
+     * @param <T> Type of device
+     * @param type Type of device
+     * @param id CAN ID of the device (or port, for devices not on CAN)
+     * @param owner What is using the device (for error messages)
+     * @param constructor Creates the device from its ID
+     * @return The new device
+     * @throws IllegalStateException If the device was already claimed
+     */
+    public synchronized <T> T claim(Class<T> type, int id, String owner, IntFunction<T> constructor) {
+        String key = key(type, id);
+        Entry existing = devices.get(key);
+
+        if (existing != null) {
+            String msg = String.format("%s is used by both %s and %s", key, existing.owner, owner);
+            DriverStation.reportError(msg, true);
+            throw new IllegalStateException(msg);
+        }
+
+        T device = constructor.apply(id);
+        devices.put(key, new Entry(owner, device));
+        return device;
+    }
+
+    /**
+     * Gets a device that has already been claimed
+     * @param <T> Type of device
+     * @param type Type of device
+     * @param id CAN ID of the device (or port, for devices not on CAN)
+     * @return The device, or null if it hasn't been claimed
+     */
+    public synchronized <T> T get(Class<T> type, int id) {
+        Entry entry = devices.get(key(type, id));
+        return (entry == null) ? null : type.cast(entry.device);
+    }
+
+    // Common Devices
+    /**
+     * Creates and claims a CAN Spark Max
+     * @param id CAN ID
+     * @param motorType Type of motor connected
+     * @param owner What is using the Spark Max
+     * @return The Spark Max
+     */
+    public CANSparkMax claimSparkMax(int id, MotorType motorType, String owner) {
+        return claim(CANSparkMax.class, id, owner, sparkId -> new CANSparkMax(sparkId, motorType));
+    }
+
+    /**
+     * Creates and claims a TalonFX
+     * @param id CAN ID
+     * @param owner What is using the TalonFX
+     * @return The TalonFX
+     */
+    public TalonFX claimTalonFX(int id, String owner) { return claim(TalonFX.class, id, owner, TalonFX::new); }
+
+    /**
+     * Creates and claims a CANCoder
+     * @param id CAN ID
+     * @param owner What is using the CANCoder
+     * @return The CANCoder
+     */
+    public CANCoder claimCANCoder(int id, String owner) { return claim(CANCoder.class, id, owner, CANCoder::new); }
+
+    /**
+     * @return Number of devices claimed
+     */
+    public synchronized int getDeviceCount() { return devices.size(); }
+
+    /**
+     * Forgets every device, so a new robot can be built in the same program (simulation only). The devices are not closed.
+     */
+    public synchronized void reset() { devices.clear(); }
+}
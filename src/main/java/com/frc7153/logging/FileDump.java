@@ -1,24 +1,47 @@
 package com.frc7153.logging;
 
 import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.nio.file.StandardOpenOption;
+import java.util.concurrent.atomic.AtomicLong;
 
 import edu.wpi.first.wpilibj.DriverStation;
 import frc.robot.Robot;
 
 /**
- * Dumps strings to a specified file so they can be viewed later.
+ * Dumps strings to a specified file so they can be viewed later.<br><br>
+ * Logging only adds the message to a queue, so it is safe to call from the robot loop. A background thread adds the
+ * timestamps and writes the messages in batches. If the queue is full, the message is dropped (and counted) instead of
+ * waiting, and a line saying how many were dropped is written once there is room. Call {@code flushAll()} when the robot
+ * is disabled so everything is on disk.
  */
 public class FileDump {
     // File Headers
-    private static String kHEADER = "-- Log File '%s', Created %s --";
+    private static String kHEADER = "-- Log File '%s', Created %s --\n";
+    private static String kDROPPED = "-- %s messages dropped (queue full) --\n";
+
+    // Config
+    private static final int kBUFFER_SIZE = 64 * 1024; // Bytes
+    private static final double kFLUSH_TIMEOUT = 0.5; // Seconds
 
     // Path
     private Path logPath;
     private String name;
+    private final boolean simulation = Robot.isSimulation();
+
+    // File (the buffer is only used by the writer thread, the channel is locked by this object)
+    private FileChannel channel = null;
+    private final ByteBuffer buffer = ByteBuffer.allocate(kBUFFER_SIZE);
+    private volatile boolean closed = false;
+
+    // Drops
+    private final AtomicLong dropped = new AtomicLong();
+    private long droppedWritten = 0;
 
     /**
      * Create new file dump.<br><br>
@@ -29,53 +52,159 @@ public class FileDump {
         this.name = name;
         logPath = Paths.get(String.format("/tmp/%s.txt", name));
 
-        if (!logPath.toFile().exists()) {
-            try {
-                Files.write(logPath, String.format(kHEADER, name, DateUtils.getInlineDate()).getBytes(), StandardOpenOption.CREATE);
-            } catch (IOException e) {
-                DriverStation.reportError(String.format("Could not create new log file for %s: %s", name, e), false);
-            }
+        try {
+            open();
+        } catch (IOException e) {
+            DriverStation.reportError(String.format("Could not create new log file for %s: %s", name, e), false);
         }
+
+        LogWriter.getInstance(); // Start the writer
+    }
+
+    // Open the file, and add the header if it is new
+    private synchronized void open() throws IOException {
+        channel = FileChannel.open(logPath, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+        if (channel.size() == 0) { writeHeader(); }
+    }
+
+    private void writeHeader() throws IOException {
+        channel.write(ByteBuffer.wrap(String.format(kHEADER, name, DateUtils.getInlineDate()).getBytes(StandardCharsets.UTF_8)));
     }
 
     /**
-     * Adds a message to the file. A timestamp will be added with this, and it is added on a blank line.
+     * Adds a message to the file. A timestamp will be added with this, and it is added on a blank line.<br><br>
+     * This only adds the message to the queue (it is written later, by another thread).
      * @param msg
-     * @return Success
+     * @return Success (false if the queue was full, so the message was dropped, or this was closed)
      */
     public boolean log(String msg) {
-        if (Robot.isSimulation()) {
-            System.out.println(String.format("LOG %s -> %s -> %s", name, DateUtils.getInlineDate(), msg));
-            return true;
+        if (closed) { return false; }
+
+        if (!LogWriter.getInstance().offer(this, msg, System.currentTimeMillis())) {
+            dropped.incrementAndGet();
+            return false;
         }
 
+        return true;
+    }
+
+    // Writer Thread
+    /**
+     * Adds a message to the buffer, writing the buffer first if it's full (only called by the writer thread)
+     * @param date Formatted date of the message
+     * @param msg The message
+     * @return Whether the buffer was empty before (so it needs to be written later)
+     */
+    boolean append(String date, String msg) {
+        if (simulation) {
+            System.out.println(String.format("LOG %s -> %s -> %s", name, date, msg));
+            return false;
+        }
+
+        boolean wasEmpty = buffer.position() == 0;
+
+        // Say how many were dropped before this one
+        long drops = dropped.get();
+        if (drops != droppedWritten) {
+            put(String.format(kDROPPED, drops - droppedWritten).getBytes(StandardCharsets.UTF_8));
+            droppedWritten = drops;
+        }
+
+        put((date + " -> " + msg + "\n").getBytes(StandardCharsets.UTF_8));
+        return wasEmpty;
+    }
+
+    // Add bytes to the buffer
+    private void put(byte[] bytes) {
+        if (bytes.length > buffer.remaining()) { writeBuffer(); }
+
+        if (bytes.length > buffer.capacity()) {
+            write(ByteBuffer.wrap(bytes));
+        } else {
+            buffer.put(bytes);
+        }
+    }
+
+    /**
+     * Writes everything in the buffer to the file (only called by the writer thread)
+     */
+    void writeBuffer() {
+        if (buffer.position() == 0) { return; }
+
+        buffer.flip();
+        write(buffer);
+        buffer.clear();
+    }
+
+    // Write to the file
+    private synchronized void write(ByteBuffer data) {
+        if (channel == null || !channel.isOpen()) { return; }
+
         try {
-            Files.write(logPath, String.format("%s -> %s\n", DateUtils.getInlineDate(), msg).getBytes(), StandardOpenOption.APPEND);
-            return true;
+            while (data.hasRemaining()) { channel.write(data); }
         } catch (IOException e) {
             DriverStation.reportError(String.format("Could not append message to %s: %s", name, e), false);
-            return false;
         }
     }
 
+    // Flush & Close
+    /**
+     * Waits until every message logged (to any file) before this was called has been written
+     * @return Whether they were all written in time
+     */
+    public static boolean flushAll() { return LogWriter.getInstance().flush(kFLUSH_TIMEOUT); }
+
+    /**
+     * Waits until every message logged before this was called has been written
+     * @return Whether they were all written in time
+     */
+    public boolean flush() { return flushAll(); }
+
+    /**
+     * Writes everything logged so far, then closes the file. Messages logged after this are ignored.
+     * @return Whether everything was written in time
+     */
+    public boolean close() {
+        boolean flushed = flush();
+        closed = true;
+
+        synchronized (this) {
+            try {
+                if (channel != null) { channel.close(); }
+            } catch (IOException e) {
+                DriverStation.reportError(String.format("Could not close log file for %s: %s", name, e), false);
+            }
+        }
+
+        return flushed;
+    }
+
     /**
      * Clears the log file.<br><br>
-     * Note that if {@code deleteFile == true} then future {@code log(msg)} calls may fail.
+     * Note that if {@code deleteFile == true} then future {@code log(msg)} calls will fail.
      * @param deleteFile Whether the file should be deleted, rather than just cleared
      * @return Success
      */
     public boolean clear(boolean deleteFile) {
-        try {
-            Files.write(logPath, "".getBytes(), StandardOpenOption.DELETE_ON_CLOSE);
-            
-            if (!deleteFile) {
-                Files.write(logPath, String.format(kHEADER, name, DateUtils.getInlineDate()).getBytes(), StandardOpenOption.CREATE);
-            }
+        flush();
 
-            return true;
-        } catch (IOException e) {
-            DriverStation.reportError(String.format("Could not clear log file for %s: %s", name, e), false);
-            return false;
+        synchronized (this) {
+            try {
+                if (deleteFile) {
+                    closed = true;
+                    if (channel != null) { channel.close(); }
+                    Files.deleteIfExists(logPath);
+                } else {
+                    if (channel == null) { open(); }
+                    channel.truncate(0);
+                    writeHeader();
+                }
+
+                return true;
+            } catch (IOException e) {
+                DriverStation.reportError(String.format("Could not clear log file for %s: %s", name, e), false);
+                return false;
+            }
         }
     }
 
@@ -84,4 +213,9 @@ public class FileDump {
      * @return Success
      */
     public boolean clear() { return clear(false); }
+
+    /**
+     * @return Number of messages dropped because the queue was full
+     */
+    public long getDropped() { return dropped.get(); }
 }
@@ -0,0 +1,110 @@
+package com.frc7153.logging;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Bounded lock-free queue of log messages, with many producers and one consumer (the {@link LogWriter} thread).<br><br>
+ * Each slot has a sequence number that says whether it is free, being filled, or ready to read (Vyukov's bounded queue),
+ * so producers only race on a compare-and-set of the tail. The slots are allocated once, so adding a message doesn't allocate.
+ */
+class LogQueue {
+    /**
+     * Handles messages taken from the queue
+     */
+    @FunctionalInterface
+    interface Consumer {
+        void accept(FileDump dump, String msg, long time);
+    }
+
+    // Slots
+    private final int mask;
+    private final AtomicLongArray sequence;
+    private final FileDump[] dumps;
+    private final String[] messages;
+    private final long[] times;
+
+    // Positions
+    private final AtomicLong tail = new AtomicLong(); // Next slot to fill
+    private long head = 0; // Next slot to read (only used by the consumer)
+
+    /**
+     * Creates a queue
+     * @param capacity Number of messages it can hold (rounded up to a power of 2)
+     */
+    LogQueue(int capacity) {
+        int size = Integer.highestOneBit(Math.max(2, capacity - 1)) << 1;
+
+        mask = size - 1;
+        sequence = new AtomicLongArray(size);
+        dumps = new FileDump[size];
+        messages = new String[size];
+        times = new long[size];
+
+        for (int i = 0; i < size; i++) { sequence.set(i, i); }
+    }
+
+    /**
+     * Adds a message (from any thread)
+     * @param dump File the message is for
+     * @param msg The message
+     * @param time When the message was logged (milliseconds since the epoch)
+     * @return Whether there was room for it
+     */
+    boolean offer(FileDump dump, String msg, long time) {
+        long pos = tail.get();
+        int slot;
+
+        while (true) {
+            slot = (int) (pos & mask);
+            long ahead = sequence.get(slot) - pos;
+
+            if (ahead == 0) {
+                if (tail.compareAndSet(pos, pos + 1)) { break; }
+                pos = tail.get();
+            } else if (ahead < 0) {
+                return false; // Full (the consumer hasn't read this slot yet)
+            } else {
+                pos = tail.get(); // Another producer took this slot
+            }
+        }
+
+        dumps[slot] = dump;
+        messages[slot] = msg;
+        times[slot] = time;
+        sequence.lazySet(slot, pos + 1); // Ready to read (after the writes above)
+
+        return true;
+    }
+
+    /**
+     * Takes every message that is ready (only from the consumer thread)
+     * @param consumer Handles each message, in order
+     * @return Number of messages taken
+     */
+    int drain(Consumer consumer) {
+        int count = 0;
+
+        while (true) {
+            int slot = (int) (head & mask);
+            if (sequence.get(slot) != head + 1) { return count; } // Empty, or still being filled
+
+            FileDump dump = dumps[slot];
+            String msg = messages[slot];
+            long time = times[slot];
+
+            dumps[slot] = null;
+            messages[slot] = null;
+            sequence.lazySet(slot, head + mask + 1); // Free for the producer one lap later
+            head++;
+            count++;
+
+            consumer.accept(dump, msg, time);
+        }
+    }
+
+    /**
+     * @return Number of messages it can hold
+     */
+    int getCapacity() { return mask + 1; }
+}
@@ -0,0 +1,122 @@
+package com.frc7153.logging;
+
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * The background thread that writes every {@link FileDump}'s messages.<br><br>
+ * Messages are taken from a {@link LogQueue} in batches and added to each file's buffer, then each file with new messages
+ * is written in one call once the queue is empty. The date is only formatted when the second changes.
+ */
+class LogWriter {
+    // Config
+    private static final int kQUEUE_CAPACITY = 4096;
+    private static final long kIDLE_PERIOD = 20_000_000; // Nanoseconds to wait when there is nothing to write
+    private static final double kSHUTDOWN_FLUSH_TIMEOUT = 1.0; // Seconds
+
+    // Instance
+    private static LogWriter instance;
+
+    /**
+     * @return The writer (started the first time this is called)
+     */
+    static synchronized LogWriter getInstance() {
+        if (instance == null) { instance = new LogWriter(); }
+        return instance;
+    }
+
+    // Queue
+    private final LogQueue queue = new LogQueue(kQUEUE_CAPACITY);
+    private final Thread thread;
+
+    // Files with messages waiting to be written (only used by the writer thread)
+    private final ArrayList<FileDump> dirty = new ArrayList<>();
+
+    // Cached Date (only used by the writer thread)
+    private final ZoneId zone = ZoneId.systemDefault();
+    private long cachedSecond = Long.MIN_VALUE;
+    private String cachedDate = "";
+
+    // Flush Requests
+    private final AtomicLong flushRequests = new AtomicLong();
+    private volatile long flushesDone = 0;
+
+    // Constructor
+    private LogWriter() {
+        thread = new Thread(this::run, "FileDump Writer");
+        thread.setDaemon(true);
+        thread.start();
+
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> flush(kSHUTDOWN_FLUSH_TIMEOUT)));
+    }
+
+    /**
+     * Adds a message to be written (from any thread, doesn't block)
+     * @param dump File the message is for
+     * @param msg The message
+     * @param time When the message was logged (milliseconds since the epoch)
+     * @return Whether there was room for it
+     */
+    boolean offer(FileDump dump, String msg, long time) { return queue.offer(dump, msg, time); }
+
+    /**
+     * Waits until every message added before this was called has been written
+     * @param timeout Longest time to wait (seconds)
+     * @return Whether they were written in time
+     */
+    boolean flush(double timeout) {
+        long ticket = flushRequests.incrementAndGet();
+        long deadline = System.nanoTime() + (long) (timeout * 1e9);
+
+        LockSupport.unpark(thread);
+
+        while (flushesDone < ticket) {
+            if (System.nanoTime() > deadline || Thread.currentThread() == thread) { return false; }
+            LockSupport.parkNanos(1_000_000);
+        }
+
+        return true;
+    }
+
+    // Writer Thread
+    private void run() {
+        while (true) {
+            // Everything added before this request is in the queue by now
+            long request = flushRequests.get();
+
+            if (queue.drain(this::append) > 0) { continue; }
+
+            writeDirty();
+            flushesDone = request;
+
+            if (flushRequests.get() == request) { LockSupport.parkNanos(kIDLE_PERIOD); }
+        }
+    }
+
+    // Add a message to its file's buffer
+    private void append(FileDump dump, String msg, long time) {
+        long second = Math.floorDiv(time, 1000);
+
+        if (second != cachedSecond) {
+            cachedSecond = second;
+            cachedDate = LocalDateTime.ofInstant(Instant.ofEpochMilli(time), zone).format(DateUtils.kINLINE_FORMAT);
+        }
+
+        if (dump.append(cachedDate, msg)) { dirty.add(dump); }
+    }
+
+    // Write every buffer with messages in it
+    private void writeDirty() {
+        for (int i = 0; i < dirty.size(); i++) { dirty.get(i).writeBuffer(); }
+        dirty.clear();
+    }
+
+    /**
+     * @return Number of messages the queue can hold
+     */
+    int getCapacity() { return queue.getCapacity(); }
+}
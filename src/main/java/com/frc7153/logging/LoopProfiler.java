@@ -0,0 +1,220 @@
+package com.frc7153.logging;
+
+import java.util.Arrays;
+import java.util.IdentityHashMap;
+
+import edu.wpi.first.networktables.DoubleArrayPublisher;
+import edu.wpi.first.networktables.IntegerPublisher;
+import edu.wpi.first.networktables.NetworkTable;
+import edu.wpi.first.networktables.NetworkTableInstance;
+import edu.wpi.first.wpilibj.DriverStation;
+import edu.wpi.first.wpilibj2.command.Command;
+import edu.wpi.first.wpilibj2.command.CommandScheduler;
+
+/**
+ * Times parts of the robot loop (subsystem periodics, command executes, Shuffleboard), so overruns can be blamed on something.<br><br>
+ * Each part is a named section that is timed with {@code start()} and {@code stop()}. Commands are timed automatically
+ * (from the end of the last timed thing to the end of their execute). Times are recorded into histograms, and a summary
+ * ({@code [p50, p95, p99, max]} in ms) is published to NetworkTables under "Profiler" about once a second. When a loop
+ * takes longer than its budget, the sections that took the most time that loop are reported as a warning.<br><br>
+ * This should only be used from the main robot thread.
+ */
+public class LoopProfiler {
+    // Config
+    private static final int kMAX_SECTIONS = 64;
+    private static final int kTOP_OFFENDERS = 3;
+    private static final double kPUBLISH_PERIOD = 1.0; // Seconds
+    private static final double kDEFAULT_BUDGET = 0.02; // Seconds
+
+    // Instance
+    private static LoopProfiler instance;
+
+    /**
+     * @return The profiler
+     */
+    public static LoopProfiler getInstance() {
+        if (instance == null) { instance = new LoopProfiler(kDEFAULT_BUDGET); }
+        return instance;
+    }
+
+    // Sections
+    private final String[] names = new String[kMAX_SECTIONS];
+    private final TimingHistogram[] histograms = new TimingHistogram[kMAX_SECTIONS];
+    private final DoubleArrayPublisher[] publishers = new DoubleArrayPublisher[kMAX_SECTIONS];
+    private final long[] loopNanos = new long[kMAX_SECTIONS]; // Time spent in each section this loop
+    private final boolean[] reported = new boolean[kMAX_SECTIONS];
+    private int sections = 0;
+
+    private final IdentityHashMap<Command, Integer> commandSections = new IdentityHashMap<>();
+    private final int loopSection;
+
+    // NetworkTables
+    private final NetworkTable table = NetworkTableInstance.getDefault().getTable("Profiler");
+    private final IntegerPublisher overrunPublisher = table.getIntegerTopic("Overruns").publish();
+    private final double[] summary = new double[4];
+
+    // State
+    private final long budgetNanos;
+    private long loopStart = 0;
+    private long lastMark = 0;
+    private long lastPublish = 0;
+    private long overruns = 0;
+    private long lastLoopNanos = 0;
+
+    // Constructor
+    private LoopProfiler(double budget) {
+        budgetNanos = (long) (budget * 1e9);
+        loopSection = register("Loop");
+
+        CommandScheduler.getInstance().onCommandExecute(this::commandExecuted);
+    }
+
+    /**
+     * Adds a section to time. Registering the same name again returns the same section.
+     * @param name Name of the section
+     * @return ID of the section (used with {@code stop()}), or -1 if there are too many sections
+     */
+    public int register(String name) {
+        for (int i = 0; i < sections; i++) {
+            if (names[i].equals(name)) { return i; }
+        }
+
+        if (sections == kMAX_SECTIONS) {
+            DriverStation.reportWarning(String.format("Too many profiler sections, not timing %s", name), false);
+            return -1;
+        }
+
+        names[sections] = name;
+        histograms[sections] = new TimingHistogram();
+        publishers[sections] = table.getDoubleArrayTopic(name).publish();
+
+        return sections++;
+    }
+
+    /**
+     * Starts timing something
+     * @return The start time, passed to {@code stop()}
+     */
+    public long start() { return System.nanoTime(); }
+
+    /**
+     * Stops timing a section
+     * @param section ID of the section (from {@code register()})
+     * @param start The start time (from {@code start()})
+     */
+    public void stop(int section, long start) {
+        long now = System.nanoTime();
+        lastMark = now;
+
+        if (section >= 0) { record(section, now - start); }
+    }
+
+    // Record time in a section
+    private void record(int section, long nanos) {
+        loopNanos[section] += nanos;
+        histograms[section].record(nanos / 1000);
+    }
+
+    // Time commands (the scheduler calls this after each execute)
+    private void commandExecuted(Command command) {
+        long now = System.nanoTime();
+
+        Integer section = commandSections.get(command);
+        if (section == null) {
+            section = register(String.format("Commands/%s", command.getName()));
+            commandSections.put(command, section);
+        }
+
+        if (section >= 0) { record(section, now - lastMark); }
+        lastMark = now;
+    }
+
+    /**
+     * Call at the start of every robot loop
+     */
+    public void startLoop() {
+        loopStart = System.nanoTime();
+        lastMark = loopStart;
+
+        Arrays.fill(loopNanos, 0, sections, 0);
+    }
+
+    /**
+     * Call at the end of every robot loop. Reports a warning if the loop was over budget, and publishes the summary
+     * if it is time to.
+     */
+    public void endLoop() {
+        long now = System.nanoTime();
+        long elapsed = now - loopStart;
+
+        lastLoopNanos = elapsed;
+        histograms[loopSection].record(elapsed / 1000);
+
+        if (elapsed > budgetNanos) {
+            overruns++;
+            reportOffenders(elapsed);
+        }
+
+        if (now - lastPublish > kPUBLISH_PERIOD * 1e9) {
+            publish();
+            lastPublish = now;
+        }
+    }
+
+    // Warn about the sections that took the most time this loop
+    private void reportOffenders(long elapsed) {
+        StringBuilder msg = new StringBuilder(String.format("Loop overrun: %.1f ms (budget %.1f ms). Top:", elapsed / 1e6, budgetNanos / 1e6));
+
+        Arrays.fill(reported, 0, sections, false);
+        reported[loopSection] = true;
+
+        for (int n = 0; n < kTOP_OFFENDERS; n++) {
+            // Find the next largest (sections are few, so this is fine)
+            int top = -1;
+            for (int i = 0; i < sections; i++) {
+                if (reported[i] || loopNanos[i] == 0) { continue; }
+                if (top == -1 || loopNanos[i] > loopNanos[top]) { top = i; }
+            }
+
+            if (top == -1) { break; }
+
+            msg.append(String.format(" %s %.1f ms,", names[top], loopNanos[top] / 1e6));
+            reported[top] = true;
+        }
+
+        DriverStation.reportWarning(msg.toString(), false);
+    }
+
+    // Publish the summary of each section, then start new histograms
+    private void publish() {
+        for (int i = 0; i < sections; i++) {
+            if (histograms[i].getCount() == 0) { continue; }
+
+            summary[0] = histograms[i].getPercentile(0.50) / 1000.0;
+            summary[1] = histograms[i].getPercentile(0.95) / 1000.0;
+            summary[2] = histograms[i].getPercentile(0.99) / 1000.0;
+            summary[3] = histograms[i].getMax() / 1000.0;
+
+            publishers[i].set(summary);
+            histograms[i].reset();
+        }
+
+        overrunPublisher.set(overruns);
+    }
+
+    /**
+     * @return Number of loops that went over budget
+     */
+    public long getOverrunCount() { return overruns; }
+
+    /**
+     * @return How long the last loop took, from {@code startLoop()} to {@code endLoop()} (seconds)
+     */
+    public double getLastLoopTime() { return lastLoopNanos / 1e9; }
+
+    /**
+     * @param section ID of the section (from {@code register()})
+     * @return Time spent in the section during the current loop (or the last one, after {@code endLoop()}) (seconds)
+     */
+    public double getSectionTime(int section) { return loopNanos[section] / 1e9; }
+}
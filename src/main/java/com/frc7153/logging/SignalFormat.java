@@ -0,0 +1,80 @@
+package com.frc7153.logging;
+
+import java.nio.ByteBuffer;
+
+/**
+ * The binary format written by {@link SignalRecorder} and read by {@link SignalLog}.<br><br>
+ * The file starts with a header (magic, version, then the type and name of each signal). The records follow in blocks,
+ * each starting with its length in bytes (4 bytes) and number of records (varint). In a block, each column is stored
+ * together: the timestamps (microseconds, as deltas of deltas), then each signal in the order it was added. Columns are
+ * delta-encoded from the previous record, starting from 0 at the start of each block, so every block can be read on its
+ * own and a block cut off when the robot lost power can be skipped.
+ * <ul>
+ * <li>Integers: the change, as a zigzag varint</li>
+ * <li>Doubles: the bits XORed with the last value, with the zero bytes on either end left out (a tag byte says how many)</li>
+ * <li>Booleans: the first value, then the lengths of each run of the same value</li>
+ * </ul>
+ */
+class SignalFormat {
+    // Header
+    static final long kMAGIC = 0x4652435349474E4CL; // "FRCSIGNL"
+    static final int kVERSION = 1;
+
+    // Signal Types
+    static final byte kTYPE_DOUBLE = 0;
+    static final byte kTYPE_LONG = 1;
+    static final byte kTYPE_BOOLEAN = 2;
+
+    // Largest encoded size of one value (varint or tagged double)
+    static final int kMAX_VALUE_SIZE = 10;
+
+    // Varints
+    static void putVarLong(ByteBuffer buffer, long value) {
+        while ((value & ~0x7FL) != 0) {
+            buffer.put((byte) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+
+        buffer.put((byte) value);
+    }
+
+    static long getVarLong(ByteBuffer buffer) {
+        long value = 0;
+
+        for (int shift = 0; shift < 64; shift += 7) {
+            byte b = buffer.get();
+            value |= (long) (b & 0x7F) << shift;
+            if (b >= 0) { return value; }
+        }
+
+        throw new IllegalArgumentException("Varint is too long");
+    }
+
+    static long zigzag(long value) { return (value << 1) ^ (value >> 63); }
+    static long unzigzag(long value) { return (value >>> 1) ^ -(value & 1); }
+
+    // Doubles (XOR with the last value)
+    static void putXor(ByteBuffer buffer, long xor) {
+        if (xor == 0) {
+            buffer.put((byte) 0x80);
+            return;
+        }
+
+        int lead = Long.numberOfLeadingZeros(xor) / 8;
+        int trail = Long.numberOfTrailingZeros(xor) / 8;
+        buffer.put((byte) ((lead << 4) | trail));
+
+        for (int i = 7 - lead; i >= trail; i--) { buffer.put((byte) (xor >>> (i * 8))); }
+    }
+
+    static long getXor(ByteBuffer buffer) {
+        int tag = buffer.get() & 0xFF;
+        int lead = tag >>> 4;
+        int trail = tag & 0x0F;
+
+        long xor = 0;
+        for (int i = 7 - lead; i >= trail; i--) { xor |= (long) (buffer.get() & 0xFF) << (i * 8); }
+
+        return xor;
+    }
+}
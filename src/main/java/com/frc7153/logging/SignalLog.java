@@ -0,0 +1,217 @@
+package com.frc7153.logging;
+
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+/**
+ * Reads a log written by {@link SignalRecorder} back into primitive arrays, one for each signal, for analysis.<br><br>
+ * A block that was cut off (for example, when the robot lost power) is left out, along with anything after it.
+ */
+public class SignalLog {
+    // Signals
+    private final String[] names;
+    private final byte[] types;
+    private final long[][] columns; // Values as the bits of a long, like the recorder
+    private double[] timestamps; // Seconds (FPGA time)
+    private int records = 0;
+    private boolean truncated = false;
+
+    /**
+     * Reads a log file
+     * @param path Path of the file
+     * @return The log
+     * @throws IOException If the file can't be read, or isn't a signal log
+     */
+    public static SignalLog read(Path path) throws IOException { return new SignalLog(ByteBuffer.wrap(Files.readAllBytes(path))); }
+
+    /**
+     * Reads a log
+     * @param data Contents of a log file
+     * @throws IOException If it isn't a signal log
+     */
+    public SignalLog(ByteBuffer data) throws IOException {
+        // Header
+        try {
+            if (data.getLong() != SignalFormat.kMAGIC) { throw new IOException("Not a signal log"); }
+
+            int version = data.getInt();
+            if (version != SignalFormat.kVERSION) { throw new IOException(String.format("Unsupported signal log version %s", version)); }
+
+            int count = (int) SignalFormat.getVarLong(data);
+            names = new String[count];
+            types = new byte[count];
+
+            for (int i = 0; i < count; i++) {
+                types[i] = data.get();
+                byte[] name = new byte[(int) SignalFormat.getVarLong(data)];
+                data.get(name);
+                names[i] = new String(name, StandardCharsets.UTF_8);
+            }
+        } catch (BufferUnderflowException e) {
+            throw new IOException("Signal log header is cut off");
+        }
+
+        columns = new long[names.length][256];
+        timestamps = new double[256];
+
+        // Blocks
+        while (data.remaining() >= 4) {
+            int length = data.getInt();
+
+            if (length < 0 || length > data.remaining()) {
+                truncated = true;
+                break;
+            }
+
+            ByteBuffer block = data.slice();
+            block.limit(length);
+            data.position(data.position() + length);
+
+            try {
+                readBlock(block);
+            } catch (BufferUnderflowException | IllegalArgumentException e) {
+                truncated = true;
+                break;
+            }
+        }
+
+        if (data.remaining() > 0 && data.remaining() < 4) { truncated = true; }
+
+        // Trim
+        timestamps = Arrays.copyOf(timestamps, records);
+        for (int i = 0; i < columns.length; i++) { columns[i] = Arrays.copyOf(columns[i], records); }
+    }
+
+    // Decode one block onto the end of the columns
+    private void readBlock(ByteBuffer block) {
+        int count = (int) SignalFormat.getVarLong(block);
+        int start = records;
+        ensureCapacity(start + count);
+
+        long time = 0, delta = 0;
+        for (int r = 0; r < count; r++) {
+            delta += SignalFormat.unzigzag(SignalFormat.getVarLong(block));
+            time += delta;
+            timestamps[start + r] = time / 1e6;
+        }
+
+        for (int i = 0; i < columns.length; i++) {
+            long[] column = columns[i];
+
+            switch (types[i]) {
+                case SignalFormat.kTYPE_DOUBLE:
+                    long bits = 0;
+                    for (int r = 0; r < count; r++) {
+                        bits ^= SignalFormat.getXor(block);
+                        column[start + r] = bits;
+                    }
+                    break;
+                case SignalFormat.kTYPE_LONG:
+                    long value = 0;
+                    for (int r = 0; r < count; r++) {
+                        value += SignalFormat.unzigzag(SignalFormat.getVarLong(block));
+                        column[start + r] = value;
+                    }
+                    break;
+                default:
+                    long state = block.get();
+                    int runs = (int) SignalFormat.getVarLong(block);
+                    int r = 0;
+
+                    for (int run = 0; run < runs; run++) {
+                        int length = (int) SignalFormat.getVarLong(block);
+                        if (r + length > count) { throw new IllegalArgumentException("Run is longer than the block"); }
+
+                        Arrays.fill(column, start + r, start + r + length, state);
+                        r += length;
+                        state ^= 1;
+                    }
+                    break;
+            }
+        }
+
+        // Only counted once the whole block was read
+        records += count;
+    }
+
+    // Grow the arrays to fit more records
+    private void ensureCapacity(int capacity) {
+        if (capacity <= timestamps.length) { return; }
+
+        int size = Math.max(capacity, timestamps.length * 2);
+        timestamps = Arrays.copyOf(timestamps, size);
+        for (int i = 0; i < columns.length; i++) { columns[i] = Arrays.copyOf(columns[i], size); }
+    }
+
+    // Getters
+    /**
+     * @return Number of records
+     */
+    public int getRecordCount() { return records; }
+
+    /**
+     * @return Whether the end of the file was cut off (those records are left out)
+     */
+    public boolean isTruncated() { return truncated; }
+
+    /**
+     * @return Names of every signal, in the order they were added
+     */
+    public String[] getNames() { return names.clone(); }
+
+    /**
+     * @param name Name of a signal
+     * @return Whether the log has that signal (older logs may not)
+     */
+    public boolean hasSignal(String name) { return Arrays.asList(names).contains(name); }
+
+    /**
+     * @return FPGA time of each record (seconds)
+     */
+    public double[] getTimestamps() { return timestamps; }
+
+    /**
+     * @param name Name of a double signal
+     * @return Value at each record
+     * @throws IllegalArgumentException If there is no double signal with that name
+     */
+    public double[] getDouble(String name) {
+        long[] column = columns[find(name, SignalFormat.kTYPE_DOUBLE)];
+        double[] values = new double[records];
+        for (int r = 0; r < records; r++) { values[r] = Double.longBitsToDouble(column[r]); }
+        return values;
+    }
+
+    /**
+     * @param name Name of an integer signal
+     * @return Value at each record
+     * @throws IllegalArgumentException If there is no integer signal with that name
+     */
+    public long[] getInteger(String name) { return columns[find(name, SignalFormat.kTYPE_LONG)].clone(); }
+
+    /**
+     * @param name Name of a boolean signal
+     * @return Value at each record
+     * @throws IllegalArgumentException If there is no boolean signal with that name
+     */
+    public boolean[] getBoolean(String name) {
+        long[] column = columns[find(name, SignalFormat.kTYPE_BOOLEAN)];
+        boolean[] values = new boolean[records];
+        for (int r = 0; r < records; r++) { values[r] = column[r] != 0; }
+        return values;
+    }
+
+    // Index of a signal
+    private int find(String name, byte type) {
+        for (int i = 0; i < names.length; i++) {
+            if (names[i].equals(name) && types[i] == type) { return i; }
+        }
+
+        throw new IllegalArgumentException(String.format("No signal '%s' of that type", name));
+    }
+}
@@ -0,0 +1,473 @@
+package com.frc7153.logging;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.BooleanSupplier;
+import java.util.function.DoubleSupplier;
+import java.util.function.LongSupplier;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import edu.wpi.first.wpilibj.DriverStation;
+import edu.wpi.first.wpilibj.RobotBase;
+import edu.wpi.first.wpilibj.Timer;
+
+/**
+ * Records named signals every loop into a compact binary log, so a whole event can be looked at afterwards
+ * (read it with {@link SignalLog}).<br><br>
+ * Subsystems add their signals once, when they are created. {@code record()} is called once a loop, and delta-encodes
+ * (see {@link SignalFormat}) every signal onto its own column, so the cost is spread evenly across loops. When a block of
+ * records is full the columns are copied into a large buffer, which is written to the file by a background thread when
+ * it fills up (or every few seconds, so little is lost if the robot loses power). While disabled, records are only
+ * added a couple of times a second. The file is opened on the first {@code record()}, and signals can't be added after
+ * that.<br><br>
+ * Each file is named with the date, with a number added if that name is taken (the roboRIO's clock isn't set until the
+ * driver station connects, so names can repeat). A new file is started when one gets too big, and the oldest files are
+ * deleted to keep the directory under its size limit.<br><br>
+ * This should only be used from the main robot thread.
+ */
+public class SignalRecorder {
+    // Config
+    private static final int kBLOCK_RECORDS = 250; // 5 seconds at 50 Hz
+    private static final int kBUFFER_SIZE = 256 * 1024; // Bytes
+    private static final double kFLUSH_PERIOD = 10.0; // Longest data waits before it's written (seconds)
+    private static final double kDISABLED_PERIOD = 0.5; // Time between records while disabled (seconds)
+    private static final long kMAX_FILE_SIZE = 32L * 1024 * 1024; // Bytes, a new file is started after this
+    private static final long kMAX_DIRECTORY_SIZE = 256L * 1024 * 1024; // Bytes, oldest files are deleted past this
+    private static final int kMAX_NAME_ATTEMPTS = 1000; // Numbers tried after the date, if the name is taken
+    private static final String kEXTENSION = ".sig";
+
+    // Instance
+    private static SignalRecorder instance;
+
+    /**
+     * @return The recorder
+     */
+    public static SignalRecorder getInstance() {
+        if (instance == null) { instance = new SignalRecorder(Paths.get(RobotBase.isSimulation() ? "/tmp/signals" : "/home/lvuser/signals")); }
+        return instance;
+    }
+
+    // Signals
+    private final ArrayList<String> names = new ArrayList<>();
+    private final ArrayList<Byte> types = new ArrayList<>();
+    private final ArrayList<LongSupplier> samplers = new ArrayList<>(); // Each value as the bits of a long
+
+    // Block (each column is encoded as records are added, then they are put together when the block is full)
+    private LongSupplier[] sampling;
+    private byte[] columnTypes;
+    private ByteBuffer[] columnData;
+    private long[] lastValues; // Last value of each column (bits, for doubles)
+    private int[][] runLengths; // Boolean columns only
+    private int[] runCounts;
+    private long[] firstValues;
+
+    private final ByteBuffer timeData = ByteBuffer.allocate(kBLOCK_RECORDS * SignalFormat.kMAX_VALUE_SIZE);
+    private long lastTime = 0, lastDelta = 0; // Microseconds
+    private int records = 0;
+    private double lastRecord = Double.NEGATIVE_INFINITY, lastFlush = 0.0; // Seconds
+
+    // File (opened, written and rotated by a background thread, while the other buffer is filled)
+    private final Path directory;
+    private volatile Path path = null;
+    private FileChannel channel = null; // Background thread only
+    private long fileSize = 0; // Bytes handed to the background thread for the current file
+    private byte[] header;
+    private ByteBuffer buffer, spare;
+    private Future<?> pendingWrite = null;
+    private ExecutorService writer = null;
+    private boolean started = false;
+    private volatile boolean stopped = false; // Failed, or closed
+    private volatile boolean failed = false;
+    private volatile long bytesWritten = 0;
+
+    // Constructor (a directory other than the robot's is only for tests)
+    SignalRecorder(Path directory) { this.directory = directory; }
+
+    // Add Signals
+    /**
+     * Adds a double signal
+     * @param name Name of the signal (for example "Arm/Angle")
+     * @param signal Gets the value
+     * @return This object (modifications are done in place)
+     */
+    public SignalRecorder addDouble(String name, DoubleSupplier signal) {
+        return add(name, SignalFormat.kTYPE_DOUBLE, () -> Double.doubleToRawLongBits(signal.getAsDouble()));
+    }
+
+    /**
+     * Adds an integer signal
+     * @param name Name of the signal
+     * @param signal Gets the value
+     * @return This object (modifications are done in place)
+     */
+    public SignalRecorder addInteger(String name, LongSupplier signal) { return add(name, SignalFormat.kTYPE_LONG, signal); }
+
+    /**
+     * Adds a boolean signal
+     * @param name Name of the signal
+     * @param signal Gets the value
+     * @return This object (modifications are done in place)
+     */
+    public SignalRecorder addBoolean(String name, BooleanSupplier signal) {
+        return add(name, SignalFormat.kTYPE_BOOLEAN, () -> signal.getAsBoolean() ? 1 : 0);
+    }
+
+    private SignalRecorder add(String name, byte type, LongSupplier sampler) {
+        if (started) {
+            DriverStation.reportWarning(String.format("Signal '%s' was added after recording started, so it won't be recorded", name), false);
+        } else if (names.contains(name)) {
+            DriverStation.reportWarning(String.format("Signal '%s' was added twice", name), false);
+        } else {
+            names.add(name);
+            types.add(type);
+            samplers.add(sampler);
+        }
+
+        return this;
+    }
+
+    // Record
+    /**
+     * Samples every signal and adds a record (call once a loop). Opens the file the first time it's called.
+     */
+    public void record() {
+        if (!started) { start(); }
+        if (stopped) { return; }
+
+        // Nothing much changes while disabled
+        double now = Timer.getFPGATimestamp();
+        if (DriverStation.isDisabled() && now - lastRecord < kDISABLED_PERIOD) { return; }
+        lastRecord = now;
+
+        // Timestamp (deltas of deltas, since loops are evenly spaced)
+        long time = Math.round(now * 1e6);
+        long delta = time - lastTime;
+        SignalFormat.putVarLong(timeData, SignalFormat.zigzag(delta - lastDelta));
+        lastTime = time;
+        lastDelta = delta;
+
+        // Signals
+        for (int i = 0; i < sampling.length; i++) {
+            long value = sampling[i].getAsLong();
+            long last = lastValues[i];
+
+            switch (columnTypes[i]) {
+                case SignalFormat.kTYPE_DOUBLE:
+                    SignalFormat.putXor(columnData[i], value ^ last);
+                    break;
+                case SignalFormat.kTYPE_LONG:
+                    SignalFormat.putVarLong(columnData[i], SignalFormat.zigzag(value - last));
+                    break;
+                default:
+                    if (records == 0) {
+                        firstValues[i] = value;
+                        runCounts[i] = 1;
+                        runLengths[i][0] = 0;
+                    } else if (value != last) {
+                        runLengths[i][runCounts[i]++] = 0;
+                    }
+
+                    runLengths[i][runCounts[i] - 1]++;
+                    break;
+            }
+
+            lastValues[i] = value;
+        }
+
+        records++;
+        if (records == kBLOCK_RECORDS) { finishBlock(); }
+
+        // Write what there is every so often, instead of only when the buffer fills
+        if (now - lastFlush >= kFLUSH_PERIOD) {
+            finishBlock();
+            writeBuffer(false);
+            lastFlush = now;
+        }
+    }
+
+    // Set up the columns and buffers, and open the file (on the background thread)
+    private void start() {
+        started = true;
+        lastFlush = Timer.getFPGATimestamp();
+
+        int count = names.size();
+        sampling = samplers.toArray(new LongSupplier[count]);
+        columnTypes = new byte[count];
+        columnData = new ByteBuffer[count];
+        lastValues = new long[count];
+        runLengths = new int[count][];
+        runCounts = new int[count];
+        firstValues = new long[count];
+
+        for (int i = 0; i < count; i++) {
+            columnTypes[i] = types.get(i);
+
+            if (columnTypes[i] == SignalFormat.kTYPE_BOOLEAN) {
+                runLengths[i] = new int[kBLOCK_RECORDS];
+            } else {
+                columnData[i] = ByteBuffer.allocate(kBLOCK_RECORDS * SignalFormat.kMAX_VALUE_SIZE);
+            }
+        }
+
+        // Room for at least two full blocks
+        int blockSize = 4 + SignalFormat.kMAX_VALUE_SIZE * (2 + kBLOCK_RECORDS * (count + 1));
+        buffer = ByteBuffer.allocate(Math.max(kBUFFER_SIZE, blockSize * 2));
+        spare = ByteBuffer.allocate(buffer.capacity());
+
+        // Header (the start of every file)
+        ByteBuffer headerData = ByteBuffer.allocate(12 + SignalFormat.kMAX_VALUE_SIZE * (1 + count) + names.stream().mapToInt(name -> 1 + 4 * name.length()).sum());
+        headerData.putLong(SignalFormat.kMAGIC);
+        headerData.putInt(SignalFormat.kVERSION);
+        SignalFormat.putVarLong(headerData, count);
+
+        for (int i = 0; i < count; i++) {
+            byte[] name = names.get(i).getBytes(StandardCharsets.UTF_8);
+            headerData.put(columnTypes[i]);
+            SignalFormat.putVarLong(headerData, name.length);
+            headerData.put(name);
+        }
+
+        header = Arrays.copyOf(headerData.array(), headerData.position());
+        buffer.put(header);
+
+        writer = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "SignalRecorder");
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        pendingWrite = writer.submit(this::openFile);
+    }
+
+    // Delete old files, then create a new one (background thread)
+    private void openFile() {
+        try {
+            Files.createDirectories(directory);
+            deleteOldFiles();
+
+            // Add a number if the name is taken
+            String date = DateUtils.getFilenameDate();
+
+            for (int i = 0; channel == null; i++) {
+                Path next = directory.resolve((i == 0) ? date + kEXTENSION : String.format("%s-%s%s", date, i, kEXTENSION));
+
+                try {
+                    channel = FileChannel.open(next, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE);
+                    path = next;
+                } catch (FileAlreadyExistsException e) {
+                    if (i == kMAX_NAME_ATTEMPTS) { throw e; }
+                }
+            }
+        } catch (IOException e) {
+            fail(String.format("Could not create signal log in %s: %s", directory, e));
+        }
+    }
+
+    // Delete the oldest logs until there's room for a full new file (background thread)
+    private void deleteOldFiles() throws IOException {
+        List<Path> files;
+        try (Stream<Path> list = Files.list(directory)) {
+            files = list.filter(file -> file.getFileName().toString().endsWith(kEXTENSION)).collect(Collectors.toList());
+        }
+
+        long[] sizes = new long[files.size()];
+        long[] modified = new long[files.size()];
+        long total = 0;
+
+        for (int i = 0; i < files.size(); i++) {
+            sizes[i] = Files.size(files.get(i));
+            modified[i] = Files.getLastModifiedTime(files.get(i)).toMillis();
+            total += sizes[i];
+        }
+
+        Integer[] order = new Integer[files.size()];
+        for (int i = 0; i < order.length; i++) { order[i] = i; }
+        Arrays.sort(order, Comparator.comparingLong(i -> modified[i]));
+
+        for (int i = 0; i < order.length && total + kMAX_FILE_SIZE > kMAX_DIRECTORY_SIZE; i++) {
+            Files.delete(files.get(order[i]));
+            total -= sizes[order[i]];
+        }
+    }
+
+    // Close the file, the next write starts a new one (background thread)
+    private void closeFile() {
+        if (channel == null) { return; }
+
+        try {
+            channel.close();
+        } catch (IOException e) {
+            DriverStation.reportError(String.format("Could not close signal log: %s", e), false);
+        }
+
+        channel = null;
+    }
+
+    // Stop recording, and say so (every time the robot is disabled, see flush())
+    private void fail(String msg) {
+        DriverStation.reportError(String.format("%s. Signals are no longer being recorded.", msg), false);
+        failed = true;
+        stopped = true;
+    }
+
+    // Put the columns together as a block, and start the next one
+    private void finishBlock() {
+        if (records == 0) { return; }
+
+        int blockSize = 4 + SignalFormat.kMAX_VALUE_SIZE * (2 + records * (columnData.length + 1));
+        if (buffer.remaining() < blockSize) { writeBuffer(false); }
+
+        int start = buffer.position();
+        buffer.putInt(0); // Length (filled in at the end)
+        SignalFormat.putVarLong(buffer, records);
+
+        putColumn(timeData);
+
+        for (int i = 0; i < columnData.length; i++) {
+            if (columnTypes[i] == SignalFormat.kTYPE_BOOLEAN) {
+                // First value, number of runs, then the length of each run
+                buffer.put((byte) firstValues[i]);
+                SignalFormat.putVarLong(buffer, runCounts[i]);
+                for (int r = 0; r < runCounts[i]; r++) { SignalFormat.putVarLong(buffer, runLengths[i][r]); }
+            } else {
+                putColumn(columnData[i]);
+            }
+        }
+
+        buffer.putInt(start, buffer.position() - start - 4);
+
+        // Each block starts from 0
+        records = 0;
+        lastTime = 0;
+        lastDelta = 0;
+        Arrays.fill(lastValues, 0);
+    }
+
+    // Copy an encoded column into the buffer, and empty it
+    private void putColumn(ByteBuffer column) {
+        column.flip();
+        buffer.put(column);
+        column.clear();
+    }
+
+    // Write the buffer to the file on the background thread (waits if the last write isn't done), and start a new file
+    // after it if this one is full
+    private void writeBuffer(boolean wait) {
+        waitForWrite();
+
+        ByteBuffer full = buffer;
+        buffer = spare;
+        spare = full;
+
+        full.flip();
+        fileSize += full.remaining();
+        pendingWrite = writer.submit(() -> write(full));
+
+        if (fileSize >= kMAX_FILE_SIZE) {
+            pendingWrite = writer.submit(this::closeFile);
+            buffer.put(header);
+            fileSize = 0;
+        }
+
+        if (wait) { waitForWrite(); }
+    }
+
+    // Runs on the background thread
+    private void write(ByteBuffer full) {
+        if (channel == null && !failed) { openFile(); }
+
+        if (channel == null) {
+            full.clear();
+            return;
+        }
+
+        try {
+            while (full.hasRemaining()) { bytesWritten += channel.write(full); }
+            channel.force(false);
+        } catch (IOException e) {
+            fail(String.format("Could not write signal log: %s", e));
+        }
+
+        full.clear();
+    }
+
+    private void waitForWrite() {
+        if (pendingWrite == null) { return; }
+
+        try {
+            pendingWrite.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException e) {
+            DriverStation.reportError(String.format("Could not write signal log: %s", e.getCause()), false);
+        }
+
+        pendingWrite = null;
+    }
+
+    // Flush & Close
+    /**
+     * Encodes the records so far and writes everything to the file (call when the robot is disabled)
+     */
+    public void flush() {
+        if (failed) { DriverStation.reportError("Signals are not being recorded, the signal log failed (see the first error)", false); }
+        if (!started || stopped) { return; }
+
+        finishBlock();
+        writeBuffer(true);
+    }
+
+    /**
+     * Writes everything, then closes the file. Nothing else is recorded after this.
+     */
+    public void close() {
+        flush();
+        waitForWrite();
+        stopped = true;
+
+        if (writer == null) { return; }
+
+        // On the background thread, after any write that's still going
+        pendingWrite = writer.submit(this::closeFile);
+
+        waitForWrite();
+        writer.shutdown();
+    }
+
+    // Getters
+    /**
+     * @return The file being recorded to (null if it hasn't been opened)
+     */
+    public Path getPath() { return path; }
+
+    /**
+     * @return Whether signals are being recorded (false if the file couldn't be created or written, or it was closed)
+     */
+    public boolean isRecording() { return started && !stopped; }
+
+    /**
+     * @return Number of signals
+     */
+    public int getSignalCount() { return names.size(); }
+
+    /**
+     * @return Bytes written to the file so far
+     */
+    public long getBytesWritten() { return bytesWritten; }
+}
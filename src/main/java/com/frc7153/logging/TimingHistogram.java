@@ -0,0 +1,83 @@
+package com.frc7153.logging;
+
+import java.util.Arrays;
+
+/**
+ * Histogram of durations, stored in a fixed array of counters so recording never allocates.<br><br>
+ * Buckets are logarithmic with 8 steps per power of two, so percentiles are accurate to about 12.5%.
+ * The max is exact.
+ */
+public class TimingHistogram {
+    // Buckets (8 linear buckets for 0 - 7 us, then 8 per power of two)
+    private static final int kSUB_BUCKET_BITS = 3;
+    private static final int kSUB_BUCKETS = 1 << kSUB_BUCKET_BITS;
+
+    private final long[] counts = new long[kSUB_BUCKETS * (64 - kSUB_BUCKET_BITS + 1)];
+    private long count = 0;
+    private long max = 0;
+
+    // Bucket of a value
+    private static int bucket(long micros) {
+        if (micros < kSUB_BUCKETS) { return (int) Math.max(micros, 0); }
+
+        int shift = 63 - Long.numberOfLeadingZeros(micros) - kSUB_BUCKET_BITS;
+        return (shift + 1) * kSUB_BUCKETS + (int) ((micros >>> shift) & (kSUB_BUCKETS - 1));
+    }
+
+    // Largest value in a bucket
+    private static long bucketMax(int bucket) {
+        if (bucket < kSUB_BUCKETS) { return bucket; }
+
+        int shift = bucket / kSUB_BUCKETS - 1;
+        long base = (long) (kSUB_BUCKETS + bucket % kSUB_BUCKETS) << shift;
+        return base + (1L << shift) - 1;
+    }
+
+    /**
+     * Records a duration
+     * @param micros Duration (microseconds)
+     */
+    public void record(long micros) {
+        counts[bucket(micros)]++;
+        count++;
+        if (micros > max) { max = micros; }
+    }
+
+    /**
+     * Gets a percentile
+     * @param percentile The percentile (0 - 1)
+     * @return The duration that percentile of records are at or below (microseconds), or 0 if empty
+     */
+    public long getPercentile(double percentile) {
+        if (count == 0) { return 0; }
+
+        long target = (long) Math.ceil(percentile * count);
+        long seen = 0;
+
+        for (int i = 0; i < counts.length; i++) {
+            seen += counts[i];
+            if (seen >= target && counts[i] > 0) { return Math.min(bucketMax(i), max); }
+        }
+
+        return max;
+    }
+
+    /**
+     * @return Longest duration recorded (microseconds)
+     */
+    public long getMax() { return max; }
+
+    /**
+     * @return Number of durations recorded
+     */
+    public long getCount() { return count; }
+
+    /**
+     * Removes all records
+     */
+    public void reset() {
+        Arrays.fill(counts, 0);
+        count = 0;
+        max = 0;
+    }
+}
@@ -1,5 +1,7 @@
 package com.frc7153.math;
 
+import java.util.function.DoubleSupplier;
+
 import edu.wpi.first.math.filter.LinearFilter;
 import edu.wpi.first.math.geometry.Pose2d;
 import edu.wpi.first.math.geometry.Rotation2d;
@@ -10,20 +12,32 @@ import edu.wpi.first.wpilibj.Timer;
 
 /**
  * Uses acceleration and yaw from an IMU to track position.<br><br>
- * Uses trapezoidal integration for better accuracy.
+ * Uses trapezoidal integration for better accuracy. The time of each integration comes from a clock, which is the FPGA
+ * clock on the robot, and can be replaced to replay recorded data.
  */
 public class DeadReckoning {
     // Filters
     private LinearFilter xFilter, yFilter;
 
+    // Clock (seconds)
+    private final DoubleSupplier clock;
+
     // Constructor
     /**
      * Creates new object to track inertial position
      * @param numToAverage The number of acceleration inputs to average, to reduce noise. Higher = smoother, but slower
      */
-    public DeadReckoning(int numToAverage) {
+    public DeadReckoning(int numToAverage) { this(numToAverage, Timer::getFPGATimestamp); }
+
+    /**
+     * Creates new object to track inertial position, timed with a different clock (for replaying logs)
+     * @param numToAverage The number of acceleration inputs to average, to reduce noise. Higher = smoother, but slower
+     * @param clock Supplies the current time (seconds)
+     */
+    public DeadReckoning(int numToAverage, DoubleSupplier clock) {
         xFilter = LinearFilter.movingAverage(numToAverage);
         yFilter = LinearFilter.movingAverage(numToAverage);
+        this.clock = clock;
     }
 
     // State
@@ -49,10 +63,11 @@ public class DeadReckoning {
      */
     public void integrateAcceleration(double xAccel, double yAccel, double yaw) {
         // Get time
-        if (lastIntegration.isNaN()) {lastIntegration = Timer.getFPGATimestamp(); return; }
+        double now = clock.getAsDouble();
+        if (lastIntegration.isNaN()) {lastIntegration = now; return; }
 
-        double timeDiff = Timer.getFPGATimestamp() - lastIntegration;
-        lastIntegration = Timer.getFPGATimestamp();
+        double timeDiff = now - lastIntegration;
+        lastIntegration = now;
 
         if (timeDiff > 1.0) {
             DriverStation.reportWarning(String.format("Last acceleration integration is very state (%s seconds ago)", timeDiff), false);
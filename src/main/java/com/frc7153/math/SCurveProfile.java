@@ -0,0 +1,143 @@
+package com.frc7153.math;
+
+/**
+ * A jerk-limited (S-curve) motion profile, from rest to rest.<br><br>
+ * Acceleration ramps up and down at the max jerk instead of stepping, so the mechanism isn't jolted at the start and end
+ * of each phase. The profile has 7 phases: jerk up, constant acceleration, jerk down, cruise, then the same mirrored to
+ * slow down. Phases that aren't needed (the max velocity or acceleration isn't reached) are zero long.
+ */
+public class SCurveProfile {
+    // Phases
+    private static final int kPHASES = 7;
+    private final double[] durations = new double[kPHASES];
+    private final double[] jerks = new double[kPHASES];
+
+    // State at the start of each phase
+    private final double[] startTimes = new double[kPHASES + 1];
+    private final double[] positions = new double[kPHASES + 1];
+    private final double[] velocities = new double[kPHASES + 1];
+    private final double[] accelerations = new double[kPHASES + 1];
+
+    private final double distance;
+    private final double sign;
+
+    /**
+     * Creates a profile
+     * @param distance Distance to move (can be negative)
+     * @param maxVelocity Max velocity (positive)
+     * @param maxAcceleration Max acceleration (positive)
+     * @param maxJerk Max jerk (positive)
+     */
+    public SCurveProfile(double distance, double maxVelocity, double maxAcceleration, double maxJerk) {
+        this.distance = distance;
+        sign = Math.signum(distance);
+
+        double d = Math.abs(distance);
+
+        if (d > 0.0) {
+            // Highest velocity that can be reached in the distance
+            double peak = maxVelocity;
+
+            if (peak * accelTime(peak, maxAcceleration, maxJerk) > d) {
+                double low = 0.0;
+                double high = maxVelocity;
+
+                for (int i = 0; i < 60; i++) {
+                    peak = (low + high) / 2.0;
+                    if (peak * accelTime(peak, maxAcceleration, maxJerk) > d) { high = peak; } else { low = peak; }
+                }
+
+                peak = low;
+            }
+
+            // Phase durations
+            double jerkTime = Math.min(maxAcceleration / maxJerk, Math.sqrt(peak / maxJerk));
+            double accelTime = accelTime(peak, maxAcceleration, maxJerk);
+            double cruiseTime = (peak > 0.0) ? Math.max(d - peak * accelTime, 0.0) / peak : 0.0;
+
+            double[] phases = {jerkTime, accelTime - 2.0 * jerkTime, jerkTime, cruiseTime, jerkTime, accelTime - 2.0 * jerkTime, jerkTime};
+            double[] phaseJerks = {maxJerk, 0.0, -maxJerk, 0.0, -maxJerk, 0.0, maxJerk};
+
+            for (int i = 0; i < kPHASES; i++) {
+                durations[i] = Math.max(phases[i], 0.0);
+                jerks[i] = phaseJerks[i];
+            }
+        }
+
+        // Integrate the start state of each phase
+        for (int i = 0; i < kPHASES; i++) {
+            double t = durations[i];
+            double j = jerks[i];
+
+            startTimes[i + 1] = startTimes[i] + t;
+            positions[i + 1] = positions[i] + velocities[i] * t + accelerations[i] * t * t / 2.0 + j * t * t * t / 6.0;
+            velocities[i + 1] = velocities[i] + accelerations[i] * t + j * t * t / 2.0;
+            accelerations[i + 1] = accelerations[i] + j * t;
+        }
+    }
+
+    // Time to accelerate from rest to a velocity (and back to zero acceleration)
+    private static double accelTime(double velocity, double maxAcceleration, double maxJerk) {
+        if (velocity * maxJerk <= maxAcceleration * maxAcceleration) { return 2.0 * Math.sqrt(velocity / maxJerk); }
+        return velocity / maxAcceleration + maxAcceleration / maxJerk;
+    }
+
+    // Phase a time is in
+    private int getPhase(double t) {
+        for (int i = 0; i < kPHASES; i++) {
+            if (t < startTimes[i + 1]) { return i; }
+        }
+
+        return kPHASES - 1;
+    }
+
+    // Getters
+    /**
+     * @return Time the profile takes (seconds)
+     */
+    public double getTotalTime() { return startTimes[kPHASES]; }
+
+    /**
+     * @return Distance moved
+     */
+    public double getDistance() { return distance; }
+
+    /**
+     * Gets the position at a time (the end position after the profile is finished)
+     * @param t Time since the start (seconds)
+     * @return Position, from the start
+     */
+    public double getPosition(double t) {
+        if (t >= getTotalTime()) { return distance; }
+        if (t <= 0.0) { return 0.0; }
+
+        int i = getPhase(t);
+        double dt = t - startTimes[i];
+        return sign * (positions[i] + velocities[i] * dt + accelerations[i] * dt * dt / 2.0 + jerks[i] * dt * dt * dt / 6.0);
+    }
+
+    /**
+     * Gets the velocity at a time
+     * @param t Time since the start (seconds)
+     * @return Velocity
+     */
+    public double getVelocity(double t) {
+        if (t <= 0.0 || t >= getTotalTime()) { return 0.0; }
+
+        int i = getPhase(t);
+        double dt = t - startTimes[i];
+        return sign * (velocities[i] + accelerations[i] * dt + jerks[i] * dt * dt / 2.0);
+    }
+
+    /**
+     * Gets the acceleration at a time
+     * @param t Time since the start (seconds)
+     * @return Acceleration
+     */
+    public double getAcceleration(double t) {
+        if (t <= 0.0 || t >= getTotalTime()) { return 0.0; }
+
+        int i = getPhase(t);
+        return sign * (accelerations[i] + jerks[i] * (t - startTimes[i]));
+    }
+}
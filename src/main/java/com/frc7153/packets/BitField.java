@@ -0,0 +1,66 @@
+package com.frc7153.packets;
+
+/**
+ * A field of bits in a packet that fits in a {@code long}. Fields are made with {@link BitFieldLayout}, and reading or
+ * writing them is just a shift and a mask (nothing is allocated).
+ */
+public class BitField {
+    // Position
+    private final int shift;
+    private final long mask;
+    private final int width;
+
+    // Constructor (use BitFieldLayout)
+    BitField(int shift, int width) {
+        this.shift = shift;
+        this.width = width;
+        mask = (width == 64) ? -1L : (1L << width) - 1;
+    }
+
+    // Read
+    /**
+     * @param packet The packet
+     * @return Value of this field (unsigned)
+     */
+    public long get(long packet) { return (packet >>> shift) & mask; }
+
+    /**
+     * @param packet The packet
+     * @return Value of this field, as an int (unsigned)
+     */
+    public int getInt(long packet) { return (int) get(packet); }
+
+    /**
+     * @param packet The packet
+     * @return Whether the lowest bit of this field is set
+     */
+    public boolean getBoolean(long packet) { return ((packet >>> shift) & 1L) != 0; }
+
+    // Write
+    /**
+     * Sets this field in a packet. Extra high bits of the value are dropped.
+     * @param packet The packet
+     * @param value Value to set
+     * @return The packet, with this field set
+     */
+    public long set(long packet, long value) { return (packet & ~(mask << shift)) | ((value & mask) << shift); }
+
+    /**
+     * Sets this field in a packet
+     * @param packet The packet
+     * @param value Value to set (1 or 0)
+     * @return The packet, with this field set
+     */
+    public long set(long packet, boolean value) { return set(packet, value ? 1L : 0L); }
+
+    // Getters
+    /**
+     * @return Number of bits in this field
+     */
+    public int getWidth() { return width; }
+
+    /**
+     * @return Largest value that fits in this field
+     */
+    public long getMax() { return mask; }
+}
@@ -0,0 +1,77 @@
+package com.frc7153.packets;
+
+/**
+ * Describes a packet as a list of bit fields, in the order they are sent (most significant bit first, like appending to
+ * a bit array in Python). Each packet is read into a {@code long}, and fields are read from it with {@link BitField}.
+ * <pre>
+ * BitFieldLayout layout = new BitFieldLayout(16);
+ * BitField flag = layout.field(1);
+ * BitField value = layout.field(15);
+ * </pre>
+ */
+public class BitFieldLayout {
+    // Layout
+    private final int size;
+    private int used = 0;
+
+    /**
+     * Creates an empty layout
+     * @param size Size of the packet (bits, up to 64)
+     */
+    public BitFieldLayout(int size) {
+        if (size < 1 || size > 64) { throw new IllegalArgumentException(String.format("Packets must be 1 - 64 bits, not %s", size)); }
+        this.size = size;
+    }
+
+    /**
+     * Adds the next field
+     * @param width Number of bits in the field
+     * @return The field
+     */
+    public BitField field(int width) {
+        if (width < 1 || used + width > size) {
+            throw new IllegalArgumentException(String.format("A %s bit field does not fit in the packet (%s of %s bits used)", width, used, size));
+        }
+
+        used += width;
+        return new BitField(size - used, width);
+    }
+
+    /**
+     * @return Number of bits used by fields so far
+     */
+    public int getUsedBits() { return used; }
+
+    /**
+     * @return Size of the packet (bits)
+     */
+    public int getSize() { return size; }
+
+    // Bytes
+    /**
+     * Reads bytes into a packet (first byte is the most significant). Missing bytes are read as zeros.
+     * @param data The bytes
+     * @param length Number of bytes to read
+     * @return The packet
+     */
+    public static long fromBytes(byte[] data, int length) {
+        long packet = 0;
+
+        for (int i = 0; i < 8; i++) {
+            packet = (packet << 8) | ((i < length) ? (data[i] & 0xFF) : 0);
+        }
+
+        return packet;
+    }
+
+    /**
+     * Writes a packet into bytes (first byte is the most significant)
+     * @param packet The packet
+     * @param out Array to write to (8 bytes)
+     */
+    public static void toBytes(long packet, byte[] out) {
+        for (int i = 0; i < 8; i++) {
+            out[i] = (byte) (packet >>> (56 - i * 8));
+        }
+    }
+}
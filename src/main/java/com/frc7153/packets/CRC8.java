@@ -0,0 +1,37 @@
+package com.frc7153.packets;
+
+/**
+ * CRC-8 (polynomial 0x07, initial value 0, like CRC-8/SMBUS), calculated over the bytes of {@code long} packets.
+ * A lookup table is used, so nothing is allocated.
+ */
+public class CRC8 {
+    // Lookup Table
+    private static final int[] kTABLE = new int[256];
+
+    static {
+        for (int i = 0; i < 256; i++) {
+            int crc = i;
+
+            for (int b = 0; b < 8; b++) {
+                crc = ((crc & 0x80) != 0) ? ((crc << 1) ^ 0x07) : (crc << 1);
+            }
+
+            kTABLE[i] = crc & 0xFF;
+        }
+    }
+
+    /**
+     * Continues a CRC with the bytes of a packet (most significant byte first)
+     * @param crc CRC so far (0 to start)
+     * @param packet The packet
+     * @param bytes Number of bytes to use, from the most significant (1 - 8)
+     * @return The new CRC
+     */
+    public static int update(int crc, long packet, int bytes) {
+        for (int i = 0; i < bytes; i++) {
+            crc = kTABLE[(crc ^ (int) (packet >>> (56 - i * 8))) & 0xFF];
+        }
+
+        return crc;
+    }
+}
@@ -0,0 +1,73 @@
+package com.frc7153.replay;
+
+/**
+ * Summarizes the error between recomputed and logged values (count, mean, RMS and max), without keeping every sample.
+ */
+public class ErrorStats {
+    // Totals
+    private long count = 0;
+    private double sum = 0.0;
+    private double sumSquares = 0.0;
+    private double max = 0.0;
+
+    /**
+     * Adds an error. NaN errors (missing values) are skipped.
+     * @param error The error (only its size is used)
+     * @return This object (modifications are done in place)
+     */
+    public ErrorStats add(double error) {
+        if (Double.isNaN(error)) { return this; }
+
+        error = Math.abs(error);
+        count++;
+        sum += error;
+        sumSquares += error * error;
+        max = Math.max(max, error);
+        return this;
+    }
+
+    /**
+     * Adds the distance between two points
+     * @param dx Difference in X
+     * @param dy Difference in Y
+     * @return This object (modifications are done in place)
+     */
+    public ErrorStats add(double dx, double dy) { return add(Math.hypot(dx, dy)); }
+
+    /**
+     * Adds all the samples of other stats (for combining the stats of many logs)
+     * @param other The other stats
+     * @return This object (modifications are done in place)
+     */
+    public ErrorStats add(ErrorStats other) {
+        count += other.count;
+        sum += other.sum;
+        sumSquares += other.sumSquares;
+        max = Math.max(max, other.max);
+        return this;
+    }
+
+    // Getters
+    /**
+     * @return Number of errors added
+     */
+    public long getCount() { return count; }
+
+    /**
+     * @return Mean error (0 if there are none)
+     */
+    public double getMean() { return (count == 0) ? 0.0 : sum / count; }
+
+    /**
+     * @return Root mean square error (0 if there are none)
+     */
+    public double getRMS() { return (count == 0) ? 0.0 : Math.sqrt(sumSquares / count); }
+
+    /**
+     * @return Largest error (0 if there are none)
+     */
+    public double getMax() { return max; }
+
+    @Override
+    public String toString() { return String.format("mean %.4f, rms %.4f, max %.4f (%s samples)", getMean(), getRMS(), getMax(), count); }
+}
@@ -0,0 +1,165 @@
+package com.frc7153.replay;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import com.frc7153.logging.SignalLog;
+
+/**
+ * Replays logs written by {@link com.frc7153.logging.SignalRecorder} through robot code off the robot, as fast as the
+ * CPU allows.<br><br>
+ * Each log is read and replayed by its own task in a fork-join pool, so many logs are replayed in parallel. A log is
+ * replayed by one thread from start to end, with its own {@link ReplayClock}, so the code being replayed doesn't have
+ * to be thread safe (it only can't share state between logs). A log that fails doesn't stop the others.
+ * <pre>
+ * List&lt;LogReplay.Result&lt;ErrorStats&gt;&gt; results = new LogReplay&lt;&gt;(MyReplay::replay).run(LogReplay.find(args));
+ * </pre>
+ * @param <R> Type of the result of each log
+ */
+public class LogReplay<R> {
+    /** Replays one log */
+    @FunctionalInterface
+    public static interface Replayer<R> {
+        /**
+         * Replays a log. Called from a pool thread.
+         * @param path Path of the log
+         * @param log The log
+         * @param clock Clock to set to the time of each record, before it is replayed
+         * @return Result of the replay
+         * @throws Exception If the log can't be replayed
+         */
+        public R replay(Path path, SignalLog log, ReplayClock clock) throws Exception;
+    }
+
+    /** Result of replaying one log */
+    public static class Result<R> {
+        public final Path path;
+        public final R value; // Null if it failed
+        public final Throwable error; // Null if it succeeded
+        public final int records;
+        public final double duration; // Time covered by the log (seconds)
+        public final double replayTime; // Time it took to read and replay (seconds)
+
+        private Result(Path path, R value, Throwable error, int records, double duration, double replayTime) {
+            this.path = path;
+            this.value = value;
+            this.error = error;
+            this.records = records;
+            this.duration = duration;
+            this.replayTime = replayTime;
+        }
+
+        /**
+         * @return Whether the log was replayed
+         */
+        public boolean succeeded() { return error == null; }
+
+        /**
+         * @return How many times faster than real time the log was replayed
+         */
+        public double getSpeedup() { return (replayTime > 0.0) ? duration / replayTime : Double.POSITIVE_INFINITY; }
+    }
+
+    // Config
+    private final Replayer<R> replayer;
+    private final int parallelism;
+
+    /**
+     * Creates a replay that uses every processor
+     * @param replayer Replays each log
+     */
+    public LogReplay(Replayer<R> replayer) { this(replayer, Runtime.getRuntime().availableProcessors()); }
+
+    /**
+     * Creates a replay
+     * @param replayer Replays each log
+     * @param parallelism Most logs replayed at once
+     */
+    public LogReplay(Replayer<R> replayer, int parallelism) {
+        this.replayer = replayer;
+        this.parallelism = Math.max(parallelism, 1);
+    }
+
+    /**
+     * Replays logs in parallel, and waits for all of them to finish
+     * @param logs Paths of the logs
+     * @return Result of each log, in the same order as the paths
+     * @throws InterruptedException If interrupted while waiting
+     */
+    public List<Result<R>> run(List<Path> logs) throws InterruptedException {
+        List<Callable<Result<R>>> tasks = new ArrayList<>(logs.size());
+        for (Path log : logs) { tasks.add(() -> replay(log)); }
+
+        ForkJoinPool pool = new ForkJoinPool(parallelism);
+
+        try {
+            List<Result<R>> results = new ArrayList<>(logs.size());
+
+            for (Future<Result<R>> future : pool.invokeAll(tasks)) {
+                try {
+                    results.add(future.get());
+                } catch (ExecutionException e) {
+                    // replay() catches everything, so this is an error in the pool itself
+                    throw new IllegalStateException(e.getCause());
+                }
+            }
+
+            return results;
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    // Read and replay one log
+    private Result<R> replay(Path path) {
+        long start = System.nanoTime();
+        int records = 0;
+        double duration = 0.0;
+
+        try {
+            SignalLog log = SignalLog.read(path);
+            double[] timestamps = log.getTimestamps();
+
+            records = log.getRecordCount();
+            if (records > 0) { duration = timestamps[records - 1] - timestamps[0]; }
+
+            R value = replayer.replay(path, log, new ReplayClock());
+            return new Result<>(path, value, null, records, duration, (System.nanoTime() - start) / 1e9);
+        } catch (Exception e) {
+            return new Result<>(path, null, e, records, duration, (System.nanoTime() - start) / 1e9);
+        }
+    }
+
+    /**
+     * Finds logs. Directories are searched (not recursively) for {@code .sig} files.
+     * @param paths Paths of logs or directories
+     * @return Paths of the logs, sorted within each directory
+     * @throws IOException If a directory can't be listed
+     */
+    public static List<Path> find(String... paths) throws IOException {
+        List<Path> logs = new ArrayList<>();
+
+        for (String name : paths) {
+            Path path = Path.of(name);
+
+            if (Files.isDirectory(path)) {
+                try (Stream<Path> files = Files.list(path)) {
+                    logs.addAll(files.filter(file -> file.toString().endsWith(".sig")).sorted().collect(Collectors.toList()));
+                }
+            } else {
+                logs.add(path);
+            }
+        }
+
+        return logs;
+    }
+}
@@ -0,0 +1,23 @@
+package com.frc7153.replay;
+
+import java.util.function.DoubleSupplier;
+
+/**
+ * A clock that is set by hand, used in place of {@code Timer.getFPGATimestamp()} when replaying a log, so code that reads
+ * the time sees the time of the record being replayed. Each replay has its own clock, so it is only used by one thread.
+ */
+public class ReplayClock implements DoubleSupplier {
+    // Time (seconds)
+    private double time = 0.0;
+
+    /**
+     * @param time Time of the record being replayed (seconds)
+     */
+    public void set(double time) { this.time = time; }
+
+    /**
+     * @return Time of the record being replayed (seconds)
+     */
+    @Override
+    public double getAsDouble() { return time; }
+}
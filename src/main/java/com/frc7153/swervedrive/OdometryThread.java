@@ -0,0 +1,68 @@
+package com.frc7153.swervedrive;
+
+import java.util.function.DoubleSupplier;
+
+import edu.wpi.first.math.MathUtil;
+import edu.wpi.first.wpilibj.DriverStation;
+import edu.wpi.first.wpilibj.Notifier;
+
+/**
+ * Updates a swerve base's odometry in its own thread, at a higher rate than the main robot loop.
+ * This way, the accuracy of the pose does not depend on how long the main loop takes.
+ */
+public class OdometryThread {
+    // Allowed update rates (hz)
+    public static final double kMIN_FREQUENCY = 100.0;
+    public static final double kMAX_FREQUENCY = 250.0;
+
+    // Notifier
+    private final Notifier notifier;
+    private final double period;
+    private boolean running = false;
+
+    /**
+     * Creates a new odometry thread. It is not started by default.
+     * @param base The swerve base to update
+     * @param gyro Supplies the angle of the gyroscope (degrees). This is called from the odometry thread.
+     * @param frequency How many times per second to update (100 - 250 hz)
+     */
+    public OdometryThread(SwerveBase base, DoubleSupplier gyro, double frequency) {
+        if (frequency < kMIN_FREQUENCY || frequency > kMAX_FREQUENCY) {
+            DriverStation.reportWarning(String.format("Odometry frequency of %s hz is out of range, clamping it", frequency), false);
+            frequency = MathUtil.clamp(frequency, kMIN_FREQUENCY, kMAX_FREQUENCY);
+        }
+
+        period = 1.0 / frequency;
+
+        notifier = new Notifier(() -> base.updateOdometry(gyro.getAsDouble()));
+        notifier.setName("Odometry");
+    }
+
+    /**
+     * Starts updating odometry
+     */
+    public void start() {
+        if (running) { return; }
+
+        notifier.startPeriodic(period);
+        running = true;
+    }
+
+    /**
+     * Stops updating odometry
+     */
+    public void stop() {
+        notifier.stop();
+        running = false;
+    }
+
+    /**
+     * @return Whether the thread is updating odometry
+     */
+    public boolean isRunning() { return running; }
+
+    /**
+     * @return Time between updates (seconds)
+     */
+    public double getPeriod() { return period; }
+}
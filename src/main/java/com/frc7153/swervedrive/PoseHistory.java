@@ -0,0 +1,149 @@
+package com.frc7153.swervedrive;
+
+/**
+ * Fixed-size history of timestamped poses, so measurements that were captured in the past (like vision)
+ * can be compared with where the robot was at that time.<br><br>
+ * Poses are stored in parallel primitive arrays (ring buffer), and lookups are a binary search with linear
+ * interpolation, so nothing is allocated after construction. All methods are thread-safe.
+ */
+public class PoseHistory {
+    // Samples
+    private final double[] timestamps;
+    private final double[] xs;
+    private final double[] ys;
+    private final double[] rotations;
+
+    // Ring buffer state
+    private int start = 0;
+    private int size = 0;
+
+    /**
+     * Creates a new pose history
+     * @param capacity Max number of poses to store (oldest are dropped first)
+     */
+    public PoseHistory(int capacity) {
+        if (capacity < 2) { throw new IllegalArgumentException("Pose history must hold at least two poses"); }
+
+        timestamps = new double[capacity];
+        xs = new double[capacity];
+        ys = new double[capacity];
+        rotations = new double[capacity];
+    }
+
+    /**
+     * Creates a new pose history big enough for a length of time
+     * @param seconds How long the history should be
+     * @param frequency How many poses are added per second (hz)
+     */
+    public PoseHistory(double seconds, double frequency) { this((int) Math.ceil(seconds * frequency) + 1); }
+
+    // Physical index of the nth oldest sample
+    private int index(int n) {
+        int i = start + n;
+        return (i >= timestamps.length) ? i - timestamps.length : i;
+    }
+
+    /**
+     * Adds a pose. Poses must be added in order, any pose that is not newer than the latest one is ignored.
+     * @param timestamp Time of the pose (seconds)
+     * @param x X position (meters)
+     * @param y Y position (meters)
+     * @param rotation Rotation (degrees, continuous)
+     */
+    public synchronized void add(double timestamp, double x, double y, double rotation) {
+        if (size > 0 && timestamp <= timestamps[index(size - 1)]) { return; }
+
+        int i;
+        if (size < timestamps.length) {
+            i = index(size);
+            size++;
+        } else {
+            i = start;
+            start = index(1);
+        }
+
+        timestamps[i] = timestamp;
+        xs[i] = x;
+        ys[i] = y;
+        rotations[i] = rotation;
+    }
+
+    /**
+     * Moves every stored pose, so the history stays consistent after odometry is corrected
+     * @param dx Change in X position (meters)
+     * @param dy Change in Y position (meters)
+     * @param dRotation Change in rotation (degrees)
+     */
+    public synchronized void shift(double dx, double dy, double dRotation) {
+        for (int n = 0; n < size; n++) {
+            int i = index(n);
+
+            xs[i] += dx;
+            ys[i] += dy;
+            rotations[i] += dRotation;
+        }
+    }
+
+    /**
+     * Removes all poses
+     */
+    public synchronized void clear() {
+        start = 0;
+        size = 0;
+    }
+
+    /**
+     * Gets the pose at a time, interpolating between the two closest poses.
+     * Times after the latest pose return the latest pose.
+     * @param timestamp The time (seconds)
+     * @param out Array of length 3, filled with x, y (meters) and rotation (degrees)
+     * @return False if there is no pose that old (out is not changed)
+     */
+    public synchronized boolean getPoseAt(double timestamp, double[] out) {
+        if (size == 0 || timestamp < timestamps[start]) { return false; }
+
+        int newest = index(size - 1);
+        if (timestamp >= timestamps[newest]) {
+            out[0] = xs[newest];
+            out[1] = ys[newest];
+            out[2] = rotations[newest];
+            return true;
+        }
+
+        // Find the last sample at or before the time
+        int low = 0, high = size - 1;
+        while (low < high) {
+            int mid = (low + high + 1) >>> 1;
+
+            if (timestamps[index(mid)] <= timestamp) {
+                low = mid;
+            } else {
+                high = mid - 1;
+            }
+        }
+
+        int a = index(low);
+        int b = index(low + 1);
+        double t = (timestamp - timestamps[a]) / (timestamps[b] - timestamps[a]);
+
+        out[0] = xs[a] + (xs[b] - xs[a]) * t;
+        out[1] = ys[a] + (ys[b] - ys[a]) * t;
+        out[2] = rotations[a] + (rotations[b] - rotations[a]) * t;
+        return true;
+    }
+
+    /**
+     * @return Number of poses stored
+     */
+    public synchronized int size() { return size; }
+
+    /**
+     * @return Time of the oldest pose stored (seconds), or NaN if empty
+     */
+    public synchronized double getOldestTimestamp() { return (size == 0) ? Double.NaN : timestamps[start]; }
+
+    /**
+     * @return Time of the newest pose stored (seconds), or NaN if empty
+     */
+    public synchronized double getNewestTimestamp() { return (size == 0) ? Double.NaN : timestamps[index(size - 1)]; }
+}
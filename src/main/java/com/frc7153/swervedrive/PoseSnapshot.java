@@ -0,0 +1,63 @@
+package com.frc7153.swervedrive;
+
+import java.lang.invoke.VarHandle;
+
+/**
+ * A pose that is written by one thread and read by others without locking (seqlock).<br><br>
+ * The writer bumps the sequence number to an odd value, writes the values, then bumps it to an even value.
+ * Readers retry if the sequence number was odd or changed while they were reading, so they never see half of
+ * an update (which matters for doubles on the RoboRIO's 32-bit processor). The whole pose is read at once, so values
+ * from different updates can't be mixed.
+ */
+public class PoseSnapshot {
+    // Sequence number (odd while writing)
+    private volatile int sequence = 0;
+
+    // Values
+    private double timestamp = 0.0;
+    private double x = 0.0;
+    private double y = 0.0;
+    private double rotation = 0.0;
+
+    /**
+     * Publishes a new pose. Only one thread should write at a time.
+     * @param timestamp Time of the pose (seconds)
+     * @param x X position (meters)
+     * @param y Y position (meters)
+     * @param rotation Rotation (degrees)
+     */
+    public void write(double timestamp, double x, double y, double rotation) {
+        int seq = sequence;
+        sequence = seq + 1;
+        VarHandle.storeStoreFence();
+
+        this.timestamp = timestamp;
+        this.x = x;
+        this.y = y;
+        this.rotation = rotation;
+
+        sequence = seq + 2;
+    }
+
+    /**
+     * Reads the latest pose without blocking the writer
+     * @param out Array of length 4, filled with the timestamp (seconds), x, y (meters) and rotation (degrees)
+     */
+    public void read(double[] out) {
+        while (true) {
+            int seq = sequence;
+
+            if ((seq & 1) == 0) {
+                out[0] = timestamp;
+                out[1] = x;
+                out[2] = y;
+                out[3] = rotation;
+
+                VarHandle.loadLoadFence();
+                if (sequence == seq) { return; }
+            }
+
+            Thread.onSpinWait();
+        }
+    }
+}
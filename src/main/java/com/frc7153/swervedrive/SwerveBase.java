@@ -1,58 +1,84 @@
 package com.frc7153.swervedrive;
 
+import java.util.function.DoubleSupplier;
+
 import edu.wpi.first.math.geometry.Pose2d;
 import edu.wpi.first.math.geometry.Rotation2d;
 import edu.wpi.first.math.geometry.Translation2d;
 import edu.wpi.first.math.kinematics.ChassisSpeeds;
-import edu.wpi.first.math.kinematics.SwerveDriveKinematics;
-import edu.wpi.first.math.kinematics.SwerveDriveOdometry;
-import edu.wpi.first.math.kinematics.SwerveModulePosition;
-import edu.wpi.first.math.kinematics.SwerveModuleState;
 import edu.wpi.first.math.util.Units;
 import edu.wpi.first.wpilibj.DriverStation;
+import edu.wpi.first.wpilibj.Timer;
 import edu.wpi.first.wpilibj2.command.SubsystemBase;
 
+import com.frc7153.logging.LoopProfiler;
 import com.frc7153.math.MathUtils;
 import com.frc7153.swervedrive.wheeltypes.SwerveWheel;
 
 public class SwerveBase extends SubsystemBase {
+    // How long the pose history is kept (seconds)
+    private static final double kPOSE_HISTORY_LENGTH = 2.0;
+
+    // Time between simulationPeriodic() calls (seconds)
+    private static final double kSIMULATION_PERIOD = 0.02;
+
     // Wheels
-    private SwerveWheel fl, fr, rl, rr;
+    private SwerveWheel[] wheels;
     
-    // Kinematics & Odometry
-    private SwerveDriveKinematics kinematics;
+    // Kinematics & Odometry (allocation-free, these run every loop)
+    private SwerveKinematics kinematics;
+
+    private SwerveOdometry odometry;
+    private volatile boolean odometryStarted = false;
+
+    private double[] moduleDistances;
+    private double[] moduleAngles;
 
-    private SwerveDriveOdometry odometry;
-    private Pose2d odometryPosition;
+    // Odometry Threading (odometry may be updated from the odometry thread, the pose is read through the snapshot)
+    private final Object odometryLock = new Object();
+    private final PoseSnapshot odometryPose = new PoseSnapshot();
+    private final ThreadLocal<double[]> poseBuffer = ThreadLocal.withInitial(() -> new double[4]); // For getOdometryPose(), one per reading thread
+    private OdometryThread odometryThread;
+
+    // Past poses (for delayed measurements)
+    private final PoseHistory poseHistory = new PoseHistory(kPOSE_HISTORY_LENGTH, OdometryThread.kMAX_FREQUENCY);
 
     // Max Speeds
     private double maxDriveSpeed = 4.0;
     private double maxSpinSpeed = 360.0;
 
-    // Get Module Position
-    private SwerveModulePosition[] getSwerveModulePositions() {
-        return new SwerveModulePosition[] {
-                fl.getState(),
-                fr.getState(),
-                rl.getState(),
-                rr.getState()
-        };
+    // Profiling
+    private final int profileSection = LoopProfiler.getInstance().register("SwerveBase");
+
+    // Hardware Read Counter
+    private long lastHardwareReads = 0;
+    private long hardwareReadsPerLoop = 0;
+
+    // Sample Module Sensors (once per loop, odometry and driving both use this snapshot)
+    private void sampleModulePositions() {
+        for (int i = 0; i < wheels.length; i++) {
+            wheels[i].sample();
+
+            moduleDistances[i] = wheels[i].getDistance();
+            moduleAngles[i] = wheels[i].getAngle();
+        }
     }
     
     /**
-     * Creates a new SwerveBase, with four SwerveWheels. Odometry is not started by default
-     * @param frontLeft
-     * @param frontRight
-     * @param rearLeft
-     * @param rearRight
+     * Creates a new SwerveBase, with any number of SwerveWheels (at least two). Odometry is not started by default
+     * @param wheels The wheels (for example front left, front right, rear left, rear right)
      */
-    public SwerveBase(SwerveWheel frontLeft, SwerveWheel frontRight, SwerveWheel rearLeft, SwerveWheel rearRight) {
-        fl = frontLeft;
-        fr = frontRight;
-        rl = rearLeft;
-        rr = rearRight;
+    public SwerveBase(SwerveWheel... wheels) {
+        this.wheels = wheels.clone();
+
+        Translation2d[] positions = new Translation2d[wheels.length];
+        for (int i = 0; i < wheels.length; i++) { positions[i] = wheels[i].getPosition(); }
+
+        kinematics = new SwerveKinematics(positions);
+        odometry = new SwerveOdometry(kinematics);
 
-        kinematics = new SwerveDriveKinematics(fl.getPosition(), fr.getPosition(), rl.getPosition(), rr.getPosition());
+        moduleDistances = new double[wheels.length];
+        moduleAngles = new double[wheels.length];
     }
 
     /**
@@ -63,12 +89,38 @@ public class SwerveBase extends SubsystemBase {
      * @param startRot The starting rotation
      */
     public void startOdometry(double gyroAngle, double startX, double startY, double startRot) {
-        odometry = new SwerveDriveOdometry(
-            kinematics, 
-            Rotation2d.fromDegrees(gyroAngle), 
-            getSwerveModulePositions(),
-            new Pose2d(startX, startY, Rotation2d.fromDegrees(startRot))
-        );
+        synchronized (odometryLock) {
+            sampleModulePositions();
+            odometry.reset(gyroAngle, moduleDistances, startX, startY, startRot);
+
+            double time = Timer.getFPGATimestamp();
+            odometryPose.write(time, startX, startY, startRot);
+
+            poseHistory.clear();
+            poseHistory.add(time, startX, startY, startRot);
+
+            odometryStarted = true;
+        }
+    }
+
+    /**
+     * Starts updating odometry in a separate thread, rather than with {@code updateOdometry()} in the main loop.
+     * Odometry should be started first.
+     * @param gyro Supplies the angle of the gyroscope (degrees). This is called from the odometry thread.
+     * @param frequency How many times per second to update (100 - 250 hz)
+     */
+    public void startOdometryThread(DoubleSupplier gyro, double frequency) {
+        if (odometryThread != null) { odometryThread.stop(); }
+
+        odometryThread = new OdometryThread(this, gyro, frequency);
+        odometryThread.start();
+    }
+
+    /**
+     * Stops the odometry thread, if it is running
+     */
+    public void stopOdometryThread() {
+        if (odometryThread != null) { odometryThread.stop(); }
     }
 
     /**
@@ -92,18 +144,24 @@ public class SwerveBase extends SubsystemBase {
     public double getMaxSpinSpeed() { return maxSpinSpeed; }
 
     /**
-     * Scale down speeds and distribute them to the wheels
-     * @param y
-     * @param x
-     * @param r
+     * @return The number of wheels
      */
-    private void scaleAndDistribute(SwerveModuleState[] states) {
-        //SwerveDriveKinematics.desaturateWheelSpeeds(states, maxDriveSpeed);
+    public int getWheelCount() { return wheels.length; }
 
-        fl.set(states[0]);
-        fr.set(states[1]);
-        rl.set(states[2]);
-        rr.set(states[3]);
+    /**
+     * Scale down speeds and distribute the last kinematics output to the wheels
+     */
+    private void scaleAndDistribute() {
+        kinematics.desaturate(maxDriveSpeed);
+
+        // Without the odometry thread, nothing else samples the wheels
+        if (odometryThread == null || !odometryThread.isRunning()) {
+            synchronized (odometryLock) { sampleModulePositions(); }
+        }
+
+        for (int i = 0; i < wheels.length; i++) {
+            wheels[i].setState(kinematics.getAngle(i), kinematics.getSpeed(i));
+        }
     }
 
     /**
@@ -113,10 +171,9 @@ public class SwerveBase extends SubsystemBase {
      * @param r rotation speed (degrees per second)
      */
     public void driveAbsolute(double y, double x, double r) {
-        ChassisSpeeds speed = new ChassisSpeeds(y, x, -Units.degreesToRadians(r));
-        SwerveModuleState[] states = kinematics.toSwerveModuleStates(speed, new Translation2d(0, 0));
+        kinematics.toModuleStates(y, x, -Units.degreesToRadians(r));
 
-        scaleAndDistribute(states);
+        scaleAndDistribute();
     }
 
     /**
@@ -135,14 +192,9 @@ public class SwerveBase extends SubsystemBase {
      * @param deg current angle of the robot (degrees)
      */
     public void driveFieldOrientedAbsolute(double y, double x, double r, double deg) {
-        ChassisSpeeds speed = ChassisSpeeds.fromFieldRelativeSpeeds(
-            y, x, 
-            Units.degreesToRadians(r), 
-            Rotation2d.fromDegrees(deg)
-        );
-        SwerveModuleState[] states = kinematics.toSwerveModuleStates(speed);
-
-        scaleAndDistribute(states);
+        kinematics.toModuleStatesFieldRelative(y, x, Units.degreesToRadians(r), deg);
+
+        scaleAndDistribute();
     }
 
     /**
@@ -161,22 +213,23 @@ public class SwerveBase extends SubsystemBase {
      * @param centerY The Y position of the center of rotation, relative to the robot's base (meters)
      */
     public void orbitAbsolute(double rotation, double centerX, double centerY) {
-        ChassisSpeeds speed = new ChassisSpeeds(0.0, 0.0, -Units.degreesToRadians(rotation));
-        SwerveModuleState[] states = kinematics.toSwerveModuleStates(speed, new Translation2d(centerX, centerY));
+        kinematics.toModuleStates(0.0, 0.0, -Units.degreesToRadians(rotation), centerX, centerY);
 
-        scaleAndDistribute(states);
+        scaleAndDistribute();
     }
 
     /**
-     * Drives the robot like its a tank drive base
+     * Drives the robot like its a tank drive base. Wheels on the centerline count as the right side.
      * @param left The speed of the left side of the robot (meters/second)
      * @param right The speed of the right side of the robot (meters/second)
      */
     public void tankDriveAbsolute(double left, double right) {
-        fl.set(0.0, MathUtils.symmetricClamp(left, maxDriveSpeed));
-        rl.set(0.0, MathUtils.symmetricClamp(left, maxDriveSpeed));
-        fr.set(0.0, MathUtils.symmetricClamp(right, maxDriveSpeed));
-        rr.set(0.0, MathUtils.symmetricClamp(right, maxDriveSpeed));
+        left = MathUtils.symmetricClamp(left, maxDriveSpeed);
+        right = MathUtils.symmetricClamp(right, maxDriveSpeed);
+
+        for (int i = 0; i < wheels.length; i++) {
+            wheels[i].set(0.0, (wheels[i].getPosition().getY() > 0.0) ? left : right);
+        }
     }
 
     /**
@@ -187,9 +240,9 @@ public class SwerveBase extends SubsystemBase {
     public void tankDrive(double left, double right) { tankDriveAbsolute(left*maxDriveSpeed, right*maxDriveSpeed); }
 
     public void setChassisSpeeds(ChassisSpeeds speeds) {
-        SwerveModuleState[] state = kinematics.toSwerveModuleStates(speeds);
+        kinematics.toModuleStates(speeds.vxMetersPerSecond, speeds.vyMetersPerSecond, speeds.omegaRadiansPerSecond);
         
-        scaleAndDistribute(state);
+        scaleAndDistribute();
     }
 
     /**
@@ -197,10 +250,7 @@ public class SwerveBase extends SubsystemBase {
      * @param angle in degrees
      */
     public void setAngle(double angle) {
-        fl.setAngle(angle);
-        fr.setAngle(angle);
-        rl.setAngle(angle);
-        rr.setAngle(angle);
+        for (int i = 0; i < wheels.length; i++) { wheels[i].setAngle(angle); }
     }
 
     /**
@@ -208,10 +258,7 @@ public class SwerveBase extends SubsystemBase {
      * @param speed
      */
     public void setSpeed(double speed) {
-        fl.setSpeed(speed);
-        fr.setSpeed(speed);
-        rl.setSpeed(speed);
-        rr.setSpeed(speed);
+        for (int i = 0; i < wheels.length; i++) { wheels[i].setSpeed(speed); }
     }
     
     /**
@@ -219,16 +266,12 @@ public class SwerveBase extends SubsystemBase {
      * @param reset Whether the wheels should return to a forward position
      */
     public void stop(boolean reset) {
-        if (reset) {
-            fl.set(0.0, 0.0);
-            fr.set(0.0, 0.0);
-            fr.set(0.0, 0.0);
-            rr.set(0.0, 0.0);
-        } else {
-            fl.setSpeed(0.0);
-            fr.setSpeed(0.0);
-            fr.setSpeed(0.0);
-            rr.setSpeed(0.0);
+        for (int i = 0; i < wheels.length; i++) {
+            if (reset) {
+                wheels[i].set(0.0, 0.0);
+            } else {
+                wheels[i].setSpeed(0.0);
+            }
         }
     }
 
@@ -239,37 +282,120 @@ public class SwerveBase extends SubsystemBase {
     public void toggleCoastMode(boolean coast, boolean freeze) {
         if (freeze) { stop(false); }
         
-        fl.toggleCoastMode(coast);
-        fr.toggleCoastMode(coast);
-        rl.toggleCoastMode(coast);
-        rr.toggleCoastMode(coast);
+        for (int i = 0; i < wheels.length; i++) { wheels[i].toggleCoastMode(coast); }
+    }
+
+    // Count hardware reads each loop
+    @Override
+    public void periodic() {
+        long start = LoopProfiler.getInstance().start();
+
+        long reads = getHardwareReadCount();
+        hardwareReadsPerLoop = reads - lastHardwareReads;
+        lastHardwareReads = reads;
+
+        LoopProfiler.getInstance().stop(profileSection, start);
+    }
+
+    // Simulate the wheels (only does something for simulated wheels)
+    @Override
+    public void simulationPeriodic() { updateSimulation(kSIMULATION_PERIOD); }
+
+    /**
+     * Advances the simulation of every wheel. This is called every loop in simulation, but can also be called
+     * directly to run faster than real time.
+     * @param dt Time to simulate (seconds)
+     */
+    public void updateSimulation(double dt) {
+        for (int i = 0; i < wheels.length; i++) { wheels[i].updateSimulation(dt); }
+    }
+
+    /**
+     * @return Total number of times the wheels' sensors have been read from the hardware
+     */
+    public long getHardwareReadCount() {
+        long reads = 0;
+        for (int i = 0; i < wheels.length; i++) { reads += wheels[i].getHardwareReadCount(); }
+
+        return reads;
     }
 
     /**
-     * Gets the position, according to odometry (wheel states)
+     * @return Number of times the wheels' sensors were read from the hardware during the last robot loop
+     */
+    public long getHardwareReadsPerLoop() { return hardwareReadsPerLoop; }
+
+    /**
+     * Gets the position, according to odometry (wheel states). This does not block the odometry thread.
+     * This creates a new Pose2d, use {@link #getOdometryPose(double[])} in loops.
      * @return The position
      */
     public Pose2d getOdometryPose() {
-        if (odometryPosition == null) {
+        if (!odometryStarted) {
             DriverStation.reportWarning("Odometry position is null!", false);
             return new Pose2d(0.0, 0.0, Rotation2d.fromDegrees(0.0));
         }
-        return odometryPosition;
+
+        double[] pose = poseBuffer.get();
+        odometryPose.read(pose);
+
+        return new Pose2d(pose[1], pose[2], Rotation2d.fromDegrees(pose[3]));
     }
 
     /**
-     * Updates the odometry
+     * Reads the latest odometry position, without creating any objects. All four values are from the same update, so
+     * read them together here rather than one at a time.
+     * @param out Array of length 4, filled with the timestamp (seconds), x, y (meters) and rotation (degrees)
+     */
+    public void getOdometryPose(double[] out) { odometryPose.read(out); }
+
+    /**
+     * Updates the odometry. If the odometry thread is running, this is called from there.
      * @param gyroAngle
      */
     public void updateOdometry(double gyroAngle) {
-        if (odometry == null) {
+        if (!odometryStarted) {
             DriverStation.reportWarning("Could not update odometry, it has not been started", false);
             return;
         }
 
-        odometryPosition = odometry.update(
-            Rotation2d.fromDegrees(gyroAngle), 
-            getSwerveModulePositions()
-        );
+        synchronized (odometryLock) {
+            sampleModulePositions();
+            odometry.update(gyroAngle, moduleDistances, moduleAngles);
+
+            double time = Timer.getFPGATimestamp();
+            odometryPose.write(time, odometry.getX(), odometry.getY(), odometry.getRotation());
+            poseHistory.add(time, odometry.getX(), odometry.getY(), odometry.getRotation());
+        }
+    }
+
+    /**
+     * Gets where odometry thought the robot was at a past time (interpolated), without creating any objects.
+     * About the last two seconds are kept.
+     * @param timestamp FPGA time (seconds)
+     * @param out Array of length 3, filled with x, y (meters) and rotation (degrees)
+     * @return False if the time is older than the history (out is not changed)
+     */
+    public boolean getPoseAt(double timestamp, double[] out) { return poseHistory.getPoseAt(timestamp, out); }
+
+    /**
+     * Moves the odometry position (and its history) by a correction, like one calculated from vision.
+     * This is safe to call while the odometry thread is running.
+     * @param dx Change in X position (meters)
+     * @param dy Change in Y position (meters)
+     * @param dRotation Change in rotation (degrees)
+     */
+    public void addOdometryCorrection(double dx, double dy, double dRotation) {
+        if (!odometryStarted) {
+            DriverStation.reportWarning("Could not correct odometry, it has not been started", false);
+            return;
+        }
+
+        synchronized (odometryLock) {
+            odometry.shift(dx, dy, dRotation);
+            poseHistory.shift(dx, dy, dRotation);
+
+            odometryPose.write(Timer.getFPGATimestamp(), odometry.getX(), odometry.getY(), odometry.getRotation());
+        }
     }
 }
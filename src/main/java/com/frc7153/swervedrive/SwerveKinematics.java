@@ -0,0 +1,172 @@
+package com.frc7153.swervedrive;
+
+import edu.wpi.first.math.geometry.Translation2d;
+
+/**
+ * Swerve kinematics using only primitives and preallocated arrays, so it can be run every loop
+ * without creating garbage. Uses the same coordinate system as WPI's {@code SwerveDriveKinematics}
+ * (positive x is the front of the robot, positive y is the left).
+ */
+public class SwerveKinematics {
+    // Module locations (meters)
+    private final double[] moduleX;
+    private final double[] moduleY;
+
+    // Inverse of (A^T)(A), where A is the inverse kinematics matrix (used for forward kinematics)
+    private final double[] normalInverse = new double[9];
+
+    // Outputs of the last inverse kinematics calculation
+    private final double[] speeds;
+    private final double[] angles;
+
+    /**
+     * Creates new kinematics for a swerve base
+     * @param modules Location of each module, relative to the center of the robot (meters)
+     */
+    public SwerveKinematics(Translation2d... modules) {
+        if (modules.length < 2) {
+            throw new IllegalArgumentException("A swerve drive requires at least two modules");
+        }
+
+        moduleX = new double[modules.length];
+        moduleY = new double[modules.length];
+        speeds = new double[modules.length];
+        angles = new double[modules.length];
+
+        double sumX = 0.0, sumY = 0.0, sumSq = 0.0;
+
+        for (int i = 0; i < modules.length; i++) {
+            moduleX[i] = modules[i].getX();
+            moduleY[i] = modules[i].getY();
+
+            sumX += moduleX[i];
+            sumY += moduleY[i];
+            sumSq += moduleX[i] * moduleX[i] + moduleY[i] * moduleY[i];
+        }
+
+        // (A^T)(A) is symmetric: [[n, 0, -sumY], [0, n, sumX], [-sumY, sumX, sumSq]]
+        double n = modules.length;
+        double a = n, c = -sumY, e = n, f = sumX, i = sumSq;
+
+        double det = a * (e * i - f * f) + c * (-e * c);
+
+        if (Math.abs(det) < 1e-12) {
+            throw new IllegalArgumentException("Swerve module locations cannot be colinear");
+        }
+
+        normalInverse[0] = (e * i - f * f) / det;
+        normalInverse[1] = (c * f) / det;
+        normalInverse[2] = (-c * e) / det;
+        normalInverse[3] = normalInverse[1];
+        normalInverse[4] = (a * i - c * c) / det;
+        normalInverse[5] = (-a * f) / det;
+        normalInverse[6] = normalInverse[2];
+        normalInverse[7] = normalInverse[5];
+        normalInverse[8] = (a * e) / det;
+    }
+
+    /**
+     * @return The number of modules
+     */
+    public int getModuleCount() { return moduleX.length; }
+
+    /**
+     * Calculates the module states from robot-relative chassis speeds. If all speeds are zero, the
+     * modules keep their last angle.
+     * @param vx Forward speed (meters per second)
+     * @param vy Left speed (meters per second)
+     * @param omega Rotation speed, CCW positive (radians per second)
+     * @param centerX X position of the center of rotation, relative to the center of the robot (meters)
+     * @param centerY Y position of the center of rotation, relative to the center of the robot (meters)
+     */
+    public void toModuleStates(double vx, double vy, double omega, double centerX, double centerY) {
+        if (vx == 0.0 && vy == 0.0 && omega == 0.0) {
+            for (int i = 0; i < speeds.length; i++) { speeds[i] = 0.0; }
+            return;
+        }
+
+        for (int i = 0; i < speeds.length; i++) {
+            double x = vx - omega * (moduleY[i] - centerY);
+            double y = vy + omega * (moduleX[i] - centerX);
+
+            speeds[i] = Math.hypot(x, y);
+            angles[i] = (x == 0.0 && y == 0.0) ? 0.0 : Math.toDegrees(Math.atan2(y, x));
+        }
+    }
+
+    /**
+     * Calculates the module states from robot-relative chassis speeds, rotating around the center of the robot.
+     * @param vx Forward speed (meters per second)
+     * @param vy Left speed (meters per second)
+     * @param omega Rotation speed, CCW positive (radians per second)
+     */
+    public void toModuleStates(double vx, double vy, double omega) { toModuleStates(vx, vy, omega, 0.0, 0.0); }
+
+    /**
+     * Calculates the module states from field-relative chassis speeds
+     * @param vx Speed away from the driver station (meters per second)
+     * @param vy Speed to the left of the driver station (meters per second)
+     * @param omega Rotation speed, CCW positive (radians per second)
+     * @param robotAngle Current angle of the robot (degrees)
+     */
+    public void toModuleStatesFieldRelative(double vx, double vy, double omega, double robotAngle) {
+        double rad = Math.toRadians(robotAngle);
+        double cos = Math.cos(rad);
+        double sin = Math.sin(rad);
+
+        toModuleStates(vx * cos + vy * sin, -vx * sin + vy * cos, omega);
+    }
+
+    /**
+     * Scales down all module speeds (keeping their ratios) if any are above the max speed
+     * @param maxSpeed Max speed of any module (meters per second)
+     */
+    public void desaturate(double maxSpeed) {
+        double highest = 0.0;
+
+        for (int i = 0; i < speeds.length; i++) {
+            highest = Math.max(highest, Math.abs(speeds[i]));
+        }
+
+        if (highest <= maxSpeed) { return; }
+
+        double scale = maxSpeed / highest;
+        for (int i = 0; i < speeds.length; i++) { speeds[i] *= scale; }
+    }
+
+    /**
+     * @param module Index of the module
+     * @return Speed of the module from the last calculation (meters per second)
+     */
+    public double getSpeed(int module) { return speeds[module]; }
+
+    /**
+     * @param module Index of the module
+     * @return Angle of the module from the last calculation (degrees, -180 to 180)
+     */
+    public double getAngle(int module) { return angles[module]; }
+
+    /**
+     * Forward kinematics. Calculates how far the robot moved from how far each module moved.
+     * @param deltas Distance each module moved (meters)
+     * @param moduleAngles Angle of each module (degrees)
+     * @param twist Output array of length 3, filled with forward movement, left movement (meters) and rotation (radians)
+     */
+    public void toTwist(double[] deltas, double[] moduleAngles, double[] twist) {
+        double b0 = 0.0, b1 = 0.0, b2 = 0.0;
+
+        for (int i = 0; i < moduleX.length; i++) {
+            double rad = Math.toRadians(moduleAngles[i]);
+            double dx = deltas[i] * Math.cos(rad);
+            double dy = deltas[i] * Math.sin(rad);
+
+            b0 += dx;
+            b1 += dy;
+            b2 += moduleX[i] * dy - moduleY[i] * dx;
+        }
+
+        twist[0] = normalInverse[0] * b0 + normalInverse[1] * b1 + normalInverse[2] * b2;
+        twist[1] = normalInverse[3] * b0 + normalInverse[4] * b1 + normalInverse[5] * b2;
+        twist[2] = normalInverse[6] * b0 + normalInverse[7] * b1 + normalInverse[8] * b2;
+    }
+}
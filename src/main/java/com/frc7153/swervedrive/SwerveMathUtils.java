@@ -1,5 +1,7 @@
 package com.frc7153.swervedrive;
 
+import com.frc7153.math.MathUtils;
+
 public class SwerveMathUtils {
     /**
      * Determines how many times you have to add {@code gearRatio} to {@code setPoint} to get it as close
@@ -17,6 +19,17 @@ public class SwerveMathUtils {
         return (Math.round((currentPos/gearRatio) - setPoint) + setPoint) * gearRatio;
     }
 
+    /**
+     * Whether a wheel should turn to the opposite angle and drive backwards, because that is a shorter turn.
+     * Same as {@code SwerveModuleState.optimize()}, without creating new objects.
+     * @param targetAngle The angle the wheel should point (degrees)
+     * @param currentAngle The angle the wheel points now (degrees)
+     * @return Whether to reverse
+     */
+    public static boolean shouldReverse(double targetAngle, double currentAngle) {
+        return Math.abs(MathUtils.normalizeAngle180(targetAngle - currentAngle)) > 90.0;
+    }
+
     /**
      * Apply a deadband to the value
      * @param value
@@ -37,6 +50,13 @@ public class SwerveMathUtils {
      */
     public static double rpmToFalcon500Velocity(double rpm) { return rpm * (2048.0 / 600.0); }
 
+    /**
+     * Convert Falcon500's encoder velocity to RPMs
+     * @param velocity Falcon500's encoder velocity
+     * @return RPM
+     */
+    public static double falcon500VelocityToRPM(double velocity) { return velocity * (600.0 / 2048.0); }
+
     /**
      * Convert Falcon500's position to rotations
      * @param Falcon500's encoder position
@@ -0,0 +1,130 @@
+package com.frc7153.swervedrive;
+
+import edu.wpi.first.math.MathUtil;
+
+/**
+ * Tracks the position of a swerve base from module distances and a gyroscope. This does the same math as
+ * WPI's {@code SwerveDriveOdometry}, but only uses primitives so it does not create garbage every update.
+ */
+public class SwerveOdometry {
+    // Kinematics
+    private final SwerveKinematics kinematics;
+
+    // Buffers
+    private final double[] previousDistances;
+    private final double[] deltas;
+    private final double[] twist = new double[3];
+
+    // Position
+    private double x = 0.0;
+    private double y = 0.0;
+    private double heading = 0.0;
+
+    // Gyro
+    private double gyroOffset = 0.0;
+    private double previousAngle = 0.0;
+
+    /**
+     * Creates new odometry. It should be reset before it is used.
+     * @param kinematics The kinematics of the swerve base
+     */
+    public SwerveOdometry(SwerveKinematics kinematics) {
+        this.kinematics = kinematics;
+
+        previousDistances = new double[kinematics.getModuleCount()];
+        deltas = new double[kinematics.getModuleCount()];
+    }
+
+    /**
+     * Resets the position
+     * @param gyroAngle The angle of the gyroscope (degrees)
+     * @param distances The current distance of each module (meters)
+     * @param x Starting X position (meters)
+     * @param y Starting Y position (meters)
+     * @param rotation Starting rotation (degrees)
+     */
+    public void reset(double gyroAngle, double[] distances, double x, double y, double rotation) {
+        this.x = x;
+        this.y = y;
+        heading = rotation;
+
+        gyroOffset = rotation - gyroAngle;
+        previousAngle = rotation;
+
+        System.arraycopy(distances, 0, previousDistances, 0, previousDistances.length);
+    }
+
+    /**
+     * Updates the position
+     * @param gyroAngle The angle of the gyroscope (degrees)
+     * @param distances The current distance of each module (meters)
+     * @param angles The current angle of each module (degrees)
+     */
+    public void update(double gyroAngle, double[] distances, double[] angles) {
+        double angle = gyroAngle + gyroOffset;
+
+        for (int i = 0; i < deltas.length; i++) {
+            deltas[i] = distances[i] - previousDistances[i];
+            previousDistances[i] = distances[i];
+        }
+
+        kinematics.toTwist(deltas, angles, twist);
+
+        // Integrate along an arc (pose exponential), using the gyro for the change in rotation (wrapped, so a gyro that
+        // wraps at +/-180 doesn't look like a full turn)
+        double dx = twist[0];
+        double dy = twist[1];
+        double dTheta = MathUtil.angleModulus(Math.toRadians(angle - previousAngle));
+
+        double s, c;
+        if (Math.abs(dTheta) < 1e-9) {
+            s = 1.0 - dTheta * dTheta / 6.0;
+            c = 0.5 * dTheta;
+        } else {
+            s = Math.sin(dTheta) / dTheta;
+            c = (1.0 - Math.cos(dTheta)) / dTheta;
+        }
+
+        double localX = dx * s - dy * c;
+        double localY = dx * c + dy * s;
+
+        double rad = Math.toRadians(heading);
+        double cos = Math.cos(rad);
+        double sin = Math.sin(rad);
+
+        x += localX * cos - localY * sin;
+        y += localX * sin + localY * cos;
+        heading = angle;
+        previousAngle = angle;
+    }
+
+    /**
+     * Moves the position without resetting (for corrections from other sensors, like vision)
+     * @param dx Change in X position (meters)
+     * @param dy Change in Y position (meters)
+     * @param dRotation Change in rotation (degrees)
+     */
+    public void shift(double dx, double dy, double dRotation) {
+        x += dx;
+        y += dy;
+        heading += dRotation;
+
+        gyroOffset += dRotation;
+        previousAngle += dRotation;
+    }
+
+    /**
+     * @return X position (meters)
+     */
+    public double getX() { return x; }
+
+    /**
+     * @return Y position (meters)
+     */
+    public double getY() { return y; }
+
+    /**
+     * @return Rotation (degrees, continuous)
+     */
+    public double getRotation() { return heading; }
+}
@@ -1,5 +1,6 @@
 package com.frc7153.swervedrive.wheeltypes;
 
+import edu.wpi.first.math.geometry.Rotation2d;
 import edu.wpi.first.math.geometry.Translation2d;
 import edu.wpi.first.math.kinematics.SwerveModulePosition;
 import edu.wpi.first.math.kinematics.SwerveModuleState;
@@ -16,10 +17,42 @@ public interface SwerveWheel {
     // Driving //
 
     /**
-     * Gets the module state
+     * Reads the wheel's sensors into a snapshot. The getters and {@code setState()} use the latest snapshot,
+     * so this should be called once per loop, before them.
+     */
+    default public void sample() {}
+
+    /**
+     * Gets the distance the wheel has driven
+     * @return Distance, in meters
+     */
+    public double getDistance();
+
+    /**
+     * Gets the speed of the wheel
+     * @return Speed, in meters per second
+     */
+    public double getVelocity();
+
+    /**
+     * Gets the angle of the wheel
+     * @return Angle, in degrees (0 - 360)
+     */
+    public double getAngle();
+
+    /**
+     * Gets how many times the wheel's sensors have been read from the hardware (for diagnostics)
+     * @return Number of reads
+     */
+    default public long getHardwareReadCount() { return 0; }
+
+    /**
+     * Gets the module state. This creates new objects, so use {@code getDistance()} and {@code getAngle()} in loops.
      * @return
      */
-    public SwerveModulePosition getState();
+    default public SwerveModulePosition getState() {
+        return new SwerveModulePosition(getDistance(), Rotation2d.fromDegrees(getAngle()));
+    }
 
     /**
      * Sets the angle of the wheel, from -180 to 180, with 0 degrees the front of the robot. 
@@ -49,9 +82,25 @@ public interface SwerveWheel {
      */
     public void set(SwerveModuleState state);
 
+    /**
+     * Set the angle and speed of the wheel from kinematics, the same as {@code set(SwerveModuleState)}
+     * without needing a new state object.
+     * @param angle degrees (-180 - 180)
+     * @param speed Meters per second
+     */
+    default public void setState(double angle, double speed) { set(angle, speed); }
+
     /**
      * Enables/disables coast mode
      * @param coast
      */
     public void toggleCoastMode(boolean coast);
+
+    // Simulation //
+
+    /**
+     * Advances the wheel's simulation. Real wheels do nothing.
+     * @param dt Time to simulate (seconds)
+     */
+    default public void updateSimulation(double dt) {}
 }
\ No newline at end of file
@@ -3,8 +3,6 @@ package com.frc7153.swervedrive.wheeltypes;
 import com.ctre.phoenix.motorcontrol.ControlMode;
 import com.ctre.phoenix.motorcontrol.FeedbackDevice;
 import com.ctre.phoenix.motorcontrol.NeutralMode;
-import com.ctre.phoenix.motorcontrol.StatorCurrentLimitConfiguration;
-import com.ctre.phoenix.motorcontrol.SupplyCurrentLimitConfiguration;
 import com.ctre.phoenix.motorcontrol.can.TalonFX;
 import com.ctre.phoenix.sensors.AbsoluteSensorRange;
 import com.ctre.phoenix.sensors.CANCoder;
@@ -16,14 +14,17 @@ import com.revrobotics.SparkMaxPIDController;
 import com.revrobotics.CANSparkMax.ControlType;
 import com.revrobotics.CANSparkMax.IdleMode;
 
-import edu.wpi.first.math.geometry.Rotation2d;
 import edu.wpi.first.math.geometry.Translation2d;
-import edu.wpi.first.math.kinematics.SwerveModulePosition;
 import edu.wpi.first.math.kinematics.SwerveModuleState;
 import edu.wpi.first.math.util.Units;
-import edu.wpi.first.wpilibj.DriverStation;
+import edu.wpi.first.wpilibj.Timer;
 
+import com.frc7153.controllers.config.MotorConfigurator;
+import com.frc7153.controllers.config.SparkMaxConfig;
+import com.frc7153.controllers.config.TalonFXConfig;
+import com.frc7153.hardware.HardwareRegistry;
 import com.frc7153.math.MathUtils;
+import com.frc7153.math.PIDConstant;
 import com.frc7153.swervedrive.SwerveBase;
 import com.frc7153.swervedrive.SwerveMathUtils;
 
@@ -34,29 +35,23 @@ import com.frc7153.swervedrive.SwerveMathUtils;
  */
 public class SwerveWheel_FN implements SwerveWheel {
     // CONFIG VALUES //
-    private static double k_SPIN_RATIO = 150.0 / 7.0;
-    private static double k_DRIVE_RATIO = 6.12; // For standard speed module
-    private static double k_WHEEL_CIRCUMFERENCE = Units.inchesToMeters(4.0) * Math.PI; // 3.75
+    public static final double k_SPIN_RATIO = 150.0 / 7.0;
+    public static final double k_DRIVE_RATIO = 6.12; // For standard speed module
+    public static final double k_WHEEL_CIRCUMFERENCE = Units.inchesToMeters(4.0) * Math.PI; // 3.75
 
-    private static int k_SPIN_CURRENT_LIMIT = 40;
-    private static int k_DRIVE_CURRENT_LIMIT = 20;
+    public static final int k_SPIN_CURRENT_LIMIT = 40;
+    public static final int k_DRIVE_CURRENT_LIMIT = 20;
     private static int k_DRIVE_CURRENT_PEAK = 25;
     private static double k_DRIVE_CURRENT_PEAK_DURATION = 0.1;
     private static double k_DRIVE_ERR = 0.5;
     private static double k_DRIVE_DEADBAND = 0.5; // Meters ber second
 
-    private static int k_SPIN_PID_INDEX = 0;
-    private static int k_DRIVE_PID_INDEX = 0;
+    private static double k_ANGLE_EPSILON = 0.5; // Degrees, smaller angle changes are not sent
+    private static double k_VELOCITY_EPSILON = 0.01; // Meters per second, smaller speed changes are not sent
+    private static double k_SETPOINT_REFRESH = 1.0; // Seconds, unchanged setpoints are re-sent this often
 
-    private static double spin_kP = 0.3;
-    private static double spin_kI = 0.00001;
-    private static double spin_kD = 0.0;
-    private static double spin_kO = 10.0;
-
-    private static double drive_kP = 0.05;
-    private static double drive_kI = 0.0;
-    private static double drive_kD = 0.0;
-    private static double drive_kF = 0.0;
+    private static PIDConstant k_SPIN_PID = new PIDConstant(0.3, 0.00001, 0.0).withSlot(0).withOutputRange(-10.0, 10.0);
+    private static PIDConstant k_DRIVE_PID = new PIDConstant(0.05, 0.0, 0.0).withSlot(0).withFF(0.0).withError(k_DRIVE_ERR);
 
     private static double k_SPIN_MAX_ACCEL = 0.8;
     
@@ -67,6 +62,21 @@ public class SwerveWheel_FN implements SwerveWheel {
     private RelativeEncoder spinRelEncoder;
     private SparkMaxPIDController spinPID;
 
+    // Sensor Snapshot (read once per loop by sample(), used by odometry and set())
+    private volatile double sampledDistance = 0.0;
+    private volatile double sampledVelocity = 0.0;
+    private volatile double sampledSpinPosition = 0.0;
+    private volatile long hardwareReads = 0;
+
+    // Setpoint Cache (skip sending setpoints that have not changed)
+    private double lastAngleSetpoint = Double.NaN;
+    private double lastSpeedSetpoint = Double.NaN;
+    private double lastAngleSent = 0.0;
+    private double lastSpeedSent = 0.0;
+
+    private long spinFramesSent = 0;
+    private long driveFramesSent = 0;
+
     // Position
     private Translation2d pos;
 
@@ -86,47 +96,45 @@ public class SwerveWheel_FN implements SwerveWheel {
      */
     public SwerveWheel_FN(int spin, int drive, int canCoder, double x, double y, double spinHomeLocation) {
         // Declare and Configure Motors
-        driveWheel = new TalonFX(drive);
-        spinWheel = new CANSparkMax(spin, MotorType.kBrushless);
+        String owner = String.format("Swerve Wheel %s", spin);
+        driveWheel = HardwareRegistry.getInstance().claimTalonFX(drive, owner);
+        spinWheel = HardwareRegistry.getInstance().claimSparkMax(spin, MotorType.kBrushless, owner);
         
         toggleCoastMode(false);
 
-        spinWheel.setSmartCurrentLimit(k_SPIN_CURRENT_LIMIT);
-        driveWheel.configSupplyCurrentLimit(new SupplyCurrentLimitConfiguration(true, k_DRIVE_CURRENT_LIMIT, k_DRIVE_CURRENT_PEAK, k_DRIVE_CURRENT_PEAK_DURATION));
-        driveWheel.configStatorCurrentLimit(new StatorCurrentLimitConfiguration(true, k_DRIVE_CURRENT_LIMIT, k_DRIVE_CURRENT_PEAK, k_DRIVE_CURRENT_PEAK_DURATION));
-
-        spinWheel.setInverted(true);
-
-        // Declare and Configure Encoders
-        CANCoder spinAbsEncoder = new CANCoder(canCoder);
-        spinRelEncoder = spinWheel.getEncoder();
-        
+        // Find the relative encoder's offset from the absolute encoder (a different device, so it isn't being configured)
+        CANCoder spinAbsEncoder = HardwareRegistry.getInstance().claimCANCoder(canCoder, owner);
         spinAbsEncoder.configAbsoluteSensorRange(AbsoluteSensorRange.Unsigned_0_to_360);
+        sampledSpinPosition = (spinAbsEncoder.getAbsolutePosition() - spinHomeLocation) * k_SPIN_RATIO / 360.0;
 
-        // Set Relative Encoder Offset
-        spinRelEncoder.setPosition((spinAbsEncoder.getAbsolutePosition() - spinHomeLocation) * k_SPIN_RATIO / 360.0);
+        // Configure Motors (the relative encoder is set by the same job, so it doesn't race the configuration)
+        MotorConfigurator.getInstance().configure("Swerve Spin", spinWheel, new SparkMaxConfig()
+            .withInverted(true)
+            .withCurrentLimit(k_SPIN_CURRENT_LIMIT)
+            .withPID(k_SPIN_PID)
+            .withEncoderPosition(sampledSpinPosition)
+        );
 
-        // Spin PID
-        spinPID = spinWheel.getPIDController();
+        MotorConfigurator.getInstance().configure("Swerve Drive", driveWheel, new TalonFXConfig()
+            .withFeedbackDevice(FeedbackDevice.IntegratedSensor)
+            .withSupplyCurrentLimit(k_DRIVE_CURRENT_LIMIT, k_DRIVE_CURRENT_PEAK, k_DRIVE_CURRENT_PEAK_DURATION)
+            .withStatorCurrentLimit(k_DRIVE_CURRENT_LIMIT, k_DRIVE_CURRENT_PEAK, k_DRIVE_CURRENT_PEAK_DURATION)
+            .withPID(k_DRIVE_PID)
+        );
 
-        if (spinPID.getP(k_SPIN_PID_INDEX) != spin_kP || spinPID.getI(k_SPIN_PID_INDEX) != spin_kI || spinPID.getD(k_SPIN_PID_INDEX) != spin_kD|| spinPID.getOutputMax(k_SPIN_PID_INDEX) != spin_kO || spinPID.getOutputMin(k_SPIN_PID_INDEX) != -spin_kO) {
-            spinPID.setP(spin_kP, k_SPIN_PID_INDEX);
-            spinPID.setI(spin_kI, k_SPIN_PID_INDEX);
-            spinPID.setD(spin_kD, k_SPIN_PID_INDEX);
-            spinPID.setOutputRange(-spin_kO, spin_kO, k_SPIN_PID_INDEX);
-            spinWheel.burnFlash();
-            DriverStation.reportWarning(String.format("Had to re-write Swerve PID values for CAN Spark Max %s", spin), false);
-        }
+        spinRelEncoder = spinWheel.getEncoder();
+        spinPID = spinWheel.getPIDController();
 
-        // Drive PID
-        driveWheel.configSelectedFeedbackSensor(FeedbackDevice.IntegratedSensor);
-        driveWheel.configAllowableClosedloopError(k_DRIVE_PID_INDEX, k_DRIVE_ERR);
-        
-        driveWheel.config_kP(k_DRIVE_PID_INDEX, drive_kP);
-        driveWheel.config_kI(k_DRIVE_PID_INDEX, drive_kI);
-        driveWheel.config_kD(k_DRIVE_PID_INDEX, drive_kD);
-        driveWheel.config_kF(k_DRIVE_PID_INDEX, drive_kF);
+        pos = modulePosition(x, y);
+    }
 
+    /**
+     * Gets the position a wheel reports for its constructor's x and y (for recreating the kinematics without the hardware)
+     * @param x The x position of the wheel, relative to the center of the base, in meters
+     * @param y The y position of the wheel, relative to the center of the base, in meters
+     * @return Position of the wheel, in WPI's coordinates
+     */
+    public static Translation2d modulePosition(double x, double y) {
         /*
          * The X and Y values are implemented in WPI's library oddly:
          * "Positive x values represent moving toward the front of the robot whereas positive 
@@ -135,7 +143,7 @@ public class SwerveWheel_FN implements SwerveWheel {
          * 
          * See https://docs.wpilib.org/en/stable/docs/software/kinematics-and-odometry/swerve-drive-kinematics.html 
          */
-        pos = new Translation2d(y, -x);
+        return new Translation2d(y, -x);
     }
 
     /**
@@ -143,15 +151,15 @@ public class SwerveWheel_FN implements SwerveWheel {
      * @param base The robot base (used to get max drive speed and spin speed)
      */
     public void enableMotionAccelerationStrategy(SwerveBase base) {
-        spinPID.setSmartMotionAccelStrategy(AccelStrategy.kTrapezoidal, k_SPIN_PID_INDEX);
-        spinPID.setSmartMotionMaxAccel(k_SPIN_MAX_ACCEL, k_SPIN_PID_INDEX);
-        spinPID.setSmartMotionMaxVelocity(base.getMaxDriveSpeed(), k_SPIN_PID_INDEX);
-        spinPID.setSmartMotionMinOutputVelocity(0.05, k_SPIN_PID_INDEX);
+        spinPID.setSmartMotionAccelStrategy(AccelStrategy.kTrapezoidal, k_SPIN_PID.kSLOT);
+        spinPID.setSmartMotionMaxAccel(k_SPIN_MAX_ACCEL, k_SPIN_PID.kSLOT);
+        spinPID.setSmartMotionMaxVelocity(base.getMaxDriveSpeed(), k_SPIN_PID.kSLOT);
+        spinPID.setSmartMotionMinOutputVelocity(0.05, k_SPIN_PID.kSLOT);
     }
 
-    // Get Angle from Relative Encoder (degrees)
+    // Get Angle from Relative Encoder snapshot (degrees)
     private double getAngleFromRelative() {
-        return MathUtils.normalizeAngle180(spinRelEncoder.getPosition() * 360.0 / k_SPIN_RATIO);
+        return MathUtils.normalizeAngle180(sampledSpinPosition * 360.0 / k_SPIN_RATIO);
     }
 
     // Coast
@@ -161,38 +169,88 @@ public class SwerveWheel_FN implements SwerveWheel {
         driveWheel.setNeutralMode((coast) ? NeutralMode.Coast : NeutralMode.Brake);
     }
 
-    // Get State
+    // Sample Sensors (the TalonFX sends its position and velocity in the same status frame, so they match)
     @Override
-    public SwerveModulePosition getState() {
-        return new SwerveModulePosition(
-            SwerveMathUtils.falcon500PositionToRotations(driveWheel.getSelectedSensorPosition()) / k_DRIVE_RATIO * k_WHEEL_CIRCUMFERENCE,
-            Rotation2d.fromDegrees(MathUtils.normalizeAngle360(getAngleFromRelative()))
-        );
+    public void sample() {
+        sampledDistance = SwerveMathUtils.falcon500PositionToRotations(driveWheel.getSelectedSensorPosition()) / k_DRIVE_RATIO * k_WHEEL_CIRCUMFERENCE;
+        sampledVelocity = SwerveMathUtils.falcon500VelocityToRPM(driveWheel.getSelectedSensorVelocity()) / 60.0 / k_DRIVE_RATIO * k_WHEEL_CIRCUMFERENCE;
+        sampledSpinPosition = spinRelEncoder.getPosition();
+        hardwareReads += 3;
     }
 
+    @Override
+    public long getHardwareReadCount() { return hardwareReads; }
+
+    // Get State
+    @Override
+    public double getDistance() { return sampledDistance; }
+
+    @Override
+    public double getVelocity() { return sampledVelocity; }
+
+    @Override
+    public double getAngle() { return MathUtils.normalizeAngle360(getAngleFromRelative()); }
+
     // Set State
     @Override
     public void setAngle(double angle) {
         angle = MathUtils.normalizeAngle180(angle); // Normalize -180 to 180
+
+        // Skip if the setpoint has not changed
+        double time = Timer.getFPGATimestamp();
+        if (Math.abs(MathUtils.normalizeAngle180(angle - lastAngleSetpoint)) < k_ANGLE_EPSILON && time - lastAngleSent < k_SETPOINT_REFRESH) { return; }
+        lastAngleSetpoint = angle;
+        lastAngleSent = time;
+
         angle = (angle / 360.0 * k_SPIN_RATIO); // Convert to NEO position
-        angle = SwerveMathUtils.calculateContinuousMovement(spinRelEncoder.getPosition(), angle, k_SPIN_RATIO); // Find quickest route
-        spinPID.setReference(angle, ControlType.kPosition, k_SPIN_PID_INDEX); // Set PID setpoint
+        angle = SwerveMathUtils.calculateContinuousMovement(sampledSpinPosition, angle, k_SPIN_RATIO); // Find quickest route
+        spinPID.setReference(angle, ControlType.kPosition, k_SPIN_PID.kSLOT); // Set PID setpoint
+        spinFramesSent++;
     }
 
     @Override
     public void setSpeed(double speed) {
         speed = SwerveMathUtils.applyDeadband(speed, k_DRIVE_DEADBAND); // Apply deadband
+
+        // Skip if the setpoint has not changed
+        double time = Timer.getFPGATimestamp();
+        if (Math.abs(speed - lastSpeedSetpoint) < k_VELOCITY_EPSILON && time - lastSpeedSent < k_SETPOINT_REFRESH) { return; }
+        lastSpeedSetpoint = speed;
+        lastSpeedSent = time;
+
         double velocity = (speed / k_WHEEL_CIRCUMFERENCE) * 60.0; // Convert to rotations per minute
         velocity *= k_DRIVE_RATIO; // Convert to Falcon500 position
         driveWheel.set(ControlMode.Velocity, SwerveMathUtils.rpmToFalcon500Velocity(velocity)); // Set set point, in Falcon500 encoder's velocity
+        driveFramesSent++;
     }
 
     @Override
-    public void set(SwerveModuleState state) {
-        state = SwerveModuleState.optimize(
-            state, 
-            Rotation2d.fromDegrees(MathUtils.normalizeAngle360(getAngleFromRelative()))
-        );
-        set(state.angle.getDegrees(), state.speedMetersPerSecond);
+    public void set(SwerveModuleState state) { setState(state.angle.getDegrees(), state.speedMetersPerSecond); }
+
+    // Same as SwerveModuleState.optimize(), reverse the drive direction if that is a shorter turn
+    @Override
+    public void setState(double angle, double speed) {
+        // Don't steer if the wheel won't drive anyway
+        if (Math.abs(speed) < k_DRIVE_DEADBAND) {
+            setSpeed(0.0);
+            return;
+        }
+
+        if (SwerveMathUtils.shouldReverse(angle, getAngleFromRelative())) {
+            angle += 180.0;
+            speed = -speed;
+        }
+
+        set(angle, speed);
     }
+
+    /**
+     * @return Number of setpoints sent to the spin motor (CAN Spark Max)
+     */
+    public long getSpinFramesSent() { return spinFramesSent; }
+
+    /**
+     * @return Number of setpoints sent to the drive motor (TalonFX)
+     */
+    public long getDriveFramesSent() { return driveFramesSent; }
 }
\ No newline at end of file
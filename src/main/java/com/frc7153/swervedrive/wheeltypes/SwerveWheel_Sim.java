@@ -2,10 +2,10 @@ package com.frc7153.swervedrive.wheeltypes;
 
 import java.util.Map;
 
-import edu.wpi.first.math.geometry.Rotation2d;
+import edu.wpi.first.math.MathUtil;
 import edu.wpi.first.math.geometry.Translation2d;
-import edu.wpi.first.math.kinematics.SwerveModulePosition;
 import edu.wpi.first.math.kinematics.SwerveModuleState;
+import edu.wpi.first.math.system.plant.DCMotor;
 import edu.wpi.first.networktables.GenericPublisher;
 import edu.wpi.first.wpilibj.shuffleboard.BuiltInLayouts;
 import edu.wpi.first.wpilibj.shuffleboard.BuiltInWidgets;
@@ -13,67 +13,203 @@ import edu.wpi.first.wpilibj.shuffleboard.Shuffleboard;
 import edu.wpi.first.wpilibj.shuffleboard.ShuffleboardLayout;
 import edu.wpi.first.wpilibj.shuffleboard.ShuffleboardTab;
 
+import com.frc7153.math.MathUtils;
+import com.frc7153.swervedrive.SwerveMathUtils;
+
+/**
+ * Simulated swerve wheel, with the same motors and gearing as {@link SwerveWheel_FN}. <br><br>
+ * The spin motor (NEO) is position controlled and the drive motor (Falcon500) is velocity controlled. Both are
+ * simulated with DC motor models, current limits and friction, integrated on a fixed timestep with {@code updateSimulation()}.
+ * The simulation only advances when that is called, so it can run faster than real time.
+ */
 public class SwerveWheel_Sim implements SwerveWheel {
+    // Physics Config
+    private static final double kSUBSTEP = 0.001; // Seconds
+    private static final double kNOMINAL_VOLTAGE = 12.0;
+
+    private static final double kSTEER_INERTIA = 0.004; // kg*m^2, of the module around its steering axis
+    private static final double kSTEER_FRICTION = 0.2; // Nm
+    private static final double kSTEER_KP = 20.0; // Volts per radian of error
+    private static final double kSTEER_KD = 0.2; // Volts per radian/second
+
+    private static final double kDRIVE_MASS = 55.0 / 4.0; // kg, the robot's mass is split between the wheels
+    private static final double kDRIVE_FRICTION = 5.0; // Newtons (rolling resistance)
+    private static final double kDRIVE_KP = 2.0; // Volts per meter/second of error
+
+    private static final double kWHEEL_RADIUS = SwerveWheel_FN.k_WHEEL_CIRCUMFERENCE / (2.0 * Math.PI);
+
+    // Motors
+    private final DCMotor steerMotor = DCMotor.getNEO(1);
+    private final DCMotor driveMotor = DCMotor.getFalcon500(1);
+
     // Position
     private Translation2d pos;
-    private double currentSpeed;
-    private double currentAngle;
 
-    // Shuffleboard
+    // Setpoints
+    private double angleSetpoint = 0.0; // Degrees
+    private double speedSetpoint = 0.0; // Meters per second
+    private boolean coast = false;
+
+    // State (read from the odometry thread)
+    private volatile double steerAngle = 0.0; // Radians, continuous
+    private double steerVelocity = 0.0; // Radians per second
+    private volatile double driveDistance = 0.0; // Meters
+    private volatile double driveVelocity = 0.0; // Meters per second
+    private double accumulator = 0.0;
+
+    // Shuffleboard (null if not used)
     private GenericPublisher shuffle_speed;
     private GenericPublisher shuffle_angle;
     private GenericPublisher shuffle_coast;
 
     // Constructor
     /**
-     * Creates a new simulated serve wheel. 
+     * Creates a new simulated serve wheel.
      * @param shuffleboardTabName Name of tab to output to in Shuffleboard
      * @param shuffleboardColumn Column in Shuffleboard to use (should be different for each wheel, starting with 1)
      * @param x The x position of the wheel
      * @param y The y position of the wheel
      */
     public SwerveWheel_Sim(String shuffleboardTabName, int shuffleboardColumn, double x, double y) {
-        pos = new Translation2d(y, -x);
+        this(x, y);
 
         ShuffleboardTab tab = Shuffleboard.getTab(shuffleboardTabName);
         ShuffleboardLayout column = tab.getLayout(String.format("Wheel %s", shuffleboardColumn), BuiltInLayouts.kList)
             .withPosition(shuffleboardColumn, 0)
             .withSize(1, 4)
             .withProperties(Map.of("Label position", "TOP"));
-        
+
         shuffle_speed = column.add("Speed", 0.0)
             .getEntry();
-        
+
         shuffle_angle = column.add("Angle", 0.0)
             .getEntry();
-        
+
         shuffle_coast = column.add("Coasting?", false)
             .withWidget(BuiltInWidgets.kBooleanBox)
             .getEntry();
     }
 
+    /**
+     * Creates a new simulated swerve wheel that does not output to Shuffleboard
+     * @param x The x position of the wheel
+     * @param y The y position of the wheel
+     */
+    public SwerveWheel_Sim(double x, double y) {
+        pos = new Translation2d(y, -x);
+    }
+
     // Position
     @Override
     public Translation2d getPosition() { return pos; }
 
     // Get
     @Override
-    public SwerveModulePosition getState() {
-        return new SwerveModulePosition(currentSpeed, Rotation2d.fromDegrees(currentAngle));
-    }
+    public double getDistance() { return driveDistance; }
+
+    @Override
+    public double getVelocity() { return driveVelocity; }
+
+    @Override
+    public double getAngle() { return MathUtils.normalizeAngle360(Math.toDegrees(steerAngle)); }
 
     // Set
     @Override
-    public void setAngle(double angle) { currentAngle = angle; shuffle_angle.setDouble(currentAngle); }
+    public void setAngle(double angle) {
+        angleSetpoint = MathUtils.normalizeAngle180(angle);
+        if (shuffle_angle != null) { shuffle_angle.setDouble(angleSetpoint); }
+    }
 
     @Override
-    public void setSpeed(double speed) { currentSpeed = speed; shuffle_speed.setDouble(speed); }
+    public void setSpeed(double speed) {
+        speedSetpoint = speed;
+        if (shuffle_speed != null) { shuffle_speed.setDouble(speed); }
+    }
 
     @Override
     public void set(SwerveModuleState state) {
-        set(state.angle.getDegrees(), state.speedMetersPerSecond);
+        setState(state.angle.getDegrees(), state.speedMetersPerSecond);
     }
 
+    // Same as SwerveWheel_FN, reverse the drive direction if that is a shorter turn
     @Override
-    public void toggleCoastMode(boolean coast) { shuffle_coast.setBoolean(coast); }
+    public void setState(double angle, double speed) {
+        if (SwerveMathUtils.shouldReverse(angle, Math.toDegrees(steerAngle))) {
+            angle += 180.0;
+            speed = -speed;
+        }
+
+        set(angle, speed);
+    }
+
+    @Override
+    public void toggleCoastMode(boolean coast) {
+        this.coast = coast;
+        if (shuffle_coast != null) { shuffle_coast.setBoolean(coast); }
+    }
+
+    // Simulate
+    @Override
+    public void updateSimulation(double dt) {
+        accumulator += dt;
+
+        while (accumulator >= kSUBSTEP) {
+            step(kSUBSTEP);
+            accumulator -= kSUBSTEP;
+        }
+    }
+
+    // Advance the physics by one fixed step
+    private void step(double dt) {
+        // Steer (position PD on the shortest path, like the Spark Max's continuous movement)
+        double error = Math.toRadians(MathUtils.normalizeAngle180(angleSetpoint - Math.toDegrees(steerAngle)));
+        double steerVoltage = MathUtil.clamp(kSTEER_KP * error - kSTEER_KD * steerVelocity, -kNOMINAL_VOLTAGE, kNOMINAL_VOLTAGE);
+
+        double steerMotorSpeed = steerVelocity * SwerveWheel_FN.k_SPIN_RATIO;
+        double steerCurrent = MathUtils.symmetricClamp(steerMotor.getCurrent(steerMotorSpeed, steerVoltage), SwerveWheel_FN.k_SPIN_CURRENT_LIMIT);
+        double steerTorque = steerMotor.getTorque(steerCurrent) * SwerveWheel_FN.k_SPIN_RATIO;
+
+        steerVelocity = integrate(steerVelocity, steerTorque, kSTEER_FRICTION, kSTEER_INERTIA, dt);
+        steerAngle += steerVelocity * dt;
+
+        // Drive (velocity feedforward + P, like the TalonFX's velocity control), coasts if there is no setpoint
+        double wheelSpeed = driveVelocity / kWHEEL_RADIUS * SwerveWheel_FN.k_DRIVE_RATIO;
+        double driveVoltage = 0.0;
+
+        if (!(coast && speedSetpoint == 0.0)) {
+            double targetSpeed = speedSetpoint / kWHEEL_RADIUS * SwerveWheel_FN.k_DRIVE_RATIO;
+            driveVoltage = MathUtil.clamp(targetSpeed / driveMotor.KvRadPerSecPerVolt + kDRIVE_KP * (speedSetpoint - driveVelocity), -kNOMINAL_VOLTAGE, kNOMINAL_VOLTAGE);
+        }
+
+        double driveCurrent = MathUtils.symmetricClamp(driveMotor.getCurrent(wheelSpeed, driveVoltage), SwerveWheel_FN.k_DRIVE_CURRENT_LIMIT);
+        double driveForce = driveMotor.getTorque(driveCurrent) * SwerveWheel_FN.k_DRIVE_RATIO / kWHEEL_RADIUS;
+
+        double velocity = integrate(driveVelocity, driveForce, kDRIVE_FRICTION, kDRIVE_MASS, dt);
+        driveDistance += velocity * dt;
+        driveVelocity = velocity;
+    }
+
+    // Apply a force (or torque) against friction, friction can stop movement but not reverse it
+    private static double integrate(double velocity, double force, double friction, double mass, double dt) {
+        double moving = (velocity != 0.0) ? Math.signum(velocity) : Math.signum(force);
+        double next = velocity + (force - friction * moving) / mass * dt;
+
+        if (velocity != 0.0 && Math.signum(next) != Math.signum(velocity)) { return 0.0; } // Stopped by friction
+        if (velocity == 0.0 && Math.abs(force) <= friction) { return 0.0; } // Not enough to overcome friction
+
+        return next;
+    }
+
+    /**
+     * Sets where the wheel is, without simulating (for resetting)
+     * @param angle Angle of the wheel (degrees)
+     * @param distance Distance the wheel has driven (meters)
+     */
+    public void resetSimulation(double angle, double distance) {
+        steerAngle = Math.toRadians(angle);
+        steerVelocity = 0.0;
+        driveDistance = distance;
+        driveVelocity = 0.0;
+        accumulator = 0.0;
+    }
 }
@@ -0,0 +1,68 @@
+package com.frc7153.telemetry;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Hands snapshots of values from one thread to another without locking or blocking (a triple buffer).<br><br>
+ * The writer fills its own buffer, then swaps it with the middle one. The reader swaps its buffer with the middle one when
+ * there is a new snapshot. Neither ever waits for the other: if the reader is slow, the writer replaces the snapshot it
+ * hasn't read yet, so the reader always gets the newest one. Only one thread should write, and one thread should read.
+ */
+class SnapshotBuffer {
+    // The middle buffer's index, and whether it has a snapshot the reader hasn't taken
+    private static final int kNEW = 4;
+    private static final int kINDEX = 3;
+
+    // Buffers
+    private final long[][] buffers;
+    private final AtomicInteger middle = new AtomicInteger(1);
+    private int back = 0; // Writer's buffer
+    private int front = 2; // Reader's buffer
+
+    // Stats
+    private volatile long replaced = 0;
+
+    /**
+     * Creates a buffer
+     * @param size Number of values in a snapshot
+     */
+    SnapshotBuffer(int size) { buffers = new long[][] {new long[size], new long[size], new long[size]}; }
+
+    // Writer
+    /**
+     * @return The buffer to write the next snapshot into (writer thread only)
+     */
+    long[] getBack() { return buffers[back]; }
+
+    /**
+     * Hands the snapshot in the back buffer to the reader (writer thread only)
+     */
+    void publish() {
+        int previous = middle.getAndSet(back | kNEW);
+        back = previous & kINDEX;
+
+        if ((previous & kNEW) != 0) { replaced++; }
+    }
+
+    // Reader
+    /**
+     * Takes the newest snapshot, if there is one (reader thread only)
+     * @return Whether there was a new snapshot
+     */
+    boolean take() {
+        if ((middle.get() & kNEW) == 0) { return false; }
+
+        front = middle.getAndSet(front) & kINDEX;
+        return true;
+    }
+
+    /**
+     * @return The last snapshot taken (reader thread only)
+     */
+    long[] getFront() { return buffers[front]; }
+
+    /**
+     * @return Number of snapshots that were replaced before the reader took them
+     */
+    long getReplacedCount() { return replaced; }
+}
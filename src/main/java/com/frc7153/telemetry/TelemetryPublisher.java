@@ -0,0 +1,392 @@
+package com.frc7153.telemetry;
+
+import java.util.ArrayList;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.BooleanSupplier;
+import java.util.function.DoubleSupplier;
+import java.util.function.LongFunction;
+import java.util.function.LongSupplier;
+
+import edu.wpi.first.networktables.GenericEntry;
+import edu.wpi.first.wpilibj.DriverStation;
+
+/**
+ * Publishes dashboard values at the rate of their {@link TelemetryTier}, and only when they change, from a background thread.<br><br>
+ * Each loop, the robot thread reads the values whose tier is due into an array of primitives, copies it into a
+ * {@link SnapshotBuffer} and moves on. It never touches NetworkTables, so a slow dashboard can't stall control. The
+ * publisher thread takes the newest snapshot, and only writes a value if it changed by more than its epsilon since it
+ * was last written (the dashboard keeps the last value, so nothing is lost). Strings are built on the publisher thread,
+ * only when one of their inputs changes, so they are built from the inputs (not by reading the robot again).<br><br>
+ * Values should all be added before the first {@code update()}, from the robot thread.
+ * <pre>
+ * publisher.addDouble(entry, TelemetryTier.DIAGNOSTIC, imu::getYaw, 0.1);
+ * publisher.addString(entry, TelemetryTier.SLOW, inputs -&gt; String.format("%s seconds", inputs[0]), controller::getLastOffsetUpdate);
+ * </pre>
+ */
+public class TelemetryPublisher {
+    // Config
+    private static final long kIDLE_PERIOD = 5_000_000; // Nanoseconds to wait for a new snapshot
+
+    /** Builds a string from its inputs (called from the publisher thread) */
+    @FunctionalInterface
+    public static interface StringFormat {
+        /**
+         * @param inputs Value of each input, in the order they were given (don't keep the array)
+         * @return The string
+         */
+        public String format(double[] inputs);
+    }
+
+    // Values (sampled into slots by the robot thread, published from a snapshot of the slots by the publisher thread)
+    private static abstract class Value {
+        final GenericEntry entry;
+        final int slot;
+        boolean published = false;
+
+        Value(GenericEntry entry, int slot) {
+            this.entry = entry;
+            this.slot = slot;
+        }
+
+        // Read the value into the slots (robot thread)
+        abstract void sample(long[] slots);
+
+        // Write the value if it changed, returns whether it was written (publisher thread)
+        abstract boolean publish(long[] slots);
+
+        // Number of slots used
+        int getSize() { return 1; }
+    }
+
+    private static class DoubleValue extends Value {
+        final DoubleSupplier supplier;
+        final double epsilon;
+        double last;
+
+        DoubleValue(GenericEntry entry, int slot, DoubleSupplier supplier, double epsilon) {
+            super(entry, slot);
+            this.supplier = supplier;
+            this.epsilon = epsilon;
+        }
+
+        @Override
+        void sample(long[] slots) { slots[slot] = Double.doubleToRawLongBits(supplier.getAsDouble()); }
+
+        @Override
+        boolean publish(long[] slots) {
+            double value = Double.longBitsToDouble(slots[slot]);
+            if (published && !differs(value, last, epsilon)) { return false; }
+
+            entry.setDouble(value);
+            last = value;
+            return true;
+        }
+    }
+
+    private static class IntegerValue extends Value {
+        final LongSupplier supplier;
+        long last;
+
+        IntegerValue(GenericEntry entry, int slot, LongSupplier supplier) {
+            super(entry, slot);
+            this.supplier = supplier;
+        }
+
+        @Override
+        void sample(long[] slots) { slots[slot] = supplier.getAsLong(); }
+
+        @Override
+        boolean publish(long[] slots) {
+            long value = slots[slot];
+            if (published && value == last) { return false; }
+
+            entry.setInteger(value);
+            last = value;
+            return true;
+        }
+    }
+
+    private static class BooleanValue extends Value {
+        final BooleanSupplier supplier;
+        boolean last;
+
+        BooleanValue(GenericEntry entry, int slot, BooleanSupplier supplier) {
+            super(entry, slot);
+            this.supplier = supplier;
+        }
+
+        @Override
+        void sample(long[] slots) { slots[slot] = supplier.getAsBoolean() ? 1 : 0; }
+
+        @Override
+        boolean publish(long[] slots) {
+            boolean value = slots[slot] != 0;
+            if (published && value == last) { return false; }
+
+            entry.setBoolean(value);
+            last = value;
+            return true;
+        }
+    }
+
+    private static class StringValue extends Value {
+        final StringFormat format;
+        final DoubleSupplier[] inputs;
+        final double[] values;
+        final double[] last;
+
+        StringValue(GenericEntry entry, int slot, StringFormat format, DoubleSupplier[] inputs) {
+            super(entry, slot);
+            this.format = format;
+            this.inputs = inputs.clone();
+            values = new double[inputs.length];
+            last = new double[inputs.length];
+        }
+
+        @Override
+        void sample(long[] slots) {
+            for (int i = 0; i < inputs.length; i++) { slots[slot + i] = Double.doubleToRawLongBits(inputs[i].getAsDouble()); }
+        }
+
+        @Override
+        boolean publish(long[] slots) {
+            boolean changed = !published;
+
+            for (int i = 0; i < inputs.length; i++) {
+                values[i] = Double.longBitsToDouble(slots[slot + i]);
+                if (differs(values[i], last[i], 0.0)) { changed = true; }
+            }
+
+            if (!changed) { return false; }
+
+            // Only remember the inputs once the string is written, so a failed format is tried again next time
+            entry.setString(format.format(values));
+            System.arraycopy(values, 0, last, 0, inputs.length);
+            return true;
+        }
+
+        @Override
+        int getSize() { return inputs.length; }
+    }
+
+    private static class LongStringValue extends Value {
+        final LongFunction<String> format;
+        final LongSupplier input;
+        long last;
+
+        LongStringValue(GenericEntry entry, int slot, LongFunction<String> format, LongSupplier input) {
+            super(entry, slot);
+            this.format = format;
+            this.input = input;
+        }
+
+        @Override
+        void sample(long[] slots) { slots[slot] = input.getAsLong(); }
+
+        @Override
+        boolean publish(long[] slots) {
+            long value = slots[slot];
+            if (published && value == last) { return false; }
+
+            entry.setString(format.apply(value));
+            last = value;
+            return true;
+        }
+    }
+
+    // Tiers
+    private static final TelemetryTier[] kTIERS = TelemetryTier.values(); // values() copies the array every call
+    private final ArrayList<ArrayList<Value>> tiers = new ArrayList<>();
+    private final ArrayList<Value> all = new ArrayList<>();
+    private int slots = 0;
+
+    // Robot Thread
+    private long[] current; // Latest sample of every value
+    private SnapshotBuffer buffer;
+    private long loop = 0;
+
+    // Publisher Thread
+    private Thread thread;
+    private boolean reportedError = false;
+
+    // Stats (written by the publisher thread)
+    private volatile long writes = 0;
+    private volatile long skipped = 0;
+    private volatile long failures = 0;
+
+    // Constructor
+    public TelemetryPublisher() {
+        for (int i = 0; i < kTIERS.length; i++) { tiers.add(new ArrayList<>()); }
+    }
+
+    // Add Values
+    /**
+     * Adds a double value
+     * @param entry Entry to publish to
+     * @param tier How often it is published
+     * @param value Gets the value (called from the robot thread)
+     * @param epsilon Smallest change that is published
+     * @return This object (modifications are done in place)
+     */
+    public TelemetryPublisher addDouble(GenericEntry entry, TelemetryTier tier, DoubleSupplier value, double epsilon) {
+        return add(tier, new DoubleValue(entry, slots, value, epsilon));
+    }
+
+    /**
+     * Adds an integer value
+     * @param entry Entry to publish to
+     * @param tier How often it is published
+     * @param value Gets the value (called from the robot thread)
+     * @return This object (modifications are done in place)
+     */
+    public TelemetryPublisher addInteger(GenericEntry entry, TelemetryTier tier, LongSupplier value) {
+        return add(tier, new IntegerValue(entry, slots, value));
+    }
+
+    /**
+     * Adds a boolean value
+     * @param entry Entry to publish to
+     * @param tier How often it is published
+     * @param value Gets the value (called from the robot thread)
+     * @return This object (modifications are done in place)
+     */
+    public TelemetryPublisher addBoolean(GenericEntry entry, TelemetryTier tier, BooleanSupplier value) {
+        return add(tier, new BooleanValue(entry, slots, value));
+    }
+
+    /**
+     * Adds a string, which is only built when one of its inputs changes
+     * @param entry Entry to publish to
+     * @param tier How often the inputs are read
+     * @param format Builds the string from the inputs (called from the publisher thread)
+     * @param inputs Everything the string is built from (called from the robot thread, booleans and counts can be given as doubles)
+     * @return This object (modifications are done in place)
+     */
+    public TelemetryPublisher addString(GenericEntry entry, TelemetryTier tier, StringFormat format, DoubleSupplier... inputs) {
+        return add(tier, new StringValue(entry, slots, format, inputs));
+    }
+
+    /**
+     * Adds a string built from one integer (for values that don't fit in a double, like raw packets)
+     * @param entry Entry to publish to
+     * @param tier How often the input is read
+     * @param format Builds the string from the input (called from the publisher thread)
+     * @param input What the string is built from (called from the robot thread)
+     * @return This object (modifications are done in place)
+     */
+    public TelemetryPublisher addLongString(GenericEntry entry, TelemetryTier tier, LongFunction<String> format, LongSupplier input) {
+        return add(tier, new LongStringValue(entry, slots, format, input));
+    }
+
+    private TelemetryPublisher add(TelemetryTier tier, Value value) {
+        if (thread != null) {
+            String msg = "Telemetry values must be added before the publisher starts";
+            DriverStation.reportError(msg, true);
+            throw new IllegalStateException(msg);
+        }
+
+        tiers.get(tier.ordinal()).add(value);
+        all.add(value);
+        slots += value.getSize();
+        return this;
+    }
+
+    // Robot Thread
+    /**
+     * Reads the values of every tier that is due, and hands them to the publisher thread (call once a loop).
+     * This doesn't block or touch NetworkTables. The publisher thread is started the first time.
+     */
+    public void update() {
+        if (thread == null) {
+            start();
+        } else {
+            for (int t = 0; t < kTIERS.length; t++) {
+                if (!kTIERS[t].isDue(loop)) { continue; }
+
+                ArrayList<Value> values = tiers.get(t);
+                for (int i = 0; i < values.size(); i++) { values.get(i).sample(current); }
+            }
+        }
+
+        System.arraycopy(current, 0, buffer.getBack(), 0, slots);
+        buffer.publish();
+        loop++;
+    }
+
+    // Sample everything once (so nothing is published before it has been read), then start the thread
+    private void start() {
+        current = new long[slots];
+        buffer = new SnapshotBuffer(slots);
+
+        for (int i = 0; i < all.size(); i++) { all.get(i).sample(current); }
+
+        thread = new Thread(this::run, "Telemetry Publisher");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    // Publisher Thread
+    private void run() {
+        while (true) {
+            if (!buffer.take()) {
+                LockSupport.parkNanos(kIDLE_PERIOD);
+                continue;
+            }
+
+            long[] snapshot = buffer.getFront();
+            long written = 0;
+            long failed = 0;
+
+            for (int i = 0; i < all.size(); i++) {
+                Value value = all.get(i);
+
+                // One value failing (like a format throwing) doesn't stop the values after it
+                try {
+                    if (value.publish(snapshot)) {
+                        value.published = true;
+                        written++;
+                    }
+                } catch (RuntimeException e) {
+                    failed++;
+
+                    // Only report the first failure (it would repeat every loop)
+                    if (!reportedError) {
+                        DriverStation.reportError(String.format("Telemetry publishing failed: %s", e), e.getStackTrace());
+                        reportedError = true;
+                    }
+                }
+            }
+
+            writes += written;
+            failures += failed;
+            skipped += all.size() - written - failed;
+        }
+    }
+
+    // Whether a value changed by more than epsilon (NaN only matches NaN)
+    private static boolean differs(double value, double last, double epsilon) {
+        if (Double.isNaN(value) || Double.isNaN(last)) { return Double.isNaN(value) != Double.isNaN(last); }
+        return Math.abs(value - last) > epsilon;
+    }
+
+    // Stats
+    /**
+     * @return Number of values written to NetworkTables
+     */
+    public long getWriteCount() { return writes; }
+
+    /**
+     * @return Number of values that were checked, but not written because they didn't change
+     */
+    public long getSkippedCount() { return skipped; }
+
+    /**
+     * @return Number of values that threw while being formatted or written (they are tried again next snapshot)
+     */
+    public long getFailureCount() { return failures; }
+
+    /**
+     * @return Number of snapshots the publisher thread was too slow to publish (newer ones were published instead)
+     */
+    public long getReplacedCount() { return (buffer == null) ? 0 : buffer.getReplacedCount(); }
+}
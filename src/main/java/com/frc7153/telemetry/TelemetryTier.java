@@ -0,0 +1,36 @@
+package com.frc7153.telemetry;
+
+/**
+ * How often a dashboard value is published. Tiers are counted in robot loops (20 ms), and start on different loops,
+ * so the slower tiers don't all land on the same loop.
+ */
+public enum TelemetryTier {
+    /** Every loop (values the drivers react to) */
+    CRITICAL(1, 0),
+
+    /** About 5 times a second (diagnostics) */
+    DIAGNOSTIC(10, 3),
+
+    /** About once a second (slow stats) */
+    SLOW(50, 7);
+
+    // Config
+    private final int period;
+    private final int phase;
+
+    private TelemetryTier(int period, int phase) {
+        this.period = period;
+        this.phase = phase;
+    }
+
+    /**
+     * @param loop Number of the loop
+     * @return Whether this tier is published on that loop
+     */
+    public boolean isDue(long loop) { return loop % period == phase % period; }
+
+    /**
+     * @return Loops between updates
+     */
+    public int getPeriod() { return period; }
+}
@@ -19,8 +19,11 @@ public final class Constants {
 
     /* SHUFFLEBOARD CONFIG */
     public static final class ShuffleboardConstants {
-        public static final boolean kPI_GRAPHS = false;
-        public static final boolean kARM_GRAPHS = true;
+        public static final boolean kCOMPETITION = false; // Turns off the graphs, to save loop time and bandwidth to the driver station
+
+        public static final boolean kPI_GRAPHS = false && !kCOMPETITION;
+        public static final boolean kARM_GRAPHS = true && !kCOMPETITION;
+        public static final boolean kCAN_GRAPHS = true && !kCOMPETITION;
         public static final boolean kCAMERA_STREAMS = true;
     }
 
@@ -35,6 +38,30 @@ public final class Constants {
         public static final double kFR_OFFSET = 9.58+180.0;
         public static final double kRL_OFFSET = 177.803+180.0;
         public static final double kRR_OFFSET = 181.143-180.0;
+
+        public static final double kODOMETRY_FREQUENCY = 200.0; // hz, odometry runs in its own thread
+    }
+
+    /* VISION (APRILTAG LOCALIZATION) CONSTANTS */
+    public static final class VisionConstants {
+        public static final String[] kLIMELIGHTS = {"front", "back"};
+
+        public static final double kFIELD_LENGTH = 16.54175;
+        public static final double kFIELD_WIDTH = 8.0137;
+
+        // Outlier rejection
+        public static final double kFIELD_MARGIN = 0.5; // How far outside the field a pose can be (meters)
+        public static final double kMAX_TAG_DISTANCE = 5.0; // Single tag poses further than this are ignored (meters)
+        public static final double kMAX_JUMP = 1.0; // Single tag poses further than this from odometry are ignored (meters)
+        public static final double kSEED_TAG_DISTANCE = 2.0; // Single tag poses closer than this can set the pose before vision has (meters)
+
+        // Kalman weighting (standard deviations, vision's grow with distance / sqrt(tag count))
+        public static final double kVISION_XY_STD = 0.1; // At 1 meter from one tag (meters)
+        public static final double kVISION_ROT_STD = 10.0; // At 1 meter from one tag (degrees)
+        public static final double kODOMETRY_XY_DRIFT = 0.1; // Odometry uncertainty added per second (meters)
+        public static final double kODOMETRY_ROT_DRIFT = 1.0; // Odometry uncertainty added per second (degrees)
+
+        public static final double kLOOP_BUDGET = 0.001; // Max time spent fusing measurements each loop (seconds)
     }
 
     /* ARM MOVEMENT CONSTANTS */
@@ -47,6 +74,7 @@ public final class Constants {
 
         public static final double kJOINT_TO_FLOOR_DIST = 26.0;
         public static final double kJOINT_TO_BUMPER_DIST = 20.0;
+        public static final double kFRAME_HEIGHT = 7.0; // Top of the bumpers and drivetrain, from the floor (estimated)
 
         public static final double kHAND_LENGTH = 14.0;
 
@@ -62,6 +90,30 @@ public final class Constants {
 
         public static final double kCLEARANCE = 4.0;
 
+        // Limits of the claw's position (from the joint, x = 0 is straight up and down, y = 0 is the floor)
+        public static final double kMAX_X = kMAX_REACH + kJOINT_TO_BUMPER_DIST - kCLEARANCE;
+        public static final double kMAX_Y = kMAX_HEIGHT - kCLEARANCE;
+        public static final double kMIN_Y = kCLEARANCE;
+
+        // Motion planning (joint limits of planned preset moves)
+        public static final double kPLAN_ANGLE_VELOCITY = 180.0; // Degrees per second
+        public static final double kPLAN_ANGLE_ACCEL = 360.0; // Degrees per second per second
+        public static final double kPLAN_ANGLE_JERK = 1800.0; // Degrees per second cubed
+        public static final double kPLAN_EXT_VELOCITY = 12.0; // Inches per second
+        public static final double kPLAN_EXT_ACCEL = 36.0; // Inches per second per second
+        public static final double kPLAN_EXT_JERK = 180.0; // Inches per second cubed
+
+        // Onboard angle control (the Spark Max runs Smart Motion and PID at 1 kHz, the RIO only sends setpoints)
+        public static final boolean kONBOARD_ANGLE_CONTROL = false;
+        public static final PIDConstant kARM_ONBOARD_PID = new PIDConstant(0.0005, 0.0001, 0.0).withFF(1.0 / 354.75).withError(0.5).withOutputRange(-1.0, 1.0); // Velocity gains (deg/s), kFF is 1 / free speed
+        public static final double kARM_MAX_VELOCITY = 180.0; // Degrees per second
+        public static final double kARM_MAX_ACCEL = 360.0; // Degrees per second per second
+        public static final double kARM_KG_RETRACTED = 1.6; // Volts to hold the arm level, fully retracted (estimated, needs tuning)
+        public static final double kARM_KG_EXTENDED = 2.4; // Volts to hold the arm level, fully extended (estimated, needs tuning)
+        public static final double kANGLE_RESYNC_PERIOD = 1.0; // Seconds between checking the Spark Max's encoder against the absolute encoder
+        public static final double kANGLE_RESYNC_TOLERANCE = 0.5; // Degrees the encoders can disagree by before the Spark Max's is reset
+        public static final double kANGLE_RESYNC_MAX_VELOCITY = 2.0; // Degrees per second, only resynced while the arm is still
+
         /**
          * Uses polynomial regression to calculate the number of rotations of the winch motor to achieve specific lengths
          * @param ext Joint to claw edge extension, inches
@@ -83,6 +135,9 @@ public final class Constants {
 
     /* ARM PRE-CONFIGURED POSITIONS */
     public static final class ArmPositions {
+        // Stow (straight up, retracted, where teleop puts the arm back)
+        public static final Translation2d kSTOW = new Translation2d(0.0, ArmConstants.kJOINT_TO_FLOOR_DIST + ArmConstants.kJOINT_TO_EXT_PT + ArmConstants.kHAND_LENGTH);
+
         // Ground
         public static final Translation2d kFRONT_GROUND = new Translation2d(35.98, 4.34);
 
@@ -91,6 +146,9 @@ public final class Constants {
         public static final Translation2d kFRONT_CUBE_HIGH = new Translation2d(67.0, 47.39);
         public static final Translation2d kFRONT_CONE_MID = new Translation2d(42.41, 41.97);
         public static final Translation2d kFRONT_CONE_HIGH = new Translation2d(64.0, 57.69);
+
+        // Every preset other than stow (planned moves between these and stow are computed at boot)
+        public static final Translation2d[] kALL = {kFRONT_GROUND, kFRONT_CUBE_MID, kFRONT_CUBE_HIGH, kFRONT_CONE_MID, kFRONT_CONE_HIGH};
     }
 
     /* CLAW CONSTANTS */
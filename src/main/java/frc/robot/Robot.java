@@ -4,10 +4,16 @@
 
 package frc.robot;
 
+import edu.wpi.first.wpilibj.DriverStation;
 import edu.wpi.first.wpilibj.TimedRobot;
 import edu.wpi.first.wpilibj2.command.Command;
 import edu.wpi.first.wpilibj2.command.CommandScheduler;
 
+import com.frc7153.controllers.config.MotorConfigurator;
+import com.frc7153.logging.FileDump;
+import com.frc7153.logging.LoopProfiler;
+import com.frc7153.logging.SignalRecorder;
+
 public class Robot extends TimedRobot {
     // Robot Container
     private RobotContainer container = new RobotContainer();
@@ -15,6 +21,27 @@ public class Robot extends TimedRobot {
     // Auto Commands
     private Command autoCommand;
 
+    // Loop Profiling
+    private LoopProfiler profiler = LoopProfiler.getInstance();
+    private int schedulerSection = profiler.register("Scheduler");
+    private int shuffleboardSection = profiler.register("Shuffleboard");
+
+    // Signal Recording
+    private SignalRecorder recorder = SignalRecorder.getInstance();
+
+    // Record the robot loop (times are from the last loop)
+    public Robot() {
+        recorder
+            .addBoolean("Robot/Enabled", DriverStation::isEnabled)
+            .addDouble("Loop/Time", profiler::getLastLoopTime)
+            .addDouble("Loop/Scheduler", () -> profiler.getSectionTime(schedulerSection))
+            .addDouble("Loop/Shuffleboard", () -> profiler.getSectionTime(shuffleboardSection))
+            .addInteger("Loop/Overruns", profiler::getOverrunCount);
+    }
+
+    // Get Robot Container (for simulation tests)
+    RobotContainer getContainer() { return container; }
+
     // Stop auto command and toggle brakes
     private void switchMode(boolean brakes) {
         if (autoCommand != null) { autoCommand.cancel(); }
@@ -24,13 +51,28 @@ public class Robot extends TimedRobot {
 
     //// ROBOT ////
     @Override
-    public void robotInit() {}
+    public void robotInit() {
+        // Wait for the motor controllers the subsystems started configuring
+        MotorConfigurator.getInstance().finish();
+    }
 
     // Robot Periodic
     @Override
     public void robotPeriodic() {
+        profiler.startLoop();
+
+        long start = profiler.start();
         CommandScheduler.getInstance().run();
+        profiler.stop(schedulerSection, start);
+
+        start = profiler.start();
         container.shuffleboardUpdate();
+        profiler.stop(shuffleboardSection, start);
+
+        profiler.endLoop();
+
+        // After the loop is timed, so the loop times it records are complete
+        recorder.record();
     }
 
     //// AUTO ////
@@ -75,6 +117,10 @@ public class Robot extends TimedRobot {
     public void disabledInit() {
         // Brakes only if the hands are still locked
         switchMode(!container.checkHandsLocked());
+
+        // Make sure logs are on disk in case the robot is turned off
+        FileDump.flushAll();
+        recorder.flush();
     }
 
     //// TEST ////
@@ -91,4 +137,11 @@ public class Robot extends TimedRobot {
     // Test Periodic
     @Override
     public void testPeriodic() { if (autoCommand != null) { autoCommand.execute();} }
+
+    //// CLOSE ////
+    @Override
+    public void close() {
+        container.close();
+        super.close();
+    }
 }
@@ -4,11 +4,13 @@ import edu.wpi.first.wpilibj2.command.Command;
 import frc.robot.Constants.ArmPositions;
 import frc.robot.OI.Controller0;
 import frc.robot.OI.Controller1;
+import frc.robot.arm.ArmPlanner;
 import frc.robot.commandgroups.TestCommand;
 import frc.robot.commands.AimCommand;
 import frc.robot.commands.GrabToggleCommand;
 import frc.robot.commands.TeleopArmCommand;
 import frc.robot.commands.PresetArmCommand;
+import frc.robot.commands.StowArmCommand;
 import frc.robot.commands.TeleopDriveCommand;
 import frc.robot.commands.UnlockClawCommand;
 import frc.robot.peripherals.ArmPI;
@@ -17,6 +19,7 @@ import frc.robot.subsystems.Aim;
 import frc.robot.subsystems.Arm;
 import frc.robot.subsystems.Claw;
 import frc.robot.subsystems.DriveBase;
+import frc.robot.subsystems.PoseEstimator;
 import frc.robot.subsystems.AutoCenter;
 
 public class RobotContainer {
@@ -25,14 +28,19 @@ public class RobotContainer {
 
     // Subsystems
     private final DriveBase driveBase = new DriveBase();
+    private final PoseEstimator poseEstimator = new PoseEstimator(driveBase);
     private final Arm arm = new Arm();
     private final Claw claw = new Claw();
-    private final Aim aim = new Aim();
+    private final Aim aim = new Aim(driveBase);
+
+    // Arm moves between presets and stow (planned at boot)
+    private final ArmPlanner armPlanner = new ArmPlanner(ArmPositions.kSTOW, ArmPositions.kALL);
 
 
     // Shuffleboard + Commands
     private final ShuffleboardManager shuffleboard;
     public final Command unlockClawCommand = new UnlockClawCommand(claw, arm);
+    private final Command stowArmCommand = new StowArmCommand(arm, armPlanner);
 
     // Constructor
     public RobotContainer() {
@@ -71,13 +79,13 @@ public class RobotContainer {
         // Default Claw Command (open position)
         claw.setDefaultCommand(new GrabToggleCommand(arm, claw, Controller0::getRightTrigger));
 
-        // Arm Preset Positions
-        Controller1.button7.whileTrue(new PresetArmCommand(arm, ArmPositions.kFRONT_CONE_HIGH));
-        Controller1.button8.whileTrue(new PresetArmCommand(arm, ArmPositions.kFRONT_CUBE_HIGH));
-        Controller1.button9.whileTrue(new PresetArmCommand(arm, ArmPositions.kFRONT_CONE_MID));
-        Controller1.button10.whileTrue(new PresetArmCommand(arm, ArmPositions.kFRONT_CUBE_MID));
-        Controller1.button11.whileTrue(new PresetArmCommand(arm, ArmPositions.kFRONT_GROUND));
-        Controller1.button12.whileTrue(new PresetArmCommand(arm, ArmPositions.kFRONT_GROUND));
+        // Arm Preset Positions (back to stow when released)
+        Controller1.button7.whileTrue(new PresetArmCommand(arm, armPlanner, ArmPositions.kFRONT_CONE_HIGH)).onFalse(stowArmCommand);
+        Controller1.button8.whileTrue(new PresetArmCommand(arm, armPlanner, ArmPositions.kFRONT_CUBE_HIGH)).onFalse(stowArmCommand);
+        Controller1.button9.whileTrue(new PresetArmCommand(arm, armPlanner, ArmPositions.kFRONT_CONE_MID)).onFalse(stowArmCommand);
+        Controller1.button10.whileTrue(new PresetArmCommand(arm, armPlanner, ArmPositions.kFRONT_CUBE_MID)).onFalse(stowArmCommand);
+        Controller1.button11.whileTrue(new PresetArmCommand(arm, armPlanner, ArmPositions.kFRONT_GROUND)).onFalse(stowArmCommand);
+        Controller1.button12.whileTrue(new PresetArmCommand(arm, armPlanner, ArmPositions.kFRONT_GROUND)).onFalse(stowArmCommand);
 
         // Auto Balance
         //Controller0.aButton.whileTrue(new BalanceCommand(driveBase));
@@ -105,6 +113,12 @@ public class RobotContainer {
         return null;
     }
 
+    // Get Drive Base (for simulation tests)
+    DriveBase getDriveBase() { return driveBase; }
+
+    // Get Pose Estimator (for simulation tests)
+    PoseEstimator getPoseEstimator() { return poseEstimator; }
+
     // Get Testing Command
     public Command getTestingCommand() {
         return new TestCommand(arm, claw, shuffleboard, Controller1::getThrottle);
@@ -112,4 +126,7 @@ public class RobotContainer {
 
     // Check if arms are locked
     public boolean checkHandsLocked() { return !arm.hasBeenReleased; }
+
+    // Stop background threads and release hardware (when the robot is closed)
+    public void close() { armPi.close(); }
 }
@@ -0,0 +1,287 @@
+package frc.robot.arm;
+
+import java.util.Arrays;
+
+import edu.wpi.first.math.util.Units;
+import frc.robot.Constants.ArmConstants;
+import frc.robot.subsystems.Arm.ArmState;
+
+/**
+ * Where the arm is allowed to be, as a grid over joint space (angle and extension) built once at boot.<br><br>
+ * A state is legal if both joints are in their range, the claw is inside the height limit and the 48" extension limit
+ * past the frame perimeter, and no part of the arm is inside the bumpers and drivetrain. The exact check does the trig;
+ * the grid does it once for every cell so the robot doesn't have to each loop:
+ * <ul>
+ * <li>A cell is legal if all four of its corners are, so every point in a legal cell is legal.</li>
+ * <li>Every illegal cell stores its nearest legal cell, so projecting an illegal setpoint is one lookup. Only cells on
+ * the edge of the legal region can be nearest, so each stores a 16 bit index into a short list of them.</li>
+ * </ul>
+ * Distance is measured in inches of claw movement, with angles converted at the middle extension. Extensions are joint
+ * to winch edge, like {@link frc.robot.subsystems.Arm#setExtension(double)}.
+ */
+public class ArmConstraints {
+    // Instance
+    private static ArmConstraints instance;
+
+    /**
+     * @return The constraints (the grid is built the first time)
+     */
+    public static synchronized ArmConstraints getInstance() {
+        if (instance == null) { instance = new ArmConstraints(); }
+        return instance;
+    }
+
+    // Range
+    public static final double kMIN_ANGLE = -ArmConstants.kMAX_ANGLE;
+    public static final double kMAX_ANGLE = ArmConstants.kMAX_ANGLE;
+    public static final double kMIN_EXT = ArmConstants.kJOINT_TO_EXT_PT;
+    public static final double kMAX_EXT = ArmConstants.kJOINT_TO_EXT_PT + ArmConstants.kWINCH_MAX_POSITION;
+
+    // Grid
+    public static final double kANGLE_STEP = 0.25; // Degrees
+    public static final double kEXT_STEP = 0.25; // Inches
+
+    private static final double kANGLE_WEIGHT = Units.degreesToRadians(kANGLE_STEP) * ((kMIN_EXT + kMAX_EXT) / 2.0 + ArmConstants.kHAND_LENGTH); // Inches per cell
+    private static final double kEXT_WEIGHT = kEXT_STEP; // Inches per cell
+
+    private final int columns; // Angle
+    private final int rows; // Extension
+    private final long[] legal; // Bit per cell (column major)
+    private final char[] nearest; // Nearest legal cell of each illegal cell, as an index into targets (kNONE if none are legal or the cell is legal)
+    private final int[] targets; // Every cell that is nearest to an illegal one
+
+    private static final char kNONE = Character.MAX_VALUE;
+
+    // Stats
+    private final int legalCount;
+
+    private ArmConstraints() {
+        columns = (int) Math.round((kMAX_ANGLE - kMIN_ANGLE) / kANGLE_STEP);
+        rows = (int) Math.round((kMAX_EXT - kMIN_EXT) / kEXT_STEP);
+
+        // Check every corner
+        boolean[] corners = new boolean[(columns + 1) * (rows + 1)];
+
+        for (int c = 0; c <= columns; c++) {
+            for (int r = 0; r <= rows; r++) {
+                corners[c * (rows + 1) + r] = isLegal(kMIN_ANGLE + c * kANGLE_STEP, kMIN_EXT + r * kEXT_STEP, 0.0);
+            }
+        }
+
+        // Cells
+        legal = new long[(columns * rows + 63) / 64];
+        int count = 0;
+
+        for (int c = 0; c < columns; c++) {
+            for (int r = 0; r < rows; r++) {
+                int corner = c * (rows + 1) + r;
+
+                if (corners[corner] && corners[corner + 1] && corners[corner + rows + 1] && corners[corner + rows + 2]) {
+                    int cell = c * rows + r;
+                    legal[cell >> 6] |= 1L << cell;
+                    count++;
+                }
+            }
+        }
+
+        legalCount = count;
+
+        // Index the nearest cells (legal cells are their own nearest, so they aren't stored)
+        int[] nearestCells = buildNearest();
+        int[] targetIndex = new int[columns * rows];
+        int[] found = new int[kNONE];
+        int targetCount = 0;
+
+        Arrays.fill(targetIndex, -1);
+        nearest = new char[columns * rows];
+
+        for (int cell = 0; cell < nearest.length; cell++) {
+            int target = nearestCells[cell];
+
+            if (isLegalCell(cell) || target < 0) {
+                nearest[cell] = kNONE;
+                continue;
+            }
+
+            if (targetIndex[target] < 0) {
+                if (targetCount == kNONE) { throw new IllegalStateException("Too many nearest cells to index in the arm constraint grid"); }
+
+                targetIndex[target] = targetCount;
+                found[targetCount++] = target;
+            }
+
+            nearest[cell] = (char) targetIndex[target];
+        }
+
+        targets = Arrays.copyOf(found, targetCount);
+    }
+
+    // Nearest legal cell of every cell (an exact distance transform, one pass down each column then one along each row)
+    private int[] buildNearest() {
+        int[] nearestRow = new int[columns * rows];
+        double[] columnDist = new double[columns * rows];
+
+        // Nearest legal cell in the same column
+        for (int c = 0; c < columns; c++) {
+            int last = -1;
+
+            for (int r = 0; r < rows; r++) {
+                if (isLegalCell(c * rows + r)) { last = r; }
+                nearestRow[c * rows + r] = last;
+            }
+
+            last = -1;
+
+            for (int r = rows - 1; r >= 0; r--) {
+                int cell = c * rows + r;
+                if (isLegalCell(cell)) { last = r; }
+
+                if (last >= 0 && (nearestRow[cell] < 0 || last - r < r - nearestRow[cell])) { nearestRow[cell] = last; }
+
+                double d = (nearestRow[cell] - r) * kEXT_WEIGHT;
+                columnDist[cell] = (nearestRow[cell] < 0) ? Double.POSITIVE_INFINITY : d * d;
+            }
+        }
+
+        // Nearest along each row, from the column distances (lower envelope of parabolas)
+        int[] result = new int[columns * rows];
+        int[] hull = new int[columns];
+        double[] bounds = new double[columns + 1];
+        double weight = kANGLE_WEIGHT * kANGLE_WEIGHT;
+
+        for (int r = 0; r < rows; r++) {
+            int size = 0;
+
+            for (int c = 0; c < columns; c++) {
+                double f = columnDist[c * rows + r];
+                if (Double.isInfinite(f)) { continue; }
+
+                double s = Double.NEGATIVE_INFINITY;
+
+                while (size > 0) {
+                    int q = hull[size - 1];
+                    s = ((f + weight * c * c) - (columnDist[q * rows + r] + weight * q * q)) / (2.0 * weight * (c - q));
+                    if (s > bounds[size - 1]) { break; }
+                    size--;
+                }
+
+                hull[size] = c;
+                bounds[size] = (size == 0) ? Double.NEGATIVE_INFINITY : s;
+                size++;
+            }
+
+            int k = 0;
+
+            for (int c = 0; c < columns; c++) {
+                if (size == 0) {
+                    result[c * rows + r] = -1;
+                    continue;
+                }
+
+                while (k < size - 1 && bounds[k + 1] < c) { k++; }
+
+                int source = hull[k];
+                result[c * rows + r] = source * rows + nearestRow[source * rows + r];
+            }
+        }
+
+        return result;
+    }
+
+    // Exact Check
+    /**
+     * Checks if the arm can be at a state, with trig (slow, use the grid at runtime)
+     * @param angle Angle (degrees)
+     * @param ext Extension (joint to winch edge, inches)
+     * @param tolerance How far past each limit is still legal (degrees and inches)
+     * @return Whether it is legal
+     */
+    public static boolean isLegal(double angle, double ext, double tolerance) {
+        if (Math.abs(angle) > ArmConstants.kMAX_ANGLE + tolerance) { return false; }
+        if (ext < kMIN_EXT - tolerance || ext > kMAX_EXT + tolerance) { return false; }
+
+        double length = ext + ArmConstants.kHAND_LENGTH;
+        double x = Math.sin(Units.degreesToRadians(angle)) * length;
+        double y = Math.cos(Units.degreesToRadians(angle)) * length + ArmConstants.kJOINT_TO_FLOOR_DIST;
+
+        // Height and extension limits (the claw is the furthest part of the arm)
+        if (Math.abs(x) > ArmConstants.kMAX_X + tolerance) { return false; }
+        if (y > ArmConstants.kMAX_Y + tolerance || y < ArmConstants.kMIN_Y - tolerance) { return false; }
+
+        // Bumpers and drivetrain (the arm is lowest where it leaves the frame, or at the claw if it doesn't)
+        double inside = (Math.abs(x) > ArmConstants.kJOINT_TO_BUMPER_DIST) ? ArmConstants.kJOINT_TO_BUMPER_DIST / Math.abs(x) : 1.0;
+        double lowest = ArmConstants.kJOINT_TO_FLOOR_DIST + (y - ArmConstants.kJOINT_TO_FLOOR_DIST) * inside;
+
+        return lowest >= ArmConstants.kFRAME_HEIGHT + ArmConstants.kCLEARANCE - tolerance;
+    }
+
+    // Grid
+    private boolean isLegalCell(int cell) { return (legal[cell >> 6] & (1L << cell)) != 0; }
+
+    // Cell a state is in (clamped to the grid)
+    private int getCell(double angle, double ext) {
+        int c = Math.min(Math.max((int) Math.floor((angle - kMIN_ANGLE) / kANGLE_STEP), 0), columns - 1);
+        int r = Math.min(Math.max((int) Math.floor((ext - kMIN_EXT) / kEXT_STEP), 0), rows - 1);
+        return c * rows + r;
+    }
+
+    /**
+     * Checks if the arm can be at a state (one lookup). Accurate to a cell: states near a limit may be illegal.
+     * @param angle Angle (degrees)
+     * @param ext Extension (joint to winch edge, inches)
+     * @return Whether it is legal
+     */
+    public boolean isLegal(double angle, double ext) {
+        if (angle < kMIN_ANGLE || angle > kMAX_ANGLE || ext < kMIN_EXT || ext > kMAX_EXT) { return false; }
+        return isLegalCell(getCell(angle, ext));
+    }
+
+    /**
+     * Gets the nearest legal state (one lookup). Legal states are returned as they are.
+     * @param angle Angle (degrees)
+     * @param ext Extension (joint to winch edge, inches)
+     * @return Angle (degrees) and extension (joint to winch edge, inches)
+     */
+    public ArmState project(double angle, double ext) {
+        if (isLegal(angle, ext)) { return new ArmState(angle, ext); }
+
+        // Setpoints outside the grid can be in a legal edge cell, which is its own nearest
+        int cell = getCell(angle, ext);
+
+        if (!isLegalCell(cell)) {
+            int index = nearest[cell];
+            if (index == kNONE) { return new ArmState(angle, ext); }
+            cell = targets[index];
+        }
+
+        // Nearest point in the nearest legal cell
+        double minAngle = kMIN_ANGLE + (cell / rows) * kANGLE_STEP;
+        double minExt = kMIN_EXT + (cell % rows) * kEXT_STEP;
+
+        return new ArmState(
+            Math.min(Math.max(angle, minAngle), minAngle + kANGLE_STEP),
+            Math.min(Math.max(ext, minExt), minExt + kEXT_STEP)
+        );
+    }
+
+    // Getters
+    /**
+     * @return Number of angle columns in the grid
+     */
+    public int getColumns() { return columns; }
+
+    /**
+     * @return Number of extension rows in the grid
+     */
+    public int getRows() { return rows; }
+
+    /**
+     * @return Number of legal cells
+     */
+    public int getLegalCount() { return legalCount; }
+
+    /**
+     * @return Bytes used by the grid
+     */
+    public long getSize() { return legal.length * 8L + nearest.length * 2L + targets.length * 4L; }
+}
@@ -0,0 +1,262 @@
+package frc.robot.arm;
+
+import java.util.ArrayList;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import com.frc7153.math.SCurveProfile;
+
+import edu.wpi.first.math.geometry.Translation2d;
+import edu.wpi.first.wpilibj.DriverStation;
+import frc.robot.Constants.ArmConstants;
+import frc.robot.subsystems.Arm;
+import frc.robot.subsystems.Arm.ArmState;
+
+/**
+ * Plans jerk-limited arm moves in joint space (angle and extension), that stay legal the whole way (see
+ * {@link ArmConstraints}).<br><br>
+ * Each leg of a move is a straight line in joint space, with one {@link SCurveProfile} timing both joints so they start
+ * and finish together. If the straight line would leave the limits, the arm retracts (only as far as it needs to), rotates,
+ * then extends.<br><br>
+ * Moves to every preset are planned when this is made (at boot), so starting one is a lookup. They're planned from every
+ * preset, and from the stow angle at every extension (teleop puts the arm back at the stow angle, with the extension
+ * on the throttle). If the arm is close to one of these, the move starts from there. Other moves are planned on a
+ * background thread, so they don't hold up the robot loop.<br><br>
+ * Extensions are joint to winch edge, like {@link Arm#setExtension(double)}.
+ */
+public class ArmPlanner {
+    // Config
+    private static final double kSAMPLE_PERIOD = 0.02; // Robot loop (seconds)
+    private static final double kCHECK_ANGLE_STEP = 0.5; // Most a leg moves between legality checks (degrees)
+    private static final double kCHECK_EXT_STEP = 0.25; // Most a leg moves between legality checks (inches)
+    private static final double kRETRACT_STEP = 0.5; // Step between extensions tried for rotating (inches)
+    private static final double kSTART_EXT_STEP = 2.0; // Step between extensions planned from at the stow angle (inches)
+    private static final double kSNAP_ANGLE = 1.0; // How close the arm has to be to a planned start to use its cache (degrees)
+    private static final double kSNAP_EXT = kSTART_EXT_STEP / 2.0; // How close the arm has to be to a planned start to use its cache (inches)
+    private static final double kTOLERANCE = 0.01; // How far past the limits is still legal, so legs between checks don't bulge out (inches and degrees)
+    private static final double kEPSILON = 1e-6;
+
+    // Presets, and the moves to them from each start
+    private final Translation2d[] presets;
+    private final ArmState[] starts;
+    private final ArmTrajectory[][] cache;
+
+    // Planning moves that aren't cached (one at a time)
+    private final ExecutorService executor = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "Arm Planner");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    /**
+     * Creates a planner, and plans the moves to every preset (including stow)
+     * @param stow Position the arm stows at (inches, like {@link Arm#setTarget(double, double)})
+     * @param presets Positions of the other presets (inches)
+     */
+    public ArmPlanner(Translation2d stow, Translation2d... presets) {
+        this.presets = new Translation2d[presets.length + 1];
+        this.presets[0] = stow;
+        System.arraycopy(presets, 0, this.presets, 1, presets.length);
+
+        // Every preset, then the stow angle from retracted to as far as it can extend there
+        ArrayList<ArmState> starts = new ArrayList<>();
+        for (Translation2d preset : this.presets) { starts.add(toState(preset)); }
+
+        ArmState stowState = starts.get(0);
+        ArmState stowExtended = toState(ArmConstraints.kMAX_EXT, stowState.angle);
+
+        for (double ext = ArmConstraints.kMIN_EXT; ext < stowExtended.extension - kSNAP_EXT; ext += kSTART_EXT_STEP) {
+            if (Math.abs(ext - stowState.extension) > kEPSILON) { starts.add(new ArmState(stowState.angle, ext)); }
+        }
+
+        starts.add(stowExtended);
+        this.starts = starts.toArray(new ArmState[0]);
+
+        // Plan
+        cache = new ArmTrajectory[this.starts.length][this.presets.length];
+
+        for (int from = 0; from < this.starts.length; from++) {
+            for (int to = 0; to < this.presets.length; to++) {
+                cache[from][to] = plan(this.starts[from], this.starts[to]);
+
+                if (cache[from][to] == null) {
+                    ArmState start = this.starts[from];
+                    DriverStation.reportWarning(String.format("No legal arm move from %.1f degrees, %.1f inches to preset %s", start.angle, start.extension, this.presets[to]), false);
+                }
+            }
+        }
+    }
+
+    /**
+     * Gets the move to a preset, if the arm is close to somewhere it was planned from at boot. The move starts from
+     * there, so the setpoint can jump by up to a degree and an inch.
+     * @param from Where the arm is (see {@link #toState(double, double)})
+     * @param target Position of the preset (inches)
+     * @return The move, or null if it isn't cached (see {@link #planInBackground(ArmState, Translation2d)})
+     */
+    public ArmTrajectory getCachedTrajectory(ArmState from, Translation2d target) {
+        int to = indexOf(target);
+        if (to < 0) { return null; }
+
+        // Nearest start (the jump to it has to be legal too)
+        ArmTrajectory nearest = null;
+        double nearestDistance = Double.POSITIVE_INFINITY;
+
+        for (int i = 0; i < starts.length; i++) {
+            double angle = Math.abs(from.angle - starts[i].angle);
+            double ext = Math.abs(from.extension - starts[i].extension);
+            double distance = angle / kSNAP_ANGLE + ext / kSNAP_EXT;
+
+            if (angle <= kSNAP_ANGLE && ext <= kSNAP_EXT && distance < nearestDistance && cache[i][to] != null
+                && isLegal(from.angle, from.extension, starts[i].angle, starts[i].extension)) {
+                nearest = cache[i][to];
+                nearestDistance = distance;
+            }
+        }
+
+        return nearest;
+    }
+
+    /**
+     * Plans a move on the planner's thread (for moves that aren't cached). A warning is reported if it takes longer
+     * than a robot loop.
+     * @param from Where the arm is (see {@link #toState(double, double)})
+     * @param target Position to move to (inches)
+     * @return The move when it is planned (null if there isn't a legal one)
+     */
+    public CompletableFuture<ArmTrajectory> planInBackground(ArmState from, Translation2d target) {
+        return CompletableFuture.supplyAsync(() -> {
+            long start = System.nanoTime();
+            ArmTrajectory trajectory = plan(from, toState(target));
+
+            double elapsed = (System.nanoTime() - start) / 1e9;
+            if (elapsed > kSAMPLE_PERIOD) {
+                DriverStation.reportWarning(String.format("Planning the arm move to %s took %.1f ms", target, elapsed * 1e3), false);
+            }
+
+            return trajectory;
+        }, executor);
+    }
+
+    // Index of a preset, or -1
+    private int indexOf(Translation2d target) {
+        for (int i = 0; i < presets.length; i++) {
+            if (presets[i].getX() == target.getX() && presets[i].getY() == target.getY()) { return i; }
+        }
+
+        return -1;
+    }
+
+    // States
+    /**
+     * Gets the arm state the robot drives to for a position (the nearest legal one)
+     * @param pose Position (inches)
+     * @return Angle (degrees) and extension (joint to winch edge, inches)
+     */
+    public static ArmState toState(Translation2d pose) {
+        ArmState state = Arm.inverseKinematics(pose.getX(), pose.getY());
+        return Arm.constrainState(state.extension - ArmConstants.kHAND_LENGTH, state.angle);
+    }
+
+    /**
+     * Gets the arm state the robot drives to for a setpoint (the nearest legal one)
+     * @param ext Extension setpoint (joint to winch edge, inches)
+     * @param angle Angle setpoint (degrees)
+     * @return Angle (degrees) and extension (joint to winch edge, inches)
+     */
+    public static ArmState toState(double ext, double angle) { return Arm.constrainState(ext, angle); }
+
+    // Checks a straight line in joint space, at small steps
+    private static boolean isLegal(double angle0, double ext0, double angle1, double ext1) {
+        int steps = (int) Math.max(Math.ceil(Math.max(Math.abs(angle1 - angle0) / kCHECK_ANGLE_STEP, Math.abs(ext1 - ext0) / kCHECK_EXT_STEP)), 1.0);
+
+        for (int i = 0; i <= steps; i++) {
+            double s = (double) i / steps;
+            if (!ArmConstraints.isLegal(angle0 + (angle1 - angle0) * s, ext0 + (ext1 - ext0) * s, kTOLERANCE)) { return false; }
+        }
+
+        return true;
+    }
+
+    // Planning
+    /**
+     * Plans a move
+     * @param from Where the arm starts
+     * @param to Where the arm ends (has to be legal)
+     * @return The move, or null if there isn't a legal one
+     */
+    public static ArmTrajectory plan(ArmState from, ArmState to) {
+        if (!ArmConstraints.isLegal(to.angle, to.extension, kTOLERANCE)) { return null; }
+
+        ArrayList<ArmState> waypoints = new ArrayList<>();
+        waypoints.add(from);
+
+        if (!isLegal(from.angle, from.extension, to.angle, to.extension)) {
+            // Retract before rotating, only as far as the rotation needs (retracting at one angle always moves the claw
+            // towards the joint, so it can't leave the limits)
+            double ext = Math.min(from.extension, to.extension);
+
+            while (!isLegal(from.angle, ext, to.angle, ext)) {
+                if (ext <= ArmConstraints.kMIN_EXT) { return null; }
+                ext = Math.max(ext - kRETRACT_STEP, ArmConstraints.kMIN_EXT);
+            }
+
+            if (from.extension - ext > kEPSILON) { waypoints.add(new ArmState(from.angle, ext)); }
+            waypoints.add(new ArmState(to.angle, ext));
+        }
+
+        waypoints.add(to);
+
+        // Time each leg
+        ArrayList<SCurveProfile> legs = new ArrayList<>();
+        double duration = 0.0;
+
+        for (int i = 1; i < waypoints.size(); i++) {
+            SCurveProfile leg = profile(waypoints.get(i - 1), waypoints.get(i));
+            legs.add(leg);
+            duration += leg.getTotalTime();
+        }
+
+        // Sample
+        int samples = (int) Math.ceil(duration / kSAMPLE_PERIOD - kEPSILON) + 1;
+        double[] angles = new double[samples];
+        double[] extensions = new double[samples];
+
+        int leg = 0;
+        double legStart = 0.0;
+
+        for (int i = 0; i < samples; i++) {
+            double t = i * kSAMPLE_PERIOD;
+
+            while (leg < legs.size() - 1 && t >= legStart + legs.get(leg).getTotalTime()) {
+                legStart += legs.get(leg).getTotalTime();
+                leg++;
+            }
+
+            ArmState start = waypoints.get(leg);
+            ArmState end = waypoints.get(leg + 1);
+            double s = legs.get(leg).getPosition(t - legStart);
+
+            angles[i] = start.angle + (end.angle - start.angle) * s;
+            extensions[i] = start.extension + (end.extension - start.extension) * s;
+        }
+
+        return new ArmTrajectory(kSAMPLE_PERIOD, angles, extensions);
+    }
+
+    // Profile from 0 to 1 along a leg, so neither joint goes past its limits
+    private static SCurveProfile profile(ArmState start, ArmState end) {
+        double angle = Math.abs(end.angle - start.angle);
+        double ext = Math.abs(end.extension - start.extension);
+
+        double velocity = Math.min(scale(ArmConstants.kPLAN_ANGLE_VELOCITY, angle), scale(ArmConstants.kPLAN_EXT_VELOCITY, ext));
+        double accel = Math.min(scale(ArmConstants.kPLAN_ANGLE_ACCEL, angle), scale(ArmConstants.kPLAN_EXT_ACCEL, ext));
+        double jerk = Math.min(scale(ArmConstants.kPLAN_ANGLE_JERK, angle), scale(ArmConstants.kPLAN_EXT_JERK, ext));
+
+        return new SCurveProfile((angle > kEPSILON || ext > kEPSILON) ? 1.0 : 0.0, velocity, accel, jerk);
+    }
+
+    // Joint limit as a limit along a leg
+    private static double scale(double limit, double distance) { return (distance > kEPSILON) ? limit / distance : Double.POSITIVE_INFINITY; }
+}
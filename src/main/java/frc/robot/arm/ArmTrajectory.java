@@ -0,0 +1,69 @@
+package frc.robot.arm;
+
+import frc.robot.subsystems.Arm.ArmState;
+
+/**
+ * A planned arm move, sampled once a robot loop. Made by {@link ArmPlanner}, and can't be changed once it's made (so
+ * cached trajectories can be shared).<br><br>
+ * Extensions are joint to winch edge, like {@link frc.robot.subsystems.Arm#setExtension(double)}.
+ */
+public class ArmTrajectory {
+    // Samples
+    private final double period;
+    private final double[] angles;
+    private final double[] extensions;
+
+    /**
+     * Creates a trajectory
+     * @param period Time between samples (seconds)
+     * @param angles Angle of each sample (degrees)
+     * @param extensions Extension of each sample (inches)
+     */
+    ArmTrajectory(double period, double[] angles, double[] extensions) {
+        this.period = period;
+        this.angles = angles;
+        this.extensions = extensions;
+    }
+
+    // Interpolate between the samples around a time (holds the end after the trajectory is finished)
+    private double sample(double[] samples, double t) {
+        double index = Math.max(t / period, 0.0);
+        int i = (int) index;
+
+        if (i >= samples.length - 1) { return samples[samples.length - 1]; }
+        return samples[i] + (samples[i + 1] - samples[i]) * (index - i);
+    }
+
+    // Getters
+    /**
+     * @param t Time since the start (seconds)
+     * @return Angle at the time (degrees)
+     */
+    public double getAngle(double t) { return sample(angles, t); }
+
+    /**
+     * @param t Time since the start (seconds)
+     * @return Extension at the time (inches)
+     */
+    public double getExtension(double t) { return sample(extensions, t); }
+
+    /**
+     * @return Time the move takes (seconds)
+     */
+    public double getDuration() { return (angles.length - 1) * period; }
+
+    /**
+     * @return Number of samples
+     */
+    public int getSampleCount() { return angles.length; }
+
+    /**
+     * @return Where the move starts
+     */
+    public ArmState getStart() { return new ArmState(angles[0], extensions[0]); }
+
+    /**
+     * @return Where the move ends
+     */
+    public ArmState getEnd() { return new ArmState(angles[angles.length - 1], extensions[extensions.length - 1]); }
+}
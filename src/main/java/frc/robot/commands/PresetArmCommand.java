@@ -4,19 +4,38 @@
 
 package frc.robot.commands;
 
+import java.util.concurrent.CompletableFuture;
+
 import edu.wpi.first.math.geometry.Translation2d;
+import edu.wpi.first.wpilibj.DriverStation;
+import edu.wpi.first.wpilibj.Timer;
 import edu.wpi.first.wpilibj2.command.CommandBase;
+import frc.robot.arm.ArmPlanner;
+import frc.robot.arm.ArmTrajectory;
 import frc.robot.subsystems.Arm;
+import frc.robot.subsystems.Arm.ArmState;
 
-// TODO this is broken
+/**
+ * Moves the arm to a preset along a planned move (see {@link ArmPlanner}), then holds it there.<br><br>
+ * Moves from presets and from stow are cached. Others are planned in the background while the arm holds where it is,
+ * and start when they're ready (usually the next loop). When it ends, the arm holds its setpoint, so it can be moved
+ * back along a planned move too (see {@link StowArmCommand}).
+ */
 public class PresetArmCommand extends CommandBase {
     private Arm armSubsys;
+    private ArmPlanner planner;
     private Translation2d pos;
 
+    // Move
+    private ArmTrajectory trajectory;
+    private CompletableFuture<ArmTrajectory> planning; // Null if not planning
+    private double startTime;
+
     /** Creates a new PresetArmCommand. */
-    public PresetArmCommand(Arm armSubsystem, Translation2d pos) {
+    public PresetArmCommand(Arm armSubsystem, ArmPlanner planner, Translation2d pos) {
         armSubsys = armSubsystem;
 
+        this.planner = planner;
         this.pos = pos;
 
         addRequirements(armSubsys);
@@ -25,18 +44,68 @@ public class PresetArmCommand extends CommandBase {
     // Called when the command is initially scheduled.
     @Override
     public void initialize() {
-        armSubsys.setTarget(pos.getX(), pos.getY());
+        // Start from the setpoint the arm is driven to (or where it is, if it doesn't have one yet)
+        double angle = armSubsys.getAngleSetpoint();
+        double ext = armSubsys.getExtensionSetpoint();
+
+        if (Double.isNaN(angle) || Double.isNaN(ext)) {
+            angle = armSubsys.getAngleActual();
+            ext = armSubsys.getExtensionActual();
+        }
+
+        ArmState start = ArmPlanner.toState(ext, angle);
+        trajectory = planner.getCachedTrajectory(start, pos);
+        startTime = Timer.getFPGATimestamp();
+
+        if (trajectory == null) {
+            // Hold here until the move is planned
+            armSubsys.setAngle(start.angle);
+            armSubsys.setExtension(start.extension);
+            planning = planner.planInBackground(start, pos);
+        }
+    }
+
+    // Start the move once it's planned, or go straight there if there isn't a legal one (the arm still clamps it)
+    private void pollPlanning() {
+        if (!planning.isDone()) { return; }
+
+        trajectory = planning.isCompletedExceptionally() ? null : planning.join();
+        planning = null;
+        startTime = Timer.getFPGATimestamp();
+
+        if (trajectory == null) {
+            DriverStation.reportWarning(String.format("No legal arm move to %s, moving directly", pos), false);
+            ArmState target = ArmPlanner.toState(pos);
+            armSubsys.setAngle(target.angle);
+            armSubsys.setExtension(target.extension);
+        }
     }
 
     // Called every time the scheduler runs while the command is scheduled.
     @Override
-    public void execute() {}
+    public void execute() {
+        if (planning != null) { pollPlanning(); }
+        if (trajectory == null) { return; }
+
+        double t = Timer.getFPGATimestamp() - startTime;
+        armSubsys.setAngle(trajectory.getAngle(t));
+        armSubsys.setExtension(trajectory.getExtension(t));
+    }
+
+    /**
+     * @return Whether the arm has reached the end of its move (or has been sent straight there)
+     */
+    protected boolean isMoveFinished() {
+        return planning == null && (trajectory == null || Timer.getFPGATimestamp() - startTime >= trajectory.getDuration());
+    }
 
-    // Called once the command ends or is interrupted.
+    // Called once the command ends or is interrupted. The arm holds its setpoint.
     @Override
     public void end(boolean interrupted) {
-        armSubsys.setAngle(0.0);
-        armSubsys.setExtension(0.0);
+        if (planning != null) {
+            planning.cancel(false);
+            planning = null;
+        }
     }
 
     // Close other commands
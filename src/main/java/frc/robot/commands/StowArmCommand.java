@@ -0,0 +1,24 @@
+package frc.robot.commands;
+
+import frc.robot.Constants.ArmPositions;
+import frc.robot.arm.ArmPlanner;
+import frc.robot.subsystems.Arm;
+
+/**
+ * Moves the arm back to stow along a planned move (see {@link PresetArmCommand}), then finishes so the default
+ * command takes over. Any other command interrupts it.
+ */
+public class StowArmCommand extends PresetArmCommand {
+    // Constructor
+    public StowArmCommand(Arm armSubsystem, ArmPlanner planner) {
+        super(armSubsystem, planner, ArmPositions.kSTOW);
+    }
+
+    // Give priority to ALL other commands
+    @Override
+    public InterruptionBehavior getInterruptionBehavior() { return InterruptionBehavior.kCancelSelf; }
+
+    // Finished once the arm is stowed
+    @Override
+    public boolean isFinished() { return isMoveFinished(); }
+}
@@ -4,7 +4,7 @@
 
 package frc.robot.commands;
 
-import java.util.function.Supplier;
+import java.util.function.DoubleSupplier;
 
 import edu.wpi.first.wpilibj2.command.CommandBase;
 import frc.robot.subsystems.DriveBase;
@@ -16,12 +16,12 @@ public class TeleopDriveCommand extends CommandBase {
   // Subsystems
   private DriveBase base;
 
-  // Suppliers
-  private Supplier<Double> xSupply;
-  private Supplier<Double> ySupply;
-  private Supplier<Double> rSupply;
+  // Suppliers (primitive, so nothing is boxed every loop)
+  private DoubleSupplier xSupply;
+  private DoubleSupplier ySupply;
+  private DoubleSupplier rSupply;
 
-  public TeleopDriveCommand(DriveBase swerveSubsystem, Supplier<Double> xSupplier, Supplier<Double> ySupplier, Supplier<Double> rotSupplier) {
+  public TeleopDriveCommand(DriveBase swerveSubsystem, DoubleSupplier xSupplier, DoubleSupplier ySupplier, DoubleSupplier rotSupplier) {
     base = swerveSubsystem;
     xSupply = xSupplier;
     ySupply = ySupplier;
@@ -39,7 +39,7 @@ public class TeleopDriveCommand extends CommandBase {
   // Called every time the scheduler runs while the command is scheduled.
   @Override
   public void execute() {
-    base.driveRobotOriented(xSupply.get(), ySupply.get(), rSupply.get());
+    base.driveRobotOriented(xSupply.getAsDouble(), ySupply.getAsDouble(), rSupply.getAsDouble());
   }
 
   // Called once the command ends or is interrupted.
@@ -1,123 +1,165 @@
 package frc.robot.peripherals;
 
-import java.util.BitSet;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.Executors;
 import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongConsumer;
+
+import com.frc7153.logging.SignalRecorder;
+import com.frc7153.packets.BitFieldLayout;
 
 import edu.wpi.first.hal.CANData;
 import edu.wpi.first.wpilibj.CAN;
+import edu.wpi.first.wpilibj.DriverStation;
 import edu.wpi.first.wpilibj.Timer;
 
 /**
- * For communicating with the Raspberry Pi on the arm (over CAN bus)
+ * For communicating with the Raspberry Pi on the arm (over CAN bus).<br><br>
+ * A background thread checks for new status frames at a high rate, checks and decodes them with {@link ArmPIProtocol},
+ * and publishes each update as an {@link ArmPIStatus}. The getters all read from the latest status, so use
+ * {@code getStatus()} to read several values from the same update. Every target the Pi sees is published as an
+ * {@link ArmPITargets} table, which can choose the nearest target without allocating. The same thread sends a time-sync frame every second,
+ * so the Pi can say when each camera frame was captured.
  */
-public class ArmPI {
+public class ArmPI implements AutoCloseable {
+    // Config
+    private static final double kDEFAULT_POLL_PERIOD = 0.005; // Seconds
+    private static final double kSYNC_PERIOD = 1.0; // Seconds
+    private static final int[] kSTATUS_API_IDS = {
+        ArmPIProtocol.kLEGACY_API_ID, ArmPIProtocol.kFRAME_A_API_ID, ArmPIProtocol.kFRAME_B_API_ID,
+        ArmPIProtocol.kTARGET_API_ID, ArmPIProtocol.kTARGET_API_ID + 1,
+        ArmPIProtocol.kTARGET_API_ID + 2, ArmPIProtocol.kTARGET_API_ID + 3 // One for each of ArmPITargets.kCAPACITY
+    };
+
     // CAN objects
     private CAN pi = new CAN(19, 8, 10);
 
     // Threading
-    private ScheduledExecutorService CANRefreshExecutor = Executors.newSingleThreadScheduledExecutor();
-
-    // Retrieved Data
-    private String cache = "";
-    private boolean cache_hasTarget = false;
-    private int cache_xAngle = 0;
-    private int cache_yAngle = 0;
-    private int cache_dist = 0;
-    private boolean cache_target = false;
-    private boolean cache_ls = false;
-    private boolean cache_voltage = true;
-    private double cache_temp = 0.0;
-    private double cache_cpu = 0.0;
-    private double cache_mem = 0.0;
-    private int cache_fps = 0;
-    private double cache_age = 0.0;
+    private final ScheduledExecutorService CANRefreshExecutor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "ArmPI");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    // Retrieved Data (the protocol, CAN data and sync state are only used by the receive thread)
+    private final CANData canData = new CANData();
+    private final ArmPIProtocol protocol = new ArmPIProtocol();
+    private volatile ArmPIStatus status = ArmPIStatus.kEMPTY;
+    private volatile ArmPITargets targets = ArmPITargets.kEMPTY;
+
+    // Time Sync
+    private final byte[] syncData = new byte[8];
+    private double lastSync = Double.NEGATIVE_INFINITY;
+    private volatile LongConsumer syncListener = null;
+
+    // Frames injected for simulation ({apiId, frame})
+    private final Queue<long[]> injected = new ConcurrentLinkedQueue<>();
 
     /*
      * Creates object for communicating with the RaspberryPi on the arm.
      * This will automatically start receiving messages from it in a separate thread
      */
-    public ArmPI() {
-        CANRefreshExecutor.execute(new UpdateThread());
+    public ArmPI() { this(kDEFAULT_POLL_PERIOD); }
+
+    /**
+     * Creates object for communicating with the RaspberryPi on the arm.
+     * This will automatically start receiving messages from it in a separate thread
+     * @param pollPeriod How often to check for new packets (seconds)
+     */
+    public ArmPI(double pollPeriod) {
+        CANRefreshExecutor.scheduleAtFixedRate(this::receive, 0, (long) (pollPeriod * 1e6), TimeUnit.MICROSECONDS);
+
+        // Record
+        SignalRecorder.getInstance()
+            .addBoolean("ArmPI/Has Target", () -> status.hasTarget)
+            .addInteger("ArmPI/X Angle", () -> status.xAngle)
+            .addInteger("ArmPI/Y Angle", () -> status.yAngle)
+            .addInteger("ArmPI/Distance", () -> status.dist)
+            .addBoolean("ArmPI/Is Cone", () -> status.isCone)
+            .addInteger("ArmPI/Targets", () -> targets.getCount())
+            .addInteger("ArmPI/FPS", () -> status.fps)
+            .addDouble("ArmPI/Temp", () -> status.temp)
+            .addInteger("ArmPI/Sequence", () -> status.sequence)
+            .addDouble("ArmPI/Age", this::getAge)
+            .addInteger("ArmPI/Accepted", protocol::getAccepted)
+            .addInteger("ArmPI/Corrupt", protocol::getCorrupt)
+            .addInteger("ArmPI/Duplicate", protocol::getDuplicate)
+            .addInteger("ArmPI/Dropped", protocol::getDropped);
     }
 
-    // BitSet to Int
-    private static int bitsetToInt(BitSet set, int assumedLength) {
-        int val = 0;
+    // Check for new frames, and send a sync frame when it's time (runs on the receive thread)
+    private void receive() {
+        try {
+            double now = Timer.getFPGATimestamp();
 
-        for (int x = 0; x < assumedLength; x++) {
-            if (set.get(x)) {
-                val += Math.pow(2, (assumedLength - 1) - x);
+            if (now - lastSync >= kSYNC_PERIOD) {
+                lastSync = now;
+                sendSync(protocol.nextSync(now));
+            }
+
+            for (int apiId : kSTATUS_API_IDS) {
+                if (pi.readPacketNew(apiId, canData)) {
+                    publish(protocol.receive(apiId, canData.data, canData.length, now));
+                }
             }
-        }
 
-        return val;
+            for (long[] frame = injected.poll(); frame != null; frame = injected.poll()) {
+                publish(protocol.receive((int) frame[0], frame[1], now));
+            }
+        } catch (Exception e) {
+            // An exception would stop the executor from running this again
+            DriverStation.reportError(String.format("Could not read from ArmPI: %s", e), false);
+        }
     }
 
-    // BitSet to String
-    private static String bitsetToString(BitSet set) {
-        String str = "";
+    // Publish the update the last frame completed (if any), and the last finished target table
+    private void publish(ArmPIStatus update) {
+        if (update != null) { status = update; }
 
-        for (int x = 0; x < set.length(); x++) {
-            str += (set.get(x)) ? "1" : "0";
-        }
+        ArmPITargets table = protocol.pollTargets();
+        if (table != null) { targets = table; }
+    }
+
+    // Send a time-sync frame
+    private void sendSync(long frame) {
+        BitFieldLayout.toBytes(frame, syncData);
+        pi.writePacket(syncData, ArmPIProtocol.kSYNC_API_ID);
 
-        return str;
+        LongConsumer listener = syncListener;
+        if (listener != null) { listener.accept(frame); }
     }
 
-    // Refresh Thread
-    private class UpdateThread implements Runnable {
-        @Override
-        public void run() {
-            CANData canData = new CANData();
-            System.out.println(canData.data);
-
-            while (true) {
-                if (pi.readPacketNew(0b0000010000, canData)) {
-                    BitSet data = BitSet.valueOf(canData.data);
-
-                    // Reverse each byte individually
-                    for (int x = 0; x < 8; x++) {
-                        boolean[] newByte = new boolean[8];
-
-                        for (int b = 0; b < 8; b++) {
-                            newByte[b] = data.get((x*8) + (7 - b));
-                        }
-
-                        for (int b = 0; b < 8; b++) {
-                            data.set((x*8) + b, newByte[b]);
-                        }
-                    }
-
-                    cache = bitsetToString(data);
-
-                    // Parse data
-                    if (bitsetToInt(data.get(0, 16), 16) == 0) {
-                        cache_hasTarget = false;
-                    } else {
-                        cache_xAngle = bitsetToInt(data.get(1, 8), 7) * (data.get(0) ? 1 : -1);
-                        cache_yAngle = bitsetToInt(data.get(9, 16), 7) * (data.get(8) ? 1 : -1);
-                        cache_target = data.get(26);
-                        cache_hasTarget = true;
-                    }
-
-                    cache_dist = bitsetToInt(data.get(16, 26), 10);
-                    cache_ls = data.get(27);
-                    cache_voltage = data.get(28);
-                    cache_temp = bitsetToInt(data.get(29, 36), 7) * (9.0/5.0) + 32.0;
-                    cache_cpu = bitsetToInt(data.get(36, 43), 7) / 100.0;
-                    cache_mem = bitsetToInt(data.get(43, 50), 7) / 100.0;
-                    cache_fps = bitsetToInt(data.get(50, 56), 6);
-
-                    cache_age = Timer.getFPGATimestamp();
-
-                    // TODO wrong
-                    //System.out.println(cache_dist);
-                }
+    // Simulation
+    /**
+     * Handles a frame as if it was received from the Pi (on the next poll). This is used to run the protocol in
+     * simulation, with an {@link ArmPIEncoder} standing in for the Pi.
+     * @param apiId API ID the frame was sent on
+     * @param frame The frame (first byte is the most significant)
+     */
+    public void injectFrame(int apiId, long frame) { injected.add(new long[]{apiId, frame}); }
 
-                Timer.delay(0.05);
-            }
+    /**
+     * Sets something to be given every time-sync frame that is sent (for example, {@link ArmPIEncoder#receiveSync(long)})
+     * @param listener Called on the receive thread with each sync frame, or null for nothing
+     */
+    public void setSyncListener(LongConsumer listener) { syncListener = listener; }
+
+    /**
+     * Stops receiving packets and releases the CAN device
+     */
+    @Override
+    public void close() {
+        CANRefreshExecutor.shutdownNow();
+
+        try {
+            CANRefreshExecutor.awaitTermination(100, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
         }
+
+        pi.close();
     }
 
     // Run Command
@@ -147,68 +189,113 @@ public class ArmPI {
     public void shutdown() { pi.writePacket(new byte[]{}, 0b0000100100); }
 
     // Read Values (Getters)
+    /**
+     * Gets the latest status. Each status is from one packet, so values read from it are consistent.
+     * @return The latest status from the Pi
+     */
+    public ArmPIStatus getStatus() { return status; }
+
+    /**
+     * Gets every target the Pi saw in its latest camera frame. Choose a target from the table (for example, with
+     * {@code nearestToClaw()}) and read its values from the same table, so they are all from the same frame.
+     * @return The latest table of targets
+     */
+    public ArmPITargets getTargets() { return targets; }
+
     /**
      * @return The string value of the last update
      */
-    public String getCache() { return cache; }
+    public String getCache() { return ArmPIPacket.toBits(getStatus().raw); }
 
     /**
      * @return Whether the Pi sees a target
      */
-    public boolean hasTarget() { return cache_hasTarget; }
+    public boolean hasTarget() { return getStatus().hasTarget; }
 
     /**
      * @return The cached x value of the target (degrees)
      */
-    public int getXTargetAngle() { return cache_xAngle; }
+    public int getXTargetAngle() { return getStatus().xAngle; }
 
     /**
      * @return The cached y value of the target (degrees)
      */
-    public int getYTargetAngle() { return cache_yAngle; }
+    public int getYTargetAngle() { return getStatus().yAngle; }
 
     /**
      * @return The cached distance to the target (mm)
      */
-    public int getDistance() { return cache_dist; }
+    public int getDistance() { return getStatus().dist; }
     
     /**
      * @return Whether the the target is a cone (otherwise a cube)
      */
-    public boolean getIsCone() { return cache_target; }
+    public boolean getIsCone() { return getStatus().isCone; }
     
     /**
      * @return The cached value of the limit switch
      */
-    public boolean getLimitSwitch() { return cache_ls; }
+    public boolean getLimitSwitch() { return getStatus().limitSwitch; }
     
     /**
      * @return Whether the Pi has stable power input
      */
-    public boolean getVoltageStable() { return cache_voltage; }
+    public boolean getVoltageStable() { return getStatus().voltageStable; }
     
     /**
      * @return The cached CPU temp of the Pi (f)
      */
-    public double getTemp() { return cache_temp; }
+    public double getTemp() { return getStatus().temp; }
     
     /**
      * @return The cached CPU usage of the Pi (%)
      */
-    public double getCPU() { return cache_cpu; }
+    public double getCPU() { return getStatus().cpu; }
     
     /**
      * @return The cached memory usage of the Pi (5)
      */
-    public double getMemory() { return cache_mem; }
+    public double getMemory() { return getStatus().mem; }
     
     /**
      * @return The cached FPS being processed
      */
-    public int getFPS() { return cache_fps; }
+    public int getFPS() { return getStatus().fps; }
     
     /**
      * @return The age of the values in cache
      */
-    public double getAge() { return Timer.getFPGATimestamp() - cache_age; }
+    public double getAge() { return Timer.getFPGATimestamp() - getStatus().timestamp; }
+
+    /**
+     * @return Time from the camera frame being captured to the last packet being received (seconds, NaN if the Pi
+     * wasn't synced)
+     */
+    public double getLatency() { return getStatus().latency; }
+
+    /**
+     * @return Time from the camera frame being captured to now, or the age if the capture time isn't known (seconds)
+     */
+    public double getCaptureAge() { return Timer.getFPGATimestamp() - getStatus().getCaptureTimeOrTimestamp(); }
+
+    // Protocol Counters
+    /**
+     * @return Number of updates accepted
+     */
+    public long getAcceptedCount() { return protocol.getAccepted(); }
+
+    /**
+     * @return Number of updates with a bad CRC or version
+     */
+    public long getCorruptCount() { return protocol.getCorrupt(); }
+
+    /**
+     * @return Number of updates that were repeated or arrived late
+     */
+    public long getDuplicateCount() { return protocol.getDuplicate(); }
+
+    /**
+     * @return Number of updates that never arrived
+     */
+    public long getDroppedCount() { return protocol.getDropped(); }
 }
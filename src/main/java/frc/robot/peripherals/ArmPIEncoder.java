@@ -0,0 +1,103 @@
+package frc.robot.peripherals;
+
+import java.util.function.DoubleSupplier;
+
+/**
+ * Stands in for the Raspberry Pi on the arm, encoding updates the same way {@code buildFrames()} in RaspberryPi/comp/main.py
+ * does. This is for simulation and testing, so the protocol can be run without a Pi (for example, by sending the frames
+ * to {@link ArmPI#injectFrame(int, long)}).
+ */
+public class ArmPIEncoder {
+    /**
+     * Receives encoded frames
+     */
+    @FunctionalInterface
+    public interface FrameSink {
+        /**
+         * @param apiId API ID the frame is sent on
+         * @param frame The frame (first byte is the most significant)
+         */
+        void send(int apiId, long frame);
+    }
+
+    // Config
+    private final FrameSink sink;
+    private final DoubleSupplier clock;
+
+    // State
+    private int seq = 0;
+    private int syncSeq = 0;
+    private double syncTime = 0.0;
+
+    /**
+     * Creates a stand-in for the Pi
+     * @param sink Where frames are sent
+     * @param clock The Pi's clock (seconds, doesn't have to match FPGA time)
+     */
+    public ArmPIEncoder(FrameSink sink, DoubleSupplier clock) {
+        this.sink = sink;
+        this.clock = clock;
+    }
+
+    /**
+     * Handles a time-sync frame from the roboRIO (like {@code sync()} in main.py)
+     * @param frame The sync frame
+     */
+    public void receiveSync(long frame) {
+        syncSeq = ArmPIProtocol.kSYNC_SEQ.getInt(frame);
+        syncTime = clock.getAsDouble();
+    }
+
+    /**
+     * Encodes an update and sends all of its frames
+     * @param values Values to send
+     * @param targets Every target seen (or null for none)
+     * @param captureTime Time the camera frame was captured, on the Pi's clock (seconds)
+     * @return The sequence number of the update
+     */
+    public int send(ArmPIPacket values, ArmPITargets targets, double captureTime) {
+        int sent = seq;
+        int targetCount = (targets == null) ? 0 : targets.getCount();
+
+        long a = ArmPIProtocol.encodeA(values, seq, syncSeq, Math.round((captureTime - syncTime) * 1e6));
+        long b = ArmPIProtocol.encodeB(values, a, targetCount);
+
+        seq = (seq + 1) % (1 << ArmPIProtocol.kA_SEQ.getWidth());
+
+        sink.send(ArmPIProtocol.kFRAME_A_API_ID, a);
+        sink.send(ArmPIProtocol.kFRAME_B_API_ID, b);
+
+        for (int i = 0; i < targetCount; i++) {
+            sink.send(ArmPIProtocol.kTARGET_API_ID + i, ArmPIProtocol.encodeTarget(targets, i, sent));
+        }
+
+        return sent;
+    }
+
+    /**
+     * Encodes an update without any target frames and sends it
+     * @param values Values to send
+     * @param captureTime Time the camera frame was captured, on the Pi's clock (seconds)
+     * @return The sequence number of the update
+     */
+    public int send(ArmPIPacket values, double captureTime) { return send(values, null, captureTime); }
+
+    /**
+     * Sends an update captured now
+     * @param values Values to send
+     * @return The sequence number of the update
+     */
+    public int send(ArmPIPacket values) { return send(values, clock.getAsDouble()); }
+
+    /**
+     * Encodes an update as a version 1 packet and sends it (like the old {@code buildPacket()})
+     * @param values Values to send
+     */
+    public void sendLegacy(ArmPIPacket values) { sink.send(ArmPIProtocol.kLEGACY_API_ID, values.encode()); }
+
+    /**
+     * Skips sequence numbers, as if updates were lost on the way (for testing)
+     * @param count Number of updates to skip
+     */
+    public void skip(int count) { seq = (seq + count) % (1 << ArmPIProtocol.kA_SEQ.getWidth()); }
+}
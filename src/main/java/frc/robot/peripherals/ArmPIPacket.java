@@ -0,0 +1,146 @@
+package frc.robot.peripherals;
+
+import java.util.zip.CRC32;
+
+import com.frc7153.packets.BitField;
+import com.frc7153.packets.BitFieldLayout;
+
+/**
+ * Decodes the status packets the Raspberry Pi on the arm sends over CAN (see {@code buildPacket()} in RaspberryPi/comp/main.py).<br><br>
+ * The packet is read into a {@code long}, and each field is read from it with a shift and a mask, so decoding doesn't
+ * allocate anything. The object is reused for every packet. The target angles are only updated when the Pi sees a target,
+ * so they keep their last value otherwise.
+ */
+public class ArmPIPacket {
+    // Layout (same order as buildPacket(), most significant bit first)
+    private static final BitFieldLayout kLAYOUT = new BitFieldLayout(64);
+    private static final BitField kX_POSITIVE = kLAYOUT.field(1);
+    private static final BitField kX = kLAYOUT.field(7);
+    private static final BitField kY_POSITIVE = kLAYOUT.field(1);
+    private static final BitField kY = kLAYOUT.field(7);
+    private static final BitField kDIST = kLAYOUT.field(10);
+    private static final BitField kIS_CONE = kLAYOUT.field(1);
+    private static final BitField kLIMIT_SWITCH = kLAYOUT.field(1);
+    private static final BitField kVOLTAGE_STABLE = kLAYOUT.field(1);
+    private static final BitField kTEMP = kLAYOUT.field(7); // Celsius
+    private static final BitField kCPU = kLAYOUT.field(7); // Percent
+    private static final BitField kMEM = kLAYOUT.field(7); // Percent
+    private static final BitField kFPS = kLAYOUT.field(6);
+    private static final BitField kCRC = kLAYOUT.field(8);
+
+    private static final BitField kTARGET = new BitFieldLayout(64).field(16); // Both angles, all zero if there is no target
+
+    // Raw Packet
+    public long raw = 0;
+
+    // Decoded Values
+    public boolean hasTarget = false;
+    public int xAngle = 0;
+    public int yAngle = 0;
+    public int dist = 0;
+    public boolean isCone = false;
+    public boolean limitSwitch = false;
+    public boolean voltageStable = true;
+    public double temp = 0.0;
+    public double cpu = 0.0;
+    public double mem = 0.0;
+    public int fps = 0;
+
+    // CRC
+    private final CRC32 crc = new CRC32();
+    private final byte[] crcBytes = new byte[8];
+
+    /**
+     * Decodes a packet into this object
+     * @param packet The bytes received from the Pi (8 bytes)
+     */
+    public void decode(byte[] packet) { decode(BitFieldLayout.fromBytes(packet, packet.length)); }
+
+    /**
+     * Decodes a packet into this object
+     * @param packet The packet (first byte is the most significant)
+     */
+    public void decode(long packet) {
+        raw = packet;
+
+        if (kTARGET.get(packet) == 0) {
+            hasTarget = false;
+        } else {
+            xAngle = kX.getInt(packet) * (kX_POSITIVE.getBoolean(packet) ? 1 : -1);
+            yAngle = kY.getInt(packet) * (kY_POSITIVE.getBoolean(packet) ? 1 : -1);
+            isCone = kIS_CONE.getBoolean(packet);
+            hasTarget = true;
+        }
+
+        dist = kDIST.getInt(packet);
+        limitSwitch = kLIMIT_SWITCH.getBoolean(packet);
+        voltageStable = kVOLTAGE_STABLE.getBoolean(packet);
+        temp = kTEMP.get(packet) * (9.0/5.0) + 32.0;
+        cpu = kCPU.get(packet) / 100.0;
+        mem = kMEM.get(packet) / 100.0;
+        fps = kFPS.getInt(packet);
+    }
+
+    /**
+     * Encodes the values in this object the same way {@code buildPacket()} does (for simulation and testing).
+     * Values that don't fit are cut off like Python's {@code toBinary()} does.
+     * @return The packet (first byte is the most significant)
+     */
+    public long encode() {
+        long packet = 0;
+
+        if (hasTarget) {
+            packet = kX_POSITIVE.set(packet, xAngle > 0);
+            packet = kX.set(packet, toBinary(Math.abs(xAngle), kX));
+            packet = kY_POSITIVE.set(packet, yAngle > 0);
+            packet = kY.set(packet, toBinary(Math.abs(yAngle), kY));
+        }
+
+        packet = kDIST.set(packet, toBinary(dist, kDIST));
+        packet = kIS_CONE.set(packet, isCone);
+        packet = kLIMIT_SWITCH.set(packet, limitSwitch);
+        packet = kVOLTAGE_STABLE.set(packet, voltageStable);
+        packet = kTEMP.set(packet, toBinary((long) ((temp - 32.0) * (5.0/9.0) + 1e-9), kTEMP));
+        packet = kCPU.set(packet, toBinary(Math.round(cpu * 100.0), kCPU));
+        packet = kMEM.set(packet, toBinary(Math.round(mem * 100.0), kMEM));
+        packet = kFPS.set(packet, toBinary(fps, kFPS));
+
+        return kCRC.set(packet, crc(packet));
+    }
+
+    /**
+     * Checks the CRC at the end of a packet
+     * @param packet The packet (first byte is the most significant)
+     * @return Whether the CRC matches the rest of the packet
+     */
+    public boolean checkCRC(long packet) { return kCRC.get(packet) == crc(packet); }
+
+    // CRC32 of the first 7 bytes, cut off like buildPacket() does
+    private long crc(long packet) {
+        BitFieldLayout.toBytes(packet, crcBytes);
+        crc.reset();
+        crc.update(crcBytes, 0, 7);
+
+        return toBinary(crc.getValue(), kCRC);
+    }
+
+    // Python's toBinary() keeps the most significant bits of values that are too big
+    private static long toBinary(long value, BitField field) {
+        int bits = 64 - Long.numberOfLeadingZeros(value);
+        return (bits > field.getWidth()) ? value >>> (bits - field.getWidth()) : value;
+    }
+
+    /**
+     * @return The raw packet as a string of bits (allocates, only for display)
+     */
+    public String getBits() { return toBits(raw); }
+
+    /**
+     * @param packet A raw packet
+     * @return The packet as a string of bits (allocates, only for display)
+     */
+    public static String toBits(long packet) {
+        String bits = Long.toBinaryString(packet);
+        return "0".repeat(64 - bits.length()) + bits;
+    }
+}
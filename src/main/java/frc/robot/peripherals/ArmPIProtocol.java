@@ -0,0 +1,436 @@
+package frc.robot.peripherals;
+
+import java.util.Arrays;
+
+import com.frc7153.packets.BitField;
+import com.frc7153.packets.BitFieldLayout;
+import com.frc7153.packets.CRC8;
+
+/**
+ * Receives the status frames the Raspberry Pi on the arm sends, and checks them (see the CAN API in RaspberryPi/README.md).<br><br>
+ * Version 2 splits each update into two frames (A and B) with the same sequence number. They are put back together,
+ * and the CRC-8 across both is checked before the update is accepted. Each update also has the time it was captured,
+ * as an offset from the last time-sync frame the Pi got from the roboRIO, so it can be turned into FPGA time here.
+ * Every target the Pi sees (up to {@code ArmPITargets.kCAPACITY}) is also sent in its own frame, each with its own CRC-8,
+ * and the frames with the same sequence number are put back together into an {@link ArmPITargets} table.
+ * Version 1 packets (one frame, truncated CRC32) are still accepted, but have no sequence number or capture time.<br><br>
+ * This is not thread safe. It should only be used by the receive thread, but the counters can be read from any thread.
+ */
+public class ArmPIProtocol {
+    // API IDs (class 1 is sent by the Pi, class 2 by the roboRIO)
+    public static final int kLEGACY_API_ID = 0b0000010000; // Class 1, index 0
+    public static final int kFRAME_A_API_ID = 0b0000010001; // Class 1, index 1
+    public static final int kFRAME_B_API_ID = 0b0000010010; // Class 1, index 2
+    public static final int kTARGET_API_ID = 0b0000010011; // Class 1, index 3 (first target, the rest follow)
+    public static final int kSYNC_API_ID = 0b0000100110; // Class 2, index 6
+
+    public static final int kVERSION = 2;
+    public static final int kFRAME_LENGTH = 8; // Bytes (every frame is full, so shorter ones are cut off)
+
+    // Frame A
+    static final BitFieldLayout kA_LAYOUT = new BitFieldLayout(64);
+    static final BitField kA_VERSION = kA_LAYOUT.field(4);
+    static final BitField kA_SEQ = kA_LAYOUT.field(12);
+    static final BitField kA_SYNC_SEQ = kA_LAYOUT.field(8); // 0 if the Pi hasn't been synced
+    static final BitField kA_CAPTURE_OFFSET = kA_LAYOUT.field(24); // Microseconds after the sync was received
+    static final BitField kA_X_POSITIVE = kA_LAYOUT.field(1);
+    static final BitField kA_X = kA_LAYOUT.field(7);
+    static final BitField kA_Y_POSITIVE = kA_LAYOUT.field(1);
+    static final BitField kA_Y = kA_LAYOUT.field(7);
+
+    // Frame B
+    static final BitFieldLayout kB_LAYOUT = new BitFieldLayout(64);
+    static final BitField kB_SEQ = kB_LAYOUT.field(12);
+    static final BitField kB_HAS_TARGET = kB_LAYOUT.field(1);
+    static final BitField kB_IS_CONE = kB_LAYOUT.field(1);
+    static final BitField kB_LIMIT_SWITCH = kB_LAYOUT.field(1);
+    static final BitField kB_VOLTAGE_STABLE = kB_LAYOUT.field(1);
+    static final BitField kB_DIST = kB_LAYOUT.field(10);
+    static final BitField kB_TEMP = kB_LAYOUT.field(7); // Celsius
+    static final BitField kB_CPU = kB_LAYOUT.field(7); // Percent
+    static final BitField kB_MEM = kB_LAYOUT.field(7); // Percent
+    static final BitField kB_FPS = kB_LAYOUT.field(6);
+    static final BitField kB_TARGET_COUNT = kB_LAYOUT.field(3); // Number of target frames sent with this update
+    static final BitField kB_CRC = kB_LAYOUT.field(8); // CRC-8 of frame A and the rest of frame B
+
+    // Target Frame (one for each target, on kTARGET_API_ID + index)
+    static final BitFieldLayout kT_LAYOUT = new BitFieldLayout(64);
+    static final BitField kT_SEQ = kT_LAYOUT.field(12);
+    static final BitField kT_COUNT = kT_LAYOUT.field(3); // Number of targets in the update
+    static final BitField kT_IS_CONE = kT_LAYOUT.field(1);
+    static final BitField kT_X_POSITIVE = kT_LAYOUT.field(1);
+    static final BitField kT_X = kT_LAYOUT.field(7);
+    static final BitField kT_Y_POSITIVE = kT_LAYOUT.field(1);
+    static final BitField kT_Y = kT_LAYOUT.field(7);
+    static final BitField kT_AREA = kT_LAYOUT.field(10); // Tenths of a percent of the image
+    static final BitField kT_DIST = kT_LAYOUT.field(10); // mm, 0 if unknown
+    static final BitField kT_RESERVED = kT_LAYOUT.field(4);
+    static final BitField kT_CRC = kT_LAYOUT.field(8); // CRC-8 of the rest of the frame
+
+    // Sync Frame
+    static final BitFieldLayout kSYNC_LAYOUT = new BitFieldLayout(64);
+    static final BitField kSYNC_SEQ = kSYNC_LAYOUT.field(8); // 1 - 255
+    static final BitField kSYNC_TIME = kSYNC_LAYOUT.field(56); // FPGA time (microseconds, for debugging)
+
+    // Sequence numbers
+    private static final int kSEQ_MODULO = 1 << kA_SEQ.getWidth();
+    private static final int kMAX_LATE = 16; // Sequence numbers further back than this mean the Pi restarted
+
+    // Decoding
+    private final ArmPIPacket packet = new ArmPIPacket();
+
+    private long frameA, frameB;
+    private boolean hasFrameA = false, hasFrameB = false;
+    private int lastSeq = -1;
+    private final boolean[] corruptSeqs = new boolean[kSEQ_MODULO]; // Updates after lastSeq already counted as corrupt
+
+    // Targets (the table being put back together, and the last one finished)
+    private final ArmPITargets targets = new ArmPITargets();
+    private int targetsExpected = 0;
+    private int targetsReceived = 0; // Bit for each index
+    private int lastTargetSeq = -1;
+    private ArmPITargets finishedTargets = null;
+
+    // Time Sync (FPGA time each sync frame was sent, by sequence number)
+    private final double[] syncTimes = new double[256];
+    private int syncSeq = 0;
+
+    // Counters (only changed by the receive thread)
+    private volatile long accepted = 0;
+    private volatile long corrupt = 0;
+    private volatile long duplicate = 0;
+    private volatile long dropped = 0;
+
+    /**
+     * Creates the receiving side of the protocol
+     */
+    public ArmPIProtocol() { Arrays.fill(syncTimes, Double.NaN); }
+
+    // Receive
+    /**
+     * Handles a frame from the Pi, as received from CAN
+     * @param apiId API ID the frame was received on
+     * @param data The frame's bytes
+     * @param length Number of bytes received (frames that aren't {@code kFRAME_LENGTH} long are counted as corrupt)
+     * @param now FPGA time the frame was received (seconds)
+     * @return A status, if this frame completed an update that was accepted. Otherwise, null.
+     */
+    public ArmPIStatus receive(int apiId, byte[] data, int length, double now) {
+        // The missing bytes would read as zeros, which can still pass the CRC
+        if (length != kFRAME_LENGTH) {
+            corrupt++;
+            return null;
+        }
+
+        return receive(apiId, BitFieldLayout.fromBytes(data, length), now);
+    }
+
+    /**
+     * Handles a frame from the Pi
+     * @param apiId API ID the frame was received on
+     * @param frame The frame (first byte is the most significant)
+     * @param now FPGA time the frame was received (seconds)
+     * @return A status, if this frame completed an update that was accepted. Otherwise, null.
+     */
+    public ArmPIStatus receive(int apiId, long frame, double now) {
+        switch (apiId) {
+            case kFRAME_A_API_ID:
+                frameA = frame;
+                hasFrameA = true;
+                break;
+            case kFRAME_B_API_ID:
+                frameB = frame;
+                hasFrameB = true;
+                break;
+            case kLEGACY_API_ID:
+                return receiveLegacy(frame, now);
+            default:
+                int index = apiId - kTARGET_API_ID;
+                if (index >= 0 && index < ArmPITargets.kCAPACITY) { receiveTarget(index, frame, now); }
+                return null;
+        }
+
+        // Wait until both halves of the same update are here
+        if (!hasFrameA || !hasFrameB || kA_SEQ.getInt(frameA) != kB_SEQ.getInt(frameB)) { return null; }
+        hasFrameA = false;
+        hasFrameB = false;
+
+        // Check (both halves had the same sequence number, so remember it wasn't dropped)
+        int seq = kA_SEQ.getInt(frameA);
+
+        if (kA_VERSION.getInt(frameA) != kVERSION || kB_CRC.getInt(frameB) != crc(frameA, frameB)) {
+            corrupt++;
+            if (lastSeq < 0 || !isOld(seq, lastSeq)) { corruptSeqs[seq] = true; }
+            return null;
+        }
+
+        if (!checkSequence(seq)) { return null; }
+
+        // Decode
+        decode(frameA, frameB, packet);
+        accepted++;
+
+        // Nothing else is coming if there are no targets
+        if (kB_TARGET_COUNT.getInt(frameB) == 0) { finishTargets(targets.clear(seq, now)); }
+
+        return new ArmPIStatus(packet, now, seq, getCaptureTime(frameA, now));
+    }
+
+    // Version 1 packet
+    private ArmPIStatus receiveLegacy(long frame, double now) {
+        if (!packet.checkCRC(frame)) {
+            corrupt++;
+            return null;
+        }
+
+        packet.decode(frame);
+        accepted++;
+
+        return new ArmPIStatus(packet, now, -1, Double.NaN);
+    }
+
+    // Target frame
+    private void receiveTarget(int index, long frame, double now) {
+        if (kT_CRC.getInt(frame) != CRC8.update(0, frame, 7)) {
+            corrupt++;
+            return;
+        }
+
+        int seq = kT_SEQ.getInt(frame);
+
+        // Start a new table (or ignore the frame, if that table was already finished)
+        if (seq != targets.getSequence() || targetsExpected == 0) {
+            if (lastTargetSeq >= 0 && isOld(seq, lastTargetSeq)) { return; }
+
+            targets.clear(seq, now);
+            targetsExpected = Math.min(kT_COUNT.getInt(frame), ArmPITargets.kCAPACITY);
+            targetsReceived = 0;
+        }
+
+        targets.set(
+            index,
+            kT_IS_CONE.getBoolean(frame),
+            kT_X.getInt(frame) * (kT_X_POSITIVE.getBoolean(frame) ? 1 : -1),
+            kT_Y.getInt(frame) * (kT_Y_POSITIVE.getBoolean(frame) ? 1 : -1),
+            kT_AREA.get(frame) / 1000.0,
+            kT_DIST.getInt(frame)
+        );
+        targetsReceived |= 1 << index;
+
+        if (targetsReceived == (1 << targetsExpected) - 1) { finishTargets(targets); }
+    }
+
+    // Publish a copy of a finished table
+    private void finishTargets(ArmPITargets table) {
+        if (lastTargetSeq >= 0 && isOld(table.getSequence(), lastTargetSeq)) { return; }
+
+        finishedTargets = new ArmPITargets(table);
+        lastTargetSeq = table.getSequence();
+        targetsExpected = 0;
+    }
+
+    /**
+     * Gets the target table finished by the last call to {@code receive()}, if any
+     * @return The table (not changed after this), or null if none was finished
+     */
+    public ArmPITargets pollTargets() {
+        ArmPITargets finished = finishedTargets;
+        finishedTargets = null;
+        return finished;
+    }
+
+    // Whether a sequence number is the same as or a little before another
+    private static boolean isOld(int seq, int last) {
+        int ahead = Math.floorMod(seq - last, kSEQ_MODULO);
+        return ahead == 0 || kSEQ_MODULO - ahead <= kMAX_LATE;
+    }
+
+    // Counts repeated and skipped sequence numbers, returns whether the update is new
+    private boolean checkSequence(int seq) {
+        if (lastSeq < 0) {
+            lastSeq = seq;
+            return true;
+        }
+
+        if (isOld(seq, lastSeq)) {
+            // Seen already, or older than the last one
+            duplicate++;
+            return false;
+        }
+
+        int ahead = Math.floorMod(seq - lastSeq, kSEQ_MODULO);
+
+        // Updates in between were lost, except ones counted as corrupt (unless the Pi restarted, then it's too far back to tell)
+        if (ahead < kSEQ_MODULO / 2) {
+            for (int i = 1; i < ahead; i++) {
+                int skipped = (lastSeq + i) % kSEQ_MODULO;
+
+                if (corruptSeqs[skipped]) {
+                    corruptSeqs[skipped] = false;
+                } else {
+                    dropped++;
+                }
+            }
+        } else {
+            Arrays.fill(corruptSeqs, false);
+        }
+
+        corruptSeqs[seq] = false;
+        lastSeq = seq;
+        return true;
+    }
+
+    // Capture time in FPGA time (NaN if the Pi hasn't been synced, or the sync is too old)
+    private double getCaptureTime(long a, double now) {
+        int seq = kA_SYNC_SEQ.getInt(a);
+        long offset = kA_CAPTURE_OFFSET.get(a);
+
+        if (seq == 0 || offset == kA_CAPTURE_OFFSET.getMax() || Double.isNaN(syncTimes[seq])) { return Double.NaN; }
+
+        // Can't be captured after it was received
+        return Math.min(syncTimes[seq] + offset / 1e6, now);
+    }
+
+    // Time Sync
+    /**
+     * Makes the next time-sync frame, and remembers when it was sent
+     * @param now FPGA time the frame will be sent (seconds)
+     * @return The frame, to be sent on {@code kSYNC_API_ID}
+     */
+    public long nextSync(double now) {
+        syncSeq = (syncSeq % 255) + 1; // 0 means not synced
+        syncTimes[syncSeq] = now;
+
+        long frame = kSYNC_SEQ.set(0, syncSeq);
+        return kSYNC_TIME.set(frame, (long) (now * 1e6));
+    }
+
+    // Encoding and Decoding
+    /**
+     * Encodes frame A of an update
+     * @param values Values to send
+     * @param seq Sequence number of the update
+     * @param syncSeq Sequence number of the last sync frame received (0 if none)
+     * @param captureOffset Time from that sync frame being received to the camera frame being captured (microseconds)
+     * @return Frame A
+     */
+    static long encodeA(ArmPIPacket values, int seq, int syncSeq, long captureOffset) {
+        long a = kA_VERSION.set(0, kVERSION);
+        a = kA_SEQ.set(a, seq);
+
+        if (syncSeq != 0) {
+            a = kA_SYNC_SEQ.set(a, syncSeq);
+            a = kA_CAPTURE_OFFSET.set(a, clamp(captureOffset, kA_CAPTURE_OFFSET));
+        }
+
+        if (values.hasTarget) {
+            a = kA_X_POSITIVE.set(a, values.xAngle > 0);
+            a = kA_X.set(a, clamp(Math.abs(values.xAngle), kA_X));
+            a = kA_Y_POSITIVE.set(a, values.yAngle > 0);
+            a = kA_Y.set(a, clamp(Math.abs(values.yAngle), kA_Y));
+        }
+
+        return a;
+    }
+
+    /**
+     * Encodes frame B of an update
+     * @param values Values to send
+     * @param a Frame A of the same update
+     * @param targetCount Number of target frames sent with the update
+     * @return Frame B
+     */
+    static long encodeB(ArmPIPacket values, long a, int targetCount) {
+        long b = kB_SEQ.set(0, kA_SEQ.get(a));
+        b = kB_HAS_TARGET.set(b, values.hasTarget);
+        b = kB_IS_CONE.set(b, values.isCone);
+        b = kB_LIMIT_SWITCH.set(b, values.limitSwitch);
+        b = kB_VOLTAGE_STABLE.set(b, values.voltageStable);
+        b = kB_DIST.set(b, clamp(values.dist, kB_DIST));
+        b = kB_TEMP.set(b, clamp((long) ((values.temp - 32.0) * (5.0/9.0) + 1e-9), kB_TEMP));
+        b = kB_CPU.set(b, clamp(Math.round(values.cpu * 100.0), kB_CPU));
+        b = kB_MEM.set(b, clamp(Math.round(values.mem * 100.0), kB_MEM));
+        b = kB_FPS.set(b, clamp(values.fps, kB_FPS));
+        b = kB_TARGET_COUNT.set(b, clamp(targetCount, kB_TARGET_COUNT));
+
+        return kB_CRC.set(b, crc(a, b));
+    }
+
+    /**
+     * Encodes the frame for one target
+     * @param targets Table of targets
+     * @param index Index of the target to encode
+     * @param seq Sequence number of the update
+     * @return The frame, to be sent on {@code kTARGET_API_ID + index}
+     */
+    static long encodeTarget(ArmPITargets targets, int index, int seq) {
+        long t = kT_SEQ.set(0, seq);
+        t = kT_COUNT.set(t, clamp(targets.getCount(), kT_COUNT));
+        t = kT_IS_CONE.set(t, targets.isCone(index));
+        t = kT_X_POSITIVE.set(t, targets.getXAngle(index) > 0);
+        t = kT_X.set(t, clamp(Math.abs(targets.getXAngle(index)), kT_X));
+        t = kT_Y_POSITIVE.set(t, targets.getYAngle(index) > 0);
+        t = kT_Y.set(t, clamp(Math.abs(targets.getYAngle(index)), kT_Y));
+        t = kT_AREA.set(t, clamp(Math.round(targets.getArea(index) * 1000.0), kT_AREA));
+        t = kT_DIST.set(t, clamp(targets.getDistance(index), kT_DIST));
+
+        return kT_CRC.set(t, CRC8.update(0, t, 7));
+    }
+
+    // Values that don't fit are sent as the largest value that does (unlike version 1, which cuts them off)
+    private static long clamp(long value, BitField field) { return Math.max(0, Math.min(value, field.getMax())); }
+
+    /**
+     * Calculates the CRC of an update
+     * @param a Frame A
+     * @param b Frame B (the CRC field is not included)
+     * @return The CRC-8
+     */
+    static int crc(long a, long b) { return CRC8.update(CRC8.update(0, a, 8), b, 7); }
+
+    /**
+     * Decodes an update into a packet. The target angles and type are only updated if there is a target.
+     * @param a Frame A
+     * @param b Frame B
+     * @param packet Packet to decode into
+     */
+    static void decode(long a, long b, ArmPIPacket packet) {
+        packet.raw = a;
+        packet.hasTarget = kB_HAS_TARGET.getBoolean(b);
+
+        if (packet.hasTarget) {
+            packet.xAngle = kA_X.getInt(a) * (kA_X_POSITIVE.getBoolean(a) ? 1 : -1);
+            packet.yAngle = kA_Y.getInt(a) * (kA_Y_POSITIVE.getBoolean(a) ? 1 : -1);
+            packet.isCone = kB_IS_CONE.getBoolean(b);
+        }
+
+        packet.dist = kB_DIST.getInt(b);
+        packet.limitSwitch = kB_LIMIT_SWITCH.getBoolean(b);
+        packet.voltageStable = kB_VOLTAGE_STABLE.getBoolean(b);
+        packet.temp = kB_TEMP.get(b) * (9.0/5.0) + 32.0;
+        packet.cpu = kB_CPU.get(b) / 100.0;
+        packet.mem = kB_MEM.get(b) / 100.0;
+        packet.fps = kB_FPS.getInt(b);
+    }
+
+    // Counters
+    /**
+     * @return Number of updates accepted
+     */
+    public long getAccepted() { return accepted; }
+
+    /**
+     * @return Number of updates with a bad CRC or version
+     */
+    public long getCorrupt() { return corrupt; }
+
+    /**
+     * @return Number of updates that were repeated, or arrived after a newer one
+     */
+    public long getDuplicate() { return duplicate; }
+
+    /**
+     * @return Number of updates that never arrived (from gaps in the sequence numbers)
+     */
+    public long getDropped() { return dropped; }
+}
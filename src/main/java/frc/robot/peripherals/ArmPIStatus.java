@@ -0,0 +1,68 @@
+package frc.robot.peripherals;
+
+/**
+ * One status update from the Raspberry Pi on the arm. This can't be changed once it's made, so the receive thread can
+ * hand it to the main thread all at once, and every value read from it comes from the same packet.
+ */
+public class ArmPIStatus {
+    // No packet received yet
+    public static final ArmPIStatus kEMPTY = new ArmPIStatus(new ArmPIPacket(), 0.0, -1, Double.NaN);
+
+    // Values
+    public final long raw;
+    public final boolean hasTarget;
+    public final int xAngle; // Degrees
+    public final int yAngle; // Degrees
+    public final int dist; // mm
+    public final boolean isCone;
+    public final boolean limitSwitch;
+    public final boolean voltageStable;
+    public final double temp; // F
+    public final double cpu; // 0 - 1
+    public final double mem; // 0 - 1
+    public final int fps;
+
+    /** FPGA time the packet was received (seconds) */
+    public final double timestamp;
+
+    /** Sequence number of the update (-1 for version 1 packets, which don't have one) */
+    public final int sequence;
+
+    /** FPGA time the camera frame was captured (seconds, NaN if the Pi wasn't synced) */
+    public final double captureTime;
+
+    /** Time from the camera frame being captured to the packet being received (seconds, NaN if the Pi wasn't synced) */
+    public final double latency;
+
+    /**
+     * Copies the values of a decoded packet
+     * @param packet The decoded packet
+     * @param timestamp FPGA time the packet was received (seconds)
+     * @param sequence Sequence number of the update (-1 if it doesn't have one)
+     * @param captureTime FPGA time the camera frame was captured (seconds, NaN if unknown)
+     */
+    public ArmPIStatus(ArmPIPacket packet, double timestamp, int sequence, double captureTime) {
+        raw = packet.raw;
+        hasTarget = packet.hasTarget;
+        xAngle = packet.xAngle;
+        yAngle = packet.yAngle;
+        dist = packet.dist;
+        isCone = packet.isCone;
+        limitSwitch = packet.limitSwitch;
+        voltageStable = packet.voltageStable;
+        temp = packet.temp;
+        cpu = packet.cpu;
+        mem = packet.mem;
+        fps = packet.fps;
+
+        this.timestamp = timestamp;
+        this.sequence = sequence;
+        this.captureTime = captureTime;
+        latency = timestamp - captureTime;
+    }
+
+    /**
+     * @return FPGA time the camera frame was captured, or the time it was received if that isn't known (seconds)
+     */
+    public double getCaptureTimeOrTimestamp() { return Double.isNaN(captureTime) ? timestamp : captureTime; }
+}
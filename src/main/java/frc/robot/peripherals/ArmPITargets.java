@@ -0,0 +1,205 @@
+package frc.robot.peripherals;
+
+/**
+ * The targets the Raspberry Pi on the arm saw in one camera frame (up to {@code kCAPACITY}, largest first). Values are
+ * kept in fixed-size primitive arrays and selected by index, so nothing is allocated when reading or choosing a target.
+ * <br><br>
+ * Tables from {@link ArmPI#getTargets()} are never changed after they are published, so every value read from one comes
+ * from the same camera frame.
+ */
+public class ArmPITargets {
+    // Config
+    public static final int kCAPACITY = 4;
+
+    // No targets received yet
+    public static final ArmPITargets kEMPTY = new ArmPITargets();
+
+    // Targets
+    private final boolean[] isCone = new boolean[kCAPACITY];
+    private final int[] xAngle = new int[kCAPACITY]; // Degrees
+    private final int[] yAngle = new int[kCAPACITY]; // Degrees
+    private final double[] area = new double[kCAPACITY]; // 0 - 1 of the image
+    private final int[] dist = new int[kCAPACITY]; // mm, 0 if unknown
+    private int count = 0;
+
+    // Frame
+    private int sequence = -1;
+    private double timestamp = 0.0;
+
+    /**
+     * Creates an empty table
+     */
+    public ArmPITargets() {}
+
+    /**
+     * Copies a table
+     * @param other Table to copy
+     */
+    public ArmPITargets(ArmPITargets other) {
+        System.arraycopy(other.isCone, 0, isCone, 0, kCAPACITY);
+        System.arraycopy(other.xAngle, 0, xAngle, 0, kCAPACITY);
+        System.arraycopy(other.yAngle, 0, yAngle, 0, kCAPACITY);
+        System.arraycopy(other.area, 0, area, 0, kCAPACITY);
+        System.arraycopy(other.dist, 0, dist, 0, kCAPACITY);
+        count = other.count;
+        sequence = other.sequence;
+        timestamp = other.timestamp;
+    }
+
+    // Modify (only before the table is published)
+    /**
+     * Empties the table
+     * @param sequence Sequence number of the update the targets are from
+     * @param timestamp FPGA time the targets were received (seconds)
+     * @return This object (modifications are done in place)
+     */
+    public ArmPITargets clear(int sequence, double timestamp) {
+        count = 0;
+        this.sequence = sequence;
+        this.timestamp = timestamp;
+        return this;
+    }
+
+    /**
+     * Sets a target. Targets after the current count are added, and the count grows to include them.
+     * @param index Index of the target (0 - {@code kCAPACITY - 1})
+     * @param isCone Whether the target is a cone (otherwise a cube)
+     * @param xAngle X angle of the target center (degrees)
+     * @param yAngle Y angle of the target center (degrees)
+     * @param area Area of the target (0 - 1 of the image)
+     * @param dist Distance to the target (mm, 0 if unknown)
+     * @return This object (modifications are done in place)
+     */
+    public ArmPITargets set(int index, boolean isCone, int xAngle, int yAngle, double area, int dist) {
+        this.isCone[index] = isCone;
+        this.xAngle[index] = xAngle;
+        this.yAngle[index] = yAngle;
+        this.area[index] = area;
+        this.dist[index] = dist;
+        count = Math.max(count, index + 1);
+        return this;
+    }
+
+    /**
+     * Adds a target to the end of the table
+     * @param isCone Whether the target is a cone (otherwise a cube)
+     * @param xAngle X angle of the target center (degrees)
+     * @param yAngle Y angle of the target center (degrees)
+     * @param area Area of the target (0 - 1 of the image)
+     * @param dist Distance to the target (mm, 0 if unknown)
+     * @return This object (modifications are done in place)
+     */
+    public ArmPITargets add(boolean isCone, int xAngle, int yAngle, double area, int dist) {
+        if (count >= kCAPACITY) { throw new IndexOutOfBoundsException("Target table is full"); }
+        return set(count, isCone, xAngle, yAngle, area, dist);
+    }
+
+    // Select
+    /**
+     * Finds the target nearest to the claw. Targets with a known distance are nearer than ones without, and ties are
+     * broken by which is closer to the center of the camera.
+     * @param cones Whether cones can be chosen
+     * @param cubes Whether cubes can be chosen
+     * @return Index of the target, or -1 if there are none
+     */
+    public int nearestToClaw(boolean cones, boolean cubes) {
+        int best = -1;
+
+        for (int i = 0; i < count; i++) {
+            if (!(isCone[i] ? cones : cubes)) { continue; }
+
+            if (best == -1 || compareToClaw(i, best) < 0) { best = i; }
+        }
+
+        return best;
+    }
+
+    /**
+     * @return Index of the target nearest to the claw (of either type), or -1 if there are none
+     */
+    public int nearestToClaw() { return nearestToClaw(true, true); }
+
+    /**
+     * Finds the target closest to an angle, to keep following the same target when others come into view
+     * @param xAngle X angle the target was last seen at (degrees)
+     * @param yAngle Y angle the target was last seen at (degrees)
+     * @param isCone Type of the target
+     * @return Index of the target, or -1 if there are none of that type
+     */
+    public int closestTo(int xAngle, int yAngle, boolean isCone) {
+        int best = -1;
+        int bestError = Integer.MAX_VALUE;
+
+        for (int i = 0; i < count; i++) {
+            if (this.isCone[i] != isCone) { continue; }
+
+            int dx = this.xAngle[i] - xAngle;
+            int dy = this.yAngle[i] - yAngle;
+            int error = dx * dx + dy * dy;
+
+            if (error < bestError) {
+                best = i;
+                bestError = error;
+            }
+        }
+
+        return best;
+    }
+
+    // Negative if target a is nearer to the claw than b
+    private int compareToClaw(int a, int b) {
+        if (dist[a] != dist[b]) {
+            if (dist[a] == 0) { return 1; }
+            if (dist[b] == 0) { return -1; }
+            return Integer.compare(dist[a], dist[b]);
+        }
+
+        return Integer.compare(xAngle[a] * xAngle[a] + yAngle[a] * yAngle[a], xAngle[b] * xAngle[b] + yAngle[b] * yAngle[b]);
+    }
+
+    // Getters
+    /**
+     * @return Number of targets
+     */
+    public int getCount() { return count; }
+
+    /**
+     * @param index Index of the target
+     * @return Whether the target is a cone (otherwise a cube)
+     */
+    public boolean isCone(int index) { return isCone[index]; }
+
+    /**
+     * @param index Index of the target
+     * @return X angle of the target center (degrees)
+     */
+    public int getXAngle(int index) { return xAngle[index]; }
+
+    /**
+     * @param index Index of the target
+     * @return Y angle of the target center (degrees)
+     */
+    public int getYAngle(int index) { return yAngle[index]; }
+
+    /**
+     * @param index Index of the target
+     * @return Area of the target (0 - 1 of the image)
+     */
+    public double getArea(int index) { return area[index]; }
+
+    /**
+     * @param index Index of the target
+     * @return Distance to the target (mm, 0 if unknown)
+     */
+    public int getDistance(int index) { return dist[index]; }
+
+    /**
+     * @return Sequence number of the update the targets are from (-1 if none)
+     */
+    public int getSequence() { return sequence; }
+
+    /**
+     * @return FPGA time the targets were received (seconds)
+     */
+    public double getTimestamp() { return timestamp; }
+}
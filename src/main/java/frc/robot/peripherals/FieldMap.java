@@ -0,0 +1,107 @@
+package frc.robot.peripherals;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import edu.wpi.first.wpilibj.DriverStation;
+import edu.wpi.first.wpilibj.Filesystem;
+import edu.wpi.first.wpilibj.RobotBase;
+import frc.robot.Constants.VisionConstants;
+
+/**
+ * AprilTag positions from the Limelights' field map ({@code Limelight/frc2023.fmap.json}). The same file is deployed
+ * with the code, so the robot and the Limelights always agree on where the tags are.<br><br>
+ * The map stores each tag's pose relative to the center of the field. Here they are converted to the blue alliance
+ * origin, like {@code botpose_wpiblue}.
+ */
+public class FieldMap {
+    // Config
+    public static final String kFILE_NAME = "frc2023.fmap.json";
+
+    // Tag positions by ID (meters, blue alliance origin), NaN if there is no tag with that ID
+    private final double[] tagX;
+    private final double[] tagY;
+    private final int tagCount;
+
+    private FieldMap(double[] tagX, double[] tagY, int tagCount) {
+        this.tagX = tagX;
+        this.tagY = tagY;
+        this.tagCount = tagCount;
+    }
+
+    /**
+     * Loads the field map (from the deploy directory on the robot, or the Limelight directory in simulation). If it
+     * can't be loaded, an error is reported and the map is empty, so no vision measurements are used.
+     * @return The field map
+     */
+    public static FieldMap load() {
+        File file = RobotBase.isReal()
+            ? new File(Filesystem.getDeployDirectory(), kFILE_NAME)
+            : new File(new File(Filesystem.getLaunchDirectory(), "Limelight"), kFILE_NAME);
+
+        try {
+            return load(file);
+        } catch (IOException | RuntimeException e) {
+            DriverStation.reportError(String.format("Could not load the field map from %s: %s", file, e), false);
+            return new FieldMap(new double[0], new double[0], 0);
+        }
+    }
+
+    /**
+     * Loads a field map
+     * @param file The fmap file
+     * @return The field map
+     * @throws IOException If the file can't be read or isn't a field map
+     */
+    public static FieldMap load(File file) throws IOException {
+        JsonNode fiducials = new ObjectMapper().readTree(file).path("fiducials");
+        if (!fiducials.isArray()) { throw new IOException("No fiducials"); }
+
+        int maxID = 0;
+        for (JsonNode tag : fiducials) { maxID = Math.max(maxID, tag.path("id").asInt()); }
+
+        double[] tagX = new double[maxID + 1];
+        double[] tagY = new double[maxID + 1];
+        Arrays.fill(tagX, Double.NaN);
+        Arrays.fill(tagY, Double.NaN);
+
+        // Transform is a row major 4x4 matrix, so the translation is the last column
+        for (JsonNode tag : fiducials) {
+            int id = tag.path("id").asInt();
+            JsonNode transform = tag.path("transform");
+            if (id < 1 || transform.size() != 16) { throw new IOException(String.format("Bad tag: %s", tag)); }
+
+            tagX[id] = transform.get(3).asDouble() + VisionConstants.kFIELD_LENGTH / 2.0;
+            tagY[id] = transform.get(7).asDouble() + VisionConstants.kFIELD_WIDTH / 2.0;
+        }
+
+        return new FieldMap(tagX, tagY, fiducials.size());
+    }
+
+    /**
+     * @param id Tag ID
+     * @return Whether the map has a tag with that ID
+     */
+    public boolean hasTag(int id) { return id >= 0 && id < tagX.length && !Double.isNaN(tagX[id]); }
+
+    /**
+     * @param id Tag ID (check it with {@link #hasTag(int)} first)
+     * @return X position of the tag (meters, blue alliance origin)
+     */
+    public double getTagX(int id) { return tagX[id]; }
+
+    /**
+     * @param id Tag ID (check it with {@link #hasTag(int)} first)
+     * @return Y position of the tag (meters, blue alliance origin)
+     */
+    public double getTagY(int id) { return tagY[id]; }
+
+    /**
+     * @return Number of tags in the map
+     */
+    public int getTagCount() { return tagCount; }
+}
@@ -1,13 +1,15 @@
 package frc.robot.peripherals;
 
+import com.frc7153.hardware.HardwareRegistry;
+
 import edu.wpi.first.wpilibj.ADIS16470_IMU;
 
 /**
  * For reading rotation and acceleration of ADIS16470.
  */
 public class IMU {
-    // IMU
-    public ADIS16470_IMU imu = new ADIS16470_IMU();
+    // IMU (on the onboard SPI port)
+    public ADIS16470_IMU imu = HardwareRegistry.getInstance().claim(ADIS16470_IMU.class, 0, "IMU", port -> new ADIS16470_IMU());
 
     /*
     // Set Position
@@ -39,4 +41,6 @@ public class IMU {
     public double getYaw() { return imu.getAngle(); }
     public double getRoll() { return imu.getXComplementaryAngle(); }
     public double getPitch() { return imu.getYComplementaryAngle(); }
+    public double getAccelX() { return imu.getAccelX(); }
+    public double getAccelY() { return imu.getAccelY(); }
 }
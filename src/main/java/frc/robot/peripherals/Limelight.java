@@ -1,5 +1,7 @@
 package frc.robot.peripherals;
 
+import edu.wpi.first.networktables.DoubleArraySubscriber;
+import edu.wpi.first.networktables.DoubleSubscriber;
 import edu.wpi.first.networktables.NetworkTable;
 import edu.wpi.first.networktables.NetworkTableInstance;
 
@@ -15,9 +17,23 @@ public class Limelight {
     private String name;
     private Mode mode = Mode.APRIL_TAGS;
 
+    // Pose Subscribers (botpose is in WPI blue alliance field coordinates)
+    private final DoubleArraySubscriber botPose;
+    private final DoubleSubscriber pipelineLatency;
+    private final DoubleSubscriber captureLatency;
+    private final DoubleSubscriber tagID;
+
+    private long lastPoseChange = 0;
+
     // Init
     public Limelight(String name) {
         this.name = name;
+
+        NetworkTable table = getTable();
+        botPose = table.getDoubleArrayTopic("botpose_wpiblue").subscribe(new double[0]);
+        pipelineLatency = table.getDoubleTopic("tl").subscribe(0.0);
+        captureLatency = table.getDoubleTopic("cl").subscribe(0.0);
+        tagID = table.getDoubleTopic("tid").subscribe(-1.0);
     }
 
     // Get NT Entry
@@ -35,4 +51,29 @@ public class Limelight {
         mode = m;
         getTable().getEntry("pipeline").setNumber(m.index);
     }
+
+    /**
+     * Reads the robot's position from AprilTags, if the Limelight has published a new one since the last call.
+     * @param out Array of length 5, filled with x, y (meters), rotation (degrees), the primary tag ID and the number of tags seen
+     * @return The time the image was captured (FPGA seconds), or NaN if there is no new position
+     */
+    public double getNewBotPose(double[] out) {
+        long change = botPose.getLastChange();
+        if (change == lastPoseChange) { return Double.NaN; }
+        lastPoseChange = change;
+
+        double[] pose = botPose.get();
+        if (pose.length < 6 || (pose[0] == 0.0 && pose[1] == 0.0)) { return Double.NaN; } // No tags
+
+        out[0] = pose[0];
+        out[1] = pose[1];
+        out[2] = pose[5];
+        out[3] = tagID.get();
+        out[4] = (pose.length >= 8) ? pose[7] : 1.0; // Newer firmware adds the tag count
+
+        // Total latency is in the array on newer firmware, otherwise it is pipeline + capture
+        double latency = (pose.length >= 7) ? pose[6] : pipelineLatency.get() + captureLatency.get();
+
+        return change / 1e6 - latency / 1e3;
+    }
 }
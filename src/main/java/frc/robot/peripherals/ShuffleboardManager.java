@@ -6,8 +6,12 @@ package frc.robot.peripherals;
 import java.util.Map;
 
 import com.frc7153.commands.ConfigCommand;
+import com.frc7153.swervedrive.wheeltypes.SwerveWheel_FN;
+import com.frc7153.telemetry.TelemetryPublisher;
+import com.frc7153.telemetry.TelemetryTier;
 
 import edu.wpi.first.networktables.GenericEntry;
+import edu.wpi.first.wpilibj.RobotController;
 import edu.wpi.first.wpilibj.shuffleboard.BuiltInLayouts;
 import edu.wpi.first.wpilibj.shuffleboard.BuiltInWidgets;
 import edu.wpi.first.wpilibj.shuffleboard.Shuffleboard;
@@ -32,37 +36,11 @@ public class ShuffleboardManager {
     private Claw claw;
     private DriveBase drive;
 
-    // Drive Tab
-    private GenericEntry driveGyroConnected;
-    private GenericEntry driveHandUnlocked;
-
-    // Controller Update Counter
-    private GenericEntry controller0Update;
-    private GenericEntry controller1Update;
-
-    // Raspberry Pi Diagnostics
-    private GenericEntry piVoltageStable;
-    private GenericEntry piCPUTemp;
-    private GenericEntry piCPUUsage;
-    private GenericEntry piMemUsage;
-    private GenericEntry piFPS;
-    private GenericEntry piAge;
-    private GenericEntry piCache;
-    private GenericEntry piTarget;
-
-    // Gyro & Accelerometer
-    private GenericEntry gyroRoll;
-    private GenericEntry gyroPitch;
-    private GenericEntry gyroYaw;
-
-    // Arm
-    private GenericEntry armAngle;
-    private GenericEntry armSP;
-    private GenericEntry armVolt;
-    private GenericEntry armWinchPos;
-    private GenericEntry armLHand;
-    private GenericEntry armRHand;
-    private GenericEntry armPose;
+    // CAN Bus
+    private static final String[] kMODULE_NAMES = {"FL", "FR", "RL", "RR"};
+
+    // Publishing (each value is published at the rate of its tier, and only when it changes)
+    private final TelemetryPublisher publisher = new TelemetryPublisher();
 
     // Constructor (Init)
     public ShuffleboardManager(RobotContainer container, ArmPI armPi, Arm arm, Claw claw, DriveBase drive) {
@@ -92,14 +70,41 @@ public class ShuffleboardManager {
                 .withProperties(Map.of("SHOW CONTROLS", "OFF"));
         }
 
-        driveGyroConnected = driveTab.add("Gyro Connected", false)
+        GenericEntry driveGyroConnected = driveTab.add("Gyro Connected", false)
             .withPosition(7, 0)
             .getEntry();
 
-        driveHandUnlocked = driveTab.add("Hand Unlocked", false)
+        GenericEntry driveHandUnlocked = driveTab.add("Hand Unlocked", false)
             .withPosition(7, 1)
             .getEntry();
 
+        GenericEntry driveSensorReads = driveTab.add("Swerve Reads/Loop", 0)
+            .withPosition(7, 2)
+            .getEntry();
+
+        // CAN Tab
+        ShuffleboardTab canTab = Shuffleboard.getTab("CAN");
+
+        GenericEntry canUtilization = canTab.add("Bus Utilization (%)", 0.0)
+            .withWidget((ShuffleboardConstants.kCAN_GRAPHS) ? BuiltInWidgets.kGraph : BuiltInWidgets.kTextView)
+            .withSize(3, 3)
+            .withProperties(Map.of("VISIBLE TIME", 25, "AUTOMATIC BOUNDS", false, "UPPER BOUND", 100, "LOWER BOUND", 0, "UNIT", "%"))
+            .getEntry();
+
+        ShuffleboardLayout framesLayout = canTab.getLayout("Swerve Frames Sent", BuiltInLayouts.kList)
+            .withPosition(3, 0)
+            .withSize(2, 5)
+            .withProperties(Map.of("LABEL POSITION", "LEFT"));
+
+        for (int i = 0; i < kMODULE_NAMES.length; i++) {
+            if (!(drive.getModules()[i] instanceof SwerveWheel_FN)) { continue; } // Simulated wheels don't send frames
+            SwerveWheel_FN module = (SwerveWheel_FN) drive.getModules()[i];
+
+            publisher
+                .addInteger(framesLayout.add(String.format("%s Spin", kMODULE_NAMES[i]), 0).getEntry(), TelemetryTier.SLOW, module::getSpinFramesSent)
+                .addInteger(framesLayout.add(String.format("%s Drive", kMODULE_NAMES[i]), 0).getEntry(), TelemetryTier.SLOW, module::getDriveFramesSent);
+        }
+
         // Controller Tab Init
         ShuffleboardTab controllerTab = Shuffleboard.getTab("Controllers");
         ShuffleboardLayout controllerRecalibrate = controllerTab.getLayout("Controllers", BuiltInLayouts.kList)
@@ -114,59 +119,72 @@ public class ShuffleboardManager {
             .withPosition(2, 0)
             .withProperties(Map.of("LABEL POSITION", "TOP"));
         
-        controller0Update = controllerUpdates.add("Controller 0", "No updates...").getEntry();
-        controller1Update = controllerUpdates.add("Controller 1", "No updates...").getEntry();
+        GenericEntry controller0Update = controllerUpdates.add("Controller 0", "No updates...").getEntry();
+        GenericEntry controller1Update = controllerUpdates.add("Controller 1", "No updates...").getEntry();
 
         // RaspberryPi Values
         ShuffleboardTab piTab = Shuffleboard.getTab("Pi");
         WidgetType piGraph = (ShuffleboardConstants.kPI_GRAPHS) ? BuiltInWidgets.kGraph : BuiltInWidgets.kTextView;
 
-        piCPUTemp = piTab.add("CPU Temp (f)", 0.0)
+        GenericEntry piCPUTemp = piTab.add("CPU Temp (f)", 0.0)
             .withWidget(piGraph)
             .withPosition(0, 0)
             .withSize(3, 3)
             .withProperties(Map.of("VISIBLE TIME", 25, "AUTOMATIC BOUNDS", false, "UPPER BOUND", 185, "LOWER BOUND", 0, "UNIT", "f"))
             .getEntry();
         
-        piCPUUsage = piTab.add("CPU Usage (%)", 0.0)
+        GenericEntry piCPUUsage = piTab.add("CPU Usage (%)", 0.0)
             .withWidget(piGraph)
             .withPosition(3, 0)
             .withSize(3, 3)
             .withProperties(Map.of("VISIBLE TIME", 25, "AUTOMATIC BOUNDS", false, "UPPER BOUND", 1.0, "LOWER BOUND", 0.0, "UNIT", "%"))
             .getEntry();
 
-        piMemUsage = piTab.add("Memory (%)", 0.0)
+        GenericEntry piMemUsage = piTab.add("Memory (%)", 0.0)
             .withWidget(piGraph)
             .withPosition(6, 0)
             .withSize(3, 3)
             .withProperties(Map.of("VISIBLE TIME", 25, "AUTOMATIC BOUNDS", false, "UPPER BOUND", 1.0, "LOWER BOUND", 0.0, "UNIT", "%"))
             .getEntry();
 
-        piFPS = piTab.add("FPS", 0.0)
+        GenericEntry piFPS = piTab.add("FPS", 0.0)
             .withWidget(piGraph)
             .withPosition(0, 3)
             .withSize(3, 3)
             .withProperties(Map.of("VISIBLE TIME", 25, "AUTOMATIC BOUNDS", true, "UNIT", "FPS"))
             .getEntry();
 
-        piAge = piTab.add("Latest Packet Age (s)", 0.0)
+        GenericEntry piAge = piTab.add("Latest Packet Age (s)", 0.0)
             .withWidget(piGraph)
             .withPosition(3, 3)
             .withSize(3, 3)
             .withProperties(Map.of("VISIBLE TIME", 25, "AUTOMATIC BOUNDS", true, "UNIT", "s"))
             .getEntry();
 
-        piVoltageStable = piTab.add("Voltage Stable", true)
+        GenericEntry piVoltageStable = piTab.add("Voltage Stable", true)
             .withWidget(BuiltInWidgets.kBooleanBox)
             .withPosition(6, 3)
             .getEntry();
         
-        piCache = piTab.add("Latest Cache", "?")
+        GenericEntry piCache = piTab.add("Latest Cache", "?")
             .withPosition(7, 3)
             .withSize(2, 1)
             .getEntry();
 
-        piTarget = piTab.add("Target Info", "No target")
+        GenericEntry piTarget = piTab.add("Target Info", "No target")
+            .getEntry();
+
+        GenericEntry piLatency = piTab.add("Capture Latency (ms)", 0.0)
+            .withPosition(8, 5)
+            .getEntry();
+
+        GenericEntry piCaptureAge = piTab.add("Capture Age (ms)", 0.0)
+            .withPosition(9, 5)
+            .getEntry();
+
+        GenericEntry piFrames = piTab.add("Updates", "?")
+            .withPosition(9, 3)
+            .withSize(2, 1)
             .getEntry();
         
         piTab.add("Camera Server", new ConfigCommand(armPi::startCameraServer, "Start CS")).withPosition(6, 4);
@@ -178,78 +196,114 @@ public class ShuffleboardManager {
         // Accelerometer & Gyro
         ShuffleboardTab gyro = Shuffleboard.getTab("Gyro");
         
-        gyroRoll = gyro.add("Roll", 0.0).withPosition(1, 0).getEntry();
-        gyroPitch = gyro.add("Pitch", 0.0).withPosition(2, 0).getEntry();
-        gyroYaw = gyro.add("Yaw", 0.0).withPosition(3, 0).getEntry();
+        GenericEntry gyroRoll = gyro.add("Roll", 0.0).withPosition(1, 0).getEntry();
+        GenericEntry gyroPitch = gyro.add("Pitch", 0.0).withPosition(2, 0).getEntry();
+        GenericEntry gyroYaw = gyro.add("Yaw", 0.0).withPosition(3, 0).getEntry();
 
         // Arm
         ShuffleboardTab armTab = Shuffleboard.getTab("Arm");
 
-        armSP = armTab.add("Angle Setpoint", 0.0)
+        GenericEntry armSP = armTab.add("Angle Setpoint", 0.0)
             .withPosition(3, 0)
             .getEntry();
         
-        armAngle = armTab.add("Angle Actual", 0.0)
+        GenericEntry armAngle = armTab.add("Angle Actual", 0.0)
             .withPosition(3, 1)
             .getEntry();
 
-        armVolt = armTab.add("Angle Voltage", 0.0)
+        GenericEntry armVolt = armTab.add("Angle Voltage", 0.0)
             .withSize(3, 3)
             .withWidget((ShuffleboardConstants.kARM_GRAPHS) ? BuiltInWidgets.kGraph : BuiltInWidgets.kTextView)
             .getEntry();
 
-        armWinchPos = armTab.add("Arm Winch Rot", 0.0)
+        GenericEntry armWinchPos = armTab.add("Arm Winch Rot", 0.0)
             .getEntry();
 
-        armLHand = armTab.add("Left Hand Claw", 0.0)
+        GenericEntry armLHand = armTab.add("Left Hand Claw", 0.0)
             .getEntry();
         
-        armRHand = armTab.add("Right Hand Claw", 0.0)
+        GenericEntry armRHand = armTab.add("Right Hand Claw", 0.0)
             .getEntry();
         
-        armPose = armTab.add("Arm Position (inches)", "(?, ?)")
+        GenericEntry armPose = armTab.add("Arm Position (inches)", "(?, ?)")
             .getEntry();
+
+        // Publishing
+        // Graphs are published every loop (they look wrong slowed down), everything else at the slowest rate that's useful
+        TelemetryTier armGraphTier = (ShuffleboardConstants.kARM_GRAPHS) ? TelemetryTier.CRITICAL : TelemetryTier.DIAGNOSTIC;
+        TelemetryTier piGraphTier = (ShuffleboardConstants.kPI_GRAPHS) ? TelemetryTier.DIAGNOSTIC : TelemetryTier.SLOW;
+        TelemetryTier canGraphTier = (ShuffleboardConstants.kCAN_GRAPHS) ? TelemetryTier.DIAGNOSTIC : TelemetryTier.SLOW;
+
+        publisher
+            // Drive
+            .addBoolean(driveGyroConnected, TelemetryTier.CRITICAL, drive.imu::isConnected)
+            .addBoolean(driveHandUnlocked, TelemetryTier.CRITICAL, () -> arm.hasBeenReleased)
+            .addInteger(driveSensorReads, TelemetryTier.SLOW, drive::getHardwareReadsPerLoop)
+
+            // CAN
+            .addDouble(canUtilization, canGraphTier, () -> RobotController.getCANStatus().percentBusUtilization * 100.0, 0.5)
+
+            // Controllers
+            .addString(controller0Update, TelemetryTier.SLOW, inputs -> String.format("%s seconds", inputs[0]), Controller0::getLastOffsetUpdate)
+            .addString(controller1Update, TelemetryTier.SLOW, inputs -> String.format("%s seconds", inputs[0]), Controller1::getLastOffsetUpdate)
+
+            // Pi (each value reads the latest packet, the packet doesn't change while it's read)
+            .addString(piTarget, TelemetryTier.CRITICAL, ShuffleboardManager::formatTarget,
+                () -> armPi.getStatus().hasTarget ? 1.0 : 0.0, () -> armPi.getStatus().isCone ? 1.0 : 0.0,
+                () -> armPi.getStatus().xAngle, () -> armPi.getStatus().yAngle, () -> armPi.getTargets().getCount())
+            .addDouble(piCPUTemp, piGraphTier, () -> armPi.getStatus().temp, 0.5)
+            .addDouble(piCPUUsage, piGraphTier, () -> armPi.getStatus().cpu, 0.01)
+            .addDouble(piMemUsage, piGraphTier, () -> armPi.getStatus().mem, 0.01)
+            .addDouble(piFPS, piGraphTier, () -> armPi.getStatus().fps, 0.0)
+            .addDouble(piAge, piGraphTier, armPi::getAge, 0.01)
+            .addBoolean(piVoltageStable, TelemetryTier.SLOW, () -> armPi.getStatus().voltageStable)
+            .addLongString(piCache, TelemetryTier.SLOW, ArmPIPacket::toBits, () -> armPi.getStatus().raw)
+            .addDouble(piLatency, TelemetryTier.DIAGNOSTIC, () -> armPi.getLatency() * 1000.0, 0.1)
+            .addDouble(piCaptureAge, TelemetryTier.DIAGNOSTIC, () -> armPi.getCaptureAge() * 1000.0, 0.1)
+            .addString(piFrames, TelemetryTier.SLOW, ShuffleboardManager::formatFrames,
+                armPi::getAcceptedCount, armPi::getCorruptCount, armPi::getDuplicateCount, armPi::getDroppedCount)
+
+            // Gyro
+            .addDouble(gyroRoll, TelemetryTier.DIAGNOSTIC, drive.imu::getRoll, 0.1)
+            .addDouble(gyroPitch, TelemetryTier.DIAGNOSTIC, drive.imu::getPitch, 0.1)
+            .addDouble(gyroYaw, TelemetryTier.DIAGNOSTIC, drive.imu::getYaw, 0.1)
+
+            // Arm
+            .addDouble(armSP, armGraphTier, arm::getAngleSetpoint, 0.1)
+            .addDouble(armAngle, armGraphTier, arm::getAngleActual, 0.1)
+            .addDouble(armVolt, armGraphTier, arm::getAngleVoltage, 0.01)
+            .addDouble(armWinchPos, TelemetryTier.DIAGNOSTIC, arm::getWinchEncPos, 0.05)
+            .addDouble(armLHand, TelemetryTier.DIAGNOSTIC, claw::getLHandPos, 0.01)
+            .addDouble(armRHand, TelemetryTier.DIAGNOSTIC, claw::getRHandPos, 0.01)
+            .addString(armPose, TelemetryTier.DIAGNOSTIC, inputs -> String.format("%s, %s (in)", inputs[0], inputs[1]),
+                () -> arm.getPose().getX(), () -> arm.getPose().getY());
     }
 
-    // Update Values
-    public void periodic() {
-        // Drive
-        driveGyroConnected.setBoolean(drive.imu.isConnected());
-        driveHandUnlocked.setBoolean(arm.hasBeenReleased);
-
-        // Controllers
-        controller0Update.setString(String.format("%s seconds", Controller0.getLastOffsetUpdate()));
-        controller1Update.setString(String.format("%s seconds", Controller1.getLastOffsetUpdate()));
-
-        // Pi
-        piCPUTemp.setDouble(armPi.getTemp());
-        piCPUUsage.setDouble(armPi.getCPU());
-        piMemUsage.setDouble(armPi.getMemory());
-        piFPS.setDouble(armPi.getFPS());
-        piAge.setDouble(armPi.getAge());
-        piVoltageStable.setBoolean(armPi.getVoltageStable());
-        piCache.setString(armPi.getCache());
-
-        if (armPi.hasTarget()) {
-            piTarget.setString(String.format("Sees %s at %s, %s", armPi.getIsCone() ? "cone" : "cube", armPi.getXTargetAngle(), armPi.getYTargetAngle()));
-        } else {
-            piTarget.setString("No target");
-        }
+    // Strings (built on the publisher thread from the inputs, only when they change)
+    private static String formatTarget(double[] inputs) {
+        if (inputs[0] == 0.0) { return "No target"; }
+        return String.format("Sees %s at %s, %s (%s targets)", (inputs[1] != 0.0) ? "cone" : "cube", (int) inputs[2], (int) inputs[3], (int) inputs[4]);
+    }
+
+    private static String formatFrames(double[] inputs) {
+        return String.format("%s ok, %s corrupt, %s duplicate, %s dropped", (long) inputs[0], (long) inputs[1], (long) inputs[2], (long) inputs[3]);
+    }
 
-        // Gyro
-        gyroRoll.setDouble(drive.imu.getRoll());
-        gyroPitch.setDouble(drive.imu.getPitch());
-        gyroYaw.setDouble(drive.imu.getYaw());
+    // Update Values (even when disabled, only reads values, NetworkTables is written by the publisher thread)
+    public void periodic() { publisher.update(); }
 
-        // Arm
-        armSP.setDouble(arm.getAngleSetpoint());
-        armAngle.setDouble(arm.getAngleActual());
-        armVolt.setDouble(arm.getAngleVoltage());
-        armWinchPos.setDouble(arm.getWinchEncPos());
+    /**
+     * @return Number of values written to NetworkTables
+     */
+    public long getWriteCount() { return publisher.getWriteCount(); }
 
-        armLHand.setDouble(claw.getLHandPos());
-        armRHand.setDouble(claw.getRHandPos());
+    /**
+     * @return Number of values that were checked, but not written because they didn't change
+     */
+    public long getSkippedCount() { return publisher.getSkippedCount(); }
 
-        armPose.setString(String.format("%s, %s (in)", arm.getPose().getX(), arm.getPose().getY()));
-    }
+    /**
+     * @return Number of snapshots the publisher thread was too slow to publish
+     */
+    public long getReplacedCount() { return publisher.getReplacedCount(); }
 }
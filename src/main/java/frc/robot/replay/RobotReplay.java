@@ -0,0 +1,255 @@
+package frc.robot.replay;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import com.frc7153.logging.SignalLog;
+import com.frc7153.math.DeadReckoning;
+import com.frc7153.math.MathUtils;
+import com.frc7153.replay.ErrorStats;
+import com.frc7153.replay.LogReplay;
+import com.frc7153.replay.ReplayClock;
+import com.frc7153.swervedrive.SwerveKinematics;
+import com.frc7153.swervedrive.SwerveOdometry;
+import com.frc7153.swervedrive.wheeltypes.SwerveWheel_FN;
+
+import edu.wpi.first.math.geometry.Pose2d;
+import edu.wpi.first.math.geometry.Rotation2d;
+import edu.wpi.first.math.geometry.Translation2d;
+import frc.robot.Constants.ArmConstants;
+import frc.robot.Constants.SwerveConstants;
+import frc.robot.subsystems.Arm;
+
+/**
+ * Replays signal logs from the robot through the same odometry, dead reckoning and arm math the robot runs, and compares
+ * the results with what was logged. This runs on a computer, not the robot:
+ * <pre>
+ * ./gradlew replay --args="path/to/signals"
+ * </pre>
+ * Arguments are logs, or directories of logs. The recomputed values of each log are written next to it
+ * ({@code <log>.replay.csv}), and the errors of each log (and all of them together) are printed. Sections whose signals
+ * aren't in a log (older logs) are skipped.
+ */
+public class RobotReplay {
+    // Config
+    private static final int kACCEL_AVERAGE = 5; // Acceleration samples averaged by dead reckoning
+    private static final double kMAX_GAP = 1.0; // Longer gaps between records restart dead reckoning (seconds)
+    private static final String[] kMODULES = {"FL", "FR", "RL", "RR"}; // Same order as DriveBase
+
+    /** Errors of one log (or many, combined) */
+    public static class Stats {
+        public final ErrorStats odometryPosition = new ErrorStats(); // Recomputed odometry vs logged pose (meters)
+        public final ErrorStats odometryRotation = new ErrorStats(); // Recomputed odometry vs logged pose (degrees)
+        public final ErrorStats deadReckoning = new ErrorStats(); // Dead reckoning vs logged pose (meters)
+        public final ErrorStats armPose = new ErrorStats(); // Recomputed constrained setpoint vs logged (inches)
+        public final ErrorStats armTracking = new ErrorStats(); // Measured arm position vs constrained setpoint (inches)
+
+        /**
+         * @param other Stats to add to these
+         * @return This object (modifications are done in place)
+         */
+        public Stats add(Stats other) {
+            odometryPosition.add(other.odometryPosition);
+            odometryRotation.add(other.odometryRotation);
+            deadReckoning.add(other.deadReckoning);
+            armPose.add(other.armPose);
+            armTracking.add(other.armTracking);
+            return this;
+        }
+
+        // Print each section that has samples
+        private void print(String indent) {
+            print(indent, "Odometry position (m)", odometryPosition);
+            print(indent, "Odometry rotation (deg)", odometryRotation);
+            print(indent, "Dead reckoning (m)", deadReckoning);
+            print(indent, "Arm setpoint (in)", armPose);
+            print(indent, "Arm tracking (in)", armTracking);
+        }
+
+        private static void print(String indent, String name, ErrorStats stats) {
+            if (stats.getCount() > 0) { System.out.println(String.format("%s%-24s %s", indent, name, stats)); }
+        }
+    }
+
+    /**
+     * Replays logs in parallel and prints their errors
+     * @param args Paths of logs, or directories of logs
+     * @throws Exception If the logs can't be found
+     */
+    public static void main(String... args) throws Exception {
+        List<Path> logs = LogReplay.find(args);
+        if (logs.isEmpty()) {
+            System.err.println("No logs given (arguments are .sig files, or directories of them)");
+            return;
+        }
+
+        long start = System.nanoTime();
+        List<LogReplay.Result<Stats>> results = new LogReplay<Stats>(RobotReplay::replay).run(logs);
+        double elapsed = (System.nanoTime() - start) / 1e9;
+
+        Stats total = new Stats();
+        double duration = 0.0;
+        int failed = 0;
+
+        for (LogReplay.Result<Stats> result : results) {
+            if (!result.succeeded()) {
+                System.err.println(String.format("%s: %s", result.path, result.error));
+                failed++;
+                continue;
+            }
+
+            System.out.println(String.format("%s: %s records, %.1f s of log replayed %.0fx faster than real time", result.path, result.records, result.duration, result.getSpeedup()));
+            result.value.print("    ");
+
+            total.add(result.value);
+            duration += result.duration;
+        }
+
+        System.out.println(String.format("Total: %s logs (%s failed), %.1f s of logs in %.2f s", results.size(), failed, duration, elapsed));
+        total.print("    ");
+    }
+
+    /**
+     * Replays one log, and writes the recomputed values next to it
+     * @param path Path of the log
+     * @param log The log
+     * @param clock Clock used instead of the FPGA clock
+     * @return Errors against the logged values
+     * @throws IOException If the results can't be written
+     */
+    public static Stats replay(Path path, SignalLog log, ReplayClock clock) throws IOException {
+        int records = log.getRecordCount();
+        double[] time = log.getTimestamps();
+        Stats stats = new Stats();
+
+        // Logged Values
+        boolean hasDrive = log.hasSignal("Drive/Pose X") && log.hasSignal("IMU/Yaw");
+        boolean hasAccel = hasDrive && log.hasSignal("IMU/Accel X");
+        boolean hasArm = log.hasSignal("Arm/Extension Setpoint");
+
+        double[] poseX = hasDrive ? log.getDouble("Drive/Pose X") : null;
+        double[] poseY = hasDrive ? log.getDouble("Drive/Pose Y") : null;
+        double[] poseRot = hasDrive ? log.getDouble("Drive/Pose Rotation") : null;
+        double[] yaw = hasDrive ? log.getDouble("IMU/Yaw") : null;
+
+        double[][] moduleDistances = new double[kMODULES.length][];
+        double[][] moduleAngles = new double[kMODULES.length][];
+        for (int i = 0; hasDrive && i < kMODULES.length; i++) {
+            moduleDistances[i] = log.getDouble(String.format("Drive/%s/Distance", kMODULES[i]));
+            moduleAngles[i] = log.getDouble(String.format("Drive/%s/Angle", kMODULES[i]));
+        }
+
+        double[] accelX = hasAccel ? log.getDouble("IMU/Accel X") : null;
+        double[] accelY = hasAccel ? log.getDouble("IMU/Accel Y") : null;
+
+        double[] angleSP = hasArm ? log.getDouble("Arm/Angle Setpoint") : null;
+        double[] extSP = hasArm ? log.getDouble("Arm/Extension Setpoint") : null;
+        double[] armX = hasArm ? log.getDouble("Arm/Pose X") : null;
+        double[] armY = hasArm ? log.getDouble("Arm/Pose Y") : null;
+        double[] armAngle = hasArm ? log.getDouble("Arm/Angle") : null;
+        double[] winch = hasArm ? log.getDouble("Arm/Winch Position") : null;
+        boolean[] enabled = hasArm ? log.getBoolean("Robot/Enabled") : null;
+
+        // Robot Math (same classes as the robot, timed by the log)
+        SwerveOdometry odometry = new SwerveOdometry(new SwerveKinematics(modulePositions()));
+        DeadReckoning navigator = new DeadReckoning(kACCEL_AVERAGE, clock);
+        double[] distances = new double[kMODULES.length];
+        double[] angles = new double[kMODULES.length];
+
+        // Replay
+        Path output = path.resolveSibling(path.getFileName() + ".replay.csv");
+
+        try (BufferedWriter csv = Files.newBufferedWriter(output)) {
+            csv.write("time,logged x,logged y,logged rotation,odometry x,odometry y,odometry rotation,dead reckoning x,dead reckoning y,logged arm x,logged arm y,arm setpoint x,arm setpoint y,arm measured x,arm measured y");
+            csv.newLine();
+
+            StringBuilder line = new StringBuilder();
+
+            for (int r = 0; r < records; r++) {
+                clock.set(time[r]);
+                line.setLength(0);
+                line.append(time[r]);
+
+                // Odometry
+                if (hasDrive) {
+                    for (int i = 0; i < kMODULES.length; i++) {
+                        distances[i] = moduleDistances[i][r];
+                        angles[i] = moduleAngles[i][r];
+                    }
+
+                    if (r == 0) {
+                        odometry.reset(yaw[r], distances, poseX[r], poseY[r], poseRot[r]);
+                        navigator.resetPose(new Pose2d(poseX[r], poseY[r], Rotation2d.fromDegrees(poseRot[r])));
+                    } else {
+                        odometry.update(yaw[r], distances, angles);
+                    }
+
+                    stats.odometryPosition.add(odometry.getX() - poseX[r], odometry.getY() - poseY[r]);
+                    stats.odometryRotation.add(MathUtils.normalizeAngle180(odometry.getRotation() - poseRot[r]));
+                    append(line, poseX[r], poseY[r], poseRot[r], odometry.getX(), odometry.getY(), odometry.getRotation());
+                } else {
+                    append(line, Double.NaN, Double.NaN, Double.NaN, Double.NaN, Double.NaN, Double.NaN);
+                }
+
+                // Dead Reckoning
+                if (hasAccel) {
+                    // Restart after a gap (the robot warns about stale integrations, which needs the HAL)
+                    if (r > 0 && time[r] - time[r - 1] > kMAX_GAP) {
+                        Pose2d last = navigator.getPosition();
+                        navigator = new DeadReckoning(kACCEL_AVERAGE, clock);
+                        navigator.resetPose(last);
+                    }
+
+                    navigator.integrateAcceleration(accelX[r], accelY[r], yaw[r]);
+
+                    Pose2d position = navigator.getPosition();
+                    stats.deadReckoning.add(position.getX() - poseX[r], position.getY() - poseY[r]);
+                    append(line, position.getX(), position.getY());
+                } else {
+                    append(line, Double.NaN, Double.NaN);
+                }
+
+                // Arm (the pose is only updated while enabled, with both setpoints set)
+                if (hasArm && enabled[r] && !Double.isNaN(angleSP[r]) && !Double.isNaN(extSP[r])) {
+                    Translation2d setpoint = Arm.constrain(extSP[r], angleSP[r]);
+                    Translation2d measured = Arm.kinematics(ArmConstants.winchRotsToTargetExt(winch[r]), armAngle[r]);
+
+                    stats.armPose.add(setpoint.getX() - armX[r], setpoint.getY() - armY[r]);
+                    stats.armTracking.add(measured.getX() - setpoint.getX(), measured.getY() - setpoint.getY());
+                    append(line, armX[r], armY[r], setpoint.getX(), setpoint.getY(), measured.getX(), measured.getY());
+                } else {
+                    append(line, Double.NaN, Double.NaN, Double.NaN, Double.NaN, Double.NaN, Double.NaN);
+                }
+
+                csv.append(line);
+                csv.newLine();
+            }
+        }
+
+        return stats;
+    }
+
+    // Module positions, from the same arguments DriveBase gives each SwerveWheel_FN (FL, FR, RL, RR)
+    private static Translation2d[] modulePositions() {
+        double x = SwerveConstants.kWHEEL_DISTANCE.getX();
+        double y = SwerveConstants.kWHEEL_DISTANCE.getY();
+
+        return new Translation2d[] {
+            SwerveWheel_FN.modulePosition(x, -y),
+            SwerveWheel_FN.modulePosition(-x, -y),
+            SwerveWheel_FN.modulePosition(x, y),
+            SwerveWheel_FN.modulePosition(-x, y)
+        };
+    }
+
+    // Append CSV columns
+    private static void append(StringBuilder line, double... values) {
+        for (double value : values) {
+            line.append(',');
+            if (!Double.isNaN(value)) { line.append(value); }
+        }
+    }
+}
@@ -1,8 +1,5 @@
 package frc.robot.subsystems;
 
-import com.frc7153.swervedrive.SwerveBase;
-import com.frc7153.swervedrive.wheeltypes.SwerveWheel_FN;
-
 import frc.robot.peripherals.Limelight;
 import edu.wpi.first.math.controller.PIDController;
 import edu.wpi.first.math.geometry.Pose2d;
@@ -12,21 +9,13 @@ import edu.wpi.first.networktables.NetworkTableEntry;
 import edu.wpi.first.networktables.NetworkTableInstance;
 import edu.wpi.first.wpilibj.Timer;
 import edu.wpi.first.wpilibj2.command.SubsystemBase;
-import frc.robot.Constants.SwerveConstants;
-import frc.robot.peripherals.IMU;
 
 /**
  * aimbot
  */
 public class Aim extends SubsystemBase {
-    // Drive Base
-    private SwerveWheel_FN fl = new SwerveWheel_FN(9, 5, 13, SwerveConstants.kWHEEL_DISTANCE.getX(), -SwerveConstants.kWHEEL_DISTANCE.getY(), SwerveConstants.kFL_OFFSET);
-    private SwerveWheel_FN fr = new SwerveWheel_FN(10, 6, 14, -SwerveConstants.kWHEEL_DISTANCE.getX(), -SwerveConstants.kWHEEL_DISTANCE.getY() , SwerveConstants.kFR_OFFSET);
-    private SwerveWheel_FN rl = new SwerveWheel_FN(7, 3, 11, SwerveConstants.kWHEEL_DISTANCE.getX(), SwerveConstants.kWHEEL_DISTANCE.getY(), SwerveConstants.kRL_OFFSET);
-    private SwerveWheel_FN rr = new SwerveWheel_FN(8, 4, 12, -SwerveConstants.kWHEEL_DISTANCE.getX(), SwerveConstants.kWHEEL_DISTANCE.getY(), SwerveConstants.kRR_OFFSET);
-
-    private SwerveBase base = new SwerveBase(fl, fr, rl, rr);
-    public IMU imu = new IMU();
+    // Drive Base (shared, so the swerve modules and IMU are only created once)
+    private final DriveBase driveBase;
 
 //limelight reqs
     private NetworkTable table = NetworkTableInstance.getDefault().getTable("limelight-front");
@@ -40,26 +29,17 @@ public class Aim extends SubsystemBase {
     private Double maxSpeed = 0.4;
     //fuck it im just ripping everything
 
-    // Reset odometry on boot
-    public Aim() {
+    // Aim with the drive base's swerve modules (odometry is updated by its odometry thread)
+    public Aim(DriveBase driveBase) {
+        this.driveBase = driveBase;
         pid.setSetpoint(0.0); // Adjust error here
-        base.setMaxSpeed(2.0, 360.0);
     }
 
     // Get Odometry Position
-    public Pose2d getPose() { return base.getOdometryPose(); }
+    public Pose2d getPose() { return driveBase.getPose(); }
 
     // Reset Odometry Position
-    public void setPose(Pose2d origin) {
-        base.startOdometry(imu.getYaw(), origin.getX(), origin.getY(), origin.getRotation().getDegrees());
-        //imu.resetPose(origin);
-    }
-
-    // Update odometry
-    @Override
-    public void periodic() {
-        base.updateOdometry(imu.getYaw());
-    }
+    public void setPose(Pose2d origin) { driveBase.setPose(origin); }
 
     //ll auto center
 
@@ -88,9 +68,9 @@ public class Aim extends SubsystemBase {
 
     
     // Drive
-    public void stop() { base.stop(true); }
-    public void driveFieldOriented(double x, double y, double rot) { base.driveFieldOriented(y, x, getTurn(), imu.getYaw()); }
+    public void stop() { driveBase.stop(); }
+    public void driveFieldOriented(double x, double y, double rot) { driveBase.driveFieldOriented(x, y, getTurn()); }
     //public void driveRobotOriented(double x, double y, double rot) { base.drive(y, x, rot); }
     //public void driveTankAbsolute(double lSpeed, double rSpeed) { base.tankDriveAbsolute(lSpeed, rSpeed);}
-    public void setCoast(boolean coast) { base.toggleCoastMode(coast, true); }
+    public void setCoast(boolean coast) { driveBase.setCoast(coast); }
 }
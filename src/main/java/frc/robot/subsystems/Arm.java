@@ -1,10 +1,16 @@
 package frc.robot.subsystems;
 
+import com.frc7153.controllers.config.MotorConfigurator;
+import com.frc7153.controllers.config.SparkMaxConfig;
+import com.frc7153.hardware.HardwareRegistry;
+import com.frc7153.logging.LoopProfiler;
+import com.frc7153.logging.SignalRecorder;
 import com.frc7153.math.Encoder;
 import com.frc7153.math.Encoder.Range;
 import com.revrobotics.CANSparkMax;
 import com.revrobotics.RelativeEncoder;
 import com.revrobotics.SparkMaxPIDController;
+import com.revrobotics.SparkMaxPIDController.ArbFFUnits;
 import com.revrobotics.CANSparkMax.ControlType;
 import com.revrobotics.CANSparkMax.IdleMode;
 import com.revrobotics.CANSparkMaxLowLevel.MotorType;
@@ -14,8 +20,10 @@ import edu.wpi.first.math.geometry.Translation2d;
 import edu.wpi.first.math.util.Units;
 import edu.wpi.first.wpilibj.DriverStation;
 import edu.wpi.first.wpilibj.DutyCycleEncoder;
+import edu.wpi.first.wpilibj.Timer;
 import edu.wpi.first.wpilibj2.command.SubsystemBase;
 import frc.robot.Constants.ArmConstants;
+import frc.robot.arm.ArmConstraints;
 
 public class Arm extends SubsystemBase {
     // Arm State
@@ -27,13 +35,19 @@ public class Arm extends SubsystemBase {
     }
 
     // Motors
-    private CANSparkMax angleMotor = new CANSparkMax(16, MotorType.kBrushless);
-    private CANSparkMax winchMotor = new CANSparkMax(15, MotorType.kBrushless);
+    private CANSparkMax angleMotor = HardwareRegistry.getInstance().claimSparkMax(16, MotorType.kBrushless, "Arm");
+    private CANSparkMax winchMotor = HardwareRegistry.getInstance().claimSparkMax(15, MotorType.kBrushless, "Arm");
 
     // PID
     private PIDController anglePID = ArmConstants.kARM_PID.toWPIPidController();
     private SparkMaxPIDController winchPID = winchMotor.getPIDController();
 
+    // Onboard angle control (ArmConstants.kONBOARD_ANGLE_CONTROL)
+    private SparkMaxPIDController angleOnboardPID = angleMotor.getPIDController();
+    private RelativeEncoder angleEnc = angleMotor.getEncoder();
+    private boolean angleSynced = false;
+    private double lastAngleSync = Double.NEGATIVE_INFINITY;
+
     private Double angleSP = Double.NaN;
     private Double extSP = Double.NaN;
     private Translation2d pose = new Translation2d(0.0, 0.0);
@@ -46,11 +60,29 @@ public class Arm extends SubsystemBase {
     // State
     public boolean hasBeenReleased = false;
 
+    // Profiling
+    private int profileSection = LoopProfiler.getInstance().register("Arm");
+
     // Init
     public Arm() {
         // Config Arm
-        angleMotor.setInverted(true);
-        angleMotor.setSmartCurrentLimit(70);
+        SparkMaxConfig angleConfig = new SparkMaxConfig()
+            .withInverted(true)
+            .withCurrentLimit(70);
+
+        if (ArmConstants.kONBOARD_ANGLE_CONTROL) {
+            // Encoder in degrees of the arm, with a short velocity filter (Smart Motion follows the velocity)
+            angleConfig
+                .withPID(ArmConstants.kARM_ONBOARD_PID)
+                .withEncoderConversion(360.0 / ArmConstants.kANGLE_RATIO, 360.0 / ArmConstants.kANGLE_RATIO / 60.0)
+                .withVelocityFilter(8, 2)
+                .withSmartMotion(ArmConstants.kARM_MAX_VELOCITY, ArmConstants.kARM_MAX_ACCEL);
+        }
+
+        MotorConfigurator.getInstance().configure("Arm Angle", angleMotor, angleConfig);
+
+        // Build the constraint grid now, instead of in the first loop
+        ArmConstraints.getInstance();
 
         angleAbsEncoder.setConversionFactor(360.0);
         angleAbsEncoder.setInverted(false);
@@ -58,62 +90,99 @@ public class Arm extends SubsystemBase {
         angleAbsEncoder.setRange(Range.FROM_NEGATIVE_180_TO_180);
 
         // Config Winch
-        winchMotor.setInverted(true);
-        ArmConstants.kEXT_PID.apply(winchPID);
+        MotorConfigurator.getInstance().configure("Arm Winch", winchMotor, new SparkMaxConfig()
+            .withInverted(true)
+            .withPID(ArmConstants.kEXT_PID)
+        );
+
+        // Record
+        SignalRecorder.getInstance()
+            .addDouble("Arm/Angle", this::getAngleActual)
+            .addDouble("Arm/Angle Setpoint", this::getAngleSetpoint)
+            .addDouble("Arm/Extension Setpoint", this::getExtensionSetpoint)
+            .addDouble("Arm/Pose X", () -> pose.getX())
+            .addDouble("Arm/Pose Y", () -> pose.getY())
+            .addDouble("Arm/Angle Output", this::getAngleVoltage)
+            .addDouble("Arm/Winch Position", this::getWinchEncPos)
+            .addDouble("Arm/Winch Velocity", this::getWinchEncVelocity);
     }
 
     // Go to setpoint
     @Override
-    public void periodic() { periodic(false); }
+    public void periodic() {
+        long start = LoopProfiler.getInstance().start();
+        periodic(false);
+        LoopProfiler.getInstance().stop(profileSection, start);
+    }
 
     public void periodic(boolean testing) {
+        // Keep the Spark Max's encoder synced, even when disabled (the arm can be moved by hand)
+        if (ArmConstants.kONBOARD_ANGLE_CONTROL) { syncAngleEncoder(); }
+
         if (!DriverStation.isDisabled() && !angleSP.isNaN() && !extSP.isNaN()) {
             // Verify winch motor is safe
             if (winchEnc.getPosition() < 0.0) {
                 DriverStation.reportWarning("Winch is below zero!", false);
             }
 
+            double angleTarget;
+
             if (testing) {
                 // Set angle (only testing)
-                anglePID.setSetpoint(angleSP);
+                angleTarget = angleSP;
             } else {
                 // Constrain and set position
-                Translation2d commandedPose = kinematics(extSP, angleSP);
-                double x = commandedPose.getX();
-                double y = commandedPose.getY();
-
-                double MAX_X = ArmConstants.kMAX_REACH + ArmConstants.kJOINT_TO_BUMPER_DIST - ArmConstants.kCLEARANCE;
-                double MAX_Y = ArmConstants.kMAX_HEIGHT - ArmConstants.kCLEARANCE;
-                double MIN_Y = ArmConstants.kCLEARANCE;
-
-                if (x > MAX_X ) {
-                    x = MAX_X;
-                } else if (x < -MAX_X) {
-                    x = -MAX_X;
-                }
-
-                if (y > MAX_Y) {
-                    y = MAX_Y;
-                } else if (y < MIN_Y) {
-                    y = MIN_Y;
-                }
+                ArmState legal = constrainState(extSP, angleSP);
+                pose = kinematics(legal.extension, legal.angle);
+                currentState = new ArmState(legal.angle, legal.extension + ArmConstants.kHAND_LENGTH);
 
-                pose = new Translation2d(x, y);
-                currentState = inverseKinematics(x, y);
-
-                anglePID.setSetpoint(currentState.angle);
+                angleTarget = currentState.angle;
                 winchPID.setReference(Math.max(ArmConstants.extToWinchRots(currentState.extension - ArmConstants.kHAND_LENGTH), 0.0), ControlType.kPosition, ArmConstants.kEXT_PID.kSLOT);
 
                 //System.out.println(String.format("ext: %s, angle: %s -> %s, %s -> driven ext: %s, driven angle: %s", extSP, angleSP, x,y, newPos.getX(), newPos.getY()));
             }
 
-            // Set angle voltage
-            angleMotor.setVoltage(
-                anglePID.calculate(angleAbsEncoder.getPosition())
-            );
+            if (ArmConstants.kONBOARD_ANGLE_CONTROL) {
+                // The Spark Max runs the profile and PID, only the setpoint and gravity feedforward are sent
+                if (angleSynced) {
+                    angleOnboardPID.setReference(angleTarget, ControlType.kSmartMotion, ArmConstants.kARM_ONBOARD_PID.kSLOT, getGravityFF(), ArbFFUnits.kVoltage);
+                }
+            } else {
+                // Set angle voltage
+                anglePID.setSetpoint(angleTarget);
+                angleMotor.setVoltage(
+                    anglePID.calculate(angleAbsEncoder.getPosition())
+                );
+            }
+        }
+    }
+
+    // Seed the Spark Max's encoder from the absolute encoder, and reset it if they drift apart.
+    // Only done while the arm is still, so both encoders are read at the same position.
+    private void syncAngleEncoder() {
+        double now = Timer.getFPGATimestamp();
+        if (now - lastAngleSync < ArmConstants.kANGLE_RESYNC_PERIOD) { return; }
+        if (Math.abs(angleEnc.getVelocity()) > ArmConstants.kANGLE_RESYNC_MAX_VELOCITY) { return; }
+
+        lastAngleSync = now;
+        double absolute = angleAbsEncoder.getPosition();
+
+        if (!angleSynced || Math.abs(angleEnc.getPosition() - absolute) > ArmConstants.kANGLE_RESYNC_TOLERANCE) {
+            angleEnc.setPosition(absolute);
+            angleSynced = true;
         }
     }
 
+    // Volts to hold the arm up against gravity (more when it's extended further)
+    private double getGravityFF() {
+        double extension = ArmConstants.winchRotsToTargetExt(winchEnc.getPosition());
+        double fraction = (extension - ArmConstants.kJOINT_TO_EXT_PT) / ArmConstants.kWINCH_MAX_POSITION;
+        fraction = Math.max(0.0, Math.min(1.0, fraction));
+
+        double kG = ArmConstants.kARM_KG_RETRACTED + (ArmConstants.kARM_KG_EXTENDED - ArmConstants.kARM_KG_RETRACTED) * fraction;
+        return kG * Math.sin(Units.degreesToRadians(getAngleActual()));
+    }
+
     /**
      * Set angle
      * @angle angle, in degrees
@@ -132,7 +201,7 @@ public class Arm extends SubsystemBase {
      * @param angle Angle of arm, in degrees from zero
      * @return Arm position
      */
-    private Translation2d kinematics(double ext, double angle) {
+    public static Translation2d kinematics(double ext, double angle) {
         ext += ArmConstants.kHAND_LENGTH;
 
         return new Translation2d(
@@ -141,9 +210,28 @@ public class Arm extends SubsystemBase {
         );
     }
 
+    /**
+     * Gets the state the arm is driven to for a setpoint, the nearest legal one (see {@link ArmConstraints})
+     * @param ext Extension of arm, in inches (joint to winch edge)
+     * @param angle Angle of arm, in degrees from zero
+     * @return Constrained angle and extension (joint to winch edge)
+     */
+    public static ArmState constrainState(double ext, double angle) { return ArmConstraints.getInstance().project(angle, ext); }
+
+    /**
+     * Gets the position the arm is driven to for a setpoint, the nearest legal one (see {@link ArmConstraints})
+     * @param ext Extension of arm, in inches (joint to winch edge)
+     * @param angle Angle of arm, in degrees from zero
+     * @return Constrained arm position
+     */
+    public static Translation2d constrain(double ext, double angle) {
+        ArmState state = constrainState(ext, angle);
+        return kinematics(state.extension, state.angle);
+    }
+
     // Inverse kinematics
     // X is extension, y is angle
-    private ArmState inverseKinematics(double x, double y) {
+    public static ArmState inverseKinematics(double x, double y) {
         return new ArmState(
             Units.radiansToDegrees(Math.atan2(x, y - ArmConstants.kJOINT_TO_FLOOR_DIST)),
             Math.sqrt(Math.pow(x, 2) + Math.pow(y - ArmConstants.kJOINT_TO_FLOOR_DIST, 2))
@@ -182,7 +270,9 @@ public class Arm extends SubsystemBase {
 
     // Getters
     public double getAngleSetpoint() { return angleSP; }
+    public double getExtensionSetpoint() { return extSP; }
     public double getAngleActual() { return angleAbsEncoder.getPosition(); }
+    public double getExtensionActual() { return ArmConstants.winchRotsToTargetExt(winchEnc.getPosition()); }
     public double getAngleVoltage() { return angleMotor.getAppliedOutput(); }
     public double getWinchEncPos() { return winchEnc.getPosition(); }
     public double getWinchEncVelocity() { return winchEnc.getVelocity(); }
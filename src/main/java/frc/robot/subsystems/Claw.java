@@ -1,5 +1,9 @@
 package frc.robot.subsystems;
 
+import com.frc7153.controllers.config.MotorConfigurator;
+import com.frc7153.controllers.config.SparkMaxConfig;
+import com.frc7153.hardware.HardwareRegistry;
+import com.frc7153.logging.SignalRecorder;
 import com.frc7153.math.MathUtils;
 import com.revrobotics.AbsoluteEncoder;
 import com.revrobotics.CANSparkMax;
@@ -15,8 +19,8 @@ import frc.robot.Constants.GrabPositions;
 
 public class Claw extends SubsystemBase {
     // Motors
-    private CANSparkMax lHand = new CANSparkMax(18, MotorType.kBrushless);
-    private CANSparkMax rHand = new CANSparkMax(17, MotorType.kBrushless);
+    private CANSparkMax lHand = HardwareRegistry.getInstance().claimSparkMax(18, MotorType.kBrushless, "Claw");
+    private CANSparkMax rHand = HardwareRegistry.getInstance().claimSparkMax(17, MotorType.kBrushless, "Claw");
 
     // PID loops
     private SparkMaxPIDController lHandPid = lHand.getPIDController();
@@ -28,30 +32,24 @@ public class Claw extends SubsystemBase {
 
     // Constructor
     public Claw() {
-        // Config encoders
-        lHandEnc.setInverted(false);
-        rHandEnc.setInverted(false);
-
-        lHandEnc.setZeroOffset(ClawConstants.kL_HAND_OFFSET);
-        rHandEnc.setZeroOffset(ClawConstants.kR_HAND_OFFSET);
-
-        // Config PID
-        lHandPid.setFeedbackDevice(lHandEnc);
-        rHandPid.setFeedbackDevice(rHandEnc);
-
-        // Config motors
-        lHand.setInverted(true);
-        rHand.setInverted(true);
-
-        lHand.setSmartCurrentLimit(ClawConstants.kCURRENT_LIMIT);
-        rHand.setSmartCurrentLimit(ClawConstants.kCURRENT_LIMIT);
-
-        // Config PID
-        ClawConstants.kHAND_PID.apply(lHandPid);
-        ClawConstants.kHAND_PID.apply(rHandPid);
+        // Config motors, encoders and PID
+        MotorConfigurator.getInstance().configure("Left Hand", lHand, handConfig(ClawConstants.kL_HAND_OFFSET));
+        MotorConfigurator.getInstance().configure("Right Hand", rHand, handConfig(ClawConstants.kR_HAND_OFFSET));
+
+        // Record
+        SignalRecorder.getInstance()
+            .addDouble("Claw/Left Hand", this::getLHandPos)
+            .addDouble("Claw/Right Hand", this::getRHandPos);
+    }
 
-        lHandPid.setPositionPIDWrappingEnabled(false);
-        rHandPid.setPositionPIDWrappingEnabled(false);
+    // Config for a hand (they only differ by encoder offset)
+    private static SparkMaxConfig handConfig(double encoderOffset) {
+        return new SparkMaxConfig()
+            .withInverted(true)
+            .withCurrentLimit(ClawConstants.kCURRENT_LIMIT)
+            .withAbsoluteEncoder(false, encoderOffset)
+            .withPID(ClawConstants.kHAND_PID)
+            .withPositionWrapping(false);
     }
 
     // Set Coast/Brake Mode
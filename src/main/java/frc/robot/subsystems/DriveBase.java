@@ -1,10 +1,14 @@
 package frc.robot.subsystems;
 
+import com.frc7153.logging.SignalRecorder;
 import com.frc7153.swervedrive.SwerveBase;
+import com.frc7153.swervedrive.wheeltypes.SwerveWheel;
 import com.frc7153.swervedrive.wheeltypes.SwerveWheel_FN;
+import com.frc7153.swervedrive.wheeltypes.SwerveWheel_Sim;
 
 import edu.wpi.first.math.geometry.Pose2d;
 import edu.wpi.first.math.geometry.Rotation2d;
+import edu.wpi.first.wpilibj.RobotBase;
 import edu.wpi.first.wpilibj2.command.SubsystemBase;
 import frc.robot.Constants.SwerveConstants;
 import frc.robot.peripherals.IMU;
@@ -14,38 +18,84 @@ import frc.robot.subsystems.AutoCenter;
  * For controlling the swerve drive base
  */
 public class DriveBase extends SubsystemBase {
-    // Drive Base
-    private SwerveWheel_FN fl = new SwerveWheel_FN(9, 5, 13, SwerveConstants.kWHEEL_DISTANCE.getX(), -SwerveConstants.kWHEEL_DISTANCE.getY(), SwerveConstants.kFL_OFFSET);
-    private SwerveWheel_FN fr = new SwerveWheel_FN(10, 6, 14, -SwerveConstants.kWHEEL_DISTANCE.getX(), -SwerveConstants.kWHEEL_DISTANCE.getY() , SwerveConstants.kFR_OFFSET);
-    private SwerveWheel_FN rl = new SwerveWheel_FN(7, 3, 11, SwerveConstants.kWHEEL_DISTANCE.getX(), SwerveConstants.kWHEEL_DISTANCE.getY(), SwerveConstants.kRL_OFFSET);
-    private SwerveWheel_FN rr = new SwerveWheel_FN(8, 4, 12, -SwerveConstants.kWHEEL_DISTANCE.getX(), SwerveConstants.kWHEEL_DISTANCE.getY(), SwerveConstants.kRR_OFFSET);
+    // Drive Base (simulated wheels in simulation)
+    private SwerveWheel fl = createWheel(9, 5, 13, SwerveConstants.kWHEEL_DISTANCE.getX(), -SwerveConstants.kWHEEL_DISTANCE.getY(), SwerveConstants.kFL_OFFSET);
+    private SwerveWheel fr = createWheel(10, 6, 14, -SwerveConstants.kWHEEL_DISTANCE.getX(), -SwerveConstants.kWHEEL_DISTANCE.getY() , SwerveConstants.kFR_OFFSET);
+    private SwerveWheel rl = createWheel(7, 3, 11, SwerveConstants.kWHEEL_DISTANCE.getX(), SwerveConstants.kWHEEL_DISTANCE.getY(), SwerveConstants.kRL_OFFSET);
+    private SwerveWheel rr = createWheel(8, 4, 12, -SwerveConstants.kWHEEL_DISTANCE.getX(), SwerveConstants.kWHEEL_DISTANCE.getY(), SwerveConstants.kRR_OFFSET);
+
+    private SwerveWheel[] modules = {fl, fr, rl, rr};
 
     private SwerveBase base = new SwerveBase(fl, fr, rl, rr);
     public IMU imu = new IMU();
+
+    // Pose the recorder is writing (time, x, y, rotation)
+    private final double[] recordedPose = new double[4];
     //public HolonomicDriveController holonomicDrive = new HolonomicDriveController(null, null, null);
 
-    // Reset odometry on boot
+    // Reset odometry on boot and start updating it in its own thread
     public DriveBase() {
         setPose(new Pose2d(0.0, 0.0, Rotation2d.fromDegrees(0.0)));
         base.setMaxSpeed(2.0, 360.0);
+        base.startOdometryThread(imu::getYaw, SwerveConstants.kODOMETRY_FREQUENCY);
+
+        // Record
+        String[] names = {"FL", "FR", "RL", "RR"};
+        SignalRecorder recorder = SignalRecorder.getInstance();
+
+        for (int i = 0; i < modules.length; i++) {
+            SwerveWheel module = modules[i];
+            recorder
+                .addDouble(String.format("Drive/%s/Angle", names[i]), module::getAngle)
+                .addDouble(String.format("Drive/%s/Velocity", names[i]), module::getVelocity)
+                .addDouble(String.format("Drive/%s/Distance", names[i]), module::getDistance);
+        }
+
+        // Signals are sampled in the order they're added, so X takes one snapshot for all three columns
+        recorder
+            .addDouble("Drive/Pose X", () -> {
+                base.getOdometryPose(recordedPose);
+                return recordedPose[1];
+            })
+            .addDouble("Drive/Pose Y", () -> recordedPose[2])
+            .addDouble("Drive/Pose Rotation", () -> recordedPose[3])
+            .addDouble("IMU/Yaw", imu::getYaw)
+            .addDouble("IMU/Roll", imu::getRoll)
+            .addDouble("IMU/Pitch", imu::getPitch)
+            .addDouble("IMU/Accel X", imu::getAccelX)
+            .addDouble("IMU/Accel Y", imu::getAccelY)
+            .addBoolean("IMU/Connected", imu::isConnected);
+    }
+
+    // Create a wheel (simulated in simulation, same arguments as SwerveWheel_FN)
+    private static SwerveWheel createWheel(int spin, int drive, int canCoder, double x, double y, double spinHomeLocation) {
+        if (RobotBase.isSimulation()) { return new SwerveWheel_Sim(x, y); }
+        return new SwerveWheel_FN(spin, drive, canCoder, x, y, spinHomeLocation);
     }
 
     // Get Odometry Position
     public Pose2d getPose() { return base.getOdometryPose(); }
 
+    // Get Odometry Position without creating objects (time, x, y, rotation, all from the same update)
+    public void getPose(double[] out) { base.getOdometryPose(out); }
+
     // Reset Odometry Position
     public void setPose(Pose2d origin) {
         base.startOdometry(imu.getYaw(), origin.getX(), origin.getY(), origin.getRotation().getDegrees());
         //imu.resetPose(origin);
     }
 
-    // Update odometry
-    @Override
-    public void periodic() {
-        base.updateOdometry(imu.getYaw());
-    }
-    
+    // Past Odometry Position (for delayed measurements)
+    public boolean getPoseAt(double timestamp, double[] out) { return base.getPoseAt(timestamp, out); }
+
+    // Correct Odometry Position (from vision)
+    public void addPoseCorrection(double dx, double dy, double dRot) { base.addOdometryCorrection(dx, dy, dRot); }
+
+    // Swerve sensor reads during the last loop (diagnostics)
+    public long getHardwareReadsPerLoop() { return base.getHardwareReadsPerLoop(); }
 
+    // Swerve modules, in order FL, FR, RL, RR (diagnostics)
+    public SwerveWheel[] getModules() { return modules; }
 
     // Drive
     public void stop() { base.stop(true); }
@@ -0,0 +1,196 @@
+package frc.robot.subsystems;
+
+import com.frc7153.logging.LoopProfiler;
+import com.frc7153.math.MathUtils;
+
+import edu.wpi.first.wpilibj.RobotController;
+import edu.wpi.first.wpilibj2.command.SubsystemBase;
+import frc.robot.Constants.VisionConstants;
+import frc.robot.peripherals.FieldMap;
+import frc.robot.peripherals.Limelight;
+
+/**
+ * Corrects the drive base's odometry with AprilTag positions from the Limelights.<br><br>
+ * Each measurement is compared with where odometry thought the robot was when the image was captured (not when it
+ * arrived), and the difference is blended in like a Kalman filter: the odometry's variance grows over time, and each
+ * measurement's variance grows with the square of its distance from the tag and shrinks with the number of tags seen.
+ * Measurements can also be added directly with {@code addVisionMeasurement()}, so recorded values can be replayed in simulation.
+ * <br><br>
+ * Odometry starts wherever the robot booted, so the first measurement that can be trusted on its own (several tags, or
+ * one close tag) sets the pose outright. Single tag poses far from odometry are only rejected after that.
+ */
+public class PoseEstimator extends SubsystemBase {
+    // Drive Base & Limelights
+    private final DriveBase driveBase;
+    private final Limelight[] limelights;
+    private int nextLimelight = 0;
+
+    // Tag positions (shared with the Limelights)
+    private final FieldMap fieldMap = FieldMap.load();
+
+    // Buffers
+    private final double[] measurement = new double[5];
+    private final double[] pastPose = new double[3];
+
+    // Odometry Uncertainty (variance, meters^2 and degrees^2)
+    private double xyVariance = 1.0;
+    private double rotVariance = 100.0;
+    private double lastUpdate = Double.NaN;
+    private boolean seeded = false; // Whether vision has set the pose yet
+
+    // Profiling
+    private final int profileSection = LoopProfiler.getInstance().register("PoseEstimator");
+
+    // Stats
+    private int accepted = 0;
+    private int rejected = 0;
+    private int budgetOverruns = 0;
+
+    /**
+     * Creates a new pose estimator, using the Limelights in {@code VisionConstants.kLIMELIGHTS}
+     * @param driveBase The drive base to correct
+     */
+    public PoseEstimator(DriveBase driveBase) {
+        this.driveBase = driveBase;
+
+        limelights = new Limelight[VisionConstants.kLIMELIGHTS.length];
+        for (int i = 0; i < limelights.length; i++) {
+            limelights[i] = new Limelight(VisionConstants.kLIMELIGHTS[i]);
+        }
+    }
+
+    @Override
+    public void periodic() {
+        long profileStart = LoopProfiler.getInstance().start();
+        readLimelights();
+        LoopProfiler.getInstance().stop(profileSection, profileStart);
+    }
+
+    // Read new measurements from the Limelights, within the loop budget
+    private void readLimelights() {
+        long start = RobotController.getFPGATime();
+        growUncertainty(start / 1e6);
+
+        for (int n = 0; n < limelights.length; n++) {
+            int i = (nextLimelight + n) % limelights.length;
+
+            double timestamp = limelights[i].getNewBotPose(measurement);
+            if (!Double.isNaN(timestamp)) {
+                addVisionMeasurement(timestamp, measurement[0], measurement[1], measurement[2], (int) measurement[3], (int) measurement[4]);
+            }
+
+            // Out of time, the rest are read next loop (their measurements are not lost)
+            if (n < limelights.length - 1 && RobotController.getFPGATime() - start > VisionConstants.kLOOP_BUDGET * 1e6) {
+                budgetOverruns++;
+                nextLimelight = (i + 1) % limelights.length;
+                return;
+            }
+        }
+
+        // Take turns going first, so one Limelight can't use up the whole budget
+        nextLimelight = (nextLimelight + 1) % limelights.length;
+    }
+
+    // Odometry gets less certain as the robot drives without vision
+    private void growUncertainty(double now) {
+        if (!Double.isNaN(lastUpdate)) {
+            double dt = now - lastUpdate;
+
+            xyVariance += VisionConstants.kODOMETRY_XY_DRIFT * VisionConstants.kODOMETRY_XY_DRIFT * dt;
+            rotVariance += VisionConstants.kODOMETRY_ROT_DRIFT * VisionConstants.kODOMETRY_ROT_DRIFT * dt;
+        }
+
+        lastUpdate = now;
+    }
+
+    /**
+     * Fuses a vision measurement into odometry, unless it looks like an outlier.
+     * @param timestamp Time the image was captured (FPGA seconds)
+     * @param x X position (meters, blue alliance origin)
+     * @param y Y position (meters, blue alliance origin)
+     * @param rotation Rotation (degrees)
+     * @param tagID ID of the primary tag
+     * @param tagCount Number of tags seen
+     * @return Whether the measurement was used
+     */
+    public boolean addVisionMeasurement(double timestamp, double x, double y, double rotation, int tagID, int tagCount) {
+        // Check tag and field bounds
+        if (!fieldMap.hasTag(tagID) || tagCount < 1) { return reject(); }
+
+        if (
+            x < -VisionConstants.kFIELD_MARGIN || x > VisionConstants.kFIELD_LENGTH + VisionConstants.kFIELD_MARGIN ||
+            y < -VisionConstants.kFIELD_MARGIN || y > VisionConstants.kFIELD_WIDTH + VisionConstants.kFIELD_MARGIN
+        ) { return reject(); }
+
+        // Check distance to the tag
+        double distance = Math.hypot(x - fieldMap.getTagX(tagID), y - fieldMap.getTagY(tagID));
+
+        if (tagCount == 1 && distance > VisionConstants.kMAX_TAG_DISTANCE) { return reject(); }
+
+        // Compare with odometry when the image was captured
+        if (!driveBase.getPoseAt(timestamp, pastPose)) { return reject(); }
+
+        double errorX = x - pastPose[0];
+        double errorY = y - pastPose[1];
+        double errorRot = MathUtils.normalizeAngle180(rotation - pastPose[2]);
+
+        // Measurement noise (standard deviation grows with distance, and shrinks with the square root of the tag count)
+        double scale = Math.max(distance, 1.0) / Math.sqrt(tagCount);
+        double xyStd = VisionConstants.kVISION_XY_STD * scale;
+        double rotStd = VisionConstants.kVISION_ROT_STD * scale;
+
+        // Odometry doesn't know where the robot is until vision has seen it once, so the first trusted pose replaces it
+        if (!seeded) {
+            if (tagCount == 1 && distance > VisionConstants.kSEED_TAG_DISTANCE) { return reject(); }
+
+            driveBase.addPoseCorrection(errorX, errorY, errorRot);
+            xyVariance = xyStd * xyStd;
+            rotVariance = rotStd * rotStd;
+            seeded = true;
+
+            accepted++;
+            return true;
+        }
+
+        if (tagCount == 1 && Math.hypot(errorX, errorY) > VisionConstants.kMAX_JUMP) { return reject(); }
+
+        // Kalman gain
+        double xyGain = xyVariance / (xyVariance + xyStd * xyStd);
+        double rotGain = rotVariance / (rotVariance + rotStd * rotStd);
+
+        xyVariance *= 1.0 - xyGain;
+        rotVariance *= 1.0 - rotGain;
+
+        // The correction at the time of capture is applied to the current position
+        driveBase.addPoseCorrection(errorX * xyGain, errorY * xyGain, errorRot * rotGain);
+
+        accepted++;
+        return true;
+    }
+
+    // Count a rejected measurement
+    private boolean reject() {
+        rejected++;
+        return false;
+    }
+
+    /**
+     * @return Whether vision has set the pose yet (before then, odometry is relative to where the robot booted)
+     */
+    public boolean isSeeded() { return seeded; }
+
+    /**
+     * @return Number of measurements used
+     */
+    public int getAcceptedCount() { return accepted; }
+
+    /**
+     * @return Number of measurements rejected as outliers
+     */
+    public int getRejectedCount() { return rejected; }
+
+    /**
+     * @return Number of loops that ran out of time before reading every Limelight
+     */
+    public int getBudgetOverruns() { return budgetOverruns; }
+}
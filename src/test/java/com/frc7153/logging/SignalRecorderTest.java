@@ -0,0 +1,141 @@
+package com.frc7153.logging;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.HashSet;
+import java.util.Set;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import edu.wpi.first.hal.HAL;
+import edu.wpi.first.wpilibj.DriverStation;
+import edu.wpi.first.wpilibj.Timer;
+import edu.wpi.first.wpilibj.simulation.DriverStationSim;
+import edu.wpi.first.wpilibj.simulation.SimHooks;
+
+/**
+ * Writes signals with {@link SignalRecorder} and reads them back with {@link SignalLog} (what replay uses)
+ */
+@Tag("simulation")
+public class SignalRecorderTest {
+    // Config
+    private static final double kPERIOD = 0.02; // Seconds
+    private static final int kRECORDS = 1234; // Several blocks and flushes, and a part block at the end
+
+    @TempDir
+    Path directory;
+
+    // The recorder reads the FPGA clock and the driver station, which need the HAL. The clock is stepped by the test.
+    @BeforeAll
+    public static void initializeHAL() {
+        assertTrue(HAL.initialize(500, 0));
+        SimHooks.pauseTiming();
+    }
+
+    @AfterAll
+    public static void resumeTiming() { SimHooks.resumeTiming(); }
+
+    private static void setEnabled(boolean enabled) {
+        DriverStationSim.setDsAttached(true);
+        DriverStationSim.setEnabled(enabled);
+        DriverStationSim.notifyNewData();
+        DriverStation.refreshData();
+    }
+
+    // Every value comes back exactly, at the time it was recorded
+    @Test
+    public void roundTrip() throws IOException {
+        setEnabled(true);
+
+        double[] doubles = new double[kRECORDS];
+        long[] longs = new long[kRECORDS];
+        boolean[] booleans = new boolean[kRECORDS];
+        double[] times = new double[kRECORDS];
+
+        for (int i = 0; i < kRECORDS; i++) {
+            doubles[i] = (i % 100 < 50) ? Math.sin(i * 0.1) * i : 1.5; // Changing, then holding
+            longs[i] = (long) i * i - 5000;
+            booleans[i] = (i / 7) % 3 == 0;
+        }
+        doubles[321] = Double.NaN;
+        longs[654] = Long.MIN_VALUE;
+
+        int[] index = {0};
+        SignalRecorder recorder = new SignalRecorder(directory)
+            .addDouble("Test/Double", () -> doubles[index[0]])
+            .addInteger("Test/Integer", () -> longs[index[0]])
+            .addBoolean("Test/Boolean", () -> booleans[index[0]]);
+
+        for (int i = 0; i < kRECORDS; i++) {
+            SimHooks.stepTiming(kPERIOD);
+            index[0] = i;
+            times[i] = Timer.getFPGATimestamp();
+            recorder.record();
+        }
+
+        recorder.close();
+        assertFalse(recorder.isRecording());
+
+        SignalLog log = SignalLog.read(recorder.getPath());
+        assertFalse(log.isTruncated());
+        assertEquals(kRECORDS, log.getRecordCount());
+        assertEquals(3, log.getNames().length);
+
+        double[] readTimes = log.getTimestamps();
+        double[] readDoubles = log.getDouble("Test/Double");
+        long[] readLongs = log.getInteger("Test/Integer");
+        boolean[] readBooleans = log.getBoolean("Test/Boolean");
+
+        for (int i = 0; i < kRECORDS; i++) {
+            int r = i;
+            assertEquals(times[i], readTimes[i], 1e-6, () -> String.format("Time of record %s", r));
+            assertEquals(Double.doubleToRawLongBits(doubles[i]), Double.doubleToRawLongBits(readDoubles[i]), () -> String.format("Double at record %s", r));
+            assertEquals(longs[i], readLongs[i], () -> String.format("Integer at record %s", r));
+            assertEquals(booleans[i], readBooleans[i], () -> String.format("Boolean at record %s", r));
+        }
+    }
+
+    // While disabled, only a couple of records are added a second
+    @Test
+    public void disabledIsRecordedSlowly() throws IOException {
+        setEnabled(false);
+
+        SignalRecorder recorder = new SignalRecorder(directory).addDouble("Test/Time", Timer::getFPGATimestamp);
+
+        // 1.2 seconds of loops
+        for (int i = 0; i < 60; i++) {
+            SimHooks.stepTiming(kPERIOD);
+            recorder.record();
+        }
+
+        recorder.close();
+        assertEquals(3, SignalLog.read(recorder.getPath()).getRecordCount());
+    }
+
+    // Recorders started in the same second (like boots before the clock is set) don't overwrite each other
+    @Test
+    public void namesAreUnique() throws IOException {
+        setEnabled(true);
+        Set<Path> paths = new HashSet<>();
+
+        for (int i = 0; i < 3; i++) {
+            SignalRecorder recorder = new SignalRecorder(directory).addInteger("Test/Index", () -> 7);
+            SimHooks.stepTiming(kPERIOD);
+            recorder.record();
+            recorder.close();
+
+            assertNotNull(recorder.getPath(), "File wasn't created");
+            assertTrue(paths.add(recorder.getPath()), () -> String.format("%s was used twice", recorder.getPath()));
+            assertEquals(1, SignalLog.read(recorder.getPath()).getRecordCount());
+        }
+    }
+}
@@ -0,0 +1,297 @@
+package com.frc7153.simulation;
+
+import java.util.function.BooleanSupplier;
+import java.util.function.Supplier;
+
+import com.frc7153.hardware.HardwareRegistry;
+
+import edu.wpi.first.hal.HAL;
+import edu.wpi.first.wpilibj.DriverStation;
+import edu.wpi.first.wpilibj.IterativeRobotBase;
+import edu.wpi.first.wpilibj.livewindow.LiveWindow;
+import edu.wpi.first.wpilibj.shuffleboard.Shuffleboard;
+import edu.wpi.first.wpilibj.simulation.DriverStationSim;
+import edu.wpi.first.wpilibj.simulation.GenericHIDSim;
+import edu.wpi.first.wpilibj.simulation.SimHooks;
+import edu.wpi.first.wpilibj.smartdashboard.SmartDashboard;
+import edu.wpi.first.wpilibj2.command.CommandScheduler;
+
+/**
+ * Runs a robot headless against the HAL simulation, faster than real time.<br><br>
+ * The FPGA clock is paused, and each {@code step()} advances it by one robot period and runs one loop (the same
+ * init/periodic/exit calls {@code TimedRobot} would make), as fast as the CPU allows. Notifiers (like the odometry thread)
+ * still run at their own rate, because the clock is advanced in small steps. Driver station state and joystick inputs
+ * can be scripted. The real (wall clock) time of every loop is recorded too, but only for reporting: it depends on the
+ * machine running the test, so tests should check behavior in simulated time.<br><br>
+ * Only one harness should be created per JVM, because the HAL can't free hardware (CAN IDs, ports) between robots. Tests
+ * that create one (or start the HAL) are tagged {@code simulation}, and Gradle runs each of them in its own JVM.
+ * <pre>
+ * try (SimulationHarness&lt;Robot&gt; sim = new SimulationHarness&lt;&gt;(Robot::new)) {
+ *     sim.runMatch(15.0, 135.0);
+ *     assert sim.getLoopCount() == 7502;
+ * }
+ * </pre>
+ * @param <T> Type of the robot
+ */
+public class SimulationHarness<T extends IterativeRobotBase> implements AutoCloseable {
+    // Robot Modes
+    public static enum Mode { DISABLED, AUTONOMOUS, TELEOP, TEST }
+
+    // Config
+    private static final double kTIME_STEP = 0.005; // Max amount the clock is advanced at once (seconds)
+    private static final int kJOYSTICK_PORTS = 6;
+    private static final int kJOYSTICK_AXES = 12;
+    private static final int kJOYSTICK_BUTTONS = 32;
+
+    // Robot
+    private final T robot;
+    private final double period;
+    private final int timeSteps;
+
+    // Driver Station
+    private Mode mode = Mode.DISABLED;
+    private Mode lastMode = null;
+    private final GenericHIDSim[] joysticks = new GenericHIDSim[kJOYSTICK_PORTS];
+
+    // Stats
+    private double time = 0.0;
+    private long loops = 0;
+    private long totalLoopNanos = 0;
+    private long maxLoopNanos = 0;
+    private long overruns = 0;
+
+    /**
+     * Starts the HAL simulation (with the clock paused), creates the robot and calls {@code robotInit()}.
+     * The robot starts disabled.
+     * @param robotFactory Creates the robot (for example, {@code Robot::new})
+     */
+    public SimulationHarness(Supplier<T> robotFactory) {
+        if (!HAL.initialize(500, 0)) {
+            throw new IllegalStateException("Could not initialize the HAL simulation");
+        }
+
+        SimHooks.pauseTiming();
+
+        DriverStationSim.resetData();
+        DriverStationSim.setDsAttached(true);
+        DriverStationSim.setEnabled(false);
+        DriverStationSim.notifyNewData();
+
+        robot = robotFactory.get();
+        period = robot.getPeriod();
+        timeSteps = (int) Math.ceil(period / kTIME_STEP);
+
+        robot.robotInit();
+        robot.simulationInit();
+    }
+
+    /**
+     * @return The robot being simulated
+     */
+    public T getRobot() { return robot; }
+
+    // Driver Station //
+
+    /**
+     * Sets the robot's mode. Takes effect on the next step.
+     * @param mode The mode
+     */
+    public void setMode(Mode mode) { this.mode = mode; }
+
+    /**
+     * @return The mode that will be used on the next step
+     */
+    public Mode getMode() { return mode; }
+
+    // Get (or create) a simulated joystick
+    private GenericHIDSim getJoystick(int port) {
+        if (joysticks[port] == null) {
+            joysticks[port] = new GenericHIDSim(port);
+            joysticks[port].setAxisCount(kJOYSTICK_AXES);
+            joysticks[port].setButtonCount(kJOYSTICK_BUTTONS);
+        }
+
+        return joysticks[port];
+    }
+
+    /**
+     * Sets a joystick axis. Takes effect on the next step.
+     * @param port Driver station port (0 - 5)
+     * @param axis Axis index
+     * @param value Value (-1 to 1)
+     */
+    public void setAxis(int port, int axis, double value) { getJoystick(port).setRawAxis(axis, value); }
+
+    /**
+     * Presses or releases a joystick button. Takes effect on the next step.
+     * @param port Driver station port (0 - 5)
+     * @param button Button number (starting at 1)
+     * @param pressed Whether the button is pressed
+     */
+    public void setButton(int port, int button, boolean pressed) { getJoystick(port).setRawButton(button, pressed); }
+
+    // Running //
+
+    /**
+     * Advances the clock by one robot period and runs one loop
+     */
+    public void step() {
+        // Advance the clock in small steps, so notifiers run at their own rate
+        for (int i = 0; i < timeSteps; i++) { SimHooks.stepTiming(period / timeSteps); }
+        time += period;
+
+        // Update the driver station
+        DriverStationSim.setEnabled(mode != Mode.DISABLED);
+        DriverStationSim.setAutonomous(mode == Mode.AUTONOMOUS);
+        DriverStationSim.setTest(mode == Mode.TEST);
+        DriverStationSim.notifyNewData();
+
+        // Run (and time) the loop
+        long start = System.nanoTime();
+        loop();
+        long elapsed = System.nanoTime() - start;
+
+        loops++;
+        totalLoopNanos += elapsed;
+        maxLoopNanos = Math.max(maxLoopNanos, elapsed);
+        if (elapsed > period * 1e9) { overruns++; }
+    }
+
+    // Same order as IterativeRobotBase.loopFunc() (without the watchdog)
+    private void loop() {
+        DriverStation.refreshData();
+
+        if (mode != lastMode) {
+            if (lastMode != null) { exitMode(lastMode); }
+            initMode(mode);
+            lastMode = mode;
+        }
+
+        switch (mode) {
+            case DISABLED: robot.disabledPeriodic(); break;
+            case AUTONOMOUS: robot.autonomousPeriodic(); break;
+            case TELEOP: robot.teleopPeriodic(); break;
+            case TEST: robot.testPeriodic(); break;
+        }
+
+        robot.robotPeriodic();
+
+        SmartDashboard.updateValues();
+        LiveWindow.updateValues();
+        Shuffleboard.update();
+
+        HAL.simPeriodicBefore();
+        robot.simulationPeriodic();
+        HAL.simPeriodicAfter();
+    }
+
+    // Mode init/exit
+    private void initMode(Mode m) {
+        switch (m) {
+            case DISABLED: robot.disabledInit(); break;
+            case AUTONOMOUS: robot.autonomousInit(); break;
+            case TELEOP: robot.teleopInit(); break;
+            case TEST:
+                LiveWindow.setEnabled(true);
+                Shuffleboard.enableActuatorWidgets();
+                robot.testInit();
+                break;
+        }
+    }
+
+    private void exitMode(Mode m) {
+        switch (m) {
+            case DISABLED: robot.disabledExit(); break;
+            case AUTONOMOUS: robot.autonomousExit(); break;
+            case TELEOP: robot.teleopExit(); break;
+            case TEST:
+                LiveWindow.setEnabled(false);
+                Shuffleboard.disableActuatorWidgets();
+                robot.testExit();
+                break;
+        }
+    }
+
+    /**
+     * Runs loops for an amount of (simulated) time
+     * @param seconds Time to run (seconds)
+     */
+    public void run(double seconds) {
+        long steps = Math.round(seconds / period);
+        for (long i = 0; i < steps; i++) { step(); }
+    }
+
+    /**
+     * Runs loops until a condition is true, or a timeout is reached
+     * @param condition Checked after every loop
+     * @param timeout Max (simulated) time to run (seconds)
+     * @return Whether the condition became true
+     */
+    public boolean runUntil(BooleanSupplier condition, double timeout) {
+        long steps = Math.round(timeout / period);
+
+        for (long i = 0; i < steps; i++) {
+            step();
+            if (condition.getAsBoolean()) { return true; }
+        }
+
+        return false;
+    }
+
+    /**
+     * Runs a full match: autonomous, then teleop, then disabled (one loop each way while disabled)
+     * @param autoLength Length of autonomous (seconds, 15 in a real match)
+     * @param teleopLength Length of teleop (seconds, 135 in a real match)
+     */
+    public void runMatch(double autoLength, double teleopLength) {
+        setMode(Mode.DISABLED);
+        step();
+
+        setMode(Mode.AUTONOMOUS);
+        run(autoLength);
+
+        setMode(Mode.TELEOP);
+        run(teleopLength);
+
+        setMode(Mode.DISABLED);
+        step();
+    }
+
+    // Stats //
+
+    /**
+     * @return Simulated time since the harness started (seconds)
+     */
+    public double getTime() { return time; }
+
+    /**
+     * @return Number of loops run
+     */
+    public long getLoopCount() { return loops; }
+
+    /**
+     * @return Longest (real) time a loop took (seconds)
+     */
+    public double getMaxLoopTime() { return maxLoopNanos / 1e9; }
+
+    /**
+     * @return Average (real) time a loop took (seconds)
+     */
+    public double getAverageLoopTime() { return (loops == 0) ? 0.0 : totalLoopNanos / 1e9 / loops; }
+
+    /**
+     * @return Number of loops that took longer (in real time) than the robot's period
+     */
+    public long getOverrunCount() { return overruns; }
+
+    // Stop commands and let the clock run again
+    @Override
+    public void close() {
+        CommandScheduler.getInstance().cancelAll();
+        CommandScheduler.getInstance().unregisterAllSubsystems();
+
+        robot.close();
+        HardwareRegistry.getInstance().reset();
+        SimHooks.resumeTiming();
+    }
+}
@@ -0,0 +1,51 @@
+package com.frc7153.swervedrive;
+
+import edu.wpi.first.math.geometry.Translation2d;
+import edu.wpi.first.math.kinematics.SwerveModuleState;
+
+import com.frc7153.swervedrive.wheeltypes.SwerveWheel;
+
+/**
+ * Swerve wheel without hardware, for tests and benchmarks. Remembers the last setpoint it was given, and drives at
+ * exactly that speed when {@code updateSimulation()} is called.
+ */
+public class MockSwerveWheel implements SwerveWheel {
+    // Position
+    private final Translation2d pos;
+
+    // Last setpoint
+    public double angle = 0.0;
+    public double speed = 0.0;
+
+    // Distance driven
+    public double distance = 0.0;
+
+    public MockSwerveWheel(double x, double y) { pos = new Translation2d(x, y); }
+
+    @Override
+    public Translation2d getPosition() { return pos; }
+
+    @Override
+    public double getDistance() { return distance; }
+
+    @Override
+    public double getVelocity() { return speed; }
+
+    @Override
+    public double getAngle() { return angle; }
+
+    @Override
+    public void setAngle(double angle) { this.angle = angle; }
+
+    @Override
+    public void setSpeed(double speed) { this.speed = speed; }
+
+    @Override
+    public void set(SwerveModuleState state) { set(state.angle.getDegrees(), state.speedMetersPerSecond); }
+
+    @Override
+    public void toggleCoastMode(boolean coast) {}
+
+    @Override
+    public void updateSimulation(double dt) { distance += speed * dt; }
+}
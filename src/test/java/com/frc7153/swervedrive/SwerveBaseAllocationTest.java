@@ -0,0 +1,79 @@
+package com.frc7153.swervedrive;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.lang.management.ManagementFactory;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import com.sun.management.ThreadMXBean;
+
+import edu.wpi.first.hal.HAL;
+
+/**
+ * Checks that driving and odometry don't allocate once the JIT has compiled them (allocations on the robot's small
+ * heap show up as GC pauses in the loop).
+ */
+@Tag("simulation")
+public class SwerveBaseAllocationTest {
+    // Config
+    private static final int kWARMUP_LOOPS = 20_000; // Enough for the JIT to compile the loop
+    private static final int kLOOPS = 5_000;
+    private static final double kPERIOD = 0.02; // Seconds
+
+    // Results go here, so the JIT can't skip the calls
+    private static double sink = 0.0;
+
+    // SwerveBase is a subsystem, which needs the HAL
+    @BeforeAll
+    public static void initializeHAL() { assertTrue(HAL.initialize(500, 0)); }
+
+    // One robot loop: drive, simulate the wheels, update and read odometry
+    private static void loop(SwerveBase base, int i, double[] pose, double[] pastPose) {
+        double heading = (i * 1.3) % 360.0;
+
+        base.driveFieldOriented(0.5, 0.25, 0.1, heading);
+        base.orbitAbsolute(30.0, 0.5, 0.0);
+        base.updateSimulation(kPERIOD);
+        base.updateOdometry(heading);
+
+        base.getOdometryPose(pose);
+        base.getPoseAt(pose[0] - kPERIOD, pastPose);
+        sink += pose[1] + pose[2] + pose[3] + pastPose[0];
+    }
+
+    @Test
+    public void steadyStateDoesNotAllocate() {
+        ThreadMXBean threads = (ThreadMXBean) ManagementFactory.getThreadMXBean();
+        assertTrue(threads.isThreadAllocatedMemorySupported(), "This JVM can't count allocated bytes");
+        threads.setThreadAllocatedMemoryEnabled(true);
+
+        SwerveBase base = new SwerveBase(
+            new MockSwerveWheel(0.24, 0.37),
+            new MockSwerveWheel(0.24, -0.37),
+            new MockSwerveWheel(-0.24, 0.37),
+            new MockSwerveWheel(-0.24, -0.37)
+        );
+        base.startOdometry(0.0, 0.0, 0.0, 0.0);
+
+        double[] pose = new double[4];
+        double[] pastPose = new double[3];
+
+        for (int i = 0; i < kWARMUP_LOOPS; i++) { loop(base, i, pose, pastPose); }
+
+        // Reading the counter can allocate too, so that is measured on its own and taken out
+        long thread = Thread.currentThread().getId();
+        long start = threads.getThreadAllocatedBytes(thread);
+        long overhead = threads.getThreadAllocatedBytes(thread) - start;
+
+        start = threads.getThreadAllocatedBytes(thread);
+        for (int i = 0; i < kLOOPS; i++) { loop(base, kWARMUP_LOOPS + i, pose, pastPose); }
+        long allocated = threads.getThreadAllocatedBytes(thread) - start - overhead;
+
+        assertEquals(0, allocated, String.format("%s loops allocated %s bytes", kLOOPS, allocated));
+        assertTrue(Double.isFinite(sink));
+    }
+}
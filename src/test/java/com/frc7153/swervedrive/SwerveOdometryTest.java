@@ -0,0 +1,37 @@
+package com.frc7153.swervedrive;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.Arrays;
+
+import org.junit.jupiter.api.Test;
+
+import edu.wpi.first.math.geometry.Translation2d;
+
+/**
+ * Checks that odometry integrates across a gyro that wraps at +/-180 degrees
+ */
+public class SwerveOdometryTest {
+    @Test
+    public void gyroWrapIsNotAFullTurn() {
+        SwerveOdometry odometry = new SwerveOdometry(new SwerveKinematics(
+            new Translation2d(0.24, 0.37),
+            new Translation2d(0.24, -0.37),
+            new Translation2d(-0.24, 0.37),
+            new Translation2d(-0.24, -0.37)
+        ));
+
+        double[] angles = new double[4];
+        double[] distances = new double[4];
+        odometry.reset(179.0, distances, 0.0, 0.0, 179.0);
+
+        // Drive 0.5 m forward while the gyro turns 2 degrees, across the wrap
+        Arrays.fill(distances, 0.5);
+        odometry.update(-179.0, distances, angles);
+
+        double heading = Math.toRadians(180.0);
+        assertEquals(0.5 * Math.cos(heading), odometry.getX(), 1e-3, "X (m)");
+        assertEquals(0.5 * Math.sin(heading), odometry.getY(), 1e-3, "Y (m)");
+        assertEquals(-179.0, odometry.getRotation(), 1e-9, "Rotation (degrees, follows the gyro)");
+    }
+}
@@ -0,0 +1,51 @@
+package frc.robot;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import com.frc7153.simulation.SimulationHarness;
+import com.frc7153.simulation.SimulationHarness.Mode;
+
+import edu.wpi.first.math.geometry.Pose2d;
+import edu.wpi.first.wpilibj2.command.Command;
+import edu.wpi.first.wpilibj2.command.CommandScheduler;
+import edu.wpi.first.wpilibj2.command.RunCommand;
+import frc.robot.subsystems.DriveBase;
+
+/**
+ * Runs autonomous with the simulated swerve wheels, and checks where odometry thinks the robot went
+ */
+@Tag("simulation")
+public class AutoSimulationTest {
+    @Test
+    public void driveForwardInAuto() {
+        try (SimulationHarness<Robot> sim = new SimulationHarness<>(Robot::new)) {
+            DriveBase drive = sim.getRobot().getContainer().getDriveBase();
+            sim.step();
+
+            // Drive forward at half speed (1 m/s) for 2 seconds, then stop for the rest of auto
+            sim.setMode(Mode.AUTONOMOUS);
+            sim.step();
+
+            Command driveForward = new RunCommand(() -> drive.driveRobotOriented(0.0, 0.5, 0.0), drive).withTimeout(2.0);
+            CommandScheduler.getInstance().schedule(driveForward);
+
+            // The timeout runs on the simulated clock
+            double start = sim.getTime();
+            assertTrue(sim.runUntil(() -> !driveForward.isScheduled(), 3.0), "Drive command didn't time out");
+            assertEquals(2.0, sim.getTime() - start, 0.021, "Drive time (s)");
+
+            sim.run(15.0 - (sim.getTime() - start));
+            assertEquals(15.0, sim.getTime() - start, 0.021, "Auto length (s)");
+
+            // The wheels settle just under 1 m/s (friction), and take about 0.1 m to start and stop
+            Pose2d pose = drive.getPose();
+            assertEquals(1.91, pose.getX(), 0.1, "Forward distance (m)");
+            assertEquals(0.0, pose.getY(), 0.02, "Sideways distance (m)");
+            assertEquals(0.0, pose.getRotation().getDegrees(), 0.5, "Rotation (degrees)");
+        }
+    }
+}
@@ -0,0 +1,88 @@
+package frc.robot;
+
+import java.util.BitSet;
+
+/**
+ * The ArmPI packet decoder from before {@link frc.robot.peripherals.ArmPIPacket} used bit fields, kept to check the new
+ * decoder against and as a baseline for {@code ArmBenchmark}. It reverses a {@code BitSet}, and allocates for every field.
+ */
+public class LegacyArmPIDecoder {
+    // Decoded Values
+    public String bits = "";
+    public boolean hasTarget = false;
+    public int xAngle = 0;
+    public int yAngle = 0;
+    public int dist = 0;
+    public boolean isCone = false;
+    public boolean limitSwitch = false;
+    public boolean voltageStable = true;
+    public double temp = 0.0;
+    public double cpu = 0.0;
+    public double mem = 0.0;
+    public int fps = 0;
+
+    // BitSet to Int
+    private static int bitsetToInt(BitSet set, int assumedLength) {
+        int val = 0;
+
+        for (int x = 0; x < assumedLength; x++) {
+            if (set.get(x)) {
+                val += Math.pow(2, (assumedLength - 1) - x);
+            }
+        }
+
+        return val;
+    }
+
+    // BitSet to String
+    private static String bitsetToString(BitSet set) {
+        String str = "";
+
+        for (int x = 0; x < set.length(); x++) {
+            str += (set.get(x)) ? "1" : "0";
+        }
+
+        return str;
+    }
+
+    /**
+     * Decodes a packet into this object
+     * @param packet The 8 bytes received from the Pi
+     */
+    public void decode(byte[] packet) {
+        BitSet data = BitSet.valueOf(packet);
+
+        // Reverse each byte individually
+        for (int x = 0; x < 8; x++) {
+            boolean[] newByte = new boolean[8];
+
+            for (int b = 0; b < 8; b++) {
+                newByte[b] = data.get((x*8) + (7 - b));
+            }
+
+            for (int b = 0; b < 8; b++) {
+                data.set((x*8) + b, newByte[b]);
+            }
+        }
+
+        bits = bitsetToString(data);
+
+        // Parse data
+        if (bitsetToInt(data.get(0, 16), 16) == 0) {
+            hasTarget = false;
+        } else {
+            xAngle = bitsetToInt(data.get(1, 8), 7) * (data.get(0) ? 1 : -1);
+            yAngle = bitsetToInt(data.get(9, 16), 7) * (data.get(8) ? 1 : -1);
+            isCone = data.get(26);
+            hasTarget = true;
+        }
+
+        dist = bitsetToInt(data.get(16, 26), 10);
+        limitSwitch = data.get(27);
+        voltageStable = data.get(28);
+        temp = bitsetToInt(data.get(29, 36), 7) * (9.0/5.0) + 32.0;
+        cpu = bitsetToInt(data.get(36, 43), 7) / 100.0;
+        mem = bitsetToInt(data.get(43, 50), 7) / 100.0;
+        fps = bitsetToInt(data.get(50, 56), 6);
+    }
+}
@@ -0,0 +1,39 @@
+package frc.robot;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import com.frc7153.simulation.SimulationHarness;
+
+import edu.wpi.first.wpilibj.Timer;
+import frc.robot.Constants.SwerveConstants;
+import frc.robot.subsystems.DriveBase;
+
+/**
+ * Runs the whole robot through a match in simulation, faster than real time. Everything is checked in simulated time,
+ * so the result doesn't depend on how fast the machine running the test is.
+ */
+@Tag("simulation")
+public class MatchSimulationTest {
+    @Test
+    public void runsFullMatch() {
+        try (SimulationHarness<Robot> sim = new SimulationHarness<>(Robot::new)) {
+            DriveBase drive = sim.getRobot().getContainer().getDriveBase();
+            double start = Timer.getFPGATimestamp();
+
+            sim.runMatch(15.0, 135.0);
+
+            // One disabled loop, 15 s of auto, 135 s of teleop, one disabled loop (20 ms each)
+            assertEquals(1 + 750 + 6750 + 1, sim.getLoopCount());
+            assertEquals(150.04, sim.getTime(), 1e-6);
+            assertEquals(150.04, Timer.getFPGATimestamp() - start, 1e-3, "FPGA clock (s)");
+
+            // The odometry thread kept running on the simulated clock until the end of the match
+            double[] pose = new double[4];
+            drive.getPose(pose);
+            assertEquals(Timer.getFPGATimestamp(), pose[0], 2.0 / SwerveConstants.kODOMETRY_FREQUENCY, "Last odometry update (s)");
+        }
+    }
+}
@@ -0,0 +1,106 @@
+package frc.robot;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import com.frc7153.math.MathUtils;
+import com.frc7153.simulation.SimulationHarness;
+
+import edu.wpi.first.math.geometry.Pose2d;
+import edu.wpi.first.networktables.DoubleArrayPublisher;
+import edu.wpi.first.networktables.DoublePublisher;
+import edu.wpi.first.networktables.NetworkTable;
+import edu.wpi.first.networktables.NetworkTableInstance;
+import edu.wpi.first.wpilibj.RobotController;
+import frc.robot.subsystems.DriveBase;
+import frc.robot.subsystems.PoseEstimator;
+
+/**
+ * Replays Limelight NetworkTables values (limelight-front.csv) into the robot in simulation, and checks that the pose
+ * estimator seeds the pose, fuses the rest and throws out the outlier
+ */
+@Tag("simulation")
+public class VisionReplayTest {
+    // Where the robot was when the values were captured
+    private static final double kX = 2.5; // Meters
+    private static final double kY = 1.5; // Meters
+    private static final double kROTATION = 180.0; // Degrees
+
+    // Reads the values (time, then botpose_wpiblue, then tid)
+    private static List<double[]> readSamples() throws IOException {
+        List<double[]> samples = new ArrayList<>();
+
+        try (
+            InputStream stream = VisionReplayTest.class.getResourceAsStream("limelight-front.csv");
+            BufferedReader reader = new BufferedReader(new InputStreamReader(stream, StandardCharsets.UTF_8))
+        ) {
+            for (String line = reader.readLine(); line != null; line = reader.readLine()) {
+                if (line.isBlank() || line.startsWith("#")) { continue; }
+                samples.add(Arrays.stream(line.split(",")).mapToDouble(Double::parseDouble).toArray());
+            }
+        }
+
+        return samples;
+    }
+
+    @Test
+    public void fusesRecordedPoses() throws IOException {
+        List<double[]> samples = readSamples();
+        assertEquals(50, samples.size());
+
+        try (SimulationHarness<Robot> sim = new SimulationHarness<>(Robot::new)) {
+            DriveBase drive = sim.getRobot().getContainer().getDriveBase();
+            PoseEstimator estimator = sim.getRobot().getContainer().getPoseEstimator();
+
+            NetworkTable table = NetworkTableInstance.getDefault().getTable("limelight-front");
+            DoubleArrayPublisher botPose = table.getDoubleArrayTopic("botpose_wpiblue").publish();
+            DoublePublisher tagID = table.getDoubleTopic("tid").publish();
+            assertNotNull(botPose);
+
+            // Fill the pose history, so every capture time can be looked up
+            sim.run(1.0);
+            double start = sim.getTime();
+
+            for (double[] sample : samples) {
+                while (sim.getTime() - start < sample[0] - 1e-9) { sim.step(); }
+
+                // The far single tag poses before the first two tag pose can't set the pose on their own
+                if (sample[8] > 1.0 && estimator.getAcceptedCount() == 0) {
+                    assertFalse(estimator.isSeeded(), "Seeded by a far single tag pose");
+                    assertEquals(10, estimator.getRejectedCount(), "Rejected before seeding");
+                }
+
+                // Published at the (simulated) time it arrived
+                long now = RobotController.getFPGATime();
+                tagID.set(sample[9], now);
+                botPose.set(Arrays.copyOfRange(sample, 1, 9), now);
+            }
+
+            sim.step();
+
+            // Ten far single tag poses before seeding, and the outlier after
+            assertTrue(estimator.isSeeded());
+            assertEquals(11, estimator.getRejectedCount(), "Rejected");
+            assertEquals(39, estimator.getAcceptedCount(), "Accepted");
+
+            Pose2d pose = drive.getPose();
+            assertEquals(kX, pose.getX(), 0.05, "X (m)");
+            assertEquals(kY, pose.getY(), 0.05, "Y (m)");
+            assertEquals(0.0, MathUtils.normalizeAngle180(pose.getRotation().getDegrees() - kROTATION), 2.0, "Rotation (degrees)");
+        }
+    }
+}
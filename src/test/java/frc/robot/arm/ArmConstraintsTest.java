@@ -0,0 +1,126 @@
+package frc.robot.arm;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+import frc.robot.Constants.ArmConstants;
+import frc.robot.subsystems.Arm.ArmState;
+
+/**
+ * Checks the {@link ArmConstraints} grid against the exact constraints. Every cell of the grid is checked. Nearest
+ * projections are checked against a brute force search for a sample of setpoints (a brute force search of every cell
+ * would take hours).
+ */
+public class ArmConstraintsTest {
+    // Config
+    private static final int kSUBSAMPLES = 4; // Points checked along each side of a cell
+    private static final double kBULGE = 0.001; // Most a point inside a legal cell can be past a limit (curvature between corners)
+    private static final int kNEAREST_SAMPLES = 2000;
+    private static final long kSEED = 7153;
+    private static final long kMAX_SIZE = 512 * 1024; // Bytes
+
+    private final ArmConstraints constraints = ArmConstraints.getInstance();
+
+    // Every point inside a legal cell is legal, and every cell is legal if its corners are
+    @Test
+    public void cellsMatchExactCheck() {
+        int illegal = 0;
+
+        for (int c = 0; c < constraints.getColumns(); c++) {
+            for (int r = 0; r < constraints.getRows(); r++) {
+                double angle = ArmConstraints.kMIN_ANGLE + (c + 0.5) * ArmConstraints.kANGLE_STEP;
+                double ext = ArmConstraints.kMIN_EXT + (r + 0.5) * ArmConstraints.kEXT_STEP;
+                boolean legal = constraints.isLegal(angle, ext);
+
+                boolean corners = true;
+                for (int i = 0; i < 4; i++) {
+                    corners &= ArmConstraints.isLegal(angle + ((i & 1) - 0.5) * ArmConstraints.kANGLE_STEP, ext + ((i >> 1) - 0.5) * ArmConstraints.kEXT_STEP, 0.0);
+                }
+
+                assertEquals(corners, legal, String.format("Cell at %.2f deg, %.2f in (legal if its corners are)", angle, ext));
+                if (!legal) { illegal++; continue; }
+
+                for (int i = 0; i <= kSUBSAMPLES; i++) {
+                    for (int j = 0; j <= kSUBSAMPLES; j++) {
+                        double a = angle + ((double) i / kSUBSAMPLES - 0.5) * ArmConstraints.kANGLE_STEP;
+                        double e = ext + ((double) j / kSUBSAMPLES - 0.5) * ArmConstraints.kEXT_STEP;
+
+                        if (!ArmConstraints.isLegal(a, e, kBULGE)) { throw new AssertionError(String.format("%.3f deg, %.3f in is in a legal cell, but illegal", a, e)); }
+                    }
+                }
+            }
+        }
+
+        assertEquals(constraints.getColumns() * constraints.getRows() - illegal, constraints.getLegalCount());
+    }
+
+    // Projecting any setpoint (including ones outside the grid) gives a legal state, and legal states aren't moved
+    @Test
+    public void projectionIsLegal() {
+        double margin = 10.0;
+
+        for (double angle = ArmConstraints.kMIN_ANGLE - margin; angle <= ArmConstraints.kMAX_ANGLE + margin; angle += ArmConstraints.kANGLE_STEP / 2.0) {
+            for (double ext = ArmConstraints.kMIN_EXT - margin; ext <= ArmConstraints.kMAX_EXT + margin; ext += ArmConstraints.kEXT_STEP / 2.0) {
+                ArmState projected = constraints.project(angle, ext);
+
+                if (!ArmConstraints.isLegal(projected.angle, projected.extension, kBULGE)) {
+                    throw new AssertionError(String.format("%.3f deg, %.3f in projects to %.3f deg, %.3f in, which is illegal", angle, ext, projected.angle, projected.extension));
+                }
+
+                if (constraints.isLegal(angle, ext) && (projected.angle != angle || projected.extension != ext)) {
+                    throw new AssertionError(String.format("%.3f deg, %.3f in is legal, but was moved", angle, ext));
+                }
+            }
+        }
+    }
+
+    // Projections are as close as the nearest legal cell (brute force, for a sample of illegal setpoints)
+    @Test
+    public void projectionIsNearest() {
+        Random random = new Random(kSEED);
+        double angleWeight = Math.toRadians(1.0) * ((ArmConstraints.kMIN_EXT + ArmConstraints.kMAX_EXT) / 2.0 + ArmConstants.kHAND_LENGTH);
+        double cellDiagonal = Math.hypot(ArmConstraints.kANGLE_STEP * angleWeight, ArmConstraints.kEXT_STEP);
+        int checked = 0;
+
+        while (checked < kNEAREST_SAMPLES) {
+            double angle = ArmConstraints.kMIN_ANGLE + random.nextDouble() * (ArmConstraints.kMAX_ANGLE - ArmConstraints.kMIN_ANGLE);
+            double ext = ArmConstraints.kMIN_EXT + random.nextDouble() * (ArmConstraints.kMAX_EXT - ArmConstraints.kMIN_EXT);
+            if (constraints.isLegal(angle, ext)) { continue; }
+
+            ArmState projected = constraints.project(angle, ext);
+            double distance = Math.hypot((projected.angle - angle) * angleWeight, projected.extension - ext);
+
+            // Nearest point of every legal cell
+            double best = Double.POSITIVE_INFINITY;
+
+            for (int c = 0; c < constraints.getColumns(); c++) {
+                double minAngle = ArmConstraints.kMIN_ANGLE + c * ArmConstraints.kANGLE_STEP;
+                double da = (Math.min(Math.max(angle, minAngle), minAngle + ArmConstraints.kANGLE_STEP) - angle) * angleWeight;
+                if (Math.abs(da) >= best) { continue; }
+
+                for (int r = 0; r < constraints.getRows(); r++) {
+                    double minExt = ArmConstraints.kMIN_EXT + r * ArmConstraints.kEXT_STEP;
+                    if (!constraints.isLegal(minAngle + ArmConstraints.kANGLE_STEP / 2.0, minExt + ArmConstraints.kEXT_STEP / 2.0)) { continue; }
+
+                    double de = Math.min(Math.max(ext, minExt), minExt + ArmConstraints.kEXT_STEP) - ext;
+                    best = Math.min(best, Math.hypot(da, de));
+                }
+            }
+
+            // The grid finds the nearest cell by its center, so it can be off by up to a cell
+            double nearest = best;
+            assertTrue(distance <= best + cellDiagonal, () -> String.format("%.3f deg, %.3f in projects %.3f in away, but a legal state is %.3f in away", angle, ext, distance, nearest));
+            checked++;
+        }
+    }
+
+    // The grid is kept in memory on the robot for the whole match
+    @Test
+    public void gridIsSmall() {
+        assertTrue(constraints.getSize() <= kMAX_SIZE, String.format("Grid is %.0f KB", constraints.getSize() / 1024.0));
+    }
+}
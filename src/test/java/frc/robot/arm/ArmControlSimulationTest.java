@@ -0,0 +1,233 @@
+package frc.robot.arm;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+import com.frc7153.math.MathUtils;
+
+import edu.wpi.first.math.MathUtil;
+import edu.wpi.first.math.controller.PIDController;
+import edu.wpi.first.math.system.plant.DCMotor;
+import frc.robot.Constants.ArmConstants;
+import frc.robot.Constants.ArmPositions;
+import frc.robot.subsystems.Arm;
+
+/**
+ * Compares the two ways of controlling the arm angle ({@code ArmConstants.kONBOARD_ANGLE_CONTROL}) on a model of the
+ * arm, moving from stowed up to the high cone preset.<br><br>
+ * REV's simulation doesn't run Smart Motion, so the robot can't be used for this. Instead, both loops drive the same
+ * DC motor model (like {@code SwerveWheel_Sim}). The RIO loop runs every 20 ms and its output reaches the motor a few
+ * milliseconds later. The onboard loop is modeled like the Spark Max: a trapezoid profile and a velocity loop at 1 kHz,
+ * on the built-in encoder, with the RIO's gravity feedforward.
+ */
+public class ArmControlSimulationTest {
+    // Config
+    private static final double kSUBSTEP = 0.0001; // Seconds
+    private static final double kDURATION = 5.0; // Seconds
+    private static final double kTOLERANCE = 1.0; // Degrees from the target to be settled
+    private static final int kRUNS = 20; // Each with different loop timing
+    private static final long kSEED = 7153;
+
+    // Plant (arm fully retracted, kARM_KG_RETRACTED holds it level)
+    private static final double kMASS = 4.5; // kg
+    private static final double kCENTER_OF_MASS = 0.7; // Meters from the joint
+    private static final double kINERTIA = kMASS * kCENTER_OF_MASS * kCENTER_OF_MASS + 0.5; // kg*m^2, with the winch and claw
+    private static final double kDAMPING = 0.5; // Nm per radian/second
+    private static final double kEFFICIENCY = 0.9; // Of the gearbox
+    private static final double kCURRENT_LIMIT = 70.0; // Amps (same as Arm)
+    private static final double kBATTERY = 12.0; // Volts
+
+    // Loops
+    private static final double kRIO_PERIOD = 0.02; // Seconds
+    private static final double kSPARK_PERIOD = 0.001; // Seconds
+    private static final double kMIN_DELAY = 0.001; // Seconds from the RIO's loop until the motor uses its output (CAN)
+    private static final double kMAX_JITTER = 0.003; // Seconds, added to the delay (loop timing)
+    private static final double kCOUNTS_PER_REV = 42.0; // NEO's built-in encoder
+    private static final int kVELOCITY_PERIOD = 8; // Spark Max loops (ms), same as Arm's velocity filter
+    private static final int kVELOCITY_DEPTH = 2; // Same as Arm's velocity filter
+
+    private static final DCMotor kMOTOR = DCMotor.getNEO(1);
+
+    // Target
+    private static final double kTARGET = Arm.inverseKinematics(ArmPositions.kFRONT_CONE_HIGH.getX(), ArmPositions.kFRONT_CONE_HIGH.getY()).angle;
+
+    /**
+     * How the arm moved to the target
+     */
+    static class Response {
+        /** Seconds until the arm stayed within {@link ArmControlSimulationTest#kTOLERANCE}, infinite if it never did */
+        public final double settleTime;
+        /** Most the arm went past the target (degrees) */
+        public final double overshoot;
+        /** Distance from the target at the end (degrees) */
+        public final double finalError;
+
+        private Response(double settleTime, double overshoot, double finalError) {
+            this.settleTime = settleTime;
+            this.overshoot = overshoot;
+            this.finalError = finalError;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("settle %.3f s, overshoot %.2f deg, final error %.2f deg", settleTime, overshoot, finalError);
+        }
+    }
+
+    // Onboard settles within the tolerance quickly, without swinging past, and stays there
+    @Test
+    public void onboardSettles() {
+        for (int i = 0; i < kRUNS; i++) {
+            Response response = simulate(true, kSEED + i);
+
+            assertTrue(response.settleTime < 1.5, () -> String.format("Onboard: %s", response));
+            assertTrue(response.overshoot < 2.0, () -> String.format("Onboard: %s", response));
+            assertTrue(response.finalError < ArmConstants.kARM_ONBOARD_PID.kERR, () -> String.format("Onboard: %s", response));
+        }
+    }
+
+    // Onboard settles sooner and closer than the RIO loop with the same timing
+    @Test
+    public void onboardBeatsRIO() {
+        for (int i = 0; i < kRUNS; i++) {
+            Response onboard = simulate(true, kSEED + i);
+            Response rio = simulate(false, kSEED + i);
+            String message = String.format("Onboard: %s, RIO: %s", onboard, rio);
+
+            assertTrue(onboard.settleTime < rio.settleTime, message);
+            assertTrue(onboard.finalError < rio.finalError, message);
+        }
+    }
+
+    /**
+     * Moves the arm from stowed (0 degrees, still) to the target
+     * @param onboard Whether the Spark Max runs the loop (otherwise the RIO does)
+     * @param seed Seed of the RIO's loop timing
+     * @return How the arm moved
+     */
+    static Response simulate(boolean onboard, long seed) {
+        Random random = new Random(seed);
+
+        // Plant
+        double angle = 0.0; // Radians
+        double velocity = 0.0; // Radians per second
+        double voltage = 0.0;
+
+        // RIO
+        PIDController rioPID = ArmConstants.kARM_PID.toWPIPidController();
+        rioPID.setSetpoint(kTARGET);
+        double nextRIOLoop = 0.0;
+        double pending = 0.0; // Output on its way to the motor (volts)
+        double pendingTime = Double.NaN;
+
+        // Spark Max
+        Profile profile = new Profile(0.0, kTARGET, ArmConstants.kARM_MAX_VELOCITY, ArmConstants.kARM_MAX_ACCEL);
+        double nextSparkLoop = 0.0;
+        double[] positions = new double[kVELOCITY_PERIOD + kVELOCITY_DEPTH];
+        int loops = 0;
+        double accumulator = 0.0;
+        double arbFF = 0.0; // Volts
+
+        // Response
+        double lastOutside = 0.0;
+        double overshoot = 0.0;
+
+        for (int step = 0; step * kSUBSTEP < kDURATION; step++) {
+            double time = step * kSUBSTEP;
+            double degrees = Math.toDegrees(angle);
+
+            // RIO loop (Arm.periodic())
+            if (time >= nextRIOLoop) {
+                pending = onboard
+                    ? ArmConstants.kARM_KG_RETRACTED * Math.sin(angle)
+                    : rioPID.calculate(degrees);
+                pendingTime = time + kMIN_DELAY + random.nextDouble() * kMAX_JITTER;
+                nextRIOLoop += kRIO_PERIOD;
+            }
+
+            if (time >= pendingTime) {
+                if (onboard) { arbFF = pending; } else { voltage = pending; }
+                pendingTime = Double.NaN;
+            }
+
+            // Spark Max loop (Smart Motion)
+            if (onboard && time >= nextSparkLoop) {
+                double countSize = 360.0 / ArmConstants.kANGLE_RATIO / kCOUNTS_PER_REV;
+                positions[loops % positions.length] = Math.floor(degrees / countSize) * countSize;
+                loops++;
+
+                double measured = 0.0;
+                if (loops >= positions.length) {
+                    for (int i = 1; i <= kVELOCITY_DEPTH; i++) {
+                        double newer = positions[(loops - i) % positions.length];
+                        double older = positions[(loops - i - kVELOCITY_PERIOD + positions.length) % positions.length];
+                        measured += (newer - older) / (kVELOCITY_PERIOD * kSPARK_PERIOD) / kVELOCITY_DEPTH;
+                    }
+                }
+
+                double reference = profile.getVelocity(time);
+                double error = reference - measured;
+                accumulator += ArmConstants.kARM_ONBOARD_PID.kI * error;
+
+                double output = ArmConstants.kARM_ONBOARD_PID.kFF * reference + ArmConstants.kARM_ONBOARD_PID.kP * error + accumulator;
+                output = MathUtil.clamp(output, ArmConstants.kARM_ONBOARD_PID.kOUTPUT_MIN, ArmConstants.kARM_ONBOARD_PID.kOUTPUT_MAX);
+                voltage = output * kBATTERY + arbFF;
+
+                nextSparkLoop += kSPARK_PERIOD;
+            }
+
+            // Plant (gravity pulls against the feedforward)
+            double applied = MathUtil.clamp(voltage, -kBATTERY, kBATTERY);
+            double current = MathUtils.symmetricClamp(kMOTOR.getCurrent(velocity * ArmConstants.kANGLE_RATIO, applied), kCURRENT_LIMIT);
+            double torque = kMOTOR.getTorque(current) * ArmConstants.kANGLE_RATIO * kEFFICIENCY
+                - kMASS * 9.81 * kCENTER_OF_MASS * Math.sin(angle)
+                - kDAMPING * velocity;
+
+            velocity += torque / kINERTIA * kSUBSTEP;
+            angle += velocity * kSUBSTEP;
+
+            // Response
+            degrees = Math.toDegrees(angle);
+            overshoot = Math.max(overshoot, degrees - kTARGET);
+            if (Math.abs(degrees - kTARGET) > kTOLERANCE) { lastOutside = time + kSUBSTEP; }
+        }
+
+        double finalError = Math.abs(Math.toDegrees(angle) - kTARGET);
+        return new Response(finalError > kTOLERANCE ? Double.POSITIVE_INFINITY : lastOutside, overshoot, finalError);
+    }
+
+    // Smart Motion's trapezoid velocity profile, from rest to rest
+    private static class Profile {
+        private final double direction;
+        private final double maxVelocity;
+        private final double maxAccel;
+        private final double accelTime;
+        private final double cruiseTime;
+
+        public Profile(double start, double end, double maxVelocity, double maxAccel) {
+            double distance = Math.abs(end - start);
+            direction = Math.signum(end - start);
+            this.maxAccel = maxAccel;
+
+            // Triangle if it can't reach max velocity
+            if (maxVelocity * maxVelocity / maxAccel > distance) {
+                accelTime = Math.sqrt(distance / maxAccel);
+                cruiseTime = 0.0;
+                this.maxVelocity = maxAccel * accelTime;
+            } else {
+                accelTime = maxVelocity / maxAccel;
+                cruiseTime = (distance - maxVelocity * accelTime) / maxVelocity;
+                this.maxVelocity = maxVelocity;
+            }
+        }
+
+        public double getVelocity(double time) {
+            if (time < accelTime) { return direction * maxAccel * time; }
+            if (time < accelTime + cruiseTime) { return direction * maxVelocity; }
+            return direction * Math.max(0.0, maxVelocity - maxAccel * (time - accelTime - cruiseTime));
+        }
+    }
+}
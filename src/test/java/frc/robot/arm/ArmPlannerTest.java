@@ -0,0 +1,73 @@
+package frc.robot.arm;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+import edu.wpi.first.math.geometry.Translation2d;
+import frc.robot.Constants.ArmConstants;
+import frc.robot.Constants.ArmPositions;
+import frc.robot.subsystems.Arm.ArmState;
+
+/**
+ * Checks that preset moves are cached from where the arm actually starts them: a preset, stow, or wherever teleop
+ * leaves it at the stow angle
+ */
+public class ArmPlannerTest {
+    // Config
+    private static final double kTELEOP_EXT_STEP = 0.1; // Step between throttle extensions checked (inches)
+
+    private final ArmPlanner planner = new ArmPlanner(ArmPositions.kSTOW, ArmPositions.kALL);
+
+    // Every preset, including stow
+    private static List<Translation2d> getPresets() {
+        List<Translation2d> presets = new ArrayList<>(List.of(ArmPositions.kALL));
+        presets.add(ArmPositions.kSTOW);
+        return presets;
+    }
+
+    // Checks that a move is cached, and starts close to where the arm is
+    private void assertCached(ArmState from, Translation2d target) {
+        ArmTrajectory trajectory = planner.getCachedTrajectory(from, target);
+        String start = String.format("%.2f degrees, %.2f inches to %s", from.angle, from.extension, target);
+
+        assertNotNull(trajectory, () -> String.format("Not cached from %s", start));
+        assertEquals(from.angle, trajectory.getStart().angle, 1.0, () -> String.format("Start angle from %s", start));
+        assertEquals(from.extension, trajectory.getStart().extension, 1.0, () -> String.format("Start extension from %s", start));
+
+        ArmState end = ArmPlanner.toState(target);
+        assertEquals(end.angle, trajectory.getEnd().angle, 1e-9, () -> String.format("End angle from %s", start));
+        assertEquals(end.extension, trajectory.getEnd().extension, 1e-9, () -> String.format("End extension from %s", start));
+    }
+
+    // Moves between presets, and to and from stow
+    @Test
+    public void presetsAreCached() {
+        for (Translation2d from : getPresets()) {
+            for (Translation2d to : getPresets()) { assertCached(ArmPlanner.toState(from), to); }
+        }
+    }
+
+    // Teleop puts the arm back at the stow angle, with the extension anywhere on the throttle
+    @Test
+    public void teleopStartsAreCached() {
+        double angle = ArmPlanner.toState(ArmPositions.kSTOW).angle;
+
+        for (double ext = ArmConstants.kJOINT_TO_EXT_PT; ext <= ArmConstants.kJOINT_TO_EXT_PT + ArmConstants.kWINCH_MAX_POSITION; ext += kTELEOP_EXT_STEP) {
+            ArmState from = ArmPlanner.toState(ext, angle);
+            for (Translation2d to : getPresets()) { assertCached(from, to); }
+        }
+    }
+
+    // Anywhere else is planned when it's needed
+    @Test
+    public void otherStartsAreNotCached() {
+        ArmState from = ArmPlanner.toState(ArmConstants.kJOINT_TO_EXT_PT + 6.0, 20.0);
+        assertNull(planner.getCachedTrajectory(from, ArmPositions.kFRONT_CONE_HIGH));
+    }
+}
@@ -0,0 +1,140 @@
+package frc.robot.peripherals;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+import com.frc7153.packets.BitFieldLayout;
+
+import frc.robot.LegacyArmPIDecoder;
+
+/**
+ * Checks the bit field decoder against the old {@code BitSet} decoder, and against packets built by the Pi's
+ * {@code buildPacket()}
+ */
+public class ArmPIPacketTest {
+    // Config
+    private static final int kRANDOM_PACKETS = 10_000;
+    private static final long kSEED = 7153;
+
+    // Packets from buildPacket() (values in the comment are the arguments, in order)
+    private static final long[] kPI_PACKETS = {
+        0x8C073EAB046F9EB9L, // Target (12, -7), 250 cm, cone, 48 C, 35% CPU, 62% memory, 30 fps
+        0x0000001A918A009FL, // No target, limit switch, 41 C, 12% CPU, 40% memory, 0 fps
+        0x3CA1FFC46C98FFC6L, // Target (-60, 33), 1023 cm, cube, voltage unstable, 70 C, 100% CPU, 99% memory, 63 fps
+        0x850015FB710CD8CFL  // Target (5, 0), 87 cm, cone, limit switch, 55 C, 8% CPU, 51% memory, 24 fps
+    };
+
+    // Checks that both decoders read the same values
+    private static void assertSameValues(LegacyArmPIDecoder expected, ArmPIPacket actual, long packet) {
+        String bits = ArmPIPacket.toBits(packet);
+
+        assertTrue(bits.startsWith(expected.bits), bits); // BitSet drops trailing zeros
+        assertEquals(bits, actual.getBits());
+        assertEquals(expected.hasTarget, actual.hasTarget, bits);
+        assertEquals(expected.xAngle, actual.xAngle, bits);
+        assertEquals(expected.yAngle, actual.yAngle, bits);
+        assertEquals(expected.dist, actual.dist, bits);
+        assertEquals(expected.isCone, actual.isCone, bits);
+        assertEquals(expected.limitSwitch, actual.limitSwitch, bits);
+        assertEquals(expected.voltageStable, actual.voltageStable, bits);
+        assertEquals(expected.temp, actual.temp, 0.0, bits);
+        assertEquals(expected.cpu, actual.cpu, 0.0, bits);
+        assertEquals(expected.mem, actual.mem, 0.0, bits);
+        assertEquals(expected.fps, actual.fps, bits);
+    }
+
+    @Test
+    public void matchesLegacyDecoder() {
+        Random random = new Random(kSEED);
+        LegacyArmPIDecoder legacy = new LegacyArmPIDecoder();
+        ArmPIPacket packet = new ArmPIPacket();
+        byte[] bytes = new byte[8];
+
+        for (int i = 0; i < kRANDOM_PACKETS; i++) {
+            // Every few packets has no target, so the angles have to be kept from the last one
+            long raw = random.nextLong();
+            if (i % 4 == 0) { raw &= 0x0000FFFFFFFFFFFFL; }
+
+            BitFieldLayout.toBytes(raw, bytes);
+            legacy.decode(bytes);
+            packet.decode(bytes);
+
+            assertSameValues(legacy, packet, raw);
+        }
+    }
+
+    @Test
+    public void decodesPiPackets() {
+        LegacyArmPIDecoder legacy = new LegacyArmPIDecoder();
+        ArmPIPacket packet = new ArmPIPacket();
+        byte[] bytes = new byte[8];
+
+        for (long raw : kPI_PACKETS) {
+            BitFieldLayout.toBytes(raw, bytes);
+            legacy.decode(bytes);
+            packet.decode(bytes);
+
+            assertSameValues(legacy, packet, raw);
+            assertTrue(packet.checkCRC(raw), ArmPIPacket.toBits(raw));
+
+            // Fresh object, since isCone and the angles are kept from the last packet with a target
+            ArmPIPacket reencoded = new ArmPIPacket();
+            reencoded.decode(raw);
+            assertEquals(raw, reencoded.encode(), "Re-encoded " + ArmPIPacket.toBits(raw));
+        }
+
+        // Spot check the first packet against the values it was built from
+        packet.decode(kPI_PACKETS[0]);
+        assertTrue(packet.hasTarget);
+        assertEquals(12, packet.xAngle);
+        assertEquals(-7, packet.yAngle);
+        assertEquals(250, packet.dist);
+        assertTrue(packet.isCone);
+        assertEquals(48.0 * 9.0 / 5.0 + 32.0, packet.temp, 1e-9);
+        assertEquals(0.35, packet.cpu, 1e-9);
+        assertEquals(0.62, packet.mem, 1e-9);
+        assertEquals(30, packet.fps);
+    }
+
+    @Test
+    public void roundTripsValues() {
+        Random random = new Random(kSEED);
+        ArmPIPacket sent = new ArmPIPacket();
+        ArmPIPacket received = new ArmPIPacket();
+
+        for (int i = 0; i < kRANDOM_PACKETS; i++) {
+            // Values the Pi can send (non-zero angles, so there is a target)
+            sent.hasTarget = true;
+            sent.xAngle = (random.nextInt(127) + 1) * (random.nextBoolean() ? 1 : -1);
+            sent.yAngle = (random.nextInt(127) + 1) * (random.nextBoolean() ? 1 : -1);
+            sent.dist = random.nextInt(1024);
+            sent.isCone = random.nextBoolean();
+            sent.limitSwitch = random.nextBoolean();
+            sent.voltageStable = random.nextBoolean();
+            sent.temp = random.nextInt(128) * (9.0/5.0) + 32.0;
+            sent.cpu = random.nextInt(101) / 100.0;
+            sent.mem = random.nextInt(101) / 100.0;
+            sent.fps = random.nextInt(64);
+
+            long raw = sent.encode();
+            assertTrue(received.checkCRC(raw), ArmPIPacket.toBits(raw));
+            received.decode(raw);
+
+            assertEquals(sent.hasTarget, received.hasTarget);
+            assertEquals(sent.xAngle, received.xAngle);
+            assertEquals(sent.yAngle, received.yAngle);
+            assertEquals(sent.dist, received.dist);
+            assertEquals(sent.isCone, received.isCone);
+            assertEquals(sent.limitSwitch, received.limitSwitch);
+            assertEquals(sent.voltageStable, received.voltageStable);
+            assertEquals(sent.temp, received.temp, 1e-9);
+            assertEquals(sent.cpu, received.cpu, 1e-9);
+            assertEquals(sent.mem, received.mem, 1e-9);
+            assertEquals(sent.fps, received.fps);
+        }
+    }
+}
@@ -0,0 +1,172 @@
+package frc.robot.peripherals;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+import com.frc7153.packets.BitFieldLayout;
+
+/**
+ * Feeds hand-built version 2 frames to the protocol, and checks what it accepts and how it counts the rest
+ */
+public class ArmPIProtocolTest {
+    // Frame A, with a target at (-12, 7)
+    private static long frameA(int version, int seq) {
+        long a = ArmPIProtocol.kA_VERSION.set(0, version);
+        a = ArmPIProtocol.kA_SEQ.set(a, seq);
+        a = ArmPIProtocol.kA_X_POSITIVE.set(a, false);
+        a = ArmPIProtocol.kA_X.set(a, 12);
+        a = ArmPIProtocol.kA_Y_POSITIVE.set(a, true);
+        return ArmPIProtocol.kA_Y.set(a, 7);
+    }
+
+    // Frame B for a cone 250 mm away (41 C, 12% CPU, 40% memory, 30 fps, no target frames), with the CRC across both
+    private static long frameB(long a) {
+        long b = ArmPIProtocol.kB_SEQ.set(0, ArmPIProtocol.kA_SEQ.get(a));
+        b = ArmPIProtocol.kB_HAS_TARGET.set(b, true);
+        b = ArmPIProtocol.kB_IS_CONE.set(b, true);
+        b = ArmPIProtocol.kB_VOLTAGE_STABLE.set(b, true);
+        b = ArmPIProtocol.kB_DIST.set(b, 250);
+        b = ArmPIProtocol.kB_TEMP.set(b, 41);
+        b = ArmPIProtocol.kB_CPU.set(b, 12);
+        b = ArmPIProtocol.kB_MEM.set(b, 40);
+        b = ArmPIProtocol.kB_FPS.set(b, 30);
+        return ArmPIProtocol.kB_CRC.set(b, ArmPIProtocol.crc(a, b));
+    }
+
+    // Sends both frames of an update
+    private static ArmPIStatus send(ArmPIProtocol protocol, long a, long b, double now) {
+        assertNull(protocol.receive(ArmPIProtocol.kFRAME_A_API_ID, a, now), "Frame A alone completed an update");
+        return protocol.receive(ArmPIProtocol.kFRAME_B_API_ID, b, now);
+    }
+
+    @Test
+    public void acceptsGoodFrame() {
+        ArmPIProtocol protocol = new ArmPIProtocol();
+        long a = frameA(ArmPIProtocol.kVERSION, 1);
+
+        ArmPIStatus status = send(protocol, a, frameB(a), 1.5);
+
+        assertNotNull(status);
+        assertEquals(1, status.sequence);
+        assertEquals(1.5, status.timestamp, 0.0);
+        assertTrue(Double.isNaN(status.captureTime), "Capture time without a sync");
+        assertTrue(status.hasTarget);
+        assertEquals(-12, status.xAngle);
+        assertEquals(7, status.yAngle);
+        assertTrue(status.isCone);
+        assertFalse(status.limitSwitch);
+        assertTrue(status.voltageStable);
+        assertEquals(250, status.dist);
+        assertEquals(41.0 * 9.0 / 5.0 + 32.0, status.temp, 1e-9);
+        assertEquals(0.12, status.cpu, 1e-9);
+        assertEquals(0.40, status.mem, 1e-9);
+        assertEquals(30, status.fps);
+
+        assertEquals(1, protocol.getAccepted());
+        assertEquals(0, protocol.getCorrupt());
+        assertEquals(0, protocol.getDuplicate());
+        assertEquals(0, protocol.getDropped());
+    }
+
+    @Test
+    public void rejectsCorruptedCRC() {
+        ArmPIProtocol protocol = new ArmPIProtocol();
+        long a = frameA(ArmPIProtocol.kVERSION, 1);
+        long b = frameB(a);
+
+        // One flipped bit in the CRC, then one in frame A's payload
+        assertNull(send(protocol, a, b ^ 1L, 0.0));
+        assertNull(send(protocol, a ^ (1L << 20), b, 0.0));
+
+        assertEquals(0, protocol.getAccepted());
+        assertEquals(2, protocol.getCorrupt());
+    }
+
+    @Test
+    public void countsSkippedSequenceNumbers() {
+        ArmPIProtocol protocol = new ArmPIProtocol();
+        long a1 = frameA(ArmPIProtocol.kVERSION, 1);
+        long a4 = frameA(ArmPIProtocol.kVERSION, 4);
+
+        assertNotNull(send(protocol, a1, frameB(a1), 0.0));
+        ArmPIStatus status = send(protocol, a4, frameB(a4), 0.1);
+        assertNotNull(status);
+        assertEquals(4, status.sequence);
+
+        // Updates 2 and 3 never arrived
+        assertEquals(2, protocol.getDropped());
+
+        // Sending 4 again is a duplicate, not a new update
+        assertNull(send(protocol, a4, frameB(a4), 0.2));
+        assertEquals(1, protocol.getDuplicate());
+        assertEquals(2, protocol.getAccepted());
+    }
+
+    @Test
+    public void corruptUpdateIsNotDropped() {
+        ArmPIProtocol protocol = new ArmPIProtocol();
+        long a1 = frameA(ArmPIProtocol.kVERSION, 1);
+        long a2 = frameA(ArmPIProtocol.kVERSION, 2);
+        long a4 = frameA(ArmPIProtocol.kVERSION, 4);
+
+        // Update 2 arrives with a bad CRC, update 3 never arrives
+        assertNotNull(send(protocol, a1, frameB(a1), 0.0));
+        assertNull(send(protocol, a2, frameB(a2) ^ 1L, 0.1));
+        assertNotNull(send(protocol, a4, frameB(a4), 0.2));
+
+        assertEquals(2, protocol.getAccepted());
+        assertEquals(1, protocol.getCorrupt());
+        assertEquals(1, protocol.getDropped(), "Dropped (update 2 was already counted as corrupt)");
+
+        // Update 5 never arrives, update 6 is corrupt twice (still only one update that wasn't dropped)
+        long a6 = frameA(ArmPIProtocol.kVERSION, 6);
+        long a7 = frameA(ArmPIProtocol.kVERSION, 7);
+        assertNull(send(protocol, a6, frameB(a6) ^ 1L, 0.3));
+        assertNull(send(protocol, a6, frameB(a6) ^ 2L, 0.3));
+        assertNotNull(send(protocol, a7, frameB(a7), 0.4));
+
+        assertEquals(3, protocol.getCorrupt());
+        assertEquals(2, protocol.getDropped(), "Dropped (updates 3 and 5)");
+    }
+
+    @Test
+    public void rejectsWrongVersion() {
+        ArmPIProtocol protocol = new ArmPIProtocol();
+        long a = frameA(ArmPIProtocol.kVERSION + 1, 1);
+
+        // The CRC is right, so only the version is wrong
+        assertNull(send(protocol, a, frameB(a), 0.0));
+
+        assertEquals(0, protocol.getAccepted());
+        assertEquals(1, protocol.getCorrupt());
+    }
+
+    @Test
+    public void rejectsShortFrame() {
+        ArmPIProtocol protocol = new ArmPIProtocol();
+        long a = frameA(ArmPIProtocol.kVERSION, 1);
+        byte[] bytes = new byte[ArmPIProtocol.kFRAME_LENGTH];
+
+        BitFieldLayout.toBytes(a, bytes);
+        assertNull(protocol.receive(ArmPIProtocol.kFRAME_A_API_ID, bytes, bytes.length, 0.0));
+
+        // Frame B with its last byte (the CRC) missing
+        BitFieldLayout.toBytes(frameB(a), bytes);
+        assertNull(protocol.receive(ArmPIProtocol.kFRAME_B_API_ID, bytes, bytes.length - 1, 0.0));
+
+        // An empty frame would read as all zeros
+        assertNull(protocol.receive(ArmPIProtocol.kLEGACY_API_ID, bytes, 0, 0.0));
+
+        assertEquals(0, protocol.getAccepted());
+        assertEquals(2, protocol.getCorrupt());
+
+        // The full frame B still completes the update
+        assertNotNull(protocol.receive(ArmPIProtocol.kFRAME_B_API_ID, bytes, bytes.length, 0.0));
+        assertEquals(1, protocol.getAccepted());
+    }
+}